@@ -11,6 +11,7 @@ dependencies {
         api(project(":libnetty-fastcgi"))
         api(project(":libnetty-http-client"))
         api(project(":libnetty-http-server"))
+        api(project(":libnetty-http-server-processor"))
         api(project(":libnetty-resp"))
     }
 }
@@ -1,5 +1,9 @@
 package com.github.fmjsjx.libnetty.transport.io;
 
+import java.util.Optional;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollDatagramChannel;
 import io.netty.channel.epoll.EpollIoHandler;
 import io.netty.channel.epoll.EpollServerSocketChannel;
@@ -48,4 +52,9 @@ public class EpollIoTransportLibrary extends AbstractIoTransportLibrary {
         return EpollServerSocketChannel.class;
     }
 
+    @Override
+    public Optional<ChannelOption<Boolean>> reusePortOption() {
+        return Optional.of(EpollChannelOption.SO_REUSEPORT);
+    }
+
 }
@@ -3,6 +3,7 @@ package com.github.fmjsjx.libnetty.transport.io;
 import io.netty.channel.*;
 import io.netty.channel.socket.DatagramChannel;
 
+import java.util.Optional;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -51,6 +52,19 @@ public interface IoTransportLibrary {
      */
     IoHandlerFactory createIoHandlerFactory();
 
+    /**
+     * Returns the {@code SO_REUSEPORT} option of the {@link ServerChannel}s,
+     * which allows multiple server channels to bind the same port and let the
+     * kernel load-balance the incoming connections across them.
+     *
+     * @return an {@code Optional<ChannelOption<Boolean>>}, empty if not
+     *         supported
+     * @since 4.3
+     */
+    default Optional<ChannelOption<Boolean>> reusePortOption() {
+        return Optional.empty();
+    }
+
     /**
      * Create a new {@link IoEventLoopGroup} using the default number of threads.
      *
@@ -1,5 +1,9 @@
 package com.github.fmjsjx.libnetty.transport.io;
 
+import java.util.Optional;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.uring.IoUringChannelOption;
 import io.netty.channel.uring.IoUringDatagramChannel;
 import io.netty.channel.uring.IoUringIoHandler;
 import io.netty.channel.uring.IoUringServerSocketChannel;
@@ -48,4 +52,10 @@ public class IoUringIoTransportLibrary extends AbstractIoTransportLibrary {
     public Class<IoUringServerSocketChannel> serverChannelClass() {
         return IoUringServerSocketChannel.class;
     }
+
+    @Override
+    public Optional<ChannelOption<Boolean>> reusePortOption() {
+        return Optional.of(IoUringChannelOption.SO_REUSEPORT);
+    }
+
 }
@@ -17,9 +17,14 @@ class FcgiCodecUtil {
     }
 
     static void encodeRecordHeaderWithoutLengths(FcgiRecord record, ByteBuf out) {
-        out.writeByte(record.protocolVersion().version());
-        out.writeByte(record.type().type());
-        out.writeShort(record.requestId());
+        encodeRecordHeaderWithoutLengths(record.protocolVersion(), record.type(), record.requestId(), out);
+    }
+
+    static void encodeRecordHeaderWithoutLengths(FcgiVersion version, FcgiRecordType type, int requestId,
+            ByteBuf out) {
+        out.writeByte(version.version());
+        out.writeByte(type.type());
+        out.writeShort(requestId);
     }
 
     static void encodeRecordHeaderLengths(int contentLength, int paddingLength, ByteBuf out) {
@@ -20,6 +20,11 @@ final class FcgiConstants {
      */
     static final int FCGI_MAX_CONTENT_LENGTH = 65535;
 
+    /**
+     * Maximum length of content data which needs no padding.
+     */
+    static final int FCGI_MAX_ALIGNED_CONTENT_LENGTH = 65528;
+
     /**
      * Request id limit for complex services.
      */
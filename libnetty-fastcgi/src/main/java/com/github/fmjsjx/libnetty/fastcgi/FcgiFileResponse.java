@@ -0,0 +1,177 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+
+/**
+ * A FastCGI response whose {@code FCGI_STDOUT} body is backed by a file.
+ * <p>
+ * The {@link FcgiMessageEncoder} writes the file as a
+ * {@link io.netty.channel.FileRegion FileRegion}, so the file content can be
+ * transferred to the socket without being copied into the heap (if the
+ * transport supports). The file channel will be closed when this response
+ * is deallocated.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class FcgiFileResponse extends AbstractReferenceCounted implements FcgiMessage {
+
+    private final FcgiStdout stdout;
+    private final FileChannel file;
+    private final long position;
+    private final long count;
+    private final FcgiEndRequest endRequest;
+
+    /**
+     * Constructs a new {@link FcgiFileResponse} instance.
+     *
+     * @param protocolVersion the {@code FcgiVersion}
+     * @param requestId       the request id
+     * @param appStatus       the appStatus of {@code FCGI_END_REQUEST} record
+     * @param headersContent  the {@code ByteBuf} content of {@code FCGI_STDOUT}
+     *                        before the file, usually the CGI headers
+     * @param file            the file channel
+     * @param position        the position of the file where the transfer
+     *                        begins
+     * @param count           the number of bytes of the file to transfer
+     */
+    public FcgiFileResponse(FcgiVersion protocolVersion, int requestId, int appStatus, ByteBuf headersContent,
+            FileChannel file, long position, long count) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be non-negative");
+        }
+        this.stdout = new FcgiStdout(protocolVersion, requestId, headersContent);
+        this.file = Objects.requireNonNull(file, "file must not be null");
+        this.position = position;
+        this.count = count;
+        this.endRequest = new FcgiEndRequest(protocolVersion, requestId, appStatus);
+    }
+
+    /**
+     * Constructs a new {@link FcgiFileResponse} instance with the whole
+     * file.
+     *
+     * @param protocolVersion the {@code FcgiVersion}
+     * @param requestId       the request id
+     * @param appStatus       the appStatus of {@code FCGI_END_REQUEST} record
+     * @param headersContent  the {@code ByteBuf} content of {@code FCGI_STDOUT}
+     *                        before the file, usually the CGI headers
+     * @param path            the path of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public FcgiFileResponse(FcgiVersion protocolVersion, int requestId, int appStatus, ByteBuf headersContent,
+            Path path) throws IOException {
+        this(protocolVersion, requestId, appStatus, headersContent, FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private FcgiFileResponse(FcgiVersion protocolVersion, int requestId, int appStatus, ByteBuf headersContent,
+            FileChannel file) throws IOException {
+        this(protocolVersion, requestId, appStatus, headersContent, file, 0, file.size());
+    }
+
+    @Override
+    public FcgiVersion protocolVersion() {
+        return endRequest.protocolVersion();
+    }
+
+    @Override
+    public int requestId() {
+        return endRequest.requestId();
+    }
+
+    /**
+     * Returns the {@code FCGI_STDOUT} record before the file.
+     *
+     * @return the {@code FcgiStdout}
+     */
+    public FcgiStdout stdout() {
+        return stdout;
+    }
+
+    /**
+     * Returns the file channel.
+     *
+     * @return the file channel
+     */
+    public FileChannel file() {
+        return file;
+    }
+
+    /**
+     * Returns the position of the file where the transfer begins.
+     *
+     * @return the position
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the number of bytes of the file to transfer.
+     *
+     * @return the number of bytes
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the {@code FCGI_END_REQUEST} record.
+     *
+     * @return the {@code FcgiEndRequest}
+     */
+    public FcgiEndRequest endRequest() {
+        return endRequest;
+    }
+
+    @Override
+    public FcgiFileResponse retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FcgiFileResponse retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FcgiFileResponse touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public FcgiFileResponse touch(Object hint) {
+        stdout.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        stdout.release();
+        try {
+            file.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public String toString() {
+        return stdout + "\n{FCGI_STDOUT, " + requestId() + ", file(" + position + ", " + count + ")}\n" + endRequest;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiGetValues.FCGI_MAX_CONNS;
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiGetValues.FCGI_MAX_REQS;
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiGetValues.FCGI_MPXS_CONNS;
+
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * A server side handler responds {@code FCGI_GET_VALUES} records with the
+ * capabilities of the application, so that the clients can negotiate the
+ * multiplexing of connections ({@code FCGI_MPXS_CONNS}).
+ * <p>
+ * The application must be able to handle concurrent requests with different
+ * request IDs on the same connection when {@code FCGI_MPXS_CONNS} is
+ * {@code 1}, the {@link FcgiMessageDecoder} demultiplexes the records by
+ * their request IDs already.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+@Sharable
+public class FcgiGetValuesHandler extends SimpleChannelInboundHandler<FcgiGetValues> {
+
+    private final int maxConns;
+    private final int maxReqs;
+    private final boolean mpxsConns;
+
+    /**
+     * Constructs a new {@link FcgiGetValuesHandler} instance.
+     *
+     * @param maxConns  the value of {@code FCGI_MAX_CONNS}
+     * @param maxReqs   the value of {@code FCGI_MAX_REQS}
+     * @param mpxsConns the value of {@code FCGI_MPXS_CONNS}
+     */
+    public FcgiGetValuesHandler(int maxConns, int maxReqs, boolean mpxsConns) {
+        this.maxConns = maxConns;
+        this.maxReqs = maxReqs;
+        this.mpxsConns = mpxsConns;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FcgiGetValues msg) {
+        FcgiGetValuesResult result = new FcgiGetValuesResult(msg.protocolVersion());
+        for (String name : msg.names()) {
+            // unknown names must be ignored
+            switch (name) {
+            case FCGI_MAX_CONNS -> result.put(name, maxConns);
+            case FCGI_MAX_REQS -> result.put(name, maxReqs);
+            case FCGI_MPXS_CONNS -> result.put(name, mpxsConns ? "1" : "0");
+            default -> {
+            }
+            }
+        }
+        ctx.writeAndFlush(result);
+    }
+
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Objects;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -24,11 +25,65 @@ import io.netty.util.collection.IntObjectMap;
 public class FcgiMessageDecoder extends ByteToMessageDecoder {
 
     private final IntObjectMap<FcgiMessageBuilder<?, ?>> map = new IntObjectHashMap<>();
+    private final boolean streaming;
+    private final int maxBufferedBytes;
+
+    /**
+     * Constructs a new {@link FcgiMessageDecoder} instance which aggregates
+     * records to full {@link FcgiRequest}s/{@link FcgiResponse}s without any
+     * limit.
+     */
+    public FcgiMessageDecoder() {
+        this(false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new {@link FcgiMessageDecoder} instance which aggregates
+     * records to full {@link FcgiRequest}s/{@link FcgiResponse}s.
+     *
+     * @param maxBufferedBytes the maximum bytes can be buffered for each
+     *                         request
+     * @since 4.3
+     */
+    public FcgiMessageDecoder(int maxBufferedBytes) {
+        this(false, maxBufferedBytes);
+    }
 
     /**
      * Constructs a new {@link FcgiMessageDecoder} instance.
+     * <p>
+     * In streaming mode, the decoder does not aggregate the content records:
+     * <ul>
+     * <li>for requests, emits an {@link FcgiRequestHeader} once the
+     * {@code FCGI_PARAMS} stream is ended, then each {@link FcgiStdin} and
+     * {@link FcgiData} chunk, and an {@link FcgiRequestEnd} at last</li>
+     * <li>for responses, emits each {@link FcgiStdout} and {@link FcgiStderr}
+     * chunk, and the {@link FcgiEndRequest} at last</li>
+     * </ul>
+     * So only the {@code FCGI_PARAMS} records are buffered in streaming mode.
+     *
+     * @param streaming        {@code true} if use streaming mode
+     * @param maxBufferedBytes the maximum bytes can be buffered for each
+     *                         request
+     * @since 4.3
      */
-    public FcgiMessageDecoder() {}
+    public FcgiMessageDecoder(boolean streaming, int maxBufferedBytes) {
+        if (maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("maxBufferedBytes must be positive");
+        }
+        this.streaming = streaming;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Returns {@code true} if this decoder is in streaming mode.
+     *
+     * @return {@code true} if this decoder is in streaming mode
+     * @since 4.3
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
@@ -44,16 +99,24 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
                     return;
                 }
                 FcgiVersion version = FcgiVersion.valueOf(FcgiCodecUtil.getVersion(in));
-                int requestId = FcgiCodecUtil.getVersion(in);
+                int requestId = FcgiCodecUtil.getRequestId(in);
                 FcgiRecordType type = FcgiRecordType.valueOf(FcgiCodecUtil.getType(in));
                 ByteBuf content = contentLength == 0 ? Unpooled.EMPTY_BUFFER
                         : in.slice(in.readerIndex() + FCGI_HEADER_LEN, contentLength);
                 in.skipBytes(fullLength);
+                if (streaming && decodeStreaming(version, requestId, type, content, out)) {
+                    continue;
+                }
                 if (type == FcgiRecordType.BEGIN_REQUEST) {
                     FcgiBeginRequest beginRequest = decodeBeginRequest(content, version, requestId);
                     FcgiRequestBuilder builder = new FcgiRequestBuilder(beginRequest);
                     map.put(requestId, builder);
                 } else if (type == FcgiRecordType.ABORT_REQUEST) {
+                    // discard the incomplete request, other multiplexed requests are not affected
+                    FcgiMessageBuilder<?, ?> builder = map.remove(requestId);
+                    if (builder != null) {
+                        builder.discard();
+                    }
                     FcgiAbortRequest abortRequest = new FcgiAbortRequest(version, requestId);
                     out.add(abortRequest);
                 } else if (type == FcgiRecordType.END_REQUEST) {
@@ -70,7 +133,7 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
                 } else if (type == FcgiRecordType.PARAMS) {
                     FcgiMessageBuilder<?, ?> builder = getAndEnsureRequestBuilder(requestId);
                     if (contentLength > 0) {
-                        builder.params(content.retain());
+                        ensureBuffered(builder, contentLength).params(content.retain());
                     } else if (builder.beginRequest().role() == FcgiRole.AUTHORIZER) {
                         // finish request for role => FCGI_AUTHORIZER
                         map.remove(requestId);
@@ -79,7 +142,7 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
                 } else if (type == FcgiRecordType.STDIN) {
                     FcgiMessageBuilder<?, ?> builder = getAndEnsureRequestBuilder(requestId);
                     if (contentLength > 0) {
-                        builder.stdin(content.retain());
+                        ensureBuffered(builder, contentLength).stdin(content.retain());
                     } else if (builder.beginRequest().role() == FcgiRole.RESPONDER) {
                         // finish request for role => FCGI_RESPONDER
                         map.remove(requestId);
@@ -92,7 +155,7 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
                         map.put(requestId, builder);
                     }
                     if (contentLength > 0) {
-                        builder.stdout(content.retain());
+                        ensureBuffered(builder, contentLength).stdout(content.retain());
                     }
                 } else if (type == FcgiRecordType.STDERR) {
                     FcgiMessageBuilder<?, ?> builder = map.get(requestId);
@@ -102,12 +165,12 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
                         map.put(requestId, builder);
                     }
                     if (contentLength > 0) {
-                        builder.stderr(content.retain());
+                        ensureBuffered(builder, contentLength).stderr(content.retain());
                     }
                 } else if (type == FcgiRecordType.DATA) {
                     FcgiMessageBuilder<?, ?> builder = getAndEnsureRequestBuilder(requestId);
                     if (contentLength > 0) {
-                        builder.data(content.retain());
+                        ensureBuffered(builder, contentLength).data(content.retain());
                     } else if (builder.beginRequest().role() == FcgiRole.FILTER) {
                         // finish request for role => FCGI_FILTER
                         map.remove(requestId);
@@ -153,6 +216,75 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
         }
     }
 
+    private boolean decodeStreaming(FcgiVersion version, int requestId, FcgiRecordType type, ByteBuf content,
+            List<Object> out) {
+        int contentLength = content.readableBytes();
+        if (type == FcgiRecordType.PARAMS) {
+            FcgiRequestBuilder builder = (FcgiRequestBuilder) getAndEnsureRequestBuilder(requestId);
+            if (contentLength > 0) {
+                ensureBuffered(builder, contentLength).params(content.retain());
+            } else {
+                FcgiBeginRequest beginRequest = builder.beginRequest();
+                out.add(new FcgiRequestHeader(beginRequest, builder.buildParams()));
+                if (beginRequest.role() == FcgiRole.AUTHORIZER) {
+                    // finish request for role => FCGI_AUTHORIZER
+                    map.remove(requestId);
+                    out.add(new FcgiRequestEnd(version, requestId));
+                }
+            }
+        } else if (type == FcgiRecordType.STDIN) {
+            FcgiMessageBuilder<?, ?> builder = getAndEnsureRequestBuilder(requestId);
+            if (contentLength > 0) {
+                out.add(new FcgiStdin(version, requestId, content.retain()));
+            } else if (builder.beginRequest().role() == FcgiRole.RESPONDER) {
+                // finish request for role => FCGI_RESPONDER
+                map.remove(requestId);
+                out.add(new FcgiRequestEnd(version, requestId));
+            }
+        } else if (type == FcgiRecordType.DATA) {
+            FcgiMessageBuilder<?, ?> builder = getAndEnsureRequestBuilder(requestId);
+            if (contentLength > 0) {
+                out.add(new FcgiData(version, requestId, content.retain()));
+            } else if (builder.beginRequest().role() == FcgiRole.FILTER) {
+                // finish request for role => FCGI_FILTER
+                map.remove(requestId);
+                out.add(new FcgiRequestEnd(version, requestId));
+            }
+        } else if (type == FcgiRecordType.STDOUT) {
+            if (contentLength > 0) {
+                out.add(new FcgiStdout(version, requestId, content.retain()));
+            }
+        } else if (type == FcgiRecordType.STDERR) {
+            if (contentLength > 0) {
+                out.add(new FcgiStderr(version, requestId, content.retain()));
+            }
+        } else if (type == FcgiRecordType.END_REQUEST) {
+            out.add(decodeEndRequest(version, requestId, content));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private FcgiMessageBuilder<?, ?> ensureBuffered(FcgiMessageBuilder<?, ?> builder, int contentLength) {
+        long bufferedBytes = (long) builder.bufferedBytes + contentLength;
+        if (bufferedBytes > maxBufferedBytes) {
+            // release the buffered content, the request can never be completed
+            map.remove(builder.requestId);
+            builder.discard();
+            throw new FcgiDecoderException("buffered bytes of request " + builder.requestId
+                    + " exceeds the limit " + maxBufferedBytes);
+        }
+        builder.bufferedBytes = (int) bufferedBytes;
+        return builder;
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        map.values().forEach(FcgiMessageBuilder::discard);
+        map.clear();
+    }
+
     private FcgiMessageBuilder<?, ?> getAndEnsureRequestBuilder(int requestId) {
         FcgiMessageBuilder<?, ?> builder = map.get(requestId);
         if (builder == null) {
@@ -181,6 +313,7 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
 
         protected final FcgiVersion protocolVersion;
         protected final int requestId;
+        int bufferedBytes;
 
         protected FcgiMessageBuilder(FcgiVersion protocolVersion, int requestId) {
             this.protocolVersion = Objects.requireNonNull(protocolVersion, "protocolVersion must not be null");
@@ -229,6 +362,17 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
             return Unpooled.wrappedBuffer(bufs.toArray(ByteBuf[]::new));
         }
 
+        void discard() {
+            // default do nothing
+        }
+
+        static final void releaseAll(List<ByteBuf> bufs) {
+            if (bufs != null) {
+                bufs.forEach(ByteBuf::release);
+                bufs.clear();
+            }
+        }
+
         abstract T build();
     }
 
@@ -276,6 +420,13 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
             return this;
         }
 
+        @Override
+        void discard() {
+            releaseAll(paramsBufs);
+            releaseAll(stdinBufs);
+            releaseAll(dataBufs);
+        }
+
         @Override
         FcgiRequest build() {
             FcgiParams params = buildParams();
@@ -287,27 +438,19 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
             return new FcgiRequest(beginRequest, params, stdin, data);
         }
 
-        private FcgiParams buildParams() {
-            FcgiParams params = new FcgiParams(protocolVersion, requestId);
-            if (!paramsBufs.isEmpty()) {
-                ByteBuf content = wrapped(paramsBufs);
-                try {
-                    for (; content.isReadable();) {
-                        int nameLength = FcgiCodecUtil.decodeVariableLength(content);
-                        int valueLength = FcgiCodecUtil.decodeVariableLength(content);
-                        String name = content.readCharSequence(nameLength, CharsetUtil.UTF_8).toString();
-                        if (valueLength > 0) {
-                            String value = content.readCharSequence(valueLength, CharsetUtil.UTF_8).toString();
-                            params.put(name, value);
-                        } else {
-                            params.put(name, "");
-                        }
-                    }
-                } finally {
-                    content.release();
-                }
+        FcgiParams buildParams() {
+            if (paramsBufs.isEmpty()) {
+                return new FcgiParams(protocolVersion, requestId);
+            }
+            ByteBuf content = wrapped(paramsBufs);
+            try {
+                // copy the content, values will be decoded on demand
+                return new LazyFcgiParams(protocolVersion, requestId, ByteBufUtil.getBytes(content));
+            } finally {
+                // the wrapped buffer takes the ownership of the parts
+                paramsBufs.clear();
+                content.release();
             }
-            return params;
         }
 
     }
@@ -348,6 +491,12 @@ public class FcgiMessageDecoder extends ByteToMessageDecoder {
             return this;
         }
 
+        @Override
+        void discard() {
+            releaseAll(stdoutBufs);
+            releaseAll(stderrBufs);
+        }
+
         @Override
         FcgiResponse build() {
             FcgiStdout stdout = new FcgiStdout(protocolVersion, requestId, wrapped(stdoutBufs));
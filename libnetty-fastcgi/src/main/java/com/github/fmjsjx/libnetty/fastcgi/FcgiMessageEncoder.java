@@ -51,6 +51,8 @@ public class FcgiMessageEncoder extends MessageToMessageEncoder<FcgiMessage> {
             encode(ctx, (FcgiRequest) msg, out);
         } else if (msg instanceof FcgiResponse) {
             encode(ctx, (FcgiResponse) msg, out);
+        } else if (msg instanceof FcgiFileResponse) {
+            encode(ctx, (FcgiFileResponse) msg, out);
         } else if (msg instanceof FcgiAbortRequest) {
             encode(ctx, (FcgiAbortRequest) msg, out);
         } else if (msg instanceof FcgiUnknownType) {
@@ -78,14 +80,25 @@ public class FcgiMessageEncoder extends MessageToMessageEncoder<FcgiMessage> {
     }
 
     private static final void encodeFcgiRecord(FcgiBeginRequest beginRequest, ByteBuf buf) {
-        FcgiCodecUtil.encodeRecordHeader(beginRequest, buf);
+        encodeBeginRequest(beginRequest, beginRequest.requestId(), beginRequest.flags(), buf);
+    }
+
+    static final void encodeBeginRequest(FcgiBeginRequest beginRequest, int requestId, int flags, ByteBuf buf) {
+        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(beginRequest.protocolVersion(), beginRequest.type(), requestId,
+                buf);
+        FcgiCodecUtil.encodeRecordHeaderLengths(beginRequest.contentLength(), beginRequest.paddingLength(), buf);
         buf.writeShort(beginRequest.role().role());
-        buf.writeByte(beginRequest.flags());
+        buf.writeByte(flags);
         buf.writeZero(5);
     }
 
     private static final void encodeFcgiRecord(FcgiParams params, ByteBuf buf) {
-        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(params, buf);
+        encodeParams(params, params.requestId(), buf);
+    }
+
+    static final void encodeParams(FcgiParams params, int requestId, ByteBuf buf) {
+        FcgiVersion version = params.protocolVersion();
+        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(version, FcgiRecordType.PARAMS, requestId, buf);
         int lengthsIndex = buf.writerIndex();
         buf.writeZero(4); // skip contentLength & paddingLength on record header
         int contentLength = 0;
@@ -100,7 +113,7 @@ public class FcgiMessageEncoder extends MessageToMessageEncoder<FcgiMessage> {
                 buf.setShort(lengthsIndex, contentLength);
                 buf.setByte(lengthsIndex + 2, paddingLength);
                 // start next FCGI_PARAMS record
-                FcgiCodecUtil.encodeRecordHeaderWithoutLengths(params, buf);
+                FcgiCodecUtil.encodeRecordHeaderWithoutLengths(version, FcgiRecordType.PARAMS, requestId, buf);
                 lengthsIndex = buf.writerIndex();
                 buf.writeZero(4);
                 contentLength = length;
@@ -116,39 +129,46 @@ public class FcgiMessageEncoder extends MessageToMessageEncoder<FcgiMessage> {
             buf.setShort(lengthsIndex, contentLength);
             buf.setByte(lengthsIndex + 2, paddingLength);
             // last FCGI_PARAMS record (empty)
-            FcgiCodecUtil.encodeRecordHeaderWithoutLengths(params, buf);
+            FcgiCodecUtil.encodeRecordHeaderWithoutLengths(version, FcgiRecordType.PARAMS, requestId, buf);
             FcgiCodecUtil.encodeRecordHeaderLengths(0, 0, buf);
         }
     }
 
     private static final ByteBuf encodeFcgiContent(ChannelHandlerContext ctx, FcgiContent msg, ByteBuf buf,
             List<Object> out, int nextLength) {
+        buf = encodeFcgiContentRecords(ctx, msg, buf, out, FCGI_HEADER_LEN + nextLength);
+        // write last content stream
+        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(msg, buf);
+        FcgiCodecUtil.encodeRecordHeaderLengths(0, 0, buf);
+        return buf;
+    }
+
+    private static final ByteBuf encodeFcgiContentRecords(ChannelHandlerContext ctx, FcgiContent msg, ByteBuf buf,
+            List<Object> out, int nextLength) {
+        // headers are written into small buffers, contents are just retained slices (no copy)
         ByteBuf content = msg.content();
+        int index = content.readerIndex();
         int contentLength = content.readableBytes();
         if (contentLength > 0) {
             for (; contentLength > FCGI_MAX_CONTENT_LENGTH;) {
+                // aligned records need no padding
                 FcgiCodecUtil.encodeRecordHeaderWithoutLengths(msg, buf);
-                FcgiCodecUtil.encodeRecordHeaderLengths(FCGI_MAX_CONTENT_LENGTH, 1, buf);
+                FcgiCodecUtil.encodeRecordHeaderLengths(FCGI_MAX_ALIGNED_CONTENT_LENGTH, 0, buf);
                 out.add(buf);
-                ByteBuf subContent = content.readRetainedSlice(FCGI_MAX_CONTENT_LENGTH);
-                out.add(subContent);
-                int capacity = 1 + FCGI_HEADER_LEN;
-                buf = ctx.alloc().buffer(capacity, capacity);
-                buf.writeZero(1); // write padding zero
-                contentLength -= FCGI_MAX_CONTENT_LENGTH;
+                out.add(content.retainedSlice(index, FCGI_MAX_ALIGNED_CONTENT_LENGTH));
+                buf = ctx.alloc().buffer(FCGI_HEADER_LEN, FCGI_HEADER_LEN);
+                index += FCGI_MAX_ALIGNED_CONTENT_LENGTH;
+                contentLength -= FCGI_MAX_ALIGNED_CONTENT_LENGTH;
             }
             FcgiCodecUtil.encodeRecordHeaderWithoutLengths(msg, buf);
             int paddingLength = FcgiCodecUtil.calculatePaddingLength(contentLength);
             FcgiCodecUtil.encodeRecordHeaderLengths(contentLength, paddingLength, buf);
             out.add(buf);
-            out.add(content.retain());
-            int capacity = paddingLength + FCGI_HEADER_LEN + nextLength;
+            out.add(index == content.readerIndex() ? content.retain() : content.retainedSlice(index, contentLength));
+            int capacity = paddingLength + nextLength;
             buf = ctx.alloc().buffer(capacity, capacity);
             buf.writeZero(paddingLength);
         }
-        // write last content stream
-        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(msg, buf);
-        FcgiCodecUtil.encodeRecordHeaderLengths(0, 0, buf);
         return buf;
     }
 
@@ -178,6 +198,37 @@ public class FcgiMessageEncoder extends MessageToMessageEncoder<FcgiMessage> {
         out.add(buf);
     }
 
+    private static final void encode(ChannelHandlerContext ctx, FcgiFileResponse msg, List<Object> out) {
+        int tailLength = FCGI_HEADER_LEN + FCGI_HEADER_LEN + 8;
+        boolean hasHeaders = msg.stdout().contentLength() > 0;
+        boolean hasFile = msg.count() > 0;
+        ByteBuf buf = null;
+        if (hasHeaders) {
+            // encode FCGI_STDOUT before the file
+            buf = ctx.alloc().buffer(FCGI_HEADER_LEN, FCGI_HEADER_LEN);
+            buf = encodeFcgiContentRecords(ctx, msg.stdout(), buf, out, hasFile ? 0 : tailLength);
+            if (hasFile) {
+                if (buf.isReadable()) {
+                    out.add(buf);
+                } else {
+                    buf.release();
+                }
+            }
+        }
+        if (hasFile) {
+            // encode FCGI_STDOUT of the file, the file region takes a reference of the message
+            out.add(new FcgiStdoutFileRegion(msg.retain()));
+            buf = ctx.alloc().buffer(tailLength, tailLength);
+        } else if (buf == null) {
+            buf = ctx.alloc().buffer(tailLength, tailLength);
+        }
+        // write last content stream
+        FcgiCodecUtil.encodeRecordHeaderWithoutLengths(msg.stdout(), buf);
+        FcgiCodecUtil.encodeRecordHeaderLengths(0, 0, buf);
+        encodeFcgiRecord(msg.endRequest(), buf);
+        out.add(buf);
+    }
+
     private static final void encodeFcgiRecord(FcgiEndRequest endRequest, ByteBuf buf) {
         FcgiCodecUtil.encodeRecordHeader(endRequest, buf);
         buf.writeInt(endRequest.appStatus());
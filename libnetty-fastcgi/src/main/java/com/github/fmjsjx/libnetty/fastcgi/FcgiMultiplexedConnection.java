@@ -0,0 +1,404 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiConstants.FCGI_HEADER_LEN;
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiConstants.FCGI_MAX_CONTENT_LENGTH;
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiConstants.FCGI_REQUEST_ID_LIMIT;
+
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+/**
+ * A client side FastCGI connection which multiplexes concurrent requests.
+ * <p>
+ * The multiplexing is negotiated by a {@code FCGI_GET_VALUES} record just
+ * after the connection is established. If the application responds
+ * {@code FCGI_MPXS_CONNS} with {@code 1}, up to
+ * {@code min(FCGI_MAX_REQS, maxRequests)} requests can be in flight on the
+ * connection at the same time, otherwise only one request will be in flight
+ * and others will wait in a queue.
+ * <p>
+ * The request IDs are allocated by the connection, the records of the
+ * concurrent requests are interleaved in chunks fairly (round-robin), so a
+ * large {@code FCGI_STDIN} stream does not block other requests, and the
+ * responses are routed back by their request IDs.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public final class FcgiMultiplexedConnection {
+
+    /**
+     * The default maximum number of concurrent requests of one connection.
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 100;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_STDIN = 1;
+    private static final int STATE_DATA = 2;
+    private static final int STATE_DONE = 3;
+
+    /**
+     * Connects to the FastCGI application and negotiates the multiplexing,
+     * with the {@link #DEFAULT_MAX_REQUESTS}.
+     *
+     * @param bootstrap the {@link Bootstrap} with the group and the channel
+     *                  class configured, which will be cloned
+     * @param address   the address of the FastCGI application
+     * @return a {@code CompletableFuture<FcgiMultiplexedConnection>}
+     */
+    public static final CompletableFuture<FcgiMultiplexedConnection> connect(Bootstrap bootstrap,
+            SocketAddress address) {
+        return connect(bootstrap, address, DEFAULT_MAX_REQUESTS);
+    }
+
+    /**
+     * Connects to the FastCGI application and negotiates the multiplexing.
+     *
+     * @param bootstrap   the {@link Bootstrap} with the group and the channel
+     *                    class configured, which will be cloned
+     * @param address     the address of the FastCGI application
+     * @param maxRequests the local limit of the concurrent requests
+     * @return a {@code CompletableFuture<FcgiMultiplexedConnection>}
+     */
+    public static final CompletableFuture<FcgiMultiplexedConnection> connect(Bootstrap bootstrap,
+            SocketAddress address, int maxRequests) {
+        if (maxRequests < 1 || maxRequests >= FCGI_REQUEST_ID_LIMIT) {
+            throw new IllegalArgumentException("maxRequests must be between 1 and " + (FCGI_REQUEST_ID_LIMIT - 1));
+        }
+        CompletableFuture<FcgiMultiplexedConnection> future = new CompletableFuture<>();
+        bootstrap.clone().handler(new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                FcgiMultiplexedConnection connection = new FcgiMultiplexedConnection(ch, maxRequests, future);
+                ch.pipeline().addLast(FcgiMessageEncoder.getInstance()).addLast(new FcgiMessageDecoder())
+                        .addLast(connection.handler);
+            }
+        }).connect(address).addListener((ChannelFuture cf) -> {
+            if (!cf.isSuccess()) {
+                future.completeExceptionally(cf.cause());
+            }
+        });
+        return future;
+    }
+
+    private final Channel channel;
+    private final int maxRequests;
+    private final Handler handler = new Handler();
+    private CompletableFuture<FcgiMultiplexedConnection> connectFuture;
+
+    private volatile boolean multiplexed;
+    private volatile int maxConcurrentRequests;
+
+    // the following fields are only accessed in the event loop
+    private int[] freeIds;
+    private int freeCount;
+    private final IntObjectMap<Exchange> exchanges = new IntObjectHashMap<>();
+    private final ArrayDeque<Exchange> waiting = new ArrayDeque<>();
+    private final ArrayDeque<Exchange> writing = new ArrayDeque<>();
+
+    private FcgiMultiplexedConnection(Channel channel, int maxRequests,
+            CompletableFuture<FcgiMultiplexedConnection> connectFuture) {
+        this.channel = channel;
+        this.maxRequests = maxRequests;
+        this.connectFuture = connectFuture;
+    }
+
+    /**
+     * Returns the {@link Channel} of this connection.
+     *
+     * @return the {@code Channel}
+     */
+    public Channel channel() {
+        return channel;
+    }
+
+    /**
+     * Returns {@code true} if the application accepts multiplexed requests on
+     * this connection.
+     *
+     * @return {@code true} if the application accepts multiplexed requests
+     */
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Returns the maximum number of the requests in flight on this
+     * connection.
+     *
+     * @return the maximum number of the concurrent requests
+     */
+    public int maxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Returns {@code true} if this connection is active.
+     *
+     * @return {@code true} if this connection is active
+     */
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    /**
+     * Sends the specified request and returns the response asynchronously.
+     * <p>
+     * The request ID of the given {@code request} will be ignored, a free ID
+     * will be allocated by this connection, and the flag
+     * {@code FCGI_KEEP_CONN} will always be set. The {@code request} will be
+     * released by this method.
+     *
+     * @param request the request
+     * @return a {@code CompletableFuture<FcgiResponse>}
+     */
+    public CompletableFuture<FcgiResponse> execute(FcgiRequest request) {
+        Objects.requireNonNull(request, "request must not be null");
+        Exchange exchange = new Exchange(request);
+        if (channel.eventLoop().inEventLoop()) {
+            enqueue(exchange);
+        } else {
+            channel.eventLoop().execute(() -> enqueue(exchange));
+        }
+        return exchange.future;
+    }
+
+    /**
+     * Closes this connection, all requests not completed will be failed.
+     *
+     * @return the {@link ChannelFuture}
+     */
+    public ChannelFuture close() {
+        return channel.close();
+    }
+
+    private void enqueue(Exchange exchange) {
+        if (!channel.isActive()) {
+            exchange.request.release();
+            exchange.fail(new ClosedChannelException());
+            return;
+        }
+        waiting.add(exchange);
+        dispatch();
+    }
+
+    private void dispatch() {
+        for (; freeCount > 0 && !waiting.isEmpty();) {
+            Exchange exchange = waiting.poll();
+            int requestId = freeIds[--freeCount];
+            exchange.requestId = requestId;
+            exchanges.put(requestId, exchange);
+            writing.add(exchange);
+        }
+        writeRecords();
+    }
+
+    private void writeRecords() {
+        boolean written = false;
+        ByteBufAllocator alloc = channel.alloc();
+        for (; !writing.isEmpty() && channel.isWritable();) {
+            Exchange exchange = writing.poll();
+            if (exchange.writeNext(alloc)) {
+                // round-robin
+                writing.add(exchange);
+            } else {
+                exchange.request.release();
+                tryFinish(exchange);
+            }
+            written = true;
+        }
+        if (written) {
+            channel.flush();
+        }
+    }
+
+    private void tryFinish(Exchange exchange) {
+        if (exchange.state == STATE_DONE && exchange.future.isDone()) {
+            // the request ID can be reused only after all records were written
+            exchanges.remove(exchange.requestId);
+            freeIds[freeCount++] = exchange.requestId;
+            dispatch();
+        }
+    }
+
+    private void negotiated(boolean multiplexed, int maxReqs) {
+        int max = multiplexed ? Math.min(maxRequests, maxReqs) : 1;
+        this.multiplexed = multiplexed;
+        this.maxConcurrentRequests = max;
+        int[] freeIds = new int[max];
+        for (int i = 0; i < max; i++) {
+            // lower IDs will be allocated first
+            freeIds[i] = max - i;
+        }
+        this.freeIds = freeIds;
+        this.freeCount = max;
+        CompletableFuture<FcgiMultiplexedConnection> connectFuture = this.connectFuture;
+        this.connectFuture = null;
+        connectFuture.complete(this);
+        dispatch();
+    }
+
+    private void failAll(Throwable cause) {
+        if (connectFuture != null) {
+            connectFuture.completeExceptionally(cause);
+            connectFuture = null;
+        }
+        for (Exchange exchange : writing) {
+            exchange.request.release();
+        }
+        writing.clear();
+        for (Exchange exchange : exchanges.values()) {
+            exchange.fail(cause);
+        }
+        exchanges.clear();
+        for (Exchange exchange : waiting) {
+            exchange.request.release();
+            exchange.fail(cause);
+        }
+        waiting.clear();
+    }
+
+    private final class Exchange {
+
+        private final FcgiRequest request;
+        private final CompletableFuture<FcgiResponse> future = new CompletableFuture<>();
+        private int requestId;
+        private int state = STATE_HEADER;
+        private ByteBuf content;
+
+        private Exchange(FcgiRequest request) {
+            this.request = request;
+        }
+
+        private void fail(Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+
+        // writes the next records, returns true if more records to write
+        private boolean writeNext(ByteBufAllocator alloc) {
+            if (state == STATE_HEADER) {
+                ByteBuf buf = alloc.buffer();
+                FcgiBeginRequest beginRequest = request.beginRequest();
+                FcgiMessageEncoder.encodeBeginRequest(beginRequest, requestId,
+                        beginRequest.flags() | FcgiBeginRequest.KEEP_CONN, buf);
+                FcgiMessageEncoder.encodeParams(request.params(), requestId, buf);
+                channel.write(buf, channel.voidPromise());
+                content = request.stdin().content().duplicate();
+                state = STATE_STDIN;
+                return true;
+            }
+            FcgiRecordType type = state == STATE_STDIN ? FcgiRecordType.STDIN : FcgiRecordType.DATA;
+            if (writeContent(alloc, type)) {
+                return true;
+            }
+            if (state == STATE_STDIN && request.data().isPresent()) {
+                content = request.data().get().content().duplicate();
+                state = STATE_DATA;
+                return true;
+            }
+            content = null;
+            state = STATE_DONE;
+            return false;
+        }
+
+        // writes one chunk, returns false if the stream was ended
+        private boolean writeContent(ByteBufAllocator alloc, FcgiRecordType type) {
+            int length = Math.min(content.readableBytes(), Math.min(CHUNK_SIZE, FCGI_MAX_CONTENT_LENGTH));
+            int paddingLength = FcgiCodecUtil.calculatePaddingLength(length);
+            ByteBuf header = alloc.buffer(FCGI_HEADER_LEN, FCGI_HEADER_LEN);
+            FcgiCodecUtil.encodeRecordHeaderWithoutLengths(request.protocolVersion(), type, requestId, header);
+            FcgiCodecUtil.encodeRecordHeaderLengths(length, paddingLength, header);
+            channel.write(header, channel.voidPromise());
+            if (length == 0) {
+                return false;
+            }
+            channel.write(content.readRetainedSlice(length), channel.voidPromise());
+            if (paddingLength > 0) {
+                channel.write(alloc.buffer(paddingLength, paddingLength).writeZero(paddingLength),
+                        channel.voidPromise());
+            }
+            return true;
+        }
+
+    }
+
+    private final class Handler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            FcgiGetValues getValues = new FcgiGetValues(FcgiVersion.VERSION_1);
+            getValues.put(FcgiGetValues.FCGI_MPXS_CONNS).put(FcgiGetValues.FCGI_MAX_REQS);
+            ctx.writeAndFlush(getValues);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof FcgiResponse response) {
+                Exchange exchange = exchanges.get(response.requestId());
+                if (exchange == null || exchange.future.isDone()) {
+                    // unknown request ID, just ignore it
+                    response.release();
+                    return;
+                }
+                exchange.future.complete(response);
+                tryFinish(exchange);
+            } else if (msg instanceof FcgiGetValuesResult result) {
+                if (connectFuture != null) {
+                    boolean multiplexed = "1".equals(result.getValue(FcgiGetValues.FCGI_MPXS_CONNS).orElse("0"));
+                    int maxReqs = result.getInt(FcgiGetValues.FCGI_MAX_REQS).orElse(maxRequests);
+                    negotiated(multiplexed, Math.max(1, maxReqs));
+                }
+            } else if (msg instanceof FcgiUnknownType) {
+                if (connectFuture != null) {
+                    // FCGI_GET_VALUES is not supported by the application
+                    negotiated(false, 1);
+                }
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel().isWritable()) {
+                writeRecords();
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            failAll(new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            failAll(cause);
+            ctx.close();
+        }
+
+    }
+
+}
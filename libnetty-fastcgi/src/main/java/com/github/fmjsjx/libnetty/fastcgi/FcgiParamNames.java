@@ -0,0 +1,114 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import io.netty.util.AsciiString;
+
+/**
+ * Well-known names of the {@code FCGI_PARAMS} (the CGI/1.1 meta-variables).
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public final class FcgiParamNames {
+
+    /**
+     * {@code "AUTH_TYPE"}
+     */
+    public static final AsciiString AUTH_TYPE = AsciiString.cached("AUTH_TYPE");
+    /**
+     * {@code "CONTENT_LENGTH"}
+     */
+    public static final AsciiString CONTENT_LENGTH = AsciiString.cached("CONTENT_LENGTH");
+    /**
+     * {@code "CONTENT_TYPE"}
+     */
+    public static final AsciiString CONTENT_TYPE = AsciiString.cached("CONTENT_TYPE");
+    /**
+     * {@code "DOCUMENT_ROOT"}
+     */
+    public static final AsciiString DOCUMENT_ROOT = AsciiString.cached("DOCUMENT_ROOT");
+    /**
+     * {@code "DOCUMENT_URI"}
+     */
+    public static final AsciiString DOCUMENT_URI = AsciiString.cached("DOCUMENT_URI");
+    /**
+     * {@code "GATEWAY_INTERFACE"}
+     */
+    public static final AsciiString GATEWAY_INTERFACE = AsciiString.cached("GATEWAY_INTERFACE");
+    /**
+     * {@code "HTTPS"}
+     */
+    public static final AsciiString HTTPS = AsciiString.cached("HTTPS");
+    /**
+     * {@code "PATH_INFO"}
+     */
+    public static final AsciiString PATH_INFO = AsciiString.cached("PATH_INFO");
+    /**
+     * {@code "PATH_TRANSLATED"}
+     */
+    public static final AsciiString PATH_TRANSLATED = AsciiString.cached("PATH_TRANSLATED");
+    /**
+     * {@code "QUERY_STRING"}
+     */
+    public static final AsciiString QUERY_STRING = AsciiString.cached("QUERY_STRING");
+    /**
+     * {@code "REMOTE_ADDR"}
+     */
+    public static final AsciiString REMOTE_ADDR = AsciiString.cached("REMOTE_ADDR");
+    /**
+     * {@code "REMOTE_HOST"}
+     */
+    public static final AsciiString REMOTE_HOST = AsciiString.cached("REMOTE_HOST");
+    /**
+     * {@code "REMOTE_PORT"}
+     */
+    public static final AsciiString REMOTE_PORT = AsciiString.cached("REMOTE_PORT");
+    /**
+     * {@code "REMOTE_USER"}
+     */
+    public static final AsciiString REMOTE_USER = AsciiString.cached("REMOTE_USER");
+    /**
+     * {@code "REQUEST_METHOD"}
+     */
+    public static final AsciiString REQUEST_METHOD = AsciiString.cached("REQUEST_METHOD");
+    /**
+     * {@code "REQUEST_SCHEME"}
+     */
+    public static final AsciiString REQUEST_SCHEME = AsciiString.cached("REQUEST_SCHEME");
+    /**
+     * {@code "REQUEST_URI"}
+     */
+    public static final AsciiString REQUEST_URI = AsciiString.cached("REQUEST_URI");
+    /**
+     * {@code "SCRIPT_FILENAME"}
+     */
+    public static final AsciiString SCRIPT_FILENAME = AsciiString.cached("SCRIPT_FILENAME");
+    /**
+     * {@code "SCRIPT_NAME"}
+     */
+    public static final AsciiString SCRIPT_NAME = AsciiString.cached("SCRIPT_NAME");
+    /**
+     * {@code "SERVER_ADDR"}
+     */
+    public static final AsciiString SERVER_ADDR = AsciiString.cached("SERVER_ADDR");
+    /**
+     * {@code "SERVER_NAME"}
+     */
+    public static final AsciiString SERVER_NAME = AsciiString.cached("SERVER_NAME");
+    /**
+     * {@code "SERVER_PORT"}
+     */
+    public static final AsciiString SERVER_PORT = AsciiString.cached("SERVER_PORT");
+    /**
+     * {@code "SERVER_PROTOCOL"}
+     */
+    public static final AsciiString SERVER_PROTOCOL = AsciiString.cached("SERVER_PROTOCOL");
+    /**
+     * {@code "SERVER_SOFTWARE"}
+     */
+    public static final AsciiString SERVER_SOFTWARE = AsciiString.cached("SERVER_SOFTWARE");
+
+    private FcgiParamNames() {
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.github.fmjsjx.libnetty.fastcgi;
 
+import java.util.Optional;
+
+import io.netty.util.AsciiString;
+
 /**
  * A {@code FCGI_PARAMS} record.
  * 
@@ -24,4 +28,22 @@ public class FcgiParams extends FcgiNameValuePairs<FcgiParams> {
         return FcgiRecordType.PARAMS;
     }
 
+    /**
+     * Returns the value of the {@code Name-Value Pair} with the specified
+     * {@code name} as an {@link AsciiString}.
+     * <p>
+     * The decoded {@link FcgiParams} returns views over the original bytes
+     * without decoding any {@code String}, so it should be only used for the
+     * values which are {@code US-ASCII} characters, such as
+     * {@link FcgiParamNames#REQUEST_METHOD} and
+     * {@link FcgiParamNames#REQUEST_URI}.
+     *
+     * @param name the name of the pair, see {@link FcgiParamNames}
+     * @return an {@code Optional<AsciiString>}
+     * @since 4.3
+     */
+    public Optional<AsciiString> getAscii(CharSequence name) {
+        return getValue(name.toString()).map(AsciiString::of);
+    }
+
 }
@@ -0,0 +1,48 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.util.Objects;
+
+/**
+ * The end marker of a FastCGI request emitted by the
+ * {@link FcgiMessageDecoder} in streaming mode.
+ * <p>
+ * It is emitted when the last input stream of the request is ended, which
+ * is {@code FCGI_STDIN} for {@code FCGI_RESPONDER}, {@code FCGI_DATA} for
+ * {@code FCGI_FILTER}, and {@code FCGI_PARAMS} for {@code FCGI_AUTHORIZER}.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class FcgiRequestEnd implements FcgiMessage {
+
+    private final FcgiVersion protocolVersion;
+    private final int requestId;
+
+    /**
+     * Constructs a new {@link FcgiRequestEnd} instance.
+     *
+     * @param protocolVersion the {@code FcgiVersion}
+     * @param requestId       the request id
+     */
+    public FcgiRequestEnd(FcgiVersion protocolVersion, int requestId) {
+        this.protocolVersion = Objects.requireNonNull(protocolVersion, "protocolVersion must not be null");
+        this.requestId = requestId;
+    }
+
+    @Override
+    public FcgiVersion protocolVersion() {
+        return protocolVersion;
+    }
+
+    @Override
+    public int requestId() {
+        return requestId;
+    }
+
+    @Override
+    public String toString() {
+        return "{FCGI_REQUEST_END, " + requestId + "}";
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+/**
+ * A handler handles {@link FcgiRequest}s and returns {@link FcgiResponse}s.
+ * <p>
+ * The handler is invoked on the worker executor of the {@link FcgiServer},
+ * so it is allowed to block. The request will be released after the handler
+ * returns, so the handler must {@code retain} the request or the contents if
+ * they will be used after returning.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+@FunctionalInterface
+public interface FcgiRequestHandler {
+
+    /**
+     * Handles the specified request.
+     *
+     * @param request the request
+     * @return the response
+     * @throws Exception if any error occurs
+     */
+    FcgiResponse handle(FcgiRequest request) throws Exception;
+
+}
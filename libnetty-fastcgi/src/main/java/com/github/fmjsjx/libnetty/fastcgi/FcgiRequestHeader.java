@@ -0,0 +1,66 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.util.Objects;
+
+/**
+ * The header of a FastCGI request, which contains the
+ * {@code FCGI_BEGIN_REQUEST} record and the {@code FCGI_PARAMS} record.
+ * <p>
+ * In streaming mode, the {@link FcgiMessageDecoder} emits this message as
+ * soon as the {@code FCGI_PARAMS} stream is ended, followed by the
+ * {@link FcgiStdin}/{@link FcgiData} chunks and an {@link FcgiRequestEnd}.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class FcgiRequestHeader implements FcgiMessage {
+
+    private final FcgiBeginRequest beginRequest;
+    private final FcgiParams params;
+
+    /**
+     * Constructs a new {@link FcgiRequestHeader} instance.
+     *
+     * @param beginRequest the {@code FCGI_BEGIN_REQUEST} record
+     * @param params       the {@code FCGI_PARAMS} record
+     */
+    public FcgiRequestHeader(FcgiBeginRequest beginRequest, FcgiParams params) {
+        this.beginRequest = Objects.requireNonNull(beginRequest, "beginRequest must not be null");
+        this.params = Objects.requireNonNull(params, "params must not be null");
+    }
+
+    @Override
+    public FcgiVersion protocolVersion() {
+        return beginRequest.protocolVersion();
+    }
+
+    @Override
+    public int requestId() {
+        return beginRequest.requestId();
+    }
+
+    /**
+     * Returns the {@code FCGI_BEGIN_REQUEST} record.
+     *
+     * @return the {@code FcgiBeginRequest}
+     */
+    public FcgiBeginRequest beginRequest() {
+        return beginRequest;
+    }
+
+    /**
+     * Returns the {@code FCGI_PARAMS} record.
+     *
+     * @return the {@code FcgiParams}
+     */
+    public FcgiParams params() {
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        return beginRequest + "\n" + params;
+    }
+
+}
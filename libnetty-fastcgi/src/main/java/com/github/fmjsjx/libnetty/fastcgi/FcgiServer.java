@@ -0,0 +1,405 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fmjsjx.libnetty.transport.io.IoTransportLibrary;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * A FastCGI application server.
+ * <p>
+ * The {@link FcgiRequest}s are dispatched to the {@link FcgiRequestHandler}
+ * on a worker executor (virtual threads by default), so the handler can
+ * block without stalling the event loops. The capacity of the server
+ * ({@code FCGI_MAX_CONNS}, {@code FCGI_MAX_REQS} and
+ * {@code FCGI_MPXS_CONNS}) is enforced and answered to the
+ * {@code FCGI_GET_VALUES} queries of the web servers.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class FcgiServer {
+
+    private static final Logger log = LoggerFactory.getLogger(FcgiServer.class);
+
+    private static final int DEFAULT_MAX_CONNS = 1024;
+    private static final int DEFAULT_MAX_REQS = 64;
+    private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    private final String name;
+    private String host;
+    private int port;
+    private int ioThreads;
+
+    private EventLoopGroup parentGroup;
+    private EventLoopGroup childGroup;
+    private boolean closeGroupsWhenShutdown;
+    private Class<? extends ServerChannel> channelClass;
+    private ServerChannel channel;
+
+    private ExecutorService executor;
+    private boolean closeExecutorWhenShutdown;
+    private FcgiRequestHandler handler;
+    private final Set<FcgiRole> roles = new HashSet<>();
+
+    private int maxConns = DEFAULT_MAX_CONNS;
+    private int maxReqs = DEFAULT_MAX_REQS;
+    private boolean mpxsConns = true;
+    private int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+    private int maxBufferedBytes = Integer.MAX_VALUE;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Constructs a new {@link FcgiServer} instance.
+     *
+     * @param name the name of the server
+     * @param port the port, {@code 0} means any free port
+     */
+    public FcgiServer(String name, int port) {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        this.port = port;
+    }
+
+    /**
+     * Returns the name of this server.
+     *
+     * @return the name of this server
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the binding port of this server.
+     *
+     * @return the binding port
+     */
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Set the binding host.
+     *
+     * @param host the binding host
+     * @return this server
+     */
+    public FcgiServer host(String host) {
+        ensureNotStarted();
+        this.host = host;
+        return this;
+    }
+
+    /**
+     * Set the number of the I/O threads, {@code 0} means default.
+     *
+     * @param ioThreads the number of the I/O threads
+     * @return this server
+     */
+    public FcgiServer ioThreads(int ioThreads) {
+        ensureNotStarted();
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    /**
+     * Set the transport of this server.
+     *
+     * @param group        the {@link EventLoopGroup} for both parent and child
+     * @param channelClass the class of the {@link ServerChannel}
+     * @return this server
+     */
+    public FcgiServer transport(EventLoopGroup group, Class<? extends ServerChannel> channelClass) {
+        ensureNotStarted();
+        this.parentGroup = this.childGroup = Objects.requireNonNull(group, "group must not be null");
+        this.channelClass = Objects.requireNonNull(channelClass, "channelClass must not be null");
+        return this;
+    }
+
+    /**
+     * Set the worker executor which the requests will be dispatched to.
+     * <p>
+     * The executor will not be shut down with this server. A virtual thread
+     * per task executor will be used if no executor is set.
+     *
+     * @param executor the worker executor
+     * @return this server
+     */
+    public FcgiServer executor(ExecutorService executor) {
+        ensureNotStarted();
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        return this;
+    }
+
+    /**
+     * Set the handler.
+     *
+     * @param handler the {@link FcgiRequestHandler}
+     * @return this server
+     */
+    public FcgiServer handler(FcgiRequestHandler handler) {
+        ensureNotStarted();
+        this.handler = Objects.requireNonNull(handler, "handler must not be null");
+        return this;
+    }
+
+    /**
+     * Add the supported roles, {@code FCGI_RESPONDER} is supported only by
+     * default.
+     * <p>
+     * The requests with the unsupported roles will be rejected with
+     * {@code FCGI_UNKNOWN_ROLE}.
+     *
+     * @param roles the supported roles
+     * @return this server
+     */
+    public FcgiServer roles(FcgiRole... roles) {
+        ensureNotStarted();
+        this.roles.addAll(Set.of(roles));
+        return this;
+    }
+
+    /**
+     * Set the maximum number of concurrent connections ({@code FCGI_MAX_CONNS}).
+     * <p>
+     * The default value is {@code 1024}.
+     *
+     * @param maxConns the maximum number of concurrent connections
+     * @return this server
+     */
+    public FcgiServer maxConns(int maxConns) {
+        ensureNotStarted();
+        if (maxConns <= 0) {
+            throw new IllegalArgumentException("maxConns must be positive");
+        }
+        this.maxConns = maxConns;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of concurrent requests per connection
+     * ({@code FCGI_MAX_REQS}).
+     * <p>
+     * The default value is {@code 64}.
+     *
+     * @param maxReqs the maximum number of concurrent requests
+     * @return this server
+     */
+    public FcgiServer maxReqs(int maxReqs) {
+        ensureNotStarted();
+        if (maxReqs <= 0) {
+            throw new IllegalArgumentException("maxReqs must be positive");
+        }
+        this.maxReqs = maxReqs;
+        return this;
+    }
+
+    /**
+     * Set whether to multiplex connections ({@code FCGI_MPXS_CONNS}).
+     * <p>
+     * The default value is {@code true}.
+     *
+     * @param mpxsConns {@code true} if multiplex connections
+     * @return this server
+     */
+    public FcgiServer mpxsConns(boolean mpxsConns) {
+        ensureNotStarted();
+        this.mpxsConns = mpxsConns;
+        return this;
+    }
+
+    /**
+     * Set the idle timeout seconds of the connections, {@code 0} means never.
+     * <p>
+     * The default value is {@code 60}.
+     *
+     * @param timeoutSeconds the timeout seconds
+     * @return this server
+     */
+    public FcgiServer timeoutSeconds(int timeoutSeconds) {
+        ensureNotStarted();
+        this.timeoutSeconds = timeoutSeconds;
+        return this;
+    }
+
+    /**
+     * Set the maximum bytes can be buffered for each request.
+     *
+     * @param maxBufferedBytes the maximum bytes can be buffered for each
+     *                         request
+     * @return this server
+     */
+    public FcgiServer maxBufferedBytes(int maxBufferedBytes) {
+        ensureNotStarted();
+        this.maxBufferedBytes = maxBufferedBytes;
+        return this;
+    }
+
+    /**
+     * Returns the number of the current connections.
+     *
+     * @return the number of the current connections
+     */
+    public int connections() {
+        return connections.get();
+    }
+
+    /**
+     * Returns the binding {@link ServerChannel}.
+     *
+     * @return a {@code ServerChannel}
+     */
+    public ServerChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Returns if this server is {@code running} or not.
+     *
+     * @return {@code true} if this server is {@code running}
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void ensureNotStarted() {
+        if (running.get()) {
+            throw new IllegalStateException("The FastCGI server '" + name + "' is already started!");
+        }
+    }
+
+    /**
+     * Start up this server.
+     *
+     * @return this server
+     * @throws Exception if any error occurs
+     */
+    public FcgiServer startup() throws Exception {
+        if (handler == null) {
+            throw new IllegalArgumentException("missing handler for FastCGI server '" + name + "'");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("The FastCGI server '" + name + "' is already started!");
+        }
+        try {
+            initSettings();
+            ServerBootstrap bootstrap = new ServerBootstrap().group(parentGroup, childGroup).channel(channelClass)
+                    .childOption(ChannelOption.TCP_NODELAY, true).childHandler(createChannelInitializer());
+            ChannelFuture channelFuture = (host == null ? bootstrap.bind(port) : bootstrap.bind(host, port)).sync();
+            channel = (ServerChannel) channelFuture.channel();
+            if (channel.localAddress() instanceof InetSocketAddress localAddress) {
+                port = localAddress.getPort();
+            }
+            log.info("FastCGI server '{}' started at {}.", name, channel.localAddress());
+            return this;
+        } catch (Exception e) {
+            running.set(false);
+            close();
+            throw e;
+        }
+    }
+
+    private void initSettings() {
+        if (roles.isEmpty()) {
+            roles.add(FcgiRole.RESPONDER);
+        }
+        if (parentGroup == null) {
+            parentGroup = IoTransportLibrary.getDefault().createGroup(1, new DefaultThreadFactory("fcgi-parent"));
+            childGroup = IoTransportLibrary.getDefault().createGroup(ioThreads, new DefaultThreadFactory("fcgi-child"));
+            channelClass = IoTransportLibrary.getDefault().serverChannelClass();
+            closeGroupsWhenShutdown = true;
+        }
+        if (executor == null) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fcgi-worker-", 0).factory());
+            closeExecutorWhenShutdown = true;
+        }
+    }
+
+    private ChannelInitializer<Channel> createChannelInitializer() {
+        FcgiGetValuesHandler getValuesHandler = new FcgiGetValuesHandler(maxConns, maxReqs, mpxsConns);
+        Set<FcgiRole> roles = Set.copyOf(this.roles);
+        int maxConns = this.maxConns;
+        int maxReqs = this.maxReqs;
+        boolean mpxsConns = this.mpxsConns;
+        int timeoutSeconds = this.timeoutSeconds;
+        int maxBufferedBytes = this.maxBufferedBytes;
+        FcgiRequestHandler handler = this.handler;
+        ExecutorService executor = this.executor;
+        return new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                if (connections.incrementAndGet() > maxConns) {
+                    connections.decrementAndGet();
+                    ch.close();
+                    return;
+                }
+                ch.closeFuture().addListener(f -> connections.decrementAndGet());
+                if (timeoutSeconds > 0) {
+                    ch.pipeline().addLast(new IdleStateHandler(0, 0, timeoutSeconds));
+                }
+                ch.pipeline().addLast(FcgiMessageEncoder.getInstance())
+                        .addLast(new FcgiMessageDecoder(maxBufferedBytes)).addLast(getValuesHandler)
+                        .addLast(new FcgiServerHandler(handler, executor, roles, maxReqs, mpxsConns));
+            }
+        };
+    }
+
+    /**
+     * Shut down this server.
+     *
+     * @return this server
+     * @throws Exception if any error occurs
+     */
+    public FcgiServer shutdown() throws Exception {
+        if (!running.compareAndSet(true, false)) {
+            throw new IllegalStateException("The FastCGI server '" + name + "' is not running!");
+        }
+        channel.close().sync();
+        close();
+        log.info("FastCGI server '{}' stopped.", name);
+        return this;
+    }
+
+    private void close() {
+        if (closeGroupsWhenShutdown) {
+            parentGroup.shutdownGracefully();
+            childGroup.shutdownGracefully();
+            parentGroup = childGroup = null;
+            channelClass = null;
+            closeGroupsWhenShutdown = false;
+        }
+        if (closeExecutorWhenShutdown) {
+            executor.shutdown();
+            executor = null;
+            closeExecutorWhenShutdown = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FcgiServer(name=" + name + ", binding=" + (host == null ? "*" : host) + ":" + port + ")";
+    }
+
+}
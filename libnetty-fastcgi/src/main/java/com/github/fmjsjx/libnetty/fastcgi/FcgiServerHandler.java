@@ -0,0 +1,175 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.CharsetUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+/**
+ * The connection handler of {@link FcgiServer}, dispatches the requests to
+ * the worker executor and writes the responses back on the event loop.
+ * <p>
+ * Stops reading from the connection once the number of the in-flight
+ * requests reaches {@code FCGI_MAX_REQS}, and the requests decoded from the
+ * buffered bytes exceeds the limit will be rejected with
+ * {@code FCGI_OVERLOADED} ({@code FCGI_CANT_MPX_CONN} if the multiplexing of
+ * connections is disabled).
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+class FcgiServerHandler extends SimpleChannelInboundHandler<FcgiMessage> {
+
+    private static final Logger log = LoggerFactory.getLogger(FcgiServerHandler.class);
+
+    private static final byte[] INTERNAL_SERVER_ERROR = "Status: 500 Internal Server Error\r\n\r\n"
+            .getBytes(CharsetUtil.US_ASCII);
+
+    private final FcgiRequestHandler handler;
+    private final Executor executor;
+    private final Set<FcgiRole> roles;
+    private final int maxReqs;
+    private final boolean mpxsConns;
+
+    // request id => aborted
+    private final IntObjectMap<Boolean> inFlight = new IntObjectHashMap<>();
+
+    FcgiServerHandler(FcgiRequestHandler handler, Executor executor, Set<FcgiRole> roles, int maxReqs,
+            boolean mpxsConns) {
+        super(false);
+        this.handler = handler;
+        this.executor = executor;
+        this.roles = roles;
+        this.maxReqs = mpxsConns ? maxReqs : 1;
+        this.mpxsConns = mpxsConns;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FcgiMessage msg) {
+        if (msg instanceof FcgiRequest request) {
+            handleRequest(ctx, request);
+        } else if (msg instanceof FcgiAbortRequest) {
+            int requestId = msg.requestId();
+            if (inFlight.containsKey(requestId)) {
+                // the END_REQUEST will be sent after the handler returns
+                inFlight.put(requestId, Boolean.TRUE);
+            }
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private void handleRequest(ChannelHandlerContext ctx, FcgiRequest request) {
+        FcgiVersion version = request.protocolVersion();
+        int requestId = request.requestId();
+        boolean keepConn = request.beginRequest().isKeepConn();
+        if (!roles.contains(request.beginRequest().role())) {
+            request.release();
+            reject(ctx, version, requestId, keepConn, FcgiProtocolStatus.UNKNOWN_ROLE);
+            return;
+        }
+        if (inFlight.size() >= maxReqs) {
+            request.release();
+            reject(ctx, version, requestId, keepConn,
+                    mpxsConns ? FcgiProtocolStatus.OVERLOADED : FcgiProtocolStatus.CANT_MPX_CONN);
+            return;
+        }
+        inFlight.put(requestId, Boolean.FALSE);
+        if (inFlight.size() >= maxReqs) {
+            // back pressure
+            ctx.channel().config().setAutoRead(false);
+        }
+        try {
+            executor.execute(() -> {
+                FcgiResponse response;
+                try {
+                    response = handler.handle(request);
+                } catch (Throwable e) {
+                    log.error("Unexpected error occurs when handling FastCGI request {}", requestId, e);
+                    response = internalServerError(version, requestId, e);
+                } finally {
+                    request.release();
+                }
+                FcgiResponse r = response;
+                ctx.executor().execute(() -> complete(ctx, requestId, keepConn, r));
+            });
+        } catch (RejectedExecutionException e) {
+            request.release();
+            inFlight.remove(requestId);
+            resumeReading(ctx);
+            reject(ctx, version, requestId, keepConn, FcgiProtocolStatus.OVERLOADED);
+        }
+    }
+
+    private static final FcgiResponse internalServerError(FcgiVersion version, int requestId, Throwable cause) {
+        return new FcgiResponse(version, requestId, 1, Unpooled.wrappedBuffer(INTERNAL_SERVER_ERROR),
+                Unpooled.copiedBuffer(String.valueOf(cause), CharsetUtil.UTF_8));
+    }
+
+    private void complete(ChannelHandlerContext ctx, int requestId, boolean keepConn, FcgiResponse response) {
+        Boolean aborted = inFlight.remove(requestId);
+        if (!ctx.channel().isActive()) {
+            response.release();
+            return;
+        }
+        if (aborted == Boolean.TRUE) {
+            // only END_REQUEST is required for the aborted request
+            int appStatus = response.endRequest().appStatus();
+            response.release();
+            response = new FcgiResponse(response.protocolVersion(), requestId, appStatus, Unpooled.EMPTY_BUFFER);
+        }
+        if (keepConn) {
+            ctx.writeAndFlush(response);
+            resumeReading(ctx);
+        } else {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void resumeReading(ChannelHandlerContext ctx) {
+        if (inFlight.size() < maxReqs && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private static final void reject(ChannelHandlerContext ctx, FcgiVersion version, int requestId, boolean keepConn,
+            FcgiProtocolStatus protocolStatus) {
+        FcgiResponse response = new FcgiResponse(version, requestId, 0, protocolStatus, Unpooled.EMPTY_BUFFER, null);
+        if (keepConn) {
+            ctx.writeAndFlush(response);
+        } else {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            // never close the connection with in-flight requests
+            if (inFlight.isEmpty()) {
+                ctx.close();
+            }
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.warn("Unexpected error occurs on FastCGI connection {}, close it", ctx.channel(), cause);
+        ctx.close();
+    }
+
+}
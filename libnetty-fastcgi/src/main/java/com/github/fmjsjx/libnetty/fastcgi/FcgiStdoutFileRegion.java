@@ -0,0 +1,151 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static com.github.fmjsjx.libnetty.fastcgi.FcgiConstants.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+
+/**
+ * A {@link FileRegion} transfers the file of a {@link FcgiFileResponse} as
+ * {@code FCGI_STDOUT} records, the record headers are interleaved with the
+ * file content on the fly.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+final class FcgiStdoutFileRegion extends AbstractReferenceCounted implements FileRegion {
+
+    private static final int RECORD_LENGTH = FCGI_HEADER_LEN + FCGI_MAX_ALIGNED_CONTENT_LENGTH;
+    private static final byte[] PADDING = new byte[8];
+
+    private final FcgiFileResponse response;
+    private final FileChannel file;
+    private final long filePosition;
+    private final long fileCount;
+    private final long records;
+    private final int lastContentLength;
+    private final int lastPaddingLength;
+    private final long count;
+    private final byte[] header = new byte[FCGI_HEADER_LEN];
+
+    private long transferred;
+
+    /**
+     * Constructs a new {@link FcgiStdoutFileRegion} with the specified
+     * response, the response must be retained before and will be released
+     * when this region is deallocated.
+     */
+    FcgiStdoutFileRegion(FcgiFileResponse response) {
+        this.response = response;
+        this.file = response.file();
+        this.filePosition = response.position();
+        this.fileCount = response.count();
+        this.records = (fileCount + FCGI_MAX_ALIGNED_CONTENT_LENGTH - 1) / FCGI_MAX_ALIGNED_CONTENT_LENGTH;
+        this.lastContentLength = (int) (fileCount - (records - 1) * FCGI_MAX_ALIGNED_CONTENT_LENGTH);
+        this.lastPaddingLength = FcgiCodecUtil.calculatePaddingLength(lastContentLength);
+        this.count = records * FCGI_HEADER_LEN + fileCount + lastPaddingLength;
+        header[0] = (byte) response.protocolVersion().version();
+        header[1] = (byte) FcgiRecordType.STDOUT.type();
+        header[2] = (byte) (response.requestId() >>> 8);
+        header[3] = (byte) response.requestId();
+    }
+
+    @Override
+    public long position() {
+        return 0;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public long transferred() {
+        return transferred;
+    }
+
+    @Deprecated
+    @Override
+    public long transfered() {
+        return transferred;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException {
+        long remaining = count - position;
+        if (remaining < 0 || position < 0) {
+            throw new IllegalArgumentException(
+                    "position out of range: " + position + " (expected: 0 - " + (count - 1) + ')');
+        }
+        if (remaining == 0) {
+            return 0L;
+        }
+        if (refCnt() == 0) {
+            throw new IllegalReferenceCountException(0);
+        }
+        long record = position / RECORD_LENGTH;
+        int offset = (int) (position % RECORD_LENGTH);
+        boolean last = record == records - 1;
+        int contentLength = last ? lastContentLength : FCGI_MAX_ALIGNED_CONTENT_LENGTH;
+        long written;
+        if (offset < FCGI_HEADER_LEN) {
+            byte[] header = this.header;
+            header[4] = (byte) (contentLength >>> 8);
+            header[5] = (byte) contentLength;
+            header[6] = (byte) (last ? lastPaddingLength : 0);
+            written = target.write(ByteBuffer.wrap(header, offset, FCGI_HEADER_LEN - offset));
+        } else if (offset < FCGI_HEADER_LEN + contentLength) {
+            int contentOffset = offset - FCGI_HEADER_LEN;
+            long filePosition = this.filePosition + record * FCGI_MAX_ALIGNED_CONTENT_LENGTH + contentOffset;
+            written = file.transferTo(filePosition, contentLength - contentOffset, target);
+            if (written == 0 && file.size() < this.filePosition + fileCount) {
+                throw new IOException("Underlying file size " + file.size() + " smaller than requested count "
+                        + fileCount);
+            }
+        } else {
+            int paddingOffset = offset - FCGI_HEADER_LEN - contentLength;
+            written = target.write(ByteBuffer.wrap(PADDING, 0, lastPaddingLength - paddingOffset));
+        }
+        if (written > 0) {
+            transferred += written;
+        }
+        return written;
+    }
+
+    @Override
+    public FileRegion retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FileRegion retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FileRegion touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public FileRegion touch(Object hint) {
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        response.release();
+    }
+
+}
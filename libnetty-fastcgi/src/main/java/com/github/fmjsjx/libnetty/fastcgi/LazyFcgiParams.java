@@ -0,0 +1,246 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A decoded {@link FcgiParams} which decodes the values on demand.
+ * <p>
+ * The raw content of the {@code FCGI_PARAMS} stream is copied into one
+ * {@code byte[]} and indexed by the offsets and lengths of each pair, so no
+ * {@code String} is created until it is required. Once the pairs are
+ * modified or traversed, all pairs will be decoded into the map of the super
+ * class.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+final class LazyFcgiParams extends FcgiParams {
+
+    private byte[] bytes;
+    // nameOffset, nameLength, valueOffset, valueLength for each pair
+    private int[] index;
+    private int count;
+
+    LazyFcgiParams(FcgiVersion protocolVersion, int requestId, byte[] bytes) {
+        super(protocolVersion, requestId);
+        this.bytes = bytes;
+        int[] index = new int[32];
+        int count = 0;
+        for (int offset = 0; offset < bytes.length;) {
+            int nameLength = decodeVariableLength(bytes, offset);
+            if (nameLength < 0) {
+                throw new FcgiDecoderException("invalid FCGI_PARAMS content");
+            }
+            offset += variableLengthSize(bytes, offset);
+            int valueLength = decodeVariableLength(bytes, offset);
+            if (valueLength < 0) {
+                throw new FcgiDecoderException("invalid FCGI_PARAMS content");
+            }
+            offset += variableLengthSize(bytes, offset);
+            if (offset + nameLength + valueLength > bytes.length) {
+                throw new FcgiDecoderException("invalid FCGI_PARAMS content");
+            }
+            int i = count << 2;
+            if (i == index.length) {
+                index = Arrays.copyOf(index, i << 1);
+            }
+            index[i] = offset;
+            index[i + 1] = nameLength;
+            index[i + 2] = offset + nameLength;
+            index[i + 3] = valueLength;
+            offset += nameLength + valueLength;
+            count++;
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    private static final int decodeVariableLength(byte[] bytes, int offset) {
+        if (offset >= bytes.length) {
+            return -1;
+        }
+        int b = bytes[offset];
+        if ((b & 0x80) == 0) {
+            return b;
+        }
+        if (offset + 4 > bytes.length) {
+            return -1;
+        }
+        return ((b & 0x7f) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+
+    private static final int variableLengthSize(byte[] bytes, int offset) {
+        // the size is decided by the encoding, short lengths may also be encoded in 4 bytes
+        return (bytes[offset] & 0x80) == 0 ? 1 : 4;
+    }
+
+    private boolean lazy() {
+        return bytes != null;
+    }
+
+    private int indexOf(CharSequence name) {
+        // the last one wins, just like the map
+        if (isAscii(name)) {
+            int length = name.length();
+            for (int i = (count - 1) << 2; i >= 0; i -= 4) {
+                if (index[i + 1] == length && matches(index[i], name)) {
+                    return i;
+                }
+            }
+        } else {
+            String s = name.toString();
+            for (int i = (count - 1) << 2; i >= 0; i -= 4) {
+                if (s.equals(new String(bytes, index[i], index[i + 1], CharsetUtil.UTF_8))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int offset, CharSequence name) {
+        byte[] bytes = this.bytes;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            if (bytes[offset + i] != (byte) name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final boolean isAscii(CharSequence name) {
+        if (name instanceof AsciiString) {
+            return true;
+        }
+        for (int i = 0, length = name.length(); i < length; i++) {
+            if (name.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String value(int i) {
+        return new String(bytes, index[i + 2], index[i + 3], CharsetUtil.UTF_8);
+    }
+
+    private void materialize() {
+        if (lazy()) {
+            for (int i = 0, end = count << 2; i < end; i += 4) {
+                String name = new String(bytes, index[i], index[i + 1], CharsetUtil.UTF_8);
+                pairs.put(name, new NameValuePair(name, value(i)));
+            }
+            bytes = null;
+            index = null;
+            count = 0;
+        }
+    }
+
+    @Override
+    public Optional<AsciiString> getAscii(CharSequence name) {
+        if (lazy()) {
+            int i = indexOf(name);
+            if (i < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new AsciiString(bytes, index[i + 2], index[i + 3], false));
+        }
+        return super.getAscii(name);
+    }
+
+    @Override
+    public Optional<NameValuePair> get(String name) {
+        if (lazy()) {
+            int i = indexOf(name);
+            return i < 0 ? Optional.empty() : Optional.of(new NameValuePair(name, value(i)));
+        }
+        return super.get(name);
+    }
+
+    @Override
+    public Optional<String> getValue(String name) {
+        if (lazy()) {
+            int i = indexOf(name);
+            return i < 0 ? Optional.empty() : Optional.of(value(i));
+        }
+        return super.getValue(name);
+    }
+
+    @Override
+    public OptionalInt getInt(String name) throws NumberFormatException {
+        if (lazy()) {
+            int i = indexOf(name);
+            if (i < 0) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(new AsciiString(bytes, index[i + 2], index[i + 3], false).parseInt());
+        }
+        return super.getInt(name);
+    }
+
+    @Override
+    public OptionalLong getLong(String name) throws NumberFormatException {
+        if (lazy()) {
+            int i = indexOf(name);
+            if (i < 0) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(new AsciiString(bytes, index[i + 2], index[i + 3], false).parseLong());
+        }
+        return super.getLong(name);
+    }
+
+    @Override
+    public FcgiParams put(NameValuePair pair) {
+        materialize();
+        return super.put(pair);
+    }
+
+    @Override
+    public Optional<NameValuePair> remove(String name) {
+        materialize();
+        return super.remove(name);
+    }
+
+    @Override
+    public void forEach(Consumer<NameValuePair> action) {
+        materialize();
+        super.forEach(action);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        materialize();
+        super.forEach(action);
+    }
+
+    @Override
+    public Iterable<String> names() {
+        materialize();
+        return super.names();
+    }
+
+    @Override
+    public int size() {
+        materialize();
+        return super.size();
+    }
+
+    @Override
+    public Collection<NameValuePair> pairs() {
+        materialize();
+        return super.pairs();
+    }
+
+}
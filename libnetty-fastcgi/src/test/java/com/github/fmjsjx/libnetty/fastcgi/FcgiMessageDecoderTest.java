@@ -0,0 +1,181 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+public class FcgiMessageDecoderTest {
+
+    @Test
+    public void testStreamingRequest() {
+        try {
+            String body = "0123456789".repeat(10000);
+            ByteBuf encoded = encode(newRequest(body));
+            EmbeddedChannel channel = new EmbeddedChannel(new FcgiMessageDecoder(true, 4096));
+            channel.writeInbound(encoded);
+            FcgiRequestHeader header = channel.readInbound();
+            assertEquals(1, header.requestId());
+            assertEquals(FcgiRole.RESPONDER, header.beginRequest().role());
+            assertEquals("/index.php", header.params().getValue("SCRIPT_NAME").orElse(null));
+            StringBuilder stdin = new StringBuilder();
+            for (;;) {
+                Object msg = channel.readInbound();
+                if (msg instanceof FcgiStdin chunk) {
+                    try {
+                        stdin.append(chunk.content().toString(CharsetUtil.UTF_8));
+                    } finally {
+                        chunk.release();
+                    }
+                } else {
+                    assertInstanceOf(FcgiRequestEnd.class, msg);
+                    break;
+                }
+            }
+            assertEquals(body, stdin.toString());
+            assertNull(channel.readInbound());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testStreamingResponse() {
+        try {
+            FcgiResponse response = new FcgiResponse(FcgiVersion.VERSION_1, 3, 0,
+                    Unpooled.copiedBuffer("Content-Type: text/plain\r\n\r\nhello", CharsetUtil.UTF_8));
+            ByteBuf encoded = encode(response);
+            EmbeddedChannel channel = new EmbeddedChannel(new FcgiMessageDecoder(true, 4096));
+            channel.writeInbound(encoded);
+            FcgiStdout stdout = channel.readInbound();
+            try {
+                assertEquals("Content-Type: text/plain\r\n\r\nhello", stdout.content().toString(CharsetUtil.UTF_8));
+            } finally {
+                stdout.release();
+            }
+            FcgiEndRequest endRequest = channel.readInbound();
+            assertEquals(3, endRequest.requestId());
+            assertEquals(FcgiProtocolStatus.REQUEST_COMPLETE, endRequest.protocolStatus());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testMaxBufferedBytes() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new FcgiMessageDecoder(4096));
+            assertThrows(FcgiDecoderException.class, () -> channel.writeInbound(encode(newRequest("x".repeat(5000)))));
+            // the request has been discarded, so its remaining records are rejected
+            assertThrows(FcgiDecoderException.class, channel::finishAndReleaseAll);
+
+            // the content already buffered must be released once the limit is exceeded
+            ByteBuf encoded = encode(newRequest("x".repeat(3000)));
+            int stdinIndex = encoded.writerIndex() - 8 - 3008;
+            ByteBuf stdin = encoded.copy(stdinIndex, 3008);
+            ByteBuf incomplete = encoded.retainedSlice(0, encoded.writerIndex() - 8);
+            encoded.release();
+            EmbeddedChannel exceeding = new EmbeddedChannel(new FcgiMessageDecoder(4096));
+            exceeding.writeInbound(incomplete);
+            assertNull(exceeding.readInbound());
+            assertThrows(FcgiDecoderException.class, () -> exceeding.writeInbound(stdin));
+            assertEquals(0, incomplete.refCnt());
+            exceeding.finishAndReleaseAll();
+
+            EmbeddedChannel aggregating = new EmbeddedChannel(new FcgiMessageDecoder(4096));
+            aggregating.writeInbound(encode(newRequest("x".repeat(1000))));
+            FcgiRequest request = aggregating.readInbound();
+            try {
+                assertEquals(1000, request.stdin().content().readableBytes());
+            } finally {
+                request.release();
+            }
+            assertFalse(aggregating.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testLazyParams() {
+        try {
+            FcgiRequest source = newRequest("");
+            String longValue = "v".repeat(300);
+            source.params().put("REQUEST_METHOD", "GET").put("REQUEST_URI", "/a?b=1").put("CONTENT_LENGTH", 0)
+                    .put("HTTP_X_LONG", longValue).put("名字", "值");
+            EmbeddedChannel channel = new EmbeddedChannel(new FcgiMessageDecoder());
+            channel.writeInbound(encode(source));
+            FcgiRequest request = channel.readInbound();
+            try {
+                FcgiParams params = request.params();
+                assertEquals("GET", params.getAscii(FcgiParamNames.REQUEST_METHOD).map(Object::toString).orElse(null));
+                assertEquals("/a?b=1", params.getValue("REQUEST_URI").orElse(null));
+                assertEquals(0, params.getInt("CONTENT_LENGTH").orElse(-1));
+                assertEquals(longValue, params.getValue("HTTP_X_LONG").orElse(null));
+                assertEquals("值", params.getValue("名字").orElse(null));
+                assertFalse(params.getValue("PATH_INFO").isPresent());
+                // modifications decode all pairs
+                params.put("PATH_INFO", "/x");
+                assertEquals(7, params.size());
+                assertEquals("/a?b=1", params.getAscii(FcgiParamNames.REQUEST_URI).map(Object::toString).orElse(null));
+                assertEquals("/x", params.getValue("PATH_INFO").orElse(null));
+            } finally {
+                request.release();
+            }
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testLazyParamsFourBytesLength() {
+        try {
+            // short lengths encoded in 4 bytes are also valid
+            ByteBuf content = Unpooled.buffer();
+            content.writeInt(0x80000000 | 11).writeByte(10).writeCharSequence("SCRIPT_NAME", CharsetUtil.US_ASCII);
+            content.writeCharSequence("/index.php", CharsetUtil.US_ASCII);
+            content.writeByte(4).writeInt(0x80000000 | 3).writeCharSequence("HOSTabc", CharsetUtil.US_ASCII);
+            byte[] bytes = new byte[content.readableBytes()];
+            content.readBytes(bytes).release();
+            FcgiParams params = new LazyFcgiParams(FcgiVersion.VERSION_1, 1, bytes);
+            assertEquals("/index.php", params.getValue("SCRIPT_NAME").orElse(null));
+            assertEquals("abc", params.getValue("HOST").orElse(null));
+            assertEquals(2, params.size());
+            assertThrows(FcgiDecoderException.class,
+                    () -> new LazyFcgiParams(FcgiVersion.VERSION_1, 1, new byte[] { (byte) 0x80, 0, 0 }));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private static final FcgiRequest newRequest(String body) {
+        FcgiRequest request = new FcgiRequest(FcgiVersion.VERSION_1, 1, Unpooled.copiedBuffer(body, CharsetUtil.UTF_8));
+        request.params().put("SCRIPT_NAME", "/index.php");
+        return request;
+    }
+
+    private static final ByteBuf encode(Object msg) {
+        EmbeddedChannel encoder = new EmbeddedChannel(FcgiMessageEncoder.getInstance());
+        encoder.writeOutbound(msg);
+        ByteBuf buf = Unpooled.buffer();
+        for (ByteBuf part; (part = encoder.readOutbound()) != null;) {
+            buf.writeBytes(part);
+            part.release();
+        }
+        encoder.finish();
+        return buf;
+    }
+
+}
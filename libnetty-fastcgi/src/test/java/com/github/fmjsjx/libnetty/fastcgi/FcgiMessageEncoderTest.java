@@ -0,0 +1,126 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+public class FcgiMessageEncoderTest {
+
+    @Test
+    public void testLargeStdout() {
+        try {
+            byte[] body = new byte[3 * 1024 * 1024 + 7];
+            ThreadLocalRandom.current().nextBytes(body);
+            ByteBuf content = Unpooled.wrappedBuffer(body);
+            EmbeddedChannel encoder = new EmbeddedChannel(FcgiMessageEncoder.getInstance());
+            encoder.writeOutbound(new FcgiResponse(FcgiVersion.VERSION_1, 1, 0, content));
+            ByteBuf encoded = Unpooled.buffer();
+            for (ByteBuf part; (part = encoder.readOutbound()) != null;) {
+                if (part.readableBytes() > 64) {
+                    // contents are not copied
+                    assertTrue(part == content || part.unwrap() == content);
+                }
+                encoded.writeBytes(part);
+                part.release();
+            }
+            assertFalse(encoder.finish());
+            assertEquals(0, content.refCnt());
+
+            FcgiResponse response = decode(encoded);
+            try {
+                assertArrayEquals(body, ByteBufUtil.getBytes(response.stdout().content()));
+                assertEquals(FcgiProtocolStatus.REQUEST_COMPLETE, response.endRequest().protocolStatus());
+            } finally {
+                response.release();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testFileResponse() {
+        Path path = null;
+        try {
+            path = Files.createTempFile("fcgi-encoder-test", ".bin");
+            byte[] bytes = new byte[200_003];
+            ThreadLocalRandom.current().nextBytes(bytes);
+            Files.write(path, bytes);
+            String headers = "Content-Type: application/octet-stream\r\n\r\n";
+            assertFileResponse(new FcgiFileResponse(FcgiVersion.VERSION_1, 2, 0,
+                    Unpooled.copiedBuffer(headers, CharsetUtil.UTF_8), path), headers, bytes);
+            try (FileChannel file = FileChannel.open(path)) {
+                assertFileResponse(new FcgiFileResponse(FcgiVersion.VERSION_1, 2, 0, Unpooled.EMPTY_BUFFER, file,
+                        100, 65536), "", Arrays.copyOfRange(bytes, 100, 100 + 65536));
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (path != null) {
+                path.toFile().delete();
+            }
+        }
+    }
+
+    private static final void assertFileResponse(FcgiFileResponse fileResponse, String headers, byte[] file)
+            throws Exception {
+        EmbeddedChannel encoder = new EmbeddedChannel(FcgiMessageEncoder.getInstance());
+        encoder.writeOutbound(fileResponse);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(output);
+        for (Object part; (part = encoder.readOutbound()) != null;) {
+            if (part instanceof FileRegion region) {
+                for (long position = 0; position < region.count();) {
+                    position += region.transferTo(target, position);
+                }
+                assertEquals(region.count(), region.transferred());
+                region.release();
+            } else {
+                ByteBuf buf = (ByteBuf) part;
+                buf.readBytes(output, buf.readableBytes());
+                buf.release();
+            }
+        }
+        assertFalse(encoder.finish());
+        assertEquals(0, fileResponse.refCnt());
+
+        FcgiResponse response = decode(Unpooled.wrappedBuffer(output.toByteArray()));
+        try {
+            ByteBuf stdout = response.stdout().content();
+            assertEquals(headers, stdout.readCharSequence(headers.length(), CharsetUtil.UTF_8).toString());
+            assertArrayEquals(file, ByteBufUtil.getBytes(stdout));
+            assertEquals(2, response.endRequest().requestId());
+        } finally {
+            response.release();
+        }
+    }
+
+    private static final FcgiResponse decode(ByteBuf encoded) {
+        EmbeddedChannel decoder = new EmbeddedChannel(new FcgiMessageDecoder());
+        decoder.writeInbound(encoded);
+        FcgiResponse response = decoder.readInbound();
+        assertFalse(decoder.finish());
+        return response;
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.CharsetUtil;
+
+public class FcgiMultiplexedConnectionTest {
+
+    @Test
+    public void testMultiplexed() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, NioIoHandler.newFactory());
+        try {
+            StandInApplication app = new StandInApplication(group, true, 64);
+            Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class);
+            FcgiMultiplexedConnection connection = FcgiMultiplexedConnection
+                    .connect(bootstrap, app.channel.localAddress()).get(5, TimeUnit.SECONDS);
+            assertTrue(connection.isMultiplexed());
+            assertEquals(64, connection.maxConcurrentRequests());
+            execute(connection, 500);
+            assertEquals(1, app.connections.get());
+            assertTrue(app.maxConcurrent.get() > 1);
+            assertTrue(app.maxConcurrent.get() <= 64);
+            connection.close().sync();
+            app.channel.close().sync();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testNotMultiplexed() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, NioIoHandler.newFactory());
+        try {
+            StandInApplication app = new StandInApplication(group, false, 64);
+            Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class);
+            FcgiMultiplexedConnection connection = FcgiMultiplexedConnection
+                    .connect(bootstrap, app.channel.localAddress()).get(5, TimeUnit.SECONDS);
+            assertFalse(connection.isMultiplexed());
+            assertEquals(1, connection.maxConcurrentRequests());
+            execute(connection, 20);
+            assertEquals(1, app.maxConcurrent.get());
+            connection.close().sync();
+            app.channel.close().sync();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final void execute(FcgiMultiplexedConnection connection, int count) throws Exception {
+        List<CompletableFuture<FcgiResponse>> futures = new ArrayList<>(count);
+        List<String> bodies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // some large bodies are split into chunks and interleaved with others
+            String body = i % 50 == 0 ? ("large-" + i + "-").repeat(10000) : "body-" + i;
+            bodies.add(body);
+            FcgiRequest request = new FcgiRequest(FcgiVersion.VERSION_1, 0,
+                    Unpooled.copiedBuffer(body, CharsetUtil.UTF_8));
+            request.params().put("INDEX", i);
+            futures.add(connection.execute(request));
+        }
+        for (int i = 0; i < count; i++) {
+            FcgiResponse response = futures.get(i).get(10, TimeUnit.SECONDS);
+            try {
+                assertEquals(i + ":" + bodies.get(i), response.stdout().content().toString(CharsetUtil.UTF_8));
+            } finally {
+                response.release();
+            }
+        }
+    }
+
+    @Sharable
+    private static final class StandInApplication extends SimpleChannelInboundHandler<FcgiRequest> {
+
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final Channel channel;
+
+        private StandInApplication(EventLoopGroup group, boolean mpxsConns, int maxReqs) throws Exception {
+            FcgiGetValuesHandler getValuesHandler = new FcgiGetValuesHandler(10, maxReqs, mpxsConns);
+            channel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            connections.incrementAndGet();
+                            ch.pipeline().addLast(FcgiMessageEncoder.getInstance()).addLast(new FcgiMessageDecoder())
+                                    .addLast(getValuesHandler).addLast(StandInApplication.this);
+                        }
+                    }).bind("127.0.0.1", 0).sync().channel();
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FcgiRequest msg) {
+            int current = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(current, Math::max);
+            String stdout = msg.params().getValue("INDEX").orElse("") + ":"
+                    + msg.stdin().content().toString(CharsetUtil.UTF_8);
+            int requestId = msg.requestId();
+            // respond out of order
+            ctx.executor().schedule(() -> {
+                concurrent.decrementAndGet();
+                ByteBuf content = ByteBufUtil.writeUtf8(ctx.alloc(), stdout);
+                ctx.writeAndFlush(new FcgiResponse(FcgiVersion.VERSION_1, requestId, 0, content));
+            }, ThreadLocalRandom.current().nextInt(5), TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.fmjsjx.libnetty.fastcgi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.CharsetUtil;
+
+public class FcgiServerTest {
+
+    @Test
+    public void testServer() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, NioIoHandler.newFactory());
+        FcgiServer server = new FcgiServer("test", 0).host("127.0.0.1").transport(group, NioServerSocketChannel.class);
+        try {
+            AtomicInteger concurrent = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            server.maxReqs(4).roles(FcgiRole.RESPONDER, FcgiRole.AUTHORIZER).handler(request -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    String uri = request.params().getValue("REQUEST_URI").orElse("");
+                    if (uri.equals("/error")) {
+                        throw new IllegalStateException("error");
+                    }
+                    // blocking is allowed on worker threads
+                    Thread.sleep(10);
+                    return new FcgiResponse(request.protocolVersion(), request.requestId(), 0,
+                            Unpooled.copiedBuffer("Status: 200 OK\r\n\r\n" + uri, CharsetUtil.UTF_8));
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+            }).startup();
+            Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class);
+            FcgiMultiplexedConnection connection = FcgiMultiplexedConnection
+                    .connect(bootstrap, server.channel().localAddress()).get(5, TimeUnit.SECONDS);
+            assertTrue(connection.isMultiplexed());
+            assertEquals(4, connection.maxConcurrentRequests());
+
+            List<CompletableFuture<FcgiResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                FcgiRequest request = new FcgiRequest(FcgiVersion.VERSION_1, 0, Unpooled.EMPTY_BUFFER);
+                request.params().put("REQUEST_URI", "/" + i);
+                futures.add(connection.execute(request));
+            }
+            for (int i = 0; i < 20; i++) {
+                FcgiResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+                try {
+                    assertEquals(FcgiProtocolStatus.REQUEST_COMPLETE, response.endRequest().protocolStatus());
+                    assertEquals("Status: 200 OK\r\n\r\n/" + i, response.stdout().content().toString(CharsetUtil.UTF_8));
+                } finally {
+                    response.release();
+                }
+            }
+            assertTrue(maxConcurrent.get() > 1);
+            assertTrue(maxConcurrent.get() <= 4);
+
+            FcgiRequest request = new FcgiRequest(FcgiVersion.VERSION_1, 0, Unpooled.EMPTY_BUFFER);
+            request.params().put("REQUEST_URI", "/error");
+            FcgiResponse response = connection.execute(request).get(5, TimeUnit.SECONDS);
+            try {
+                assertEquals(1, response.endRequest().appStatus());
+                assertTrue(response.stdout().content().toString(CharsetUtil.UTF_8).startsWith("Status: 500"));
+            } finally {
+                response.release();
+            }
+
+            request = new FcgiRequest(FcgiVersion.VERSION_1, 0, FcgiRole.FILTER, Unpooled.EMPTY_BUFFER,
+                    Unpooled.EMPTY_BUFFER);
+            response = connection.execute(request).get(5, TimeUnit.SECONDS);
+            try {
+                assertEquals(FcgiProtocolStatus.UNKNOWN_ROLE, response.endRequest().protocolStatus());
+            } finally {
+                response.release();
+            }
+            connection.close().sync();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server.isRunning()) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+}
@@ -0,0 +1,551 @@
+package com.github.fmjsjx.libnetty.http.server.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * An annotation processor generates a {@code RouteRegistrar} for each
+ * controller class at compile time.
+ * <p>
+ * The generated registrar, named {@code <ControllerName>_Routes}, registers
+ * the routes with the same behaviors as {@code RouterUtil} does through
+ * reflection, but calls the controller methods directly. All registrars are
+ * declared as services in {@code META-INF/services}, so that the
+ * {@code Router} can load them automatically.
+ * <p>
+ * Controllers that can not be processed at compile time, such as generic
+ * classes or classes with private routing methods, are skipped with a
+ * warning and will be registered through reflection as before.
+ * <p>
+ * Note that {@code @PathVar} and {@code @QueryVar} without a value are
+ * always bound by the parameter names declared in the source code, while the
+ * reflection only gets the same names when the controller is compiled with the
+ * {@code -parameters} option.
+ *
+ * @author MJ Fang
+ * @since 4.3
+ */
+public class RouteProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION_PACKAGE = "com.github.fmjsjx.libnetty.http.server.annotation.";
+    private static final String HTTP_ROUTE = ANNOTATION_PACKAGE + "HttpRoute";
+    private static final String HTTP_PATH = ANNOTATION_PACKAGE + "HttpPath";
+    private static final String HTTP_PATHS = ANNOTATION_PACKAGE + "HttpPaths";
+    private static final String PATH_VAR = ANNOTATION_PACKAGE + "PathVar";
+    private static final String QUERY_VAR = ANNOTATION_PACKAGE + "QueryVar";
+    private static final String JSON_BODY = ANNOTATION_PACKAGE + "JsonBody";
+    private static final String STRING_BODY = ANNOTATION_PACKAGE + "StringBody";
+    private static final String HEADER_VALUE = ANNOTATION_PACKAGE + "HeaderValue";
+    private static final String COOKIE_VALUE = ANNOTATION_PACKAGE + "CookieValue";
+    private static final String REMOTE_ADDR = ANNOTATION_PACKAGE + "RemoteAddr";
+    private static final String COMPONENT_VALUE = ANNOTATION_PACKAGE + "ComponentValue";
+    private static final String PROPERTY_VALUE = ANNOTATION_PACKAGE + "PropertyValue";
+
+    private static final String SERVER_PACKAGE = "com.github.fmjsjx.libnetty.http.server.";
+    private static final String HTTP_REQUEST_CONTEXT = SERVER_PACKAGE + "HttpRequestContext";
+    private static final String HTTP_RESULT = SERVER_PACKAGE + "HttpResult";
+    private static final String ROUTER = SERVER_PACKAGE + "middleware.Router";
+    private static final String ROUTE_INVOKERS = SERVER_PACKAGE + "middleware.RouteInvokers";
+    private static final String ROUTE_REGISTRAR = SERVER_PACKAGE + "middleware.RouteRegistrar";
+    private static final String HTTP_METHOD = "io.netty.handler.codec.http.HttpMethod";
+
+    private static final Set<String> CONTEXT_TYPES = Set.of(HTTP_REQUEST_CONTEXT,
+            SERVER_PACKAGE + "LazyLoadingHttpRequestContext", SERVER_PACKAGE + "HttpResponder",
+            HTTP_REQUEST_CONTEXT + ".HttpResponseFactory", "io.netty.handler.codec.http.HttpRequest",
+            "io.netty.handler.codec.http.FullHttpRequest", "io.netty.handler.codec.http.HttpHeaders",
+            "io.netty.handler.codec.http.QueryStringDecoder");
+
+    private static final String SERVICES_FILE = "META-INF/services/" + ROUTE_REGISTRAR;
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private Filer filer;
+
+    private final Set<String> registrars = new LinkedHashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+        filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // routing annotations can be meta-annotated by @HttpRoute
+        return Set.of("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> controllers = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            if (!isRouteAnnotation(annotation)) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    controllers.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement controller : controllers) {
+            try {
+                String registrar = generate(controller);
+                registrars.add(registrar);
+            } catch (UnsupportedRouteException e) {
+                messager.printMessage(Kind.WARNING, e.getMessage()
+                        + ", routes of this controller will be registered through reflection", e.element);
+            } catch (IOException e) {
+                messager.printMessage(Kind.ERROR, "Generate route registrar failed: " + e, controller);
+            }
+        }
+        if (roundEnv.processingOver() && !registrars.isEmpty()) {
+            writeServicesFile();
+        }
+        return false;
+    }
+
+    private boolean isRouteAnnotation(TypeElement annotation) {
+        return annotation.getQualifiedName().contentEquals(HTTP_ROUTE)
+                || findAnnotation(annotation, HTTP_ROUTE) != null;
+    }
+
+    private void writeServicesFile() {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            // keep the registrars generated by previous incremental compilations
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            for (String line : existing.getCharContent(true).toString().split("\n")) {
+                String name = line.strip();
+                if (!name.isEmpty() && elements.getTypeElement(name) != null) {
+                    names.add(name);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // not exists
+        }
+        names.addAll(registrars);
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String name : names) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Kind.ERROR, "Write " + SERVICES_FILE + " failed: " + e);
+        }
+    }
+
+    private String generate(TypeElement controller) throws UnsupportedRouteException, IOException {
+        checkController(controller);
+        String packageName = elements.getPackageOf(controller).getQualifiedName().toString();
+        String simpleName = flatName(controller) + "_Routes";
+        String controllerName = controller.getQualifiedName().toString();
+        List<String> pathPrefixes = pathPrefixes(controller);
+        List<String> statements = new ArrayList<>();
+        for (Element member : controller.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            Route route = route(method);
+            if (route == null) {
+                continue;
+            }
+            checkMethod(method);
+            String invoker = invoker(controllerName, method);
+            String methods = route.methods.stream().map(m -> ", " + HTTP_METHOD + "." + m)
+                    .collect(Collectors.joining());
+            for (String pathPrefix : pathPrefixes) {
+                String path = (pathPrefix + "/" + String.join("/", route.values)).replaceAll("//+", "/");
+                statements.add("router.add(" + invoker + ",\n                " + literal(path) + methods + ");");
+            }
+        }
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = filer.createSourceFile(qualifiedName, controller).openWriter()) {
+            StringBuilder b = new StringBuilder();
+            if (!packageName.isEmpty()) {
+                b.append("package ").append(packageName).append(";\n\n");
+            }
+            b.append("/**\n * The route registrar of {@link ").append(controllerName)
+                    .append("}, generated at compile time.\n */\n");
+            b.append("@javax.annotation.processing.Generated(\"").append(RouteProcessor.class.getName())
+                    .append("\")\n");
+            b.append("public final class ").append(simpleName).append(" implements ").append(ROUTE_REGISTRAR)
+                    .append("<").append(controllerName).append("> {\n\n");
+            b.append("    @Override\n    public Class<").append(controllerName).append("> controllerType() {\n")
+                    .append("        return ").append(controllerName).append(".class;\n    }\n\n");
+            b.append("    @Override\n    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                    .append("    public int register(").append(ROUTER).append(" router, ").append(controllerName)
+                    .append(" controller) {\n");
+            for (String statement : statements) {
+                b.append("        ").append(statement).append("\n");
+            }
+            b.append("        return ").append(statements.size()).append(";\n    }\n\n}\n");
+            writer.write(b.toString());
+        }
+        return qualifiedName;
+    }
+
+    private void checkController(TypeElement controller) throws UnsupportedRouteException {
+        if (!controller.getTypeParameters().isEmpty()) {
+            throw new UnsupportedRouteException("Generic controller class is not supported", controller);
+        }
+        if (controller.getKind() != ElementKind.CLASS && controller.getKind() != ElementKind.RECORD) {
+            throw new UnsupportedRouteException("Controller must be a class or a record", controller);
+        }
+        if (controller.getNestingKind() == NestingKind.LOCAL || controller.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new UnsupportedRouteException("Local controller class is not supported", controller);
+        }
+        for (Element e = controller; e instanceof TypeElement type; e = e.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new UnsupportedRouteException("Private controller class is not supported", type);
+            }
+            if (type.getKind() == ElementKind.CLASS && type.getNestingKind() == NestingKind.MEMBER
+                    && !type.getModifiers().contains(Modifier.STATIC)
+                    && type.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                throw new UnsupportedRouteException("Inner controller class must be static", type);
+            }
+        }
+    }
+
+    private void checkMethod(ExecutableElement method) throws UnsupportedRouteException {
+        if (method.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new UnsupportedRouteException("Private routing method is not supported", method);
+        }
+        if (!method.getTypeParameters().isEmpty()) {
+            throw new UnsupportedRouteException("Generic routing method is not supported", method);
+        }
+    }
+
+    private String invoker(String controllerName, ExecutableElement method) throws UnsupportedRouteException {
+        List<? extends VariableElement> params = method.getParameters();
+        StringBuilder call = new StringBuilder();
+        call.append(method.getModifiers().contains(Modifier.STATIC) ? controllerName : "controller").append('.')
+                .append(method.getSimpleName()).append('(');
+        List<String> mappers = new ArrayList<>(params.size());
+        for (int i = 0; i < params.size(); i++) {
+            VariableElement param = params.get(i);
+            mappers.add(parameterMapper(param));
+            if (i > 0) {
+                call.append(", ");
+            }
+            call.append('(').append(typeName(param.asType(), param)).append(") a[").append(i).append(']');
+        }
+        call.append(')');
+        String parameters = ROUTE_INVOKERS + ".parameters(" + mappers.stream()
+                .map(m -> "\n                        " + m).collect(Collectors.joining(",")) + ")";
+
+        TypeMirror returnType = method.getReturnType();
+        TypeMirror stage = types.erasure(elements.getTypeElement("java.util.concurrent.CompletionStage").asType());
+        boolean blocking = !types.isAssignable(types.erasure(returnType), stage);
+        TypeMirror resultType = null;
+        if (!blocking) {
+            if (!(returnType instanceof DeclaredType declared) || declared.getTypeArguments().size() != 1) {
+                throw new UnsupportedRouteException("The return type must be a parameterized CompletionStage",
+                        method);
+            }
+            resultType = declared.getTypeArguments().getFirst();
+        }
+        String factory;
+        if ((blocking && isVoid(returnType)) || (!blocking && isVoid(resultType))) {
+            factory = "voidResponse(" + blocking + ", ";
+        } else if (findAnnotation(method, JSON_BODY) != null) {
+            factory = "jsonResponse(" + blocking + ", ";
+        } else if (findAnnotation(method, STRING_BODY) != null) {
+            TypeMirror charSequence = elements.getTypeElement("java.lang.CharSequence").asType();
+            if (!types.isAssignable(blocking ? returnType : resultType, charSequence)) {
+                throw new UnsupportedRouteException(
+                        "The return type must be or extend CharSequence when @StringBody is present", method);
+            }
+            factory = "stringResponse(" + blocking + ", ";
+        } else {
+            if (blocking) {
+                throw new UnsupportedRouteException("the return type must be a CompletionStage<HttpResult>", method);
+            }
+            if (!types.isAssignable(resultType, elements.getTypeElement(HTTP_RESULT).asType())) {
+                throw new UnsupportedRouteException("the return type must be a CompletionStage<HttpResult>", method);
+            }
+            if (params.stream().noneMatch(p -> isType(p.asType(), HTTP_REQUEST_CONTEXT))) {
+                throw new UnsupportedRouteException("missing parameter as type HttpRequestContext", method);
+            }
+            factory = "httpResult(";
+        }
+        boolean returnsValue = !isVoid(returnType);
+        String body = returnsValue ? call.toString() : "{\n                    " + call
+                + ";\n                    return null;\n                }";
+        return ROUTE_INVOKERS + "." + factory + parameters + ",\n                a -> " + body + ")";
+    }
+
+    private String parameterMapper(VariableElement param) throws UnsupportedRouteException {
+        TypeMirror type = param.asType();
+        String raw = classLiteral(type, param);
+        if (type.getKind() == TypeKind.DECLARED) {
+            String name = ((TypeElement) types.asElement(type)).getQualifiedName().toString();
+            TypeMirror eventLoop = elements.getTypeElement("io.netty.channel.EventLoop").asType();
+            if (CONTEXT_TYPES.contains(name) || types.isAssignable(eventLoop, types.erasure(type))) {
+                return ROUTE_INVOKERS + ".context(" + raw + ")";
+            }
+        }
+        AnnotationMirror a;
+        if ((a = findAnnotation(param, PATH_VAR)) != null) {
+            String name = (String) value(a, "value");
+            return ROUTE_INVOKERS + ".pathVar(" + raw + ", "
+                    + literal(name.isEmpty() ? param.getSimpleName().toString() : name) + ")";
+        }
+        if ((a = findAnnotation(param, QUERY_VAR)) != null) {
+            String name = (String) value(a, "value");
+            return ROUTE_INVOKERS + ".queryVar(" + raw + ", " + typeExpression(type, param) + ", "
+                    + literal(name.isEmpty() ? param.getSimpleName().toString() : name) + ", "
+                    + value(a, "required") + ", " + value(a, "compatibleWithArray") + ")";
+        }
+        if (findAnnotation(param, JSON_BODY) != null) {
+            return ROUTE_INVOKERS + ".jsonBody(" + raw + ", " + typeExpression(type, param) + ")";
+        }
+        if (findAnnotation(param, STRING_BODY) != null) {
+            return ROUTE_INVOKERS + ".stringBody(" + typeExpression(type, param) + ")";
+        }
+        if ((a = findAnnotation(param, HEADER_VALUE)) != null) {
+            return ROUTE_INVOKERS + ".headerValue(" + raw + ", " + typeExpression(type, param) + ", "
+                    + literal((String) value(a, "value")) + ", " + value(a, "required") + ")";
+        }
+        if ((a = findAnnotation(param, COOKIE_VALUE)) != null) {
+            return ROUTE_INVOKERS + ".cookieValue(" + raw + ", " + typeExpression(type, param) + ", "
+                    + literal((String) value(a, "value")) + ", " + value(a, "required") + ")";
+        }
+        if (findAnnotation(param, REMOTE_ADDR) != null) {
+            return ROUTE_INVOKERS + ".remoteAddr(" + raw + ")";
+        }
+        if ((a = findAnnotation(param, COMPONENT_VALUE)) != null) {
+            return ROUTE_INVOKERS + ".componentValue(" + raw + ", " + typeExpression(type, param) + ", "
+                    + classLiteral((TypeMirror) value(a, "value"), param) + ", " + value(a, "required") + ")";
+        }
+        if ((a = findAnnotation(param, PROPERTY_VALUE)) != null) {
+            return ROUTE_INVOKERS + ".propertyValue(" + raw + ", " + typeExpression(type, param) + ", "
+                    + literal((String) value(a, "value")) + ", " + value(a, "required") + ")";
+        }
+        return ROUTE_INVOKERS + ".zeroValue(" + raw + ")";
+    }
+
+    private record Route(List<String> values, List<String> methods) {
+    }
+
+    private Route route(ExecutableElement method) {
+        // same order as RouterUtil: the @HttpRoute first, then the annotations meta-annotated by @HttpRoute
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (HTTP_ROUTE.equals(annotationName(mirror))) {
+                return new Route(stringValues(mirror, "value"), enumValues(mirror, "method"));
+            }
+        }
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            AnnotationMirror route = findAnnotation(mirror.getAnnotationType().asElement(), HTTP_ROUTE);
+            if (route != null) {
+                return new Route(stringValues(mirror, "value"), enumValues(route, "method"));
+            }
+        }
+        return null;
+    }
+
+    private List<String> pathPrefixes(TypeElement controller) {
+        AnnotationMirror httpPaths = findAnnotation(controller, HTTP_PATHS);
+        if (httpPaths != null) {
+            List<String> paths = new ArrayList<>();
+            for (Object path : (List<?>) value(httpPaths, "value")) {
+                paths.add("/" + String.join("/", stringValues((AnnotationMirror) path, "value")));
+            }
+            if (!paths.isEmpty()) {
+                return paths;
+            }
+        }
+        AnnotationMirror httpPath = findAnnotation(controller, HTTP_PATH);
+        if (httpPath != null) {
+            return List.of("/" + String.join("/", stringValues(httpPath, "value")));
+        }
+        return List.of("/");
+    }
+
+    private String classLiteral(TypeMirror type, Element element) throws UnsupportedRouteException {
+        return rawTypeName(type, element) + ".class";
+    }
+
+    private String rawTypeName(TypeMirror type, Element element) throws UnsupportedRouteException {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase();
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return rawTypeName(((ArrayType) type).getComponentType(), element) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) types.asElement(type)).getQualifiedName().toString();
+        }
+        throw new UnsupportedRouteException("Unsupported parameter type " + type, element);
+    }
+
+    private String typeName(TypeMirror type, Element element) throws UnsupportedRouteException {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) type).getComponentType(), element) + "[]";
+        }
+        if (type.getKind() == TypeKind.WILDCARD) {
+            WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getExtendsBound() != null) {
+                return "? extends " + typeName(wildcard.getExtendsBound(), element);
+            }
+            if (wildcard.getSuperBound() != null) {
+                return "? super " + typeName(wildcard.getSuperBound(), element);
+            }
+            return "?";
+        }
+        String name = rawTypeName(type, element);
+        if (type instanceof DeclaredType declared && !declared.getTypeArguments().isEmpty()) {
+            List<String> args = new ArrayList<>();
+            for (TypeMirror arg : declared.getTypeArguments()) {
+                args.add(typeName(arg, element));
+            }
+            return name + "<" + String.join(", ", args) + ">";
+        }
+        return name;
+    }
+
+    private String typeExpression(TypeMirror type, Element element) throws UnsupportedRouteException {
+        if (type instanceof DeclaredType declared && !declared.getTypeArguments().isEmpty()) {
+            StringBuilder b = new StringBuilder(ROUTE_INVOKERS).append(".parameterizedType(")
+                    .append(classLiteral(type, element));
+            for (TypeMirror arg : declared.getTypeArguments()) {
+                b.append(", ").append(typeExpression(arg, element));
+            }
+            return b.append(')').toString();
+        }
+        if (type.getKind() == TypeKind.ARRAY && typeName(type, element).contains("<")) {
+            throw new UnsupportedRouteException("Generic array type " + type + " is not supported", element);
+        }
+        return classLiteral(type, element);
+    }
+
+    private boolean isVoid(TypeMirror type) {
+        return type.getKind() == TypeKind.VOID || isType(type, "java.lang.Void");
+    }
+
+    private boolean isType(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) types.asElement(type)).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    private static String flatName(TypeElement type) {
+        StringBuilder b = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); !(e instanceof PackageElement); e = e.getEnclosingElement()) {
+            b.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return b.toString();
+    }
+
+    private static String annotationName(AnnotationMirror mirror) {
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (name.equals(annotationName(mirror))) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        for (var entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalArgumentException("missing value " + name + " of " + mirror);
+    }
+
+    private List<String> stringValues(AnnotationMirror mirror, String name) {
+        return ((List<?>) value(mirror, name)).stream().map(v -> (String) ((AnnotationValue) v).getValue())
+                .toList();
+    }
+
+    private List<String> enumValues(AnnotationMirror mirror, String name) {
+        return ((List<?>) value(mirror, name)).stream()
+                .map(v -> ((VariableElement) ((AnnotationValue) v).getValue()).getSimpleName().toString()).toList();
+    }
+
+    private static String literal(String value) {
+        StringBuilder b = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"' -> b.append("\\\"");
+            case '\\' -> b.append("\\\\");
+            case '\n' -> b.append("\\n");
+            case '\r' -> b.append("\\r");
+            case '\t' -> b.append("\\t");
+            default -> {
+                if (c < 0x20) {
+                    b.append(String.format("\\u%04x", (int) c));
+                } else {
+                    b.append(c);
+                }
+            }
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    private static final class UnsupportedRouteException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Element element;
+
+        private UnsupportedRouteException(String message, Element element) {
+            super(message, null, false, false);
+            this.element = element;
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.github.fmjsjx.libnetty.http.server.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.fmjsjx.libnetty.http.server.middleware.RouteRegistrar;
+import com.github.fmjsjx.libnetty.http.server.middleware.Router;
+
+public class RouteProcessorTest {
+
+    @TempDir
+    Path output;
+
+    @Test
+    public void testGenerateRegistrar() {
+        try {
+            Compilation compilation = compile("test.UserController", """
+                    package test;
+
+                    import java.util.List;
+                    import java.util.concurrent.CompletableFuture;
+                    import java.util.concurrent.CompletionStage;
+
+                    import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+                    import com.github.fmjsjx.libnetty.http.server.HttpResult;
+                    import com.github.fmjsjx.libnetty.http.server.annotation.*;
+
+                    @HttpPath("/users")
+                    public class UserController {
+
+                        @HttpGet("/{id}")
+                        @StringBody
+                        public String get(@PathVar int id, @QueryVar(required = false) String fields) {
+                            return id + ":" + fields;
+                        }
+
+                        @HttpPost("/{id}/tags")
+                        public CompletionStage<Void> tag(@PathVar("id") long userId, @QueryVar("t") List<String> tags) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+
+                        @HttpDelete("/{id}")
+                        CompletionStage<HttpResult> delete(HttpRequestContext ctx, @HeaderValue("x-token") String t) {
+                            return null;
+                        }
+
+                        public void notRouting() {
+                        }
+
+                    }
+                    """);
+            assertTrue(compilation.success(), compilation.diagnostics());
+            assertTrue(compilation.warnings().isEmpty(), compilation.diagnostics());
+            String source = Files.readString(output.resolve("sources/test/UserController_Routes.java"));
+            // the default names are the parameter names declared in the source code
+            assertTrue(source.contains("pathVar(int.class, \"id\")"), source);
+            assertTrue(source.contains("queryVar(java.lang.String.class, java.lang.String.class, \"fields\", false"),
+                    source);
+            assertTrue(source.contains("pathVar(long.class, \"id\")"), source);
+            assertTrue(source.contains("java.util.List.class, java.lang.String.class), \"t\""), source);
+            assertEquals("test.UserController_Routes\n",
+                    Files.readString(output.resolve("classes/META-INF/services/" + RouteRegistrar.class.getName())));
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[] { output.resolve("classes").toUri().toURL() },
+                    getClass().getClassLoader())) {
+                Class<?> controllerType = loader.loadClass("test.UserController");
+                @SuppressWarnings("unchecked")
+                RouteRegistrar<Object> registrar = (RouteRegistrar<Object>) loader
+                        .loadClass("test.UserController_Routes").getConstructor().newInstance();
+                assertEquals(controllerType, registrar.controllerType());
+                assertEquals(3, registrar.register(new Router(), controllerType.getConstructor().newInstance()));
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testUnsupportedRoutes() {
+        try {
+            assertSkipped("Private routing method is not supported", """
+                    @HttpGet("/a")
+                    @StringBody
+                    private String a() {
+                        return "a";
+                    }
+                    """);
+            assertSkipped("Generic routing method is not supported", """
+                    @HttpGet("/a")
+                    @JsonBody
+                    public <T> T a() {
+                        return null;
+                    }
+                    """);
+            assertSkipped("the return type must be a CompletionStage<HttpResult>", """
+                    @HttpGet("/a")
+                    public String a() {
+                        return "a";
+                    }
+                    """);
+            assertSkipped("The return type must be or extend CharSequence when @StringBody is present", """
+                    @HttpGet("/a")
+                    @StringBody
+                    public Integer a() {
+                        return 1;
+                    }
+                    """);
+            assertSkipped("missing parameter as type HttpRequestContext", """
+                    @HttpGet("/a")
+                    public CompletionStage<HttpResult> a() {
+                        return null;
+                    }
+                    """);
+            assertSkipped("Generic controller class is not supported", "<T>", """
+                    @HttpGet("/a")
+                    @StringBody
+                    public String a() {
+                        return "a";
+                    }
+                    """);
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void assertSkipped(String message, String method) throws Exception {
+        assertSkipped(message, "", method);
+    }
+
+    private void assertSkipped(String message, String typeParameters, String method) throws Exception {
+        Compilation compilation = compile("test.BadController", """
+                package test;
+
+                import java.util.concurrent.CompletionStage;
+
+                import com.github.fmjsjx.libnetty.http.server.HttpResult;
+                import com.github.fmjsjx.libnetty.http.server.annotation.*;
+
+                public class BadController%s {
+
+                %s
+                }
+                """.formatted(typeParameters, method.indent(4)));
+        // the controller will be registered through reflection, so the compilation must not fail
+        assertTrue(compilation.success(), compilation.diagnostics());
+        assertTrue(compilation.warnings().stream().anyMatch(w -> w.startsWith(message)), compilation.diagnostics());
+        assertFalse(Files.exists(output.resolve("sources/test/BadController_Routes.java")));
+    }
+
+    private record Compilation(boolean success, List<String> warnings, String diagnostics) {
+    }
+
+    private Compilation compile(String className, String code) throws Exception {
+        Path sources = Files.createDirectories(output.resolve("sources"));
+        Path classes = Files.createDirectories(output.resolve("classes"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        JavaFileObject source = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+        // compile without the -parameters option, just like the default of javac
+        List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-d", classes.toString(),
+                "-s", sources.toString());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, collector, options, null, List.of(source));
+        task.setProcessors(List.of(new RouteProcessor()));
+        boolean success = task.call();
+        List<Diagnostic<? extends JavaFileObject>> list = collector.getDiagnostics();
+        List<String> warnings = list.stream().filter(d -> d.getKind() == Diagnostic.Kind.WARNING)
+                .map(d -> d.getMessage(Locale.ROOT)).toList();
+        String diagnostics = list.stream().map(d -> d.getKind() + ": " + d.getMessage(Locale.ROOT))
+                .collect(Collectors.joining("\n"));
+        return new Compilation(success, warnings, diagnostics);
+    }
+
+}
@@ -27,7 +27,9 @@ dependencies {
     implementation("tools.jackson.core:jackson-core")
     implementation("tools.jackson.core:jackson-databind")
     compileOnlyApi("com.github.fmjsjx:libcommon-json-jackson3")
+    compileOnlyApi(project(":libnetty-fastcgi"))
 
+    testAnnotationProcessor(project(":libnetty-http-server-processor"))
     testImplementation("org.junit.jupiter:junit-jupiter-api")
     testImplementation("org.mockito:mockito-core")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
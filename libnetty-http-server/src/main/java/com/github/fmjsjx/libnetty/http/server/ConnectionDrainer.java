@@ -0,0 +1,179 @@
+package com.github.fmjsjx.libnetty.http.server;
+
+import static com.github.fmjsjx.libnetty.http.server.Constants.WEB_SOCKET_FRAME_HANDLER;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Tracks the connections of an HTTP server and drains them gracefully when
+ * the server is shutting down.
+ * <p>
+ * When draining:
+ * <ul>
+ * <li>idle HTTP/1.x connections are closed immediately</li>
+ * <li>HTTP/1.x connections with a request in flight (including SSE streams)
+ * will send {@code Connection: close} on the response and be closed after
+ * the response is finished</li>
+ * <li>HTTP/2 connections send {@code GOAWAY} and are closed after all active
+ * streams are finished</li>
+ * <li>WebSocket connections are closed with status {@code 1001}</li>
+ * </ul>
+ * The connections not closed before the deadline will be closed forcibly.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+class ConnectionDrainer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionDrainer.class);
+
+    private final ChannelGroup connections = new DefaultChannelGroup("http-connections", GlobalEventExecutor.INSTANCE);
+
+    private volatile boolean draining;
+
+    /**
+     * Tracks the specified connection.
+     *
+     * @param channel the connection
+     */
+    void track(Channel channel) {
+        connections.add(channel);
+    }
+
+    /**
+     * Creates a new {@link DrainHandler} for an HTTP/1.x connection.
+     *
+     * @return a new {@code DrainHandler}
+     */
+    DrainHandler newHandler() {
+        return new DrainHandler();
+    }
+
+    /**
+     * Returns whether this drainer is draining or not.
+     *
+     * @return {@code true} if is draining
+     */
+    boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Returns the number of the open connections.
+     *
+     * @return the number of the open connections
+     */
+    int connections() {
+        return connections.size();
+    }
+
+    /**
+     * Drains all connections and waits until they are closed or the
+     * {@code timeout} elapsed.
+     *
+     * @param timeout the timeout
+     * @return the number of the connections closed forcibly
+     * @throws InterruptedException if the current thread was interrupted
+     */
+    int drain(Duration timeout) throws InterruptedException {
+        draining = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Channel> channels = new ArrayList<>(connections);
+        log.debug("Draining {} connections", channels.size());
+        for (Channel channel : channels) {
+            channel.eventLoop().execute(() -> drain(channel));
+        }
+        for (Channel channel : channels) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !channel.closeFuture().await(remaining, TimeUnit.NANOSECONDS)) {
+                break;
+            }
+        }
+        int remaining = connections.size();
+        if (remaining > 0) {
+            connections.close().await();
+        }
+        return remaining;
+    }
+
+    private static final void drain(Channel channel) {
+        if (!channel.isActive()) {
+            return;
+        }
+        var pipeline = channel.pipeline();
+        if (pipeline.get(Http2ConnectionHandler.class) != null) {
+            // Http2ConnectionHandler sends GOAWAY and waits for the active streams
+            channel.close();
+        } else if (pipeline.get(WEB_SOCKET_FRAME_HANDLER) != null) {
+            channel.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.ENDPOINT_UNAVAILABLE));
+        } else if (!(pipeline.get(DrainHandler.class) instanceof DrainHandler handler) || handler.inflight == 0) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Counts the requests in flight of an HTTP/1.x connection, and closes the
+     * connection after the response is finished when draining.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    final class DrainHandler extends ChannelDuplexHandler {
+
+        private int inflight;
+
+        private DrainHandler() {
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof HttpRequestContext) {
+                inflight++;
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (draining && msg instanceof HttpResponse response) {
+                HttpUtil.setKeepAlive(response, false);
+            }
+            if (msg instanceof LastHttpContent || msg instanceof ChunkedInput) {
+                promise = promise.unvoid();
+                promise.addListener((ChannelFutureListener) future -> {
+                    inflight--;
+                    if (draining) {
+                        future.channel().close();
+                    }
+                });
+            }
+            ctx.write(msg, promise);
+        }
+
+    }
+
+}
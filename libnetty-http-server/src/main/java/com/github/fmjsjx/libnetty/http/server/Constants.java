@@ -124,6 +124,22 @@ public final class Constants {
      */
     public static final String WEB_SOCKET_PIPELINE_INITIALIZER = "WebSocketPipelineInitializer";
 
+    /**
+     * {@code "WebSocketExtensionsRecorder"}, the name of the handler records
+     * the negotiated websocket extensions.
+     *
+     * @since 4.3
+     */
+    public static final String WEB_SOCKET_EXTENSIONS_RECORDER = "WebSocketExtensionsRecorder";
+
+    /**
+     * {@code "ConnectionDrainHandler"}, the name of the handler drains the
+     * connection when the server is shutting down.
+     *
+     * @since 4.3
+     */
+    public static final String CONNECTION_DRAIN_HANDLER = "ConnectionDrainHandler";
+
     /**
      * The default chunk size for file streaming.
      *
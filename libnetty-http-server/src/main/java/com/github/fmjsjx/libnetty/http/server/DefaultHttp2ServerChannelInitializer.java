@@ -1,6 +1,7 @@
 package com.github.fmjsjx.libnetty.http.server;
 
 import static com.github.fmjsjx.libnetty.http.server.Constants.*;
+import static com.github.fmjsjx.libnetty.http.server.DefaultHttpServerChannelInitializer.addConnectionDrainHandler;
 import static com.github.fmjsjx.libnetty.http.server.DefaultHttpServerChannelInitializer.addWebSocketSupport;
 import static com.github.fmjsjx.libnetty.http.server.DefaultHttpServerHandlerProvider.DEFAULT_EXCEPTION_HANDLER;
 
@@ -62,12 +63,14 @@ class DefaultHttp2ServerChannelInitializer extends ChannelInitializer<Channel> {
 
     private final Http2Settings initialSettings;
 
+    private final ConnectionDrainer connectionDrainer;
+
     DefaultHttp2ServerChannelInitializer(int timeoutSeconds, int maxContentLength, CorsConfig corsConfig,
                                          ChannelSslInitializer<Channel> channelSslInitializer,
                                          HttpContentCompressorProvider httpContentCompressorProvider,
                                          boolean lazyLoadingEnabled, HttpServerHandlerProvider handlerProvider,
                                          Map<Class<?>, Object> components, Consumer<HttpHeaders> addHeaders,
-                                         Http2Settings initialSettings) {
+                                         Http2Settings initialSettings, ConnectionDrainer connectionDrainer) {
         this.timeoutSeconds = timeoutSeconds;
         this.maxContentLength = maxContentLength;
         this.corsConfig = corsConfig;
@@ -80,6 +83,7 @@ class DefaultHttp2ServerChannelInitializer extends ChannelInitializer<Channel> {
         this.components = components;
         this.addHeaders = addHeaders;
         this.initialSettings = initialSettings;
+        this.connectionDrainer = connectionDrainer;
         this.contextDecoder = new HttpRequestContextDecoder(components, addHeaders, sslEnabled);
         if (components.get(WebSocketSupport.componentKey()) instanceof Optional<?> o && o.isPresent()) {
             this.webSocketInitializer = new WebSocketInitializer((WebSocketSupport) o.get());
@@ -123,6 +127,9 @@ class DefaultHttp2ServerChannelInitializer extends ChannelInitializer<Channel> {
 
     @Override
     protected void initChannel(Channel ch) throws Exception {
+        if (connectionDrainer != null) {
+            connectionDrainer.track(ch);
+        }
         int timeoutSeconds = this.timeoutSeconds;
         if (timeoutSeconds > 0) {
             ch.pipeline().addLast(TIMEOUT_HANDLER, new AllTimeoutHandler(timeoutSeconds));
@@ -195,6 +202,7 @@ class DefaultHttp2ServerChannelInitializer extends ChannelInitializer<Channel> {
             }
             pipeline.addLast(CHUNKED_WRITE_HANDLER, new ChunkedWriteHandler());
             pipeline.addLast(HTTP_REQUEST_CONTEXT_DECODER, contextDecoder);
+            addConnectionDrainHandler(pipeline, connectionDrainer);
             pipeline.addLast(HTTP_REQUEST_CONTEXT_HANDLER, handlerProvider.get());
         }
 
@@ -243,6 +251,7 @@ class DefaultHttp2ServerChannelInitializer extends ChannelInitializer<Channel> {
             }
             pipeline.addLast(CHUNKED_WRITE_HANDLER, new ChunkedWriteHandler());
             pipeline.addLast(HTTP_REQUEST_CONTEXT_DECODER, contextDecoder);
+            addConnectionDrainHandler(pipeline, connectionDrainer);
             pipeline.addLast(HTTP_REQUEST_CONTEXT_HANDLER, handlerProvider.get());
             ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
         }
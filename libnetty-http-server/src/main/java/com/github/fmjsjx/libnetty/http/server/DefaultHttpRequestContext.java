@@ -4,6 +4,7 @@ import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpHeaderValues.*;
 
 import java.nio.charset.Charset;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -11,7 +12,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -35,6 +35,10 @@ import io.netty.handler.codec.http2.Http2StreamChannel;
 
 /**
  * The default implementation of {@link DefaultHttpRequestContext}.
+ * <p>
+ * To keep the allocation per request small, the received time is captured
+ * as epoch milliseconds and converted lazily, and the concurrent property
+ * map and the response factory are created on demand.
  *
  * @author MJ Fang
  * @since 1.1
@@ -44,7 +48,8 @@ class DefaultHttpRequestContext implements HttpRequestContext {
     private static final Function<Object, String> PROPERTY_KEY_ENCODER = String::valueOf;
 
     private final long receivedNanoTime = System.nanoTime();
-    private final ZonedDateTime receivedTime = ZonedDateTime.now();
+    private final long receivedEpochMillis = System.currentTimeMillis();
+    private ZonedDateTime receivedTime;
     private LocalDateTime receivedLocalTime;
 
     private final Channel channel;
@@ -58,13 +63,12 @@ class DefaultHttpRequestContext implements HttpRequestContext {
     private QueryStringDecoder queryStringDecoder;
     private String rawPath;
     private String rawQuery;
-    private final AtomicReference<PathVariables> pathVariablesRef = new AtomicReference<>();
+    private volatile PathVariables pathVariables;
 
     private final Map<Class<?>, Object> components;
-    private final ConcurrentMap<Object, Object> properties = new ConcurrentHashMap<>();
-    private final HttpResponseFactoryImpl responseFactory = new HttpResponseFactoryImpl();
-    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-    private final Optional<Consumer<HttpHeaders>> addHeaders;
+    private volatile ConcurrentMap<Object, Object> properties;
+    private HttpResponseFactoryImpl responseFactory;
+    private final Consumer<HttpHeaders> addHeaders;
     private final boolean sslEnabled;
     private final String protocolVersion;
 
@@ -74,7 +78,7 @@ class DefaultHttpRequestContext implements HttpRequestContext {
         this.request = request;
         this.contentLength = request.content().readableBytes();
         this.components = components;
-        this.addHeaders = Optional.ofNullable(addHeaders);
+        this.addHeaders = addHeaders;
         this.sslEnabled = sslEnabled;
         if (channel instanceof Http2StreamChannel) {
             protocolVersion = sslEnabled ? "h2" : "h2c";
@@ -90,6 +94,11 @@ class DefaultHttpRequestContext implements HttpRequestContext {
 
     @Override
     public ZonedDateTime receivedTime() {
+        var receivedTime = this.receivedTime;
+        if (receivedTime == null) {
+            this.receivedTime = receivedTime = ZonedDateTime.ofInstant(Instant.ofEpochMilli(receivedEpochMillis),
+                    ZoneId.systemDefault());
+        }
         return receivedTime;
     }
 
@@ -184,12 +193,12 @@ class DefaultHttpRequestContext implements HttpRequestContext {
 
     @Override
     public PathVariables pathVariables() {
-        return pathVariablesRef.get();
+        return pathVariables;
     }
 
     @Override
     public DefaultHttpRequestContext pathVariables(PathVariables pathVariables) {
-        this.pathVariablesRef.set(pathVariables);
+        this.pathVariables = pathVariables;
         return this;
     }
 
@@ -211,7 +220,21 @@ class DefaultHttpRequestContext implements HttpRequestContext {
     }
 
     private Object getProperty(Object key) {
-        return properties.get(PROPERTY_KEY_ENCODER.apply(key));
+        var properties = this.properties;
+        return properties == null ? null : properties.get(PROPERTY_KEY_ENCODER.apply(key));
+    }
+
+    private ConcurrentMap<Object, Object> properties() {
+        var properties = this.properties;
+        if (properties == null) {
+            synchronized (this) {
+                properties = this.properties;
+                if (properties == null) {
+                    this.properties = properties = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return properties;
     }
 
     @Override
@@ -224,31 +247,39 @@ class DefaultHttpRequestContext implements HttpRequestContext {
     public DefaultHttpRequestContext property(Object key, Object value) {
         String keyName = PROPERTY_KEY_ENCODER.apply(key);
         if (value == null) {
-            properties.remove(keyName);
+            var properties = this.properties;
+            if (properties != null) {
+                properties.remove(keyName);
+            }
         } else {
-            properties.put(keyName, value);
+            properties().put(keyName, value);
         }
         return this;
     }
 
     @Override
     public boolean hasProperty(Object key) {
-        return properties.containsKey(PROPERTY_KEY_ENCODER.apply(key));
+        return getProperty(key) != null;
     }
 
     @Override
     public Stream<String> propertyKeyNames() {
-        return properties.keySet().stream().map(PROPERTY_KEY_ENCODER);
+        var properties = this.properties;
+        return properties == null ? Stream.empty() : properties.keySet().stream().map(PROPERTY_KEY_ENCODER);
     }
 
     @Override
     public HttpResponseFactory responseFactory() {
+        var responseFactory = this.responseFactory;
+        if (responseFactory == null) {
+            this.responseFactory = responseFactory = new HttpResponseFactoryImpl();
+        }
         return responseFactory;
     }
 
     @Override
     public String toString() {
-        StringBuilder b = new StringBuilder().append("DefaultHttpRequestContext(receivedTime: ").append(receivedTime)
+        StringBuilder b = new StringBuilder().append("DefaultHttpRequestContext(receivedTime: ").append(receivedTime())
                 .append(", channel: ").append(channel()).append(", remoteAddress: ").append(remoteAddress())
                 .append(", query: ").append(queryStringDecoder).append(", contentLength: ").append(contentLength)
                 .append(", properties: ").append(properties).append(")\n");
@@ -267,8 +298,10 @@ class DefaultHttpRequestContext implements HttpRequestContext {
 
         private HttpHeaders initHeaders(HttpResponse response) {
             HttpHeaders headers = response.headers();
-            Optional<Consumer<HttpHeaders>> addHeaders = DefaultHttpRequestContext.this.addHeaders;
-            addHeaders.ifPresent(action -> action.accept(headers));
+            Consumer<HttpHeaders> addHeaders = DefaultHttpRequestContext.this.addHeaders;
+            if (addHeaders != null) {
+                addHeaders.accept(headers);
+            }
             HttpUtil.setKeepAlive(headers, response.protocolVersion(), isKeepAlive());
             return headers;
         }
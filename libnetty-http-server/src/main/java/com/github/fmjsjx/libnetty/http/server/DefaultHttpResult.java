@@ -16,7 +16,7 @@ public class DefaultHttpResult implements HttpResult {
     private final long resultLength;
     private final HttpResponseStatus responseStatus;
     private final long respondedNanoTime;
-    private final ZonedDateTime respondedTime;
+    private ZonedDateTime respondedTime;
 
     /**
      * Creates a new {@link DefaultHttpResult} instance with the specified params
@@ -27,8 +27,10 @@ public class DefaultHttpResult implements HttpResult {
      * @param responseStatus the {@link HttpResponseStatus} of the HTTP response
      */
     public DefaultHttpResult(HttpRequestContext requestContext, long resultLength, HttpResponseStatus responseStatus) {
-        this(requestContext, resultLength, responseStatus, System.nanoTime(),
-                ZonedDateTime.now(requestContext.receivedTime().getZone()));
+        this.requestContext = requestContext;
+        this.resultLength = resultLength;
+        this.responseStatus = responseStatus;
+        this.respondedNanoTime = System.nanoTime();
     }
 
     /**
@@ -75,6 +77,11 @@ public class DefaultHttpResult implements HttpResult {
 
     @Override
     public ZonedDateTime respondedTime() {
+        var respondedTime = this.respondedTime;
+        if (respondedTime == null) {
+            // derived from the received time, avoid reading the wall clock per request
+            this.respondedTime = respondedTime = requestContext.receivedTime().plusNanos(nanoUsed());
+        }
         return respondedTime;
     }
 
@@ -83,7 +90,7 @@ public class DefaultHttpResult implements HttpResult {
         return "DefaultHttpResult(resultLength: " + resultLength +
                 ", responseStatus: " + responseStatus +
                 ", respondedNanoTime: " + respondedNanoTime +
-                ", respondedTime: " + respondedTime + ")";
+                ", respondedTime: " + respondedTime() + ")";
     }
 
 }
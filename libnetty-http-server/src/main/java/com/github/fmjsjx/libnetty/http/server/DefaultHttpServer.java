@@ -27,6 +27,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -86,9 +88,14 @@ public class DefaultHttpServer implements HttpServer {
     private EventLoopGroup childGroup;
     private volatile boolean closeGroupsWhenShutdown;
     private Class<? extends ServerChannel> channelClass;
+    private IoTransportLibrary transportLibrary;
+    private int acceptors = 1;
     private ServerChannel channel;
+    private List<ServerChannel> channels = List.of();
 
     private int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+    private Duration drainTimeout = Duration.ZERO;
+    private ConnectionDrainer connectionDrainer;
     private int maxContentLength = DEFAULT_MAX_CONTENT_LENGTH;
     private CorsConfig corsConfig;
 
@@ -103,6 +110,8 @@ public class DefaultHttpServer implements HttpServer {
     private HttpServerHandlerProvider handlerProvider;
 
     private final Map<Class<?>, HttpServerComponent> components = new LinkedHashMap<>();
+    private final List<Supplier<? extends HttpServerComponent>> shardedComponentFactories = new ArrayList<>();
+    private ShardedComponents shardedComponents;
     private Consumer<HttpHeaders> addHeaders = defaultAddHeaders;
     private Http2Settings initialSettings;
 
@@ -342,6 +351,63 @@ public class DefaultHttpServer implements HttpServer {
         return this;
     }
 
+    /**
+     * Specify the {@link IoTransportLibrary} of this server.
+     * <p>
+     * The event loop groups will be created by the library if they are not
+     * specified by the {@code transport} methods.
+     *
+     * @param transportLibrary the {@code IoTransportLibrary}
+     * @return this server
+     * @since 4.3
+     */
+    public DefaultHttpServer transportLibrary(IoTransportLibrary transportLibrary) {
+        ensureNotStarted();
+        this.transportLibrary = requireNonNull(transportLibrary, "transportLibrary must not be null");
+        this.channelClass = transportLibrary.serverChannelClass();
+        return this;
+    }
+
+    /**
+     * Returns the number of the acceptors (server channels) of this server.
+     *
+     * @return the number of the acceptors
+     * @since 4.3
+     */
+    public int acceptors() {
+        return acceptors;
+    }
+
+    /**
+     * Set the number of the acceptors (server channels) of this server.
+     * <p>
+     * When the value is greater than {@code 1}, this server will bind the
+     * specified number of server channels on the same port with the
+     * {@code SO_REUSEPORT} option, and the kernel will load-balance the
+     * incoming connections across them. This feature requires the transport
+     * library supports {@code SO_REUSEPORT} (epoll or io_uring), see
+     * {@link IoTransportLibrary#reusePortOption()}.
+     * <p>
+     * Each server channel is registered to the next event loop of the parent
+     * group, so the parent group should have at least the same number of
+     * event loops. The parent group created by this server will always have
+     * the same number of event loops as the acceptors.
+     * <p>
+     * The default value is {@code 1}.
+     *
+     * @param acceptors the number of the acceptors
+     * @return this server
+     * @since 4.3
+     */
+    public DefaultHttpServer acceptors(int acceptors) {
+        ensureNotStarted();
+        if (acceptors < 1) {
+            throw new IllegalArgumentException("acceptors must be positive");
+        }
+        this.acceptors = acceptors;
+        return this;
+    }
+
     /**
      * Set the {@link CorsConfig} of this server.
      * <p>
@@ -446,6 +512,40 @@ public class DefaultHttpServer implements HttpServer {
         return timeoutSeconds(0);
     }
 
+    /**
+     * Returns the timeout of draining connections when shutting down.
+     *
+     * @return the timeout of draining connections
+     * @since 4.3
+     */
+    public Duration drainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Set the timeout of draining connections when shutting down.
+     * <p>
+     * If the timeout is positive, the {@link #shutdown()} method will stop
+     * accepting new connections at first, then let the requests in flight,
+     * SSE streams, HTTP/2 streams and WebSocket sessions finish before closing
+     * the connections. The connections not closed before the timeout will be
+     * closed forcibly.
+     * <p>
+     * The default value is {@link Duration#ZERO}, means no draining.
+     *
+     * @param drainTimeout the timeout of draining connections
+     * @return this server
+     * @since 4.3
+     */
+    public DefaultHttpServer drainTimeout(Duration drainTimeout) {
+        ensureNotStarted();
+        if (drainTimeout.isNegative()) {
+            throw new IllegalArgumentException("drainTimeout must not be negative");
+        }
+        this.drainTimeout = drainTimeout;
+        return this;
+    }
+
     /**
      * Allow to specify a {@link ChannelOption} which is used for the
      * {@link Channel} instances once they got created. Use a value of {@code null}
@@ -693,15 +793,65 @@ public class DefaultHttpServer implements HttpServer {
      * @since 1.3
      */
     public DefaultHttpServer component(HttpServerComponent component) {
-        switch (component) {
-            case JsonLibrary jsonLibrary -> components.put(JsonLibrary.class, jsonLibrary);
-            case WorkerPool workerPool -> components.put(WorkerPool.class, workerPool);
-            case ExceptionHandler exceptionHandler -> components.put(ExceptionHandler.class, exceptionHandler);
-            default -> components.put(component.componentType(), component);
-        }
+        components.put(componentKey(component), component);
         return this;
     }
 
+    static Class<?> componentKey(HttpServerComponent component) {
+        return switch (component) {
+            case JsonLibrary jsonLibrary -> JsonLibrary.class;
+            case WorkerPool workerPool -> WorkerPool.class;
+            case ExceptionHandler exceptionHandler -> ExceptionHandler.class;
+            default -> component.componentType();
+        };
+    }
+
+    /**
+     * Set a sharded {@link HttpServerComponent}, which will be instantiated
+     * once per child event loop by the specified factory when this server
+     * starts up.
+     * <p>
+     * The {@link HttpRequestContext#component(Class)} method returns the
+     * instance of the event loop of the request, so the instance is confined
+     * to one event loop (unless the request is handed off to another thread,
+     * such as a {@link WorkerPool}), and can hold contention-free state like
+     * per-core caches, buffers and counters. Use {@link #shards(Class)} to
+     * aggregate the state across all event loops.
+     * <p>
+     * A sharded component overrides the shared component with the same type.
+     *
+     * @param factory the factory creates the component instances
+     * @return this server
+     * @since 4.3
+     */
+    public DefaultHttpServer shardedComponent(Supplier<? extends HttpServerComponent> factory) {
+        ensureNotStarted();
+        shardedComponentFactories.add(requireNonNull(factory, "factory must not be null"));
+        return this;
+    }
+
+    /**
+     * Returns all instances of the sharded component with the specified type,
+     * one per child event loop.
+     * <p>
+     * Returns an empty list if this server is not running or no such sharded
+     * component.
+     *
+     * @param <C>           the type of the component
+     * @param componentType the type of the component
+     * @return a {@code List<C>}
+     * @see #shardedComponent(Supplier)
+     * @since 4.3
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends HttpServerComponent> List<C> shards(Class<C> componentType) {
+        ShardedComponents shardedComponents = this.shardedComponents;
+        if (shardedComponents == null) {
+            return List.of();
+        }
+        return (List<C>) Collections.unmodifiableList(shardedComponents.instances(componentType));
+    }
+
     /**
      * Support JSON features.
      * <p>
@@ -798,9 +948,13 @@ public class DefaultHttpServer implements HttpServer {
         parentGroup = null;
         childGroup = null;
         channelClass = null;
+        transportLibrary = null;
+        acceptors = 1;
         channel = null;
+        channels = List.of();
 
         timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+        drainTimeout = Duration.ZERO;
         maxContentLength = DEFAULT_MAX_CONTENT_LENGTH;
         corsConfig = null;
 
@@ -813,6 +967,8 @@ public class DefaultHttpServer implements HttpServer {
         handlerProvider = null;
 
         components.clear();
+        shardedComponentFactories.clear();
+        shardedComponents = null;
         addHeaders = defaultAddHeaders;
         return this;
     }
@@ -833,6 +989,10 @@ public class DefaultHttpServer implements HttpServer {
             bootstrap.group(parentGroup, childGroup).channel(channelClass);
             Map<Class<?>, Object> components = this.components.entrySet().stream()
                     .collect(Collectors.toMap(Entry::getKey, e -> Optional.ofNullable(e.getValue())));
+            if (!shardedComponentFactories.isEmpty()) {
+                components = shardedComponents = new ShardedComponents(components, shardedComponentFactories,
+                        childGroup);
+            }
             var initializer = createChannelInitializer(components);
 
             bootstrap.childHandler(initializer);
@@ -847,11 +1007,26 @@ public class DefaultHttpServer implements HttpServer {
             if (localAddress instanceof InetSocketAddress localSocketAddress) {
                 port = localSocketAddress.getPort();
             }
-            log.info("HTTP server '{}' started at {}.", name, localAddress);
+            List<ServerChannel> channels = new ArrayList<>(acceptors);
+            channels.add(channel);
+            this.channels = channels;
+            // other acceptors bind the same port, even if the original port is 0
+            for (int i = 1; i < acceptors; i++) {
+                channels.add((ServerChannel) bind(bootstrap).sync().channel());
+            }
+            this.channels = List.copyOf(channels);
+            if (acceptors > 1) {
+                log.info("HTTP server '{}' started at {} with {} acceptors.", name, localAddress, acceptors);
+            } else {
+                log.info("HTTP server '{}' started at {}.", name, localAddress);
+            }
 
             return this;
         } catch (Exception e) {
             running.set(false);
+            for (ServerChannel channel : channels) {
+                channel.close();
+            }
             if (closeGroupsWhenShutdown) {
                 closeGroups();
             }
@@ -867,26 +1042,38 @@ public class DefaultHttpServer implements HttpServer {
             log.debug("HTTP2 enabled, create and return HTTP2 server channel initializer.");
             return new DefaultHttp2ServerChannelInitializer(timeoutSeconds, maxContentLength, corsConfig,
                     channelSslInitializer(), httpContentCompressorProvider, lazyLoadingEnabled, handlerProvider,
-                    components, addHeaders, initialSettings);
+                    components, addHeaders, initialSettings, connectionDrainer);
         }
         return new DefaultHttpServerChannelInitializer(timeoutSeconds, maxContentLength, corsConfig,
-                channelSslInitializer(), httpContentCompressorProvider, lazyLoadingEnabled, handlerProvider, components, addHeaders);
+                channelSslInitializer(), httpContentCompressorProvider, lazyLoadingEnabled, handlerProvider, components, addHeaders,
+                connectionDrainer);
     }
 
     private void initSettings() {
         if (handlerProvider == null) {
             throw new IllegalArgumentException("missing handlerProvider for HTTP server '" + name + "'");
         }
+        IoTransportLibrary transportLibrary = transportLibrary();
         if (parentGroup == null) {
-            parentGroup = IoTransportLibrary.getDefault().createGroup(1, new DefaultThreadFactory("http-parent"));
+            parentGroup = transportLibrary.createGroup(acceptors, new DefaultThreadFactory("http-parent"));
             closeGroupsWhenShutdown = true;
         }
         if (childGroup == null) {
-            childGroup = IoTransportLibrary.getDefault().createGroup(ioThreads, new DefaultThreadFactory("http-child"));
+            childGroup = transportLibrary.createGroup(ioThreads, new DefaultThreadFactory("http-child"));
         }
         if (channelClass == null) {
-            channelClass = IoTransportLibrary.getDefault().serverChannelClass();
+            channelClass = transportLibrary.serverChannelClass();
+        }
+        if (acceptors > 1) {
+            if (transportLibrary.serverChannelClass() != channelClass) {
+                throw new IllegalArgumentException("missing transportLibrary for multiple acceptors of HTTP server '"
+                        + name + "'");
+            }
+            var reusePortOption = transportLibrary.reusePortOption().orElseThrow(() -> new IllegalArgumentException(
+                    "SO_REUSEPORT is not supported by " + transportLibrary.getClass().getSimpleName()));
+            bootstrap.option(reusePortOption, true);
         }
+        connectionDrainer = drainTimeout.isZero() ? null : new ConnectionDrainer();
         // always set AUTO_READ to false
         // use AutoReadNextHandler to read next HTTP request on Keep-Alive connection
         bootstrap.childOption(AUTO_READ, false);
@@ -897,6 +1084,11 @@ public class DefaultHttpServer implements HttpServer {
         }
     }
 
+    private IoTransportLibrary transportLibrary() {
+        IoTransportLibrary transportLibrary = this.transportLibrary;
+        return transportLibrary == null ? IoTransportLibrary.getDefault() : transportLibrary;
+    }
+
     private ChannelSslInitializer<Channel> channelSslInitializer() {
         return channelSslInitializer;
     }
@@ -916,11 +1108,26 @@ public class DefaultHttpServer implements HttpServer {
         return channel;
     }
 
+    /**
+     * Returns all binding {@link ServerChannel}s of this server.
+     *
+     * @return a {@code List<ServerChannel>}
+     * @see #acceptors(int)
+     * @since 4.3
+     */
+    public List<ServerChannel> channels() {
+        return channels;
+    }
+
     @Override
     public HttpServer shutdown() throws Exception {
         if (!running.compareAndSet(true, false)) {
             throw new IllegalStateException("The HTTP server '" + name + "' is not running!");
         }
+        ConnectionDrainer connectionDrainer = this.connectionDrainer;
+        if (connectionDrainer != null) {
+            drainConnections(connectionDrainer);
+        }
         HttpServerHandlerProvider handlerProvider = this.handlerProvider;
         log.debug("Close handler provider: {}", handlerProvider);
         handlerProvider.close();
@@ -928,12 +1135,35 @@ public class DefaultHttpServer implements HttpServer {
             log.debug("Close component: {}", component);
             component.onServerClosed();
         }
+        ShardedComponents shardedComponents = this.shardedComponents;
+        if (shardedComponents != null) {
+            for (HttpServerComponent component : shardedComponents.instances()) {
+                log.debug("Close sharded component: {}", component);
+                component.onServerClosed();
+            }
+            this.shardedComponents = null;
+        }
         if (closeGroupsWhenShutdown) {
             closeGroups();
         }
         return this;
     }
 
+    private void drainConnections(ConnectionDrainer connectionDrainer) throws InterruptedException {
+        log.info("Draining {} connections of HTTP server '{}'.", connectionDrainer.connections(), name);
+        // stop accepting new connections at first
+        for (ServerChannel channel : channels) {
+            channel.close().await();
+        }
+        int forciblyClosed = connectionDrainer.drain(drainTimeout);
+        if (forciblyClosed > 0) {
+            log.warn("Forcibly closed {} connections of HTTP server '{}' after draining timeout {}.", forciblyClosed,
+                    name, drainTimeout);
+        } else {
+            log.info("All connections of HTTP server '{}' drained.", name);
+        }
+    }
+
     private void closeGroups() {
         EventLoopGroup parentGroup = this.parentGroup;
         log.debug("Close parent group: {}", parentGroup);
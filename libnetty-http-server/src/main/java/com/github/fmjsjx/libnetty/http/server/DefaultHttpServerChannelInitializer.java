@@ -9,11 +9,15 @@ import java.util.function.Consumer;
 import com.github.fmjsjx.libnetty.handler.ssl.ChannelSslInitializer;
 import com.github.fmjsjx.libnetty.http.HttpContentCompressorProvider;
 import com.github.fmjsjx.libnetty.http.server.component.WebSocketSupport;
+import com.github.fmjsjx.libnetty.http.server.websocket.WebSocketExtensionsRecorder;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.codec.http.cors.CorsHandler;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.DeflateFrameServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
 import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -44,12 +48,14 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
 
     private final Map<Class<?>, Object> components;
     private final Consumer<HttpHeaders> addHeaders;
+    private final ConnectionDrainer connectionDrainer;
 
     DefaultHttpServerChannelInitializer(int timeoutSeconds, int maxContentLength, CorsConfig corsConfig,
                                         ChannelSslInitializer<Channel> channelSslInitializer,
                                         HttpContentCompressorProvider httpContentCompressorProvider,
                                         boolean lazyLoadingEnabled, HttpServerHandlerProvider handlerProvider,
-                                        Map<Class<?>, Object> components, Consumer<HttpHeaders> addHeaders) {
+                                        Map<Class<?>, Object> components, Consumer<HttpHeaders> addHeaders,
+                                        ConnectionDrainer connectionDrainer) {
         this.timeoutSeconds = timeoutSeconds;
         this.maxContentLength = maxContentLength;
         this.corsConfig = corsConfig;
@@ -61,6 +67,7 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
         this.handlerProvider = handlerProvider;
         this.components = components;
         this.addHeaders = addHeaders;
+        this.connectionDrainer = connectionDrainer;
         this.contextDecoder = new HttpRequestContextDecoder(components, addHeaders, sslEnabled);
         if (components.get(WebSocketSupport.componentKey()) instanceof Optional<?> o && o.isPresent()) {
             this.webSocketInitializer = new WebSocketInitializer((WebSocketSupport) o.get());
@@ -72,6 +79,10 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
     @Override
     protected void initChannel(Channel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
+        var connectionDrainer = this.connectionDrainer;
+        if (connectionDrainer != null) {
+            connectionDrainer.track(ch);
+        }
         int timeoutSeconds = this.timeoutSeconds;
         if (timeoutSeconds > 0) {
             pipeline.addLast(TIMEOUT_HANDLER, new ReadTimeoutHandler(timeoutSeconds));
@@ -98,9 +109,16 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
         }
         pipeline.addLast(CHUNKED_WRITE_HANDLER, new ChunkedWriteHandler());
         pipeline.addLast(HTTP_REQUEST_CONTEXT_DECODER, contextDecoder);
+        addConnectionDrainHandler(pipeline, connectionDrainer);
         pipeline.addLast(HTTP_REQUEST_CONTEXT_HANDLER, handlerProvider.get());
     }
 
+    static void addConnectionDrainHandler(ChannelPipeline pipeline, ConnectionDrainer connectionDrainer) {
+        if (connectionDrainer != null) {
+            pipeline.addLast(CONNECTION_DRAIN_HANDLER, connectionDrainer.newHandler());
+        }
+    }
+
     static void addWebSocketSupport(ChannelPipeline pipeline, WebSocketInitializer webSocketInitializer) {
         if (webSocketInitializer != null) {
             pipeline.addLast(WEB_SOCKET_PIPELINE_INITIALIZER, webSocketInitializer.createPipelineInitializer());
@@ -120,6 +138,16 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
             return new WebSocketServerProtocolHandler(webSocketSupport.protocolConfig());
         }
 
+        WebSocketServerExtensionHandler createCompressionHandler() {
+            if (webSocketSupport.allowServerNoContextTakeover()) {
+                // same as WebSocketServerCompressionHandler(0) but accepts server_no_context_takeover
+                return new WebSocketServerExtensionHandler(
+                        new PerMessageDeflateServerExtensionHandshaker(6, false, 15, true, false, 0),
+                        new DeflateFrameServerExtensionHandshaker(6, 0));
+            }
+            return new WebSocketServerCompressionHandler(0);
+        }
+
         @Override
         public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
             if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
@@ -156,7 +184,9 @@ class DefaultHttpServerChannelInitializer extends ChannelInitializer<Channel> {
                     if (isWebsocketUpgrade(request.headers()) && isWebSocketPath(request)) {
                         var p = ctx.pipeline();
                         var webSocketInitializer = WebSocketInitializer.this;
-                        p.addAfter(ctx.name(), WEB_SOCKET_SERVER_COMPRESSION_HANDLER, new WebSocketServerCompressionHandler(0));
+                        p.addAfter(ctx.name(), WEB_SOCKET_SERVER_COMPRESSION_HANDLER, webSocketInitializer.createCompressionHandler());
+                        // records the extensions added to the handshake response by the compression handler
+                        p.addBefore(WEB_SOCKET_SERVER_COMPRESSION_HANDLER, WEB_SOCKET_EXTENSIONS_RECORDER, WebSocketExtensionsRecorder.getInstance());
                         p.addAfter(WEB_SOCKET_SERVER_COMPRESSION_HANDLER, WEB_SOCKET_SERVER_PROTOCOL_HANDLER, webSocketInitializer.createProtocolHandler());
                         p.addAfter(WEB_SOCKET_SERVER_PROTOCOL_HANDLER, WEB_SOCKET_INITIALIZER, webSocketInitializer);
                         p.remove(this);
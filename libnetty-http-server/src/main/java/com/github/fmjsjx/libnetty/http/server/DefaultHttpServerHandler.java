@@ -43,7 +43,7 @@ class DefaultHttpServerHandler extends HttpRequestContextHandler {
 
     @Override
     protected void messageReceived(ChannelHandlerContext ctx, HttpRequestContext msg) {
-        firstChain.doNext(msg.retain()).whenComplete((r, e) -> destroy(msg));
+        MiddlewareChains.whenComplete(firstChain.doNext(msg.retain()), (r, e) -> destroy(msg));
     }
 
     void destroy(HttpRequestContext msg) {
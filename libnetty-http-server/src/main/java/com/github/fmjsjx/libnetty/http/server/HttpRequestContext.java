@@ -631,8 +631,18 @@ public interface HttpRequestContext extends ReferenceCounted, HttpResponder {
 
     @Override
     default CompletableFuture<HttpResult> sendResponse(FullHttpResponse response, int contentLength) {
-        CompletableFuture<HttpResult> future = new CompletableFuture<>();
         ChannelFuture sendFuture = channel().writeAndFlush(response);
+        if (!isKeepAlive()) {
+            sendFuture.addListener(CLOSE);
+        }
+        if (sendFuture.isDone()) {
+            // written synchronously on the event loop, no need to register a listener
+            if (sendFuture.isSuccess()) {
+                return CompletableFuture.completedFuture(new DefaultHttpResult(this, contentLength, response.status()));
+            }
+            return CompletableFuture.failedFuture(sendFuture.cause());
+        }
+        CompletableFuture<HttpResult> future = new CompletableFuture<>();
         sendFuture.addListener((ChannelFuture cf) -> {
             if (cf.isSuccess()) {
                 future.complete(new DefaultHttpResult(this, contentLength, response.status()));
@@ -640,9 +650,6 @@ public interface HttpRequestContext extends ReferenceCounted, HttpResponder {
                 future.completeExceptionally(cf.cause());
             }
         });
-        if (!isKeepAlive()) {
-            sendFuture.addListener(CLOSE);
-        }
         return future;
     }
 
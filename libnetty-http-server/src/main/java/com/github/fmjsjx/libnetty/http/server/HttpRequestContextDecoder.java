@@ -68,7 +68,9 @@ class HttpRequestContextDecoder extends MessageToMessageDecoder<FullHttpRequest>
                 cf.addListener(ChannelFutureListener.CLOSE);
             }
         } else {
-            out.add(new DefaultHttpRequestContext(ctx.channel(), msg.retain(), components, addHeaders, sslEnabled));
+            var channel = ctx.channel();
+            out.add(new DefaultHttpRequestContext(channel, msg.retain(),
+                    ShardedComponents.forEventLoop(components, channel.eventLoop()), addHeaders, sslEnabled));
         }
     }
 
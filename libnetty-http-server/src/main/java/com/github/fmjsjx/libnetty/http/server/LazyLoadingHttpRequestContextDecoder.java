@@ -122,7 +122,8 @@ class LazyLoadingHttpRequestContextDecoder extends MessageToMessageDecoder<HttpO
             // is multipart request
             var fullRequest = new DefaultFullHttpRequest(request.protocolVersion(), request.method(),
                     request.uri(), Unpooled.EMPTY_BUFFER, request.headers(), trailersFactory().newHeaders());
-            currentCtx = new LazyLoadingHttpRequestContextImpl(request, ctx.channel(), fullRequest, this, components, addHeaders, sslEnabled);
+            currentCtx = new LazyLoadingHttpRequestContextImpl(request, ctx.channel(), fullRequest, this,
+                    ShardedComponents.forEventLoop(components, ctx.channel().eventLoop()), addHeaders, sslEnabled);
             loading = true;
             loadedLength = 0;
             completed = false;
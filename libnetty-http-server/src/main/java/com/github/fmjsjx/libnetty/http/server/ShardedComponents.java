@@ -0,0 +1,116 @@
+package com.github.fmjsjx.libnetty.http.server;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.github.fmjsjx.libnetty.http.server.component.HttpServerComponent;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * The components of an HTTP server, with some of them instantiated per event
+ * loop.
+ * <p>
+ * This map itself contains the shared components and the sharded components
+ * of the first event loop. Use {@link #forEventLoop(Map, EventExecutor)} to
+ * get the components of a specific event loop.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+final class ShardedComponents extends AbstractMap<Class<?>, Object> {
+
+    /**
+     * Returns the components of the specified event loop.
+     *
+     * @param components the components
+     * @param eventLoop  the event loop
+     * @return the components of the event loop
+     */
+    static Map<Class<?>, Object> forEventLoop(Map<Class<?>, Object> components, EventExecutor eventLoop) {
+        if (components instanceof ShardedComponents sharded) {
+            return sharded.shards.getOrDefault(eventLoop, sharded.first);
+        }
+        return components;
+    }
+
+    private final IdentityHashMap<EventExecutor, Map<Class<?>, Object>> shards = new IdentityHashMap<>();
+    private final Map<Class<?>, List<HttpServerComponent>> instances = new HashMap<>();
+    private final Map<Class<?>, Object> first;
+
+    /**
+     * Constructs a new {@link ShardedComponents} instance.
+     *
+     * @param components the shared components, the values are wrapped by
+     *                   {@link Optional}
+     * @param factories  the factories of the sharded components
+     * @param group      the event loop group
+     */
+    ShardedComponents(Map<Class<?>, Object> components, List<Supplier<? extends HttpServerComponent>> factories,
+            EventExecutorGroup group) {
+        Map<Class<?>, Object> first = null;
+        for (EventExecutor eventLoop : group) {
+            Map<Class<?>, Object> shard = new HashMap<>(components);
+            for (Supplier<? extends HttpServerComponent> factory : factories) {
+                HttpServerComponent component = factory.get();
+                Class<?> key = DefaultHttpServer.componentKey(component);
+                shard.put(key, Optional.of(component));
+                instances.computeIfAbsent(key, k -> new ArrayList<>()).add(component);
+            }
+            shards.put(eventLoop, shard);
+            if (first == null) {
+                first = shard;
+            }
+        }
+        this.first = first == null ? components : first;
+    }
+
+    /**
+     * Returns all instances of the sharded component with the specified type.
+     *
+     * @param componentType the type of the component
+     * @return a {@code List<HttpServerComponent>}
+     */
+    List<HttpServerComponent> instances(Class<?> componentType) {
+        return instances.getOrDefault(componentType, List.of());
+    }
+
+    /**
+     * Returns all instances of all sharded components.
+     *
+     * @return a {@code List<HttpServerComponent>}
+     */
+    List<HttpServerComponent> instances() {
+        return instances.values().stream().flatMap(List::stream).toList();
+    }
+
+    @Override
+    public Object get(Object key) {
+        return first.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return first.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return first.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<Class<?>, Object>> entrySet() {
+        return first.entrySet();
+    }
+
+}
@@ -24,6 +24,12 @@ public @interface QueryVar {
 
     /**
      * Returns the name of the path variable.
+     * <p>
+     * If empty, the name of the parameter will be used. The route registrars
+     * generated by {@code RouteProcessor} use the name declared in the source
+     * code, but the reflection uses {@link java.lang.reflect.Parameter#getName()},
+     * which returns {@code argN} unless the class is compiled with the
+     * {@code -parameters} option.
      * 
      * @return the name of the path variable
      */
@@ -31,16 +31,43 @@ public final class WebSocketSupport implements HttpServerComponent {
      * @return a new {@code WebSocketSupport} instance
      */
     public static WebSocketSupport build(WebSocketServerProtocolConfig protocolConfig, Supplier<? extends ChannelHandler> webSocketFrameHandlerSupplier) {
-        return new WebSocketSupport(protocolConfig, webSocketFrameHandlerSupplier);
+        return new WebSocketSupport(protocolConfig, webSocketFrameHandlerSupplier, false);
+    }
+
+    /**
+     * Build a new {@link WebSocketSupport} with the specified parameters given.
+     * <p>
+     * When {@code allowServerNoContextTakeover} is {@code true}, the server
+     * will accept the {@code server_no_context_takeover} parameter of the
+     * {@code permessage-deflate} extension offered by the clients, so that
+     * the frames broadcast by the
+     * {@link com.github.fmjsjx.libnetty.http.server.websocket.WebSocketGroup WebSocketGroup}
+     * can be compressed only once for all these clients.
+     *
+     * @param protocolConfig                the protocol config
+     * @param webSocketFrameHandlerSupplier the web socket frame handler supplier
+     * @param allowServerNoContextTakeover  if the server accepts the
+     *                                      {@code server_no_context_takeover}
+     *                                      parameter
+     * @return a new {@code WebSocketSupport} instance
+     * @since 4.3
+     */
+    public static WebSocketSupport build(WebSocketServerProtocolConfig protocolConfig, Supplier<? extends ChannelHandler> webSocketFrameHandlerSupplier,
+                                         boolean allowServerNoContextTakeover) {
+        return new WebSocketSupport(protocolConfig, webSocketFrameHandlerSupplier, allowServerNoContextTakeover);
     }
 
     private final WebSocketServerProtocolConfig protocolConfig;
 
     private final Supplier<? extends ChannelHandler> webSocketFrameHandlerSupplier;
 
-    private WebSocketSupport(WebSocketServerProtocolConfig protocolConfig, Supplier<? extends ChannelHandler> webSocketFrameHandlerSupplier) {
+    private final boolean allowServerNoContextTakeover;
+
+    private WebSocketSupport(WebSocketServerProtocolConfig protocolConfig, Supplier<? extends ChannelHandler> webSocketFrameHandlerSupplier,
+                             boolean allowServerNoContextTakeover) {
         this.protocolConfig = Objects.requireNonNull(protocolConfig, "protocolConfig MUST not be null");
         this.webSocketFrameHandlerSupplier = Objects.requireNonNull(webSocketFrameHandlerSupplier, "webSocketFrameHandlerSupplier MUST not be null");
+        this.allowServerNoContextTakeover = allowServerNoContextTakeover;
     }
 
     @Override
@@ -57,6 +84,19 @@ public final class WebSocketSupport implements HttpServerComponent {
         return protocolConfig;
     }
 
+    /**
+     * Returns {@code true} if the server accepts the
+     * {@code server_no_context_takeover} parameter of the
+     * {@code permessage-deflate} extension.
+     *
+     * @return {@code true} if the server accepts the
+     *         {@code server_no_context_takeover} parameter
+     * @since 4.3
+     */
+    public boolean allowServerNoContextTakeover() {
+        return allowServerNoContextTakeover;
+    }
+
     /**
      * Returns a web socket frame handler.
      *
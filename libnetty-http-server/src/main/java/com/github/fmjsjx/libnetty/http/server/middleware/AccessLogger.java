@@ -503,7 +503,7 @@ public class AccessLogger implements Middleware {
 
     @Override
     public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
-        return next.doNext(ctx).whenComplete((r, e) -> {
+        return MiddlewareChains.whenComplete(next.doNext(ctx), (r, e) -> {
             if (e == null && loggerWrapper.isEnabled()) {
                 loggerWrapper.log(mapLog(r));
             }
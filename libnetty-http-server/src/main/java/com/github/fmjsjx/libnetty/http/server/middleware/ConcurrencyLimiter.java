@@ -0,0 +1,348 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A {@link Middleware} limits the number of the concurrent requests
+ * adaptively (load shedding).
+ * <p>
+ * Each partition has its own concurrency limit, which is adjusted by the
+ * observed latency ({@link HttpResult#nanoUsed()}) of the completed requests:
+ * <ul>
+ * <li>{@code gradient} (default): the limit follows the ratio between the
+ * minimum latency (no load) and the current latency, plus a small headroom
+ * of {@code sqrt(limit)}</li>
+ * <li>{@code AIMD}: the limit increases by {@code 1} when the latency is
+ * under the threshold, and decreases by {@code 10%} otherwise</li>
+ * </ul>
+ * Failed requests always decrease the limit. The requests exceed the limit
+ * will be rejected with a cached {@code 503 Service Unavailable} response
+ * immediately, without invoking the downstream {@link MiddlewareChain}.
+ * <p>
+ * The partition function is invoked before the {@link Router}, so it should
+ * returns a value with bounded cardinality, such as a priority header or a
+ * prefix of the path.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class ConcurrencyLimiter implements Middleware {
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder() {
+        return new Builder();
+    }
+
+    private static final Object DEFAULT_PARTITION = "default";
+
+    private static final ByteBuf SERVICE_UNAVAILABLE_CONTENT = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer().writeBytes(SERVICE_UNAVAILABLE.toString().getBytes(CharsetUtil.UTF_8))
+                    .asReadOnly());
+
+    private final Function<HttpRequestContext, ?> partitioner;
+    private final Function<Object, Limit> limitFactory;
+    private final ConcurrentHashMap<Object, Limit> limits = new ConcurrentHashMap<>();
+
+    private ConcurrencyLimiter(Builder builder) {
+        this.partitioner = builder.partitioner;
+        int initialLimit = builder.initialLimit;
+        int minLimit = builder.minLimit;
+        int maxLimit = builder.maxLimit;
+        if (builder.latencyThreshold != null) {
+            long thresholdNanos = builder.latencyThreshold.toNanos();
+            this.limitFactory = k -> new AimdLimit(initialLimit, minLimit, maxLimit, thresholdNanos);
+        } else {
+            this.limitFactory = k -> new GradientLimit(initialLimit, minLimit, maxLimit);
+        }
+    }
+
+    @Override
+    public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
+        Object partition = partitioner == null ? DEFAULT_PARTITION : partitioner.apply(ctx);
+        if (partition == null) {
+            partition = DEFAULT_PARTITION;
+        }
+        Limit limit = limits.computeIfAbsent(partition, limitFactory);
+        int inflight = limit.tryAcquire();
+        if (inflight < 0) {
+            return ctx.simpleRespond(SERVICE_UNAVAILABLE, SERVICE_UNAVAILABLE_CONTENT.duplicate(),
+                    HttpRequestContext.TEXT_PLAIN_UTF8);
+        }
+        CompletionStage<HttpResult> stage;
+        try {
+            stage = next.doNext(ctx);
+        } catch (RuntimeException e) {
+            limit.release(inflight, -1);
+            throw e;
+        }
+        return MiddlewareChains.whenComplete(stage, (r, e) -> limit.release(inflight, r == null ? -1 : r.nanoUsed()));
+    }
+
+    /**
+     * Returns the current concurrency limits of all partitions.
+     *
+     * @return a map contains the current concurrency limits
+     */
+    public Map<Object, Integer> limits() {
+        Map<Object, Integer> map = new LinkedHashMap<>();
+        limits.forEach((k, v) -> map.put(k, v.limit()));
+        return map;
+    }
+
+    /**
+     * Returns the number of the in-flight requests of all partitions.
+     *
+     * @return the number of the in-flight requests
+     */
+    public int inflight() {
+        int inflight = 0;
+        for (Limit limit : limits.values()) {
+            inflight += limit.inflight.get();
+        }
+        return inflight;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter(limits=" + limits() + ")";
+    }
+
+    private static abstract class Limit {
+
+        final int minLimit;
+        final int maxLimit;
+        final AtomicInteger inflight = new AtomicInteger();
+        // the bits of the double value of the limit
+        final AtomicLong limitBits;
+
+        Limit(int initialLimit, int minLimit, int maxLimit) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        }
+
+        final double limitValue() {
+            return Double.longBitsToDouble(limitBits.get());
+        }
+
+        final int limit() {
+            return (int) limitValue();
+        }
+
+        /**
+         * Returns the number of the in-flight requests when acquired, or
+         * {@code -1} if the limit exceeded.
+         */
+        final int tryAcquire() {
+            int limit = limit();
+            for (;;) {
+                int current = inflight.get();
+                if (current >= limit) {
+                    return -1;
+                }
+                if (inflight.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+            }
+        }
+
+        final void release(int inflight, long nanoUsed) {
+            this.inflight.decrementAndGet();
+            for (;;) {
+                long bits = limitBits.get();
+                double limit = Double.longBitsToDouble(bits);
+                double newLimit = nanoUsed < 0 ? limit * 0.9 : update(limit, inflight, nanoUsed);
+                newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+                if (newLimit == limit || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(newLimit))) {
+                    return;
+                }
+            }
+        }
+
+        abstract double update(double limit, int inflight, long nanoUsed);
+
+    }
+
+    private static final class AimdLimit extends Limit {
+
+        private final long thresholdNanos;
+
+        private AimdLimit(int initialLimit, int minLimit, int maxLimit, long thresholdNanos) {
+            super(initialLimit, minLimit, maxLimit);
+            this.thresholdNanos = thresholdNanos;
+        }
+
+        @Override
+        double update(double limit, int inflight, long nanoUsed) {
+            if (nanoUsed > thresholdNanos) {
+                return limit * 0.9;
+            }
+            // only increase when the limit is really used
+            return inflight * 2 >= limit ? limit + 1 : limit;
+        }
+
+    }
+
+    private static final class GradientLimit extends Limit {
+
+        private static final double SMOOTHING = 0.2;
+        private static final double TOLERANCE = 2.0;
+        private static final int PROBE_INTERVAL = 1000;
+
+        private final AtomicLong minNanoUsed = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicInteger samples = new AtomicInteger();
+
+        private GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+            super(initialLimit, minLimit, maxLimit);
+        }
+
+        @Override
+        double update(double limit, int inflight, long nanoUsed) {
+            nanoUsed = Math.max(1, nanoUsed);
+            long minNanoUsed;
+            if (samples.incrementAndGet() % PROBE_INTERVAL == 0) {
+                // probe the no-load latency again, it may have changed
+                this.minNanoUsed.set(nanoUsed);
+                minNanoUsed = nanoUsed;
+            } else {
+                minNanoUsed = this.minNanoUsed.accumulateAndGet(nanoUsed, Math::min);
+            }
+            if (inflight * 2 < limit) {
+                // the limit is not really used, keep it
+                return limit;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minNanoUsed / nanoUsed));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            return limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        }
+
+    }
+
+    /**
+     * The builder builds {@link ConcurrencyLimiter}s.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private Duration latencyThreshold;
+        private Function<HttpRequestContext, ?> partitioner;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the initial concurrency limit of each partition.
+         * <p>
+         * The default is {@code 20}.
+         *
+         * @param initialLimit the initial limit
+         * @return this builder
+         */
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the minimum concurrency limit of each partition.
+         * <p>
+         * The default is {@code 1}.
+         *
+         * @param minLimit the minimum limit
+         * @return this builder
+         */
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Sets the maximum concurrency limit of each partition.
+         * <p>
+         * The default is {@code 1000}.
+         *
+         * @param maxLimit the maximum limit
+         * @return this builder
+         */
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Use the gradient algorithm (default).
+         *
+         * @return this builder
+         */
+        public Builder gradient() {
+            this.latencyThreshold = null;
+            return this;
+        }
+
+        /**
+         * Use the AIMD (additive-increase/multiplicative-decrease) algorithm
+         * with the specified latency threshold.
+         *
+         * @param latencyThreshold the latency threshold
+         * @return this builder
+         */
+        public Builder aimd(Duration latencyThreshold) {
+            this.latencyThreshold = Objects.requireNonNull(latencyThreshold, "latencyThreshold must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the partition function, each partition has its own limit.
+         *
+         * @param partitioner the partition function
+         * @return this builder
+         */
+        public Builder partitionBy(Function<HttpRequestContext, ?> partitioner) {
+            this.partitioner = Objects.requireNonNull(partitioner, "partitioner must not be null");
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ConcurrencyLimiter}.
+         *
+         * @return a new {@code ConcurrencyLimiter}
+         */
+        public ConcurrencyLimiter build() {
+            if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("illegal limits: initialLimit=" + initialLimit + ", minLimit="
+                        + minLimit + ", maxLimit=" + maxLimit);
+            }
+            return new ConcurrencyLimiter(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,599 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderNames.COOKIE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpHeaderNames.LOCATION;
+import static io.netty.handler.codec.http.HttpHeaderNames.TRANSFER_ENCODING;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_GATEWAY;
+import static io.netty.handler.codec.http.HttpResponseStatus.FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.GATEWAY_TIMEOUT;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fmjsjx.libcommon.util.pool.CachedPool;
+import com.github.fmjsjx.libcommon.util.pool.ConcurrentCachedPool;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiMessageDecoder;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiMessageEncoder;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiParams;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiProtocolStatus;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiRequest;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiResponse;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiVersion;
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.transport.io.IoTransportLibrary;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A {@link Middleware} forwards HTTP requests to a FastCGI server, such as
+ * {@code php-fpm}.
+ * <p>
+ * Each HTTP request will be translated into an {@code FCGI_RESPONDER}
+ * {@link FcgiRequest} with the standard CGI parameters, and the CGI headers
+ * in the {@code FCGI_STDOUT} stream of the {@link FcgiResponse} will be
+ * mapped back into the HTTP response.
+ * <p>
+ * Requests are sent with the {@code FCGI_KEEP_CONN} flag, and the upstream
+ * connections are cached in a pool and reused by subsequent requests.
+ * <p>
+ * Both TCP and Unix domain socket transports are supported, depends on the
+ * {@link IoTransportLibrary} and the {@link SocketAddress} given:
+ *
+ * <pre>
+ * {@code
+ * // TCP
+ * FcgiGateway.builder(new InetSocketAddress("127.0.0.1", 9000)).documentRoot("/var/www/html").build();
+ * // Unix domain socket
+ * FcgiGateway.builder(UnixDomainSocketAddress.of("/run/php/php-fpm.sock"))
+ *         .transportLibrary(NioDomainIoTransportLibrary.getInstance()).documentRoot("/var/www/html").build();
+ * }
+ * </pre>
+ * <p>
+ * This middleware always responds, so it should be the last one of the
+ * chain or be wrapped by a {@link PathFilterMiddleware}.
+ *
+ * @author MJ Fang
+ * @see Middleware
+ * @see MiddlewareChain
+ * @since 4.3
+ */
+public class FcgiGateway implements Middleware {
+
+    private static final Logger logger = LoggerFactory.getLogger(FcgiGateway.class);
+
+    private static final int REQUEST_ID = 1;
+    private static final String DEFAULT_SERVER_SOFTWARE = "libnetty";
+    private static final AsciiString KEEP_ALIVE = AsciiString.cached("keep-alive");
+
+    /**
+     * Returns a new {@link Builder} with the specified address of the
+     * FastCGI server.
+     *
+     * @param address the address of the FastCGI server
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder(SocketAddress address) {
+        return new Builder(address);
+    }
+
+    private final SocketAddress address;
+    private final EventLoopGroup group;
+    private final boolean shutdownGroupOnClose;
+    private final Bootstrap bootstrap;
+    private final CachedPool<FcgiConnection> cachedPool;
+    private final String documentRoot;
+    private final String scriptFilename;
+    private final Map<String, String> params;
+    private final String serverSoftware;
+
+    private FcgiGateway(Builder builder) {
+        this.address = builder.address;
+        IoTransportLibrary transportLibrary = builder.transportLibrary;
+        if (builder.group == null) {
+            this.group = builder.ioThreads > 0 ? transportLibrary.createGroup(builder.ioThreads)
+                    : transportLibrary.createGroup();
+            this.shutdownGroupOnClose = true;
+        } else {
+            this.group = builder.group;
+            this.shutdownGroupOnClose = false;
+        }
+        this.cachedPool = new ConcurrentCachedPool<>(builder.maxCachedConnections);
+        int timeoutSeconds = builder.timeoutSeconds;
+        this.bootstrap = new Bootstrap().group(group).channel(transportLibrary.channelClass())
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new IdleStateHandler(0, 0, timeoutSeconds))
+                                .addLast(FcgiMessageEncoder.getInstance()).addLast(new FcgiMessageDecoder())
+                                .addLast(new FcgiConnection(ch));
+                    }
+                });
+        this.documentRoot = builder.documentRoot;
+        this.scriptFilename = builder.scriptFilename;
+        this.params = new LinkedHashMap<>(builder.params);
+        this.serverSoftware = builder.serverSoftware;
+    }
+
+    @Override
+    public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
+        FcgiRequest request = toFcgiRequest(ctx);
+        CompletableFuture<FcgiResponse> future = new CompletableFuture<>();
+        Optional<FcgiConnection> conn = tryPollOne();
+        if (conn.isPresent()) {
+            conn.get().sendAsync(request, future);
+        } else {
+            bootstrap.connect(address).addListener((ChannelFuture cf) -> {
+                if (cf.isSuccess()) {
+                    cf.channel().pipeline().get(FcgiConnection.class).sendAsync(request, future);
+                } else {
+                    request.release();
+                    future.completeExceptionally(cf.cause());
+                }
+            });
+        }
+        return future.handle((response, cause) -> {
+            if (cause != null) {
+                return respondFailure(ctx, cause);
+            }
+            try {
+                return respond(ctx, response);
+            } finally {
+                response.release();
+            }
+        }).thenCompose(Function.identity());
+    }
+
+    private Optional<FcgiConnection> tryPollOne() {
+        for (;;) {
+            var o = cachedPool.tryTake();
+            if (o.isEmpty()) {
+                return o;
+            } else if (o.get().isActive()) {
+                return o;
+            }
+        }
+    }
+
+    private FcgiRequest toFcgiRequest(HttpRequestContext ctx) {
+        ByteBuf body = ctx.body();
+        FcgiRequest request = new FcgiRequest(FcgiVersion.VERSION_1, REQUEST_ID, body.retainedDuplicate());
+        request.beginRequest().keepConn();
+        FcgiParams fcgiParams = request.params();
+        String path = ctx.path();
+        String rawQuery = ctx.rawQuery();
+        fcgiParams.put("GATEWAY_INTERFACE", "CGI/1.1").put("SERVER_SOFTWARE", serverSoftware)
+                .put("SERVER_PROTOCOL", ctx.version().text()).put("REQUEST_METHOD", ctx.method().name())
+                .put("REQUEST_URI", ctx.uri()).put("DOCUMENT_URI", path).put("SCRIPT_NAME", path)
+                .put("QUERY_STRING", rawQuery == null ? "" : rawQuery);
+        if (documentRoot != null) {
+            fcgiParams.put("DOCUMENT_ROOT", documentRoot);
+        }
+        if (scriptFilename != null) {
+            fcgiParams.put("SCRIPT_FILENAME", scriptFilename);
+        } else if (documentRoot != null) {
+            fcgiParams.put("SCRIPT_FILENAME", documentRoot + path);
+        }
+        HttpHeaders headers = ctx.headers();
+        int contentLength = body.readableBytes();
+        if (contentLength > 0 || headers.contains(CONTENT_LENGTH)) {
+            fcgiParams.put("CONTENT_LENGTH", contentLength);
+        }
+        fcgiParams.put("CONTENT_TYPE", ctx.contentType().map(CharSequence::toString).orElse(""));
+        Channel channel = ctx.channel();
+        fcgiParams.put("REMOTE_ADDR", ctx.remoteAddress());
+        if (channel.remoteAddress() instanceof InetSocketAddress remote) {
+            fcgiParams.put("REMOTE_PORT", remote.getPort());
+        }
+        String host = headers.get(HOST);
+        if (channel.localAddress() instanceof InetSocketAddress local) {
+            fcgiParams.put("SERVER_ADDR", local.getAddress().getHostAddress()).put("SERVER_PORT", local.getPort());
+            if (host == null) {
+                host = local.getHostString();
+            }
+        }
+        if (host != null) {
+            fcgiParams.put("SERVER_NAME", stripPort(host));
+        }
+        if (ctx.sslEnabled()) {
+            fcgiParams.put("HTTPS", "on");
+        }
+        for (var header : headers) {
+            String name = header.getKey();
+            if (name.isEmpty() || name.charAt(0) == ':' || CONTENT_TYPE.contentEqualsIgnoreCase(name)
+                    || CONTENT_LENGTH.contentEqualsIgnoreCase(name) || "proxy".equalsIgnoreCase(name)) {
+                // the header "Proxy" must not be passed, see https://httpoxy.org
+                continue;
+            }
+            String paramName = toParamName(name);
+            Optional<String> value = fcgiParams.getValue(paramName);
+            if (value.isPresent()) {
+                // cookies must be joined by "; ", see RFC 6265
+                String separator = COOKIE.contentEqualsIgnoreCase(name) ? "; " : ", ";
+                fcgiParams.put(paramName, value.get() + separator + header.getValue());
+            } else {
+                fcgiParams.put(paramName, header.getValue());
+            }
+        }
+        params.forEach(fcgiParams::put);
+        return request;
+    }
+
+    private static final String stripPort(String host) {
+        int index = host.lastIndexOf(':');
+        if (index > 0 && host.indexOf(']', index) == -1) {
+            return host.substring(0, index);
+        }
+        return host;
+    }
+
+    private static final String toParamName(String headerName) {
+        StringBuilder builder = new StringBuilder(5 + headerName.length()).append("HTTP_");
+        for (int i = 0; i < headerName.length(); i++) {
+            char c = headerName.charAt(i);
+            if (c == '-') {
+                builder.append('_');
+            } else {
+                builder.append(Character.toUpperCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static final CompletionStage<HttpResult> respondFailure(HttpRequestContext ctx, Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        logger.warn("Forward request to FastCGI server failed: {} {}", ctx.method(), ctx.uri(), cause);
+        return ctx.simpleRespond(cause instanceof TimeoutException ? GATEWAY_TIMEOUT : BAD_GATEWAY);
+    }
+
+    private static final CompletionStage<HttpResult> respond(HttpRequestContext ctx, FcgiResponse response) {
+        response.stderr().ifPresent(stderr -> logger.warn("FastCGI stderr on {} {}: {}", ctx.method(), ctx.uri(),
+                stderr.content().toString(CharsetUtil.UTF_8)));
+        FcgiProtocolStatus protocolStatus = response.endRequest().protocolStatus();
+        if (protocolStatus != FcgiProtocolStatus.REQUEST_COMPLETE) {
+            logger.warn("FastCGI request {} {} rejected: {}", ctx.method(), ctx.uri(), protocolStatus);
+            return ctx.simpleRespond(BAD_GATEWAY);
+        }
+        ByteBuf content = response.stdout().content();
+        HttpHeaders cgiHeaders = new DefaultHttpHeaders();
+        int bodyIndex = parseCgiHeaders(content, cgiHeaders);
+        if (bodyIndex < 0) {
+            logger.warn("Invalid CGI headers from FastCGI server on {} {}", ctx.method(), ctx.uri());
+            return ctx.simpleRespond(BAD_GATEWAY);
+        }
+        HttpResponseStatus status = OK;
+        String statusLine = cgiHeaders.get("Status");
+        if (statusLine != null) {
+            cgiHeaders.remove("Status");
+            try {
+                status = HttpResponseStatus.parseLine(statusLine);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid CGI header Status: {}", statusLine);
+                return ctx.simpleRespond(BAD_GATEWAY);
+            }
+        } else if (cgiHeaders.contains(LOCATION)) {
+            status = FOUND;
+        }
+        // hop-by-hop headers are controlled by the server
+        cgiHeaders.remove(CONNECTION).remove(KEEP_ALIVE).remove(TRANSFER_ENCODING).remove(CONTENT_LENGTH);
+        int contentLength = content.writerIndex() - bodyIndex;
+        ByteBuf body = content.retainedSlice(bodyIndex, contentLength);
+        FullHttpResponse httpResponse = ctx.responseFactory().createFull(status).replace(body);
+        httpResponse.headers().add(cgiHeaders).setInt(CONTENT_LENGTH, contentLength);
+        return ctx.sendResponse(httpResponse, contentLength);
+    }
+
+    /**
+     * Parses the CGI headers and returns the index of the body, or {@code -1}
+     * if the headers are invalid.
+     */
+    static final int parseCgiHeaders(ByteBuf content, HttpHeaders headers) {
+        int index = content.readerIndex();
+        int end = content.writerIndex();
+        for (;;) {
+            int eol = content.indexOf(index, end, (byte) '\n');
+            if (eol == -1) {
+                return -1;
+            }
+            int lineEnd = eol > index && content.getByte(eol - 1) == '\r' ? eol - 1 : eol;
+            if (lineEnd == index) {
+                // empty line, end of the headers
+                return eol + 1;
+            }
+            int colon = content.indexOf(index, lineEnd, (byte) ':');
+            if (colon <= index) {
+                return -1;
+            }
+            String name = content.toString(index, colon - index, CharsetUtil.US_ASCII).trim();
+            String value = content.toString(colon + 1, lineEnd - colon - 1, CharsetUtil.ISO_8859_1).trim();
+            headers.add(name, value);
+            index = eol + 1;
+        }
+    }
+
+    @Override
+    public void close() {
+        cachedPool.clear();
+        if (shutdownGroupOnClose) {
+            logger.debug("Shutdown {}", group);
+            group.shutdownGracefully();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FcgiGateway(" + address + ")";
+    }
+
+    private final class FcgiConnection extends SimpleChannelInboundHandler<FcgiResponse> {
+
+        private final Channel channel;
+        private volatile CompletableFuture<FcgiResponse> future;
+
+        private FcgiConnection(Channel channel) {
+            this.channel = channel;
+        }
+
+        private boolean isActive() {
+            return channel.isActive();
+        }
+
+        private void sendAsync(FcgiRequest request, CompletableFuture<FcgiResponse> future) {
+            this.future = future;
+            channel.writeAndFlush(request).addListener((ChannelFuture cf) -> {
+                if (!cf.isSuccess()) {
+                    fail(cf.cause());
+                    cf.channel().close();
+                }
+            });
+        }
+
+        private void fail(Throwable cause) {
+            CompletableFuture<FcgiResponse> future = this.future;
+            if (future != null) {
+                this.future = null;
+                future.completeExceptionally(cause);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            // remove FcgiConnection from cache pool
+            cachedPool.tryRelease(this);
+            fail(new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+            fail(cause);
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent idleStateEvent) {
+                if (idleStateEvent.state() == IdleState.ALL_IDLE) {
+                    ctx.close();
+                    fail(new TimeoutException());
+                }
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FcgiResponse msg) {
+            CompletableFuture<FcgiResponse> future = this.future;
+            if (future != null) {
+                this.future = null;
+                if (!ctx.channel().isActive() || !cachedPool.tryBack(this)) {
+                    ctx.close();
+                }
+                future.complete(msg.retain());
+            } else {
+                // WARN: should not reach this line.
+                // To be on the safe side, always close channel and remove it from cached pool.
+                ctx.close();
+                cachedPool.tryRelease(this);
+            }
+        }
+
+    }
+
+    /**
+     * Builder of {@link FcgiGateway}.
+     *
+     * @author MJ Fang
+     * @since 4.3
+     */
+    public static final class Builder {
+
+        private final SocketAddress address;
+        private IoTransportLibrary transportLibrary;
+        private EventLoopGroup group;
+        private int ioThreads;
+        private int maxCachedConnections = 16;
+        private int timeoutSeconds = 60;
+        private String documentRoot;
+        private String scriptFilename;
+        private final Map<String, String> params = new LinkedHashMap<>();
+        private String serverSoftware = DEFAULT_SERVER_SOFTWARE;
+
+        private Builder(SocketAddress address) {
+            this.address = Objects.requireNonNull(address, "address must not be null");
+        }
+
+        /**
+         * Sets the {@link IoTransportLibrary} used to connect to the FastCGI
+         * server.
+         * <p>
+         * The default is {@link IoTransportLibrary#getDefault()}. A domain
+         * socket library, such as {@code NioDomainIoTransportLibrary}, should
+         * be set when connect to a Unix domain socket.
+         *
+         * @param transportLibrary the {@code IoTransportLibrary}
+         * @return this builder
+         */
+        public Builder transportLibrary(IoTransportLibrary transportLibrary) {
+            this.transportLibrary = Objects.requireNonNull(transportLibrary, "transportLibrary must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the {@link EventLoopGroup} of the upstream connections.
+         * <p>
+         * The group must be compatible with the {@link IoTransportLibrary},
+         * and will not be shut down when the gateway is closed. A new group
+         * will be created if not set.
+         *
+         * @param group the {@code EventLoopGroup}
+         * @return this builder
+         */
+        public Builder group(EventLoopGroup group) {
+            this.group = group;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads of the {@link EventLoopGroup} created by
+         * the gateway.
+         *
+         * @param ioThreads the number of threads, {@code 0} means the netty
+         *                  default
+         * @return this builder
+         */
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of the cached upstream connections.
+         * <p>
+         * The default is {@code 16}.
+         *
+         * @param maxCachedConnections the maximum number of the cached
+         *                             connections
+         * @return this builder
+         */
+        public Builder maxCachedConnections(int maxCachedConnections) {
+            this.maxCachedConnections = maxCachedConnections;
+            return this;
+        }
+
+        /**
+         * Sets the timeout seconds of the upstream connections.
+         * <p>
+         * The default is {@code 60}.
+         *
+         * @param timeoutSeconds the timeout seconds
+         * @return this builder
+         */
+        public Builder timeoutSeconds(int timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+            return this;
+        }
+
+        /**
+         * Sets the document root, which is used to generate the parameters
+         * {@code DOCUMENT_ROOT} and {@code SCRIPT_FILENAME}.
+         *
+         * @param documentRoot the document root
+         * @return this builder
+         */
+        public Builder documentRoot(String documentRoot) {
+            this.documentRoot = documentRoot;
+            return this;
+        }
+
+        /**
+         * Sets the fixed value of the parameter {@code SCRIPT_FILENAME}, such
+         * as the front controller {@code /var/www/html/index.php}.
+         *
+         * @param scriptFilename the script filename
+         * @return this builder
+         */
+        public Builder scriptFilename(String scriptFilename) {
+            this.scriptFilename = scriptFilename;
+            return this;
+        }
+
+        /**
+         * Adds an extra parameter, which will override the generated one with
+         * the same name.
+         *
+         * @param name  the name of the parameter
+         * @param value the value of the parameter
+         * @return this builder
+         */
+        public Builder param(String name, String value) {
+            params.put(Objects.requireNonNull(name, "name must not be null"),
+                    Objects.requireNonNull(value, "value must not be null"));
+            return this;
+        }
+
+        /**
+         * Sets the value of the parameter {@code SERVER_SOFTWARE}.
+         * <p>
+         * The default is {@code "libnetty"}.
+         *
+         * @param serverSoftware the server software
+         * @return this builder
+         */
+        public Builder serverSoftware(String serverSoftware) {
+            this.serverSoftware = Objects.requireNonNull(serverSoftware, "serverSoftware must not be null");
+            return this;
+        }
+
+        /**
+         * Builds a new {@link FcgiGateway}.
+         *
+         * @return a new {@code FcgiGateway}
+         */
+        public FcgiGateway build() {
+            if (transportLibrary == null) {
+                transportLibrary = IoTransportLibrary.getDefault();
+            }
+            return new FcgiGateway(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,495 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.http.server.middleware.Router.MatchedRoute;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+
+/**
+ * A {@link Middleware} records the metrics of the HTTP requests and exposes
+ * them in the Prometheus text format.
+ * <p>
+ * This middleware should be added before the {@link Router}, the metrics are
+ * recorded per {@link MatchedRoute} (methods and path pattern), so the number
+ * of the time series is bounded by the number of the routes. The requests
+ * matched no route are recorded as {@code route="<unmatched>"}.
+ * <p>
+ * The following metrics are recorded:
+ * <ul>
+ * <li>{@code <prefix>_requests_in_flight}: the number of the requests in
+ * flight</li>
+ * <li>{@code <prefix>_requests_total}: the number of the requests by status
+ * class ({@code 1xx} to {@code 5xx})</li>
+ * <li>{@code <prefix>_response_bytes_total}: the length of the response
+ * contents</li>
+ * <li>{@code <prefix>_request_duration_seconds}: the histogram of the
+ * latencies</li>
+ * </ul>
+ * The latencies are recorded into lock-free log-linear histograms (like
+ * {@code HdrHistogram}) with {@code 8} sub-buckets per power of {@code 2}
+ * microseconds, and exposed with power of {@code 2} boundaries. The
+ * exposition is written directly into a pooled {@link ByteBuf} with
+ * pre-encoded names and labels, no objects are created per scrape except the
+ * response itself.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class HttpMetrics implements Middleware {
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder() {
+        return new Builder();
+    }
+
+    private static final AsciiString CONTENT_TYPE = AsciiString.cached("text/plain; version=0.0.4; charset=utf-8");
+
+    private static final String[] STATUS_CLASSES = { "1xx", "2xx", "3xx", "4xx", "5xx" };
+
+    // exposed boundaries: 2^7 (128us) to 2^25 (~33.5s) microseconds
+    private static final int MIN_EXPOSED_EXPONENT = 7;
+    private static final int MAX_EXPOSED_EXPONENT = 25;
+    private static final String[] EXPOSED_BOUNDARIES = new String[MAX_EXPOSED_EXPONENT - MIN_EXPOSED_EXPONENT + 1];
+
+    static {
+        for (int i = 0; i < EXPOSED_BOUNDARIES.length; i++) {
+            EXPOSED_BOUNDARIES[i] = BigDecimal.valueOf(1L << (MIN_EXPOSED_EXPONENT + i)).movePointLeft(6)
+                    .stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final String endpoint;
+    private final byte[] header;
+    private final MetricNames names;
+    private final LongAdder inflight = new LongAdder();
+    private final ConcurrentMap<MatchedRoute, RouteMetrics> routeMetrics = new ConcurrentHashMap<>();
+    private final RouteMetrics unmatched;
+    private volatile RouteMetrics[] routes;
+
+    private HttpMetrics(Builder builder) {
+        this.endpoint = builder.endpoint;
+        this.names = new MetricNames(builder.prefix);
+        this.header = bytes(names.inflight + " ");
+        this.unmatched = new RouteMetrics(names, "<any>", "<unmatched>");
+        this.routes = new RouteMetrics[] { unmatched };
+    }
+
+    @Override
+    public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
+        if (endpoint != null && ctx.method() == HttpMethod.GET && endpoint.equals(ctx.path())) {
+            ByteBuf content = ctx.alloc().buffer(4096);
+            try {
+                writeTo(content);
+            } catch (Throwable e) {
+                content.release();
+                throw e;
+            }
+            int contentLength = content.readableBytes();
+            return ctx.sendResponse(ctx.responseFactory().createFull(OK, content, contentLength, CONTENT_TYPE),
+                    contentLength);
+        }
+        LongAdder inflight = this.inflight;
+        inflight.increment();
+        return MiddlewareChains.whenComplete(next.doNext(ctx), (r, e) -> {
+            inflight.decrement();
+            RouteMetrics metrics = ctx.matchedRoute().map(this::routeMetrics).orElse(unmatched);
+            if (e == null) {
+                metrics.record(r.responseStatus().code(), r.resultLength(), r.nanoUsed());
+            } else {
+                metrics.record(500, 0, System.nanoTime() - ctx.receivedNanoTime());
+            }
+        });
+    }
+
+    private RouteMetrics routeMetrics(MatchedRoute route) {
+        RouteMetrics metrics = routeMetrics.get(route);
+        if (metrics == null) {
+            metrics = routeMetrics.computeIfAbsent(route, this::addRoute);
+        }
+        return metrics;
+    }
+
+    private synchronized RouteMetrics addRoute(MatchedRoute route) {
+        RouteMetrics metrics = new RouteMetrics(names, route.methods(), route.path());
+        RouteMetrics[] routes = Arrays.copyOf(this.routes, this.routes.length + 1);
+        routes[routes.length - 1] = metrics;
+        this.routes = routes;
+        return metrics;
+    }
+
+    /**
+     * Returns the number of the requests in flight.
+     *
+     * @return the number of the requests in flight
+     */
+    public long inflight() {
+        return inflight.sum();
+    }
+
+    /**
+     * Returns the latency histogram of the specified route.
+     *
+     * @param methods the methods of the route, see
+     *                {@link MatchedRoute#methods()}
+     * @param path    the path pattern of the route
+     * @return an {@code Optional<Histogram>}
+     */
+    public Optional<Histogram> histogram(String methods, String path) {
+        for (RouteMetrics metrics : routes) {
+            if (metrics.methods.equals(methods) && metrics.path.equals(path)) {
+                return Optional.of(metrics.histogram);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Writes all metrics into the specified buffer in the Prometheus text
+     * format.
+     *
+     * @param buf the buffer
+     */
+    public void writeTo(ByteBuf buf) {
+        MetricNames names = this.names;
+        buf.writeBytes(names.inflightMeta).writeBytes(header);
+        writeLong(buf, inflight.sum());
+        buf.writeByte('\n');
+        RouteMetrics[] routes = this.routes;
+        buf.writeBytes(names.requestsMeta);
+        for (RouteMetrics metrics : routes) {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                buf.writeBytes(metrics.requestsLines[i]);
+                writeLong(buf, metrics.statusCounts[i].sum());
+                buf.writeByte('\n');
+            }
+        }
+        buf.writeBytes(names.bytesMeta);
+        for (RouteMetrics metrics : routes) {
+            buf.writeBytes(metrics.bytesLine);
+            writeLong(buf, metrics.bytes.sum());
+            buf.writeByte('\n');
+        }
+        buf.writeBytes(names.durationMeta);
+        for (RouteMetrics metrics : routes) {
+            metrics.writeHistogram(buf);
+        }
+    }
+
+    private static final byte[] bytes(String s) {
+        return s.getBytes(CharsetUtil.UTF_8);
+    }
+
+    private static final void writeLong(ByteBuf buf, long value) {
+        if (value < 0) {
+            buf.writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        buf.ensureWritable(digits);
+        int index = buf.writerIndex() + digits;
+        for (int i = 0; i < digits; i++) {
+            buf.setByte(--index, (int) ('0' + value % 10));
+            value /= 10;
+        }
+        buf.writerIndex(buf.writerIndex() + digits);
+    }
+
+    private static final void writeSeconds(ByteBuf buf, long nanos) {
+        writeLong(buf, nanos / 1_000_000_000L);
+        buf.writeByte('.');
+        long fraction = nanos % 1_000_000_000L;
+        for (long divisor = 100_000_000L; divisor > 0; divisor /= 10) {
+            buf.writeByte((int) ('0' + fraction / divisor % 10));
+        }
+    }
+
+    private static final String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return "HttpMetrics(prefix=" + names.prefix + ", endpoint=" + endpoint + ")";
+    }
+
+    private static final class MetricNames {
+
+        private final String prefix;
+        private final String inflight;
+        private final String requests;
+        private final String bytes;
+        private final String duration;
+        private final byte[] inflightMeta;
+        private final byte[] requestsMeta;
+        private final byte[] bytesMeta;
+        private final byte[] durationMeta;
+
+        private MetricNames(String prefix) {
+            this.prefix = prefix;
+            this.inflight = prefix + "_requests_in_flight";
+            this.requests = prefix + "_requests_total";
+            this.bytes = prefix + "_response_bytes_total";
+            this.duration = prefix + "_request_duration_seconds";
+            this.inflightMeta = meta(inflight, "The number of the requests in flight.", "gauge");
+            this.requestsMeta = meta(requests, "The number of the requests by status class.", "counter");
+            this.bytesMeta = meta(bytes, "The length of the response contents in bytes.", "counter");
+            this.durationMeta = meta(duration, "The latencies of the requests in seconds.", "histogram");
+        }
+
+        private static final byte[] meta(String name, String help, String type) {
+            return bytes("# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n");
+        }
+
+    }
+
+    private static final class RouteMetrics {
+
+        private final String methods;
+        private final String path;
+        private final LongAdder[] statusCounts = new LongAdder[STATUS_CLASSES.length];
+        private final LongAdder bytes = new LongAdder();
+        private final Histogram histogram = new Histogram();
+        private final byte[][] requestsLines = new byte[STATUS_CLASSES.length][];
+        private final byte[] bytesLine;
+        private final byte[][] bucketLines = new byte[EXPOSED_BOUNDARIES.length + 1][];
+        private final byte[] sumLine;
+        private final byte[] countLine;
+
+        private RouteMetrics(MetricNames names, String methods, String path) {
+            this.methods = methods;
+            this.path = path;
+            String labels = "method=\"" + escapeLabelValue(methods) + "\",route=\"" + escapeLabelValue(path) + "\"";
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                statusCounts[i] = new LongAdder();
+                requestsLines[i] = bytes(names.requests + "{" + labels + ",status=\"" + STATUS_CLASSES[i] + "\"} ");
+            }
+            this.bytesLine = bytes(names.bytes + "{" + labels + "} ");
+            for (int i = 0; i < EXPOSED_BOUNDARIES.length; i++) {
+                bucketLines[i] = bytes(names.duration + "_bucket{" + labels + ",le=\"" + EXPOSED_BOUNDARIES[i]
+                        + "\"} ");
+            }
+            bucketLines[EXPOSED_BOUNDARIES.length] = bytes(names.duration + "_bucket{" + labels + ",le=\"+Inf\"} ");
+            this.sumLine = bytes(names.duration + "_sum{" + labels + "} ");
+            this.countLine = bytes(names.duration + "_count{" + labels + "} ");
+        }
+
+        private void record(int status, long length, long nanos) {
+            int statusClass = Math.min(Math.max(status / 100, 1), 5) - 1;
+            statusCounts[statusClass].increment();
+            if (length > 0) {
+                bytes.add(length);
+            }
+            histogram.record(nanos);
+        }
+
+        private void writeHistogram(ByteBuf buf) {
+            Histogram histogram = this.histogram;
+            AtomicLongArray counts = histogram.counts;
+            long cumulative = 0;
+            int index = 0;
+            for (int i = 0; i < EXPOSED_BOUNDARIES.length; i++) {
+                // values less than or equal to 2^e microseconds
+                int end = Histogram.firstIndexOfExponent(MIN_EXPOSED_EXPONENT + i);
+                for (; index < end; index++) {
+                    cumulative += counts.get(index);
+                }
+                buf.writeBytes(bucketLines[i]);
+                writeLong(buf, cumulative);
+                buf.writeByte('\n');
+            }
+            for (int length = counts.length(); index < length; index++) {
+                cumulative += counts.get(index);
+            }
+            buf.writeBytes(bucketLines[EXPOSED_BOUNDARIES.length]);
+            writeLong(buf, cumulative);
+            buf.writeByte('\n');
+            buf.writeBytes(sumLine);
+            writeSeconds(buf, histogram.sumNanos.sum());
+            buf.writeByte('\n');
+            buf.writeBytes(countLine);
+            writeLong(buf, cumulative);
+            buf.writeByte('\n');
+        }
+
+    }
+
+    /**
+     * A lock-free log-linear histogram of latencies, with a resolution of
+     * {@code 1} microsecond and a relative precision of {@code 12.5%}.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // up to 2^37 microseconds (about 38 hours)
+        private static final int MAX_EXPONENT = 36;
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram() {
+        }
+
+        private static final int index(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return firstIndexOfExponent(exponent) + subBucket;
+        }
+
+        private static final int firstIndexOfExponent(int exponent) {
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+        }
+
+        private static final long highestEquivalentMicros(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int shift = exponent - SUB_BUCKET_BITS;
+            long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        void record(long nanos) {
+            // round up to microseconds and shift by one, so the upper bounds of
+            // the buckets are inclusive, just like the "le" of Prometheus
+            counts.incrementAndGet(index((nanos + 999) / 1000 - 1));
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * Returns the total count of the recorded values.
+         *
+         * @return the total count
+         */
+        public long count() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the sum of the recorded values in nanoseconds.
+         *
+         * @return the sum of the recorded values in nanoseconds
+         */
+        public long sumNanos() {
+            return sumNanos.sum();
+        }
+
+        /**
+         * Returns the value at the specified percentile in nanoseconds.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 100}
+         * @return the value at the percentile in nanoseconds, or {@code 0} if
+         *         no value has been recorded
+         */
+        public long percentileNanos(double percentile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += counts.get(i);
+                if (cumulative >= target) {
+                    return (highestEquivalentMicros(i) + 1) * 1000;
+                }
+            }
+            return (highestEquivalentMicros(BUCKETS - 1) + 1) * 1000;
+        }
+
+    }
+
+    /**
+     * The builder builds {@link HttpMetrics}s.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Builder {
+
+        private String prefix = "http_server";
+        private String endpoint = "/metrics";
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the prefix of the metric names.
+         * <p>
+         * The default is {@code "http_server"}.
+         *
+         * @param prefix the prefix
+         * @return this builder
+         */
+        public Builder prefix(String prefix) {
+            this.prefix = Objects.requireNonNull(prefix, "prefix must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the path of the exposition endpoint, {@code null} means no
+         * endpoint.
+         * <p>
+         * The default is {@code "/metrics"}.
+         *
+         * @param endpoint the path of the endpoint
+         * @return this builder
+         */
+        public Builder endpoint(String endpoint) {
+            this.endpoint = endpoint;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link HttpMetrics}.
+         *
+         * @return a new {@code HttpMetrics}
+         */
+        public HttpMetrics build() {
+            return new HttpMetrics(this);
+        }
+
+    }
+
+}
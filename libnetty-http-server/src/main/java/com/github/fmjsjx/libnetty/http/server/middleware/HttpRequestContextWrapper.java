@@ -0,0 +1,143 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.http.server.PathVariables;
+import com.github.fmjsjx.libnetty.http.server.component.HttpServerComponent;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+/**
+ * A {@link HttpRequestContext} delegates all methods to another context, so
+ * that the middlewares can intercept the responses sent by the downstream
+ * middlewares by overriding {@link #sendResponse(FullHttpResponse, int)}.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+abstract class HttpRequestContextWrapper implements HttpRequestContext {
+
+    protected final HttpRequestContext delegate;
+
+    protected HttpRequestContextWrapper(HttpRequestContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public long receivedNanoTime() {
+        return delegate.receivedNanoTime();
+    }
+
+    @Override
+    public ZonedDateTime receivedTime() {
+        return delegate.receivedTime();
+    }
+
+    @Override
+    public Channel channel() {
+        return delegate.channel();
+    }
+
+    @Override
+    public String remoteAddress() {
+        return delegate.remoteAddress();
+    }
+
+    @Override
+    public FullHttpRequest request() {
+        return delegate.request();
+    }
+
+    @Override
+    public String protocolVersion() {
+        return delegate.protocolVersion();
+    }
+
+    @Override
+    public boolean sslEnabled() {
+        return delegate.sslEnabled();
+    }
+
+    @Override
+    public int contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public Optional<CharSequence> contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public QueryStringDecoder queryStringDecoder() {
+        return delegate.queryStringDecoder();
+    }
+
+    @Override
+    public PathVariables pathVariables() {
+        return delegate.pathVariables();
+    }
+
+    @Override
+    public HttpRequestContext pathVariables(PathVariables pathVariables) {
+        delegate.pathVariables(pathVariables);
+        return this;
+    }
+
+    @Override
+    public <C extends HttpServerComponent> Optional<C> component(Class<? extends C> componentType) {
+        return delegate.component(componentType);
+    }
+
+    @Override
+    public <T> Optional<T> property(Object key) throws ClassCastException {
+        return delegate.property(key);
+    }
+
+    @Override
+    public <T> Optional<T> property(Object key, Class<T> type) throws ClassCastException {
+        return delegate.property(key, type);
+    }
+
+    @Override
+    public HttpRequestContext property(Object key, Object value) {
+        delegate.property(key, value);
+        return this;
+    }
+
+    @Override
+    public Stream<String> propertyKeyNames() {
+        return delegate.propertyKeyNames();
+    }
+
+    @Override
+    @Deprecated
+    public Stream<Object> propertyKeys() {
+        return delegate.propertyKeys();
+    }
+
+    @Override
+    public HttpResponseFactory responseFactory() {
+        return delegate.responseFactory();
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> sendResponse(FullHttpResponse response, int contentLength) {
+        return delegate.sendResponse(response, contentLength);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
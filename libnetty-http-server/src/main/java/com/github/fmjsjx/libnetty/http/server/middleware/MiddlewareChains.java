@@ -2,7 +2,9 @@ package com.github.fmjsjx.libnetty.http.server.middleware;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
 import com.github.fmjsjx.libnetty.http.server.HttpResult;
@@ -37,6 +39,39 @@ public class MiddlewareChains {
         return NotFoundMiddlewareChain.INSTANCE;
     }
 
+    /**
+     * Performs the given action when the specified stage completes, just like
+     * {@link CompletionStage#whenComplete(BiConsumer)}.
+     * <p>
+     * Most of the responses are written on the event loop, so that the returned
+     * stage is usually completed already. In that case the action will be
+     * performed inline and the same stage will be returned, without creating any
+     * dependent {@link CompletableFuture}.
+     * 
+     * @param stage  the stage
+     * @param action the action to perform
+     * @return a {@code CompletionStage} completes with the same result or
+     *         exception as the specified stage, or completes exceptionally if the
+     *         action throws an exception
+     * @since 4.3
+     */
+    public static final CompletionStage<HttpResult> whenComplete(CompletionStage<HttpResult> stage,
+            BiConsumer<? super HttpResult, ? super Throwable> action) {
+        // sub-classes such as the minimal stages do not support getNow
+        if (stage.getClass() == CompletableFuture.class) {
+            CompletableFuture<HttpResult> future = (CompletableFuture<HttpResult>) stage;
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                try {
+                    action.accept(future.getNow(null), null);
+                } catch (Throwable e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                return future;
+            }
+        }
+        return stage.whenComplete(action);
+    }
+
     private static final class DefaultMiddlewareChain implements MiddlewareChain {
 
         private final Middleware nextMiddleware;
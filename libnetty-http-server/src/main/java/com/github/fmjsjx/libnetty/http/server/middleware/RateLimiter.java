@@ -0,0 +1,416 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.RETRY_AFTER;
+import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ * A {@link Middleware} limits the request rate of each key (such as the
+ * client address or the API key).
+ * <p>
+ * Two algorithms are supported:
+ * <ul>
+ * <li>{@code token bucket}: implemented as GCRA (generic cell rate
+ * algorithm), the state of each key is just one {@code long} (the
+ * theoretical arrival time)</li>
+ * <li>{@code sliding window}: the weighted sum of the counts of the current
+ * and the previous fixed windows, the state of each key is packed into one
+ * {@code long}</li>
+ * </ul>
+ * The states are updated by {@code CAS} without any lock. They are stored in
+ * a striped table keyed by the 64-bit hash of the keys (no boxing), and the
+ * keys idle for a while will be expired on the fly.
+ * <p>
+ * The requests exceed the limit will be rejected with a
+ * {@code 429 Too Many Requests} response with a {@code Retry-After} header.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class RateLimiter implements Middleware {
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder() {
+        return new Builder();
+    }
+
+    private static final ByteBuf TOO_MANY_REQUESTS_CONTENT = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer().writeBytes(TOO_MANY_REQUESTS.toString().getBytes(CharsetUtil.UTF_8))
+                    .asReadOnly());
+
+    private static final int MAX_CACHED_RETRY_AFTER = 60;
+    private static final AsciiString[] RETRY_AFTER_VALUES = new AsciiString[MAX_CACHED_RETRY_AFTER + 1];
+
+    static {
+        for (int i = 0; i < RETRY_AFTER_VALUES.length; i++) {
+            RETRY_AFTER_VALUES[i] = AsciiString.cached(Integer.toString(i));
+        }
+    }
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final Function<HttpRequestContext, ? extends CharSequence> keyFunction;
+    private final Algorithm algorithm;
+    private final long idleNanos;
+    private final long originNanoTime = System.nanoTime();
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private RateLimiter(Builder builder) {
+        this.keyFunction = builder.keyFunction;
+        this.algorithm = builder.algorithm;
+        this.idleNanos = builder.idleTimeout.toNanos();
+        int n = Integer.highestOneBit(Math.max(1, builder.stripes - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = n - 1;
+    }
+
+    @Override
+    public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
+        CharSequence key = keyFunction.apply(ctx);
+        if (key == null) {
+            return next.doNext(ctx);
+        }
+        long waitNanos = tryAcquire(key);
+        if (waitNanos <= 0) {
+            return next.doNext(ctx);
+        }
+        FullHttpResponse response = ctx.responseFactory().createFull(TOO_MANY_REQUESTS,
+                TOO_MANY_REQUESTS_CONTENT.duplicate(), TOO_MANY_REQUESTS_CONTENT.readableBytes(),
+                HttpRequestContext.TEXT_PLAIN_UTF8);
+        response.headers().set(RETRY_AFTER, retryAfter(waitNanos));
+        return ctx.sendResponse(response, TOO_MANY_REQUESTS_CONTENT.readableBytes());
+    }
+
+    private static final CharSequence retryAfter(long waitNanos) {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return seconds <= MAX_CACHED_RETRY_AFTER ? RETRY_AFTER_VALUES[(int) seconds] : Long.toString(seconds);
+    }
+
+    /**
+     * Try to acquire a permit for the specified key.
+     *
+     * @param key the key
+     * @return {@code 0} if acquired, or the nanoseconds to wait before the
+     *         next permit is available
+     */
+    long tryAcquire(CharSequence key) {
+        long hash = hash(key);
+        long now = System.nanoTime() - originNanoTime;
+        AtomicLong state = stripes[(int) (hash ^ (hash >>> 32)) & stripeMask].state(hash, now);
+        return algorithm.tryAcquire(state, now);
+    }
+
+    /**
+     * Returns the number of the keys in the table.
+     *
+     * @return the number of the keys
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.map.size();
+            }
+        }
+        return size;
+    }
+
+    private static final long hash(CharSequence key) {
+        // 64-bit FNV-1a and the finalizer of MurmurHash3
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter(algorithm=" + algorithm + ", stripes=" + stripes.length + ")";
+    }
+
+    private final class Stripe {
+
+        private final LongObjectHashMap<AtomicLong> map = new LongObjectHashMap<>();
+        private int operations;
+
+        private synchronized AtomicLong state(long hash, long now) {
+            AtomicLong state = map.get(hash);
+            if (state == null) {
+                if (++operations % SWEEP_INTERVAL == 0) {
+                    sweep(now);
+                }
+                state = new AtomicLong();
+                map.put(hash, state);
+            }
+            return state;
+        }
+
+        private void sweep(long now) {
+            map.values().removeIf(state -> algorithm.isIdle(state.get(), now, idleNanos));
+        }
+
+    }
+
+    private interface Algorithm {
+
+        long tryAcquire(AtomicLong state, long now);
+
+        boolean isIdle(long state, long now, long idleNanos);
+
+    }
+
+    private static final class TokenBucket implements Algorithm {
+
+        private final long emissionIntervalNanos;
+        private final long toleranceNanos;
+        private final String description;
+
+        private TokenBucket(long permits, Duration period, long burst) {
+            this.emissionIntervalNanos = Math.max(1, period.toNanos() / permits);
+            this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+            this.description = "tokenBucket(" + permits + "/" + period + ", burst=" + burst + ")";
+        }
+
+        @Override
+        public long tryAcquire(AtomicLong state, long now) {
+            for (;;) {
+                long tat = state.get();
+                long t = Math.max(tat, now);
+                long waitNanos = t - toleranceNanos - now;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (state.compareAndSet(tat, t + emissionIntervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        @Override
+        public boolean isIdle(long state, long now, long idleNanos) {
+            return now - state > idleNanos;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+
+    }
+
+    private static final class SlidingWindow implements Algorithm {
+
+        // window index (32 bits) | previous count (16 bits) | current count (16 bits)
+        static final int MAX_LIMIT = 0xffff;
+
+        private final int limit;
+        private final long windowNanos;
+        private final String description;
+
+        private SlidingWindow(int limit, Duration window) {
+            this.limit = limit;
+            this.windowNanos = window.toNanos();
+            this.description = "slidingWindow(" + limit + "/" + window + ")";
+        }
+
+        @Override
+        public long tryAcquire(AtomicLong state, long now) {
+            int index = (int) (now / windowNanos);
+            long elapsed = now % windowNanos;
+            for (;;) {
+                long s = state.get();
+                int stateIndex = (int) (s >>> 32);
+                int previous;
+                int current;
+                if (stateIndex == index) {
+                    previous = (int) ((s >>> 16) & 0xffff);
+                    current = (int) (s & 0xffff);
+                } else if (index - stateIndex == 1) {
+                    previous = (int) (s & 0xffff);
+                    current = 0;
+                } else {
+                    previous = 0;
+                    current = 0;
+                }
+                double estimated = previous * (double) (windowNanos - elapsed) / windowNanos + current;
+                if (estimated + 1 > limit) {
+                    if (current >= limit) {
+                        return windowNanos - elapsed;
+                    }
+                    // wait until the weight of the previous window decreases enough
+                    double excess = estimated + 1 - limit;
+                    return Math.max(1, (long) (excess / previous * windowNanos));
+                }
+                long next = ((long) index << 32) | ((long) previous << 16) | (current + 1);
+                if (state.compareAndSet(s, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        @Override
+        public boolean isIdle(long state, long now, long idleNanos) {
+            int index = (int) (now / windowNanos);
+            int stateIndex = (int) (state >>> 32);
+            return (long) (index - stateIndex - 1) * windowNanos > idleNanos;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+
+    }
+
+    /**
+     * The builder builds {@link RateLimiter}s.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Builder {
+
+        private Function<HttpRequestContext, ? extends CharSequence> keyFunction = HttpRequestContext::remoteAddress;
+        private Algorithm algorithm;
+        private Duration idleTimeout = Duration.ofMinutes(5);
+        private int stripes = 64;
+
+        private Builder() {
+        }
+
+        /**
+         * Use the token bucket algorithm.
+         *
+         * @param permits the number of the permits refilled in each period
+         * @param period  the period
+         * @param burst   the capacity of the bucket
+         * @return this builder
+         */
+        public Builder tokenBucket(long permits, Duration period, long burst) {
+            if (permits <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("permits and burst must be positive");
+            }
+            this.algorithm = new TokenBucket(permits, Objects.requireNonNull(period, "period must not be null"),
+                    burst);
+            return this;
+        }
+
+        /**
+         * Use the sliding window algorithm.
+         *
+         * @param limit  the maximum number of requests in each window, at most
+         *               {@code 65535}
+         * @param window the size of the window
+         * @return this builder
+         */
+        public Builder slidingWindow(int limit, Duration window) {
+            if (limit <= 0 || limit > SlidingWindow.MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + SlidingWindow.MAX_LIMIT);
+            }
+            this.algorithm = new SlidingWindow(limit, Objects.requireNonNull(window, "window must not be null"));
+            return this;
+        }
+
+        /**
+         * Sets the function extracts the key from the request, the requests
+         * with {@code null} key will not be limited.
+         * <p>
+         * The default is {@link HttpRequestContext#remoteAddress()}.
+         *
+         * @param keyFunction the function extracts the key
+         * @return this builder
+         */
+        public Builder keyBy(Function<HttpRequestContext, ? extends CharSequence> keyFunction) {
+            this.keyFunction = Objects.requireNonNull(keyFunction, "keyFunction must not be null");
+            return this;
+        }
+
+        /**
+         * Use the value of the specified request header as the key.
+         *
+         * @param name the name of the header
+         * @return this builder
+         */
+        public Builder keyByHeader(CharSequence name) {
+            Objects.requireNonNull(name, "name must not be null");
+            return keyBy(ctx -> ctx.headers().get(name));
+        }
+
+        /**
+         * Sets the idle timeout of the keys.
+         * <p>
+         * The default is {@code 5 minutes}.
+         *
+         * @param idleTimeout the idle timeout
+         * @return this builder
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = Objects.requireNonNull(idleTimeout, "idleTimeout must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the number of the stripes, will be rounded up to a power of
+         * {@code 2}.
+         * <p>
+         * The default is {@code 64}.
+         *
+         * @param stripes the number of the stripes
+         * @return this builder
+         */
+        public Builder stripes(int stripes) {
+            if (stripes <= 0) {
+                throw new IllegalArgumentException("stripes must be positive");
+            }
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link RateLimiter}.
+         *
+         * @return a new {@code RateLimiter}
+         */
+        public RateLimiter build() {
+            if (algorithm == null) {
+                throw new IllegalArgumentException("missing algorithm, tokenBucket or slidingWindow is required");
+            }
+            return new RateLimiter(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,501 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.AGE;
+import static io.netty.handler.codec.http.HttpHeaderNames.AUTHORIZATION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CACHE_CONTROL;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.COOKIE;
+import static io.netty.handler.codec.http.HttpHeaderNames.HOST;
+import static io.netty.handler.codec.http.HttpHeaderNames.SET_COOKIE;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.AsciiString;
+import io.netty.util.IllegalReferenceCountException;
+
+/**
+ * A {@link Middleware} caches the {@link FullHttpResponse}s for a short time
+ * (a micro-cache).
+ * <p>
+ * Responses are keyed by the method, the {@code Host}, the URI and the values
+ * of the configured {@code Vary} headers. The content of each cached response
+ * is copied into a direct {@link ByteBuf} once and served by
+ * {@code retainedDuplicate()}. The total bytes of the cached contents are
+ * bounded, the least recently used entries will be evicted first.
+ * <p>
+ * Concurrent misses with the same key are coalesced (single-flight): only the
+ * first request invokes the downstream {@link MiddlewareChain}, the others
+ * wait for its response.
+ * <p>
+ * Only the responses sent by {@link HttpRequestContext#sendResponse} will be
+ * cached, responses with {@code Set-Cookie} or
+ * {@code Cache-Control: no-store/private} are never cached.
+ * <p>
+ * Requests with {@code Cookie} always bypass the cache. Requests with
+ * {@code Authorization} only share the responses with
+ * {@code Cache-Control: public/s-maxage}.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class ResponseCache implements Middleware {
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder() {
+        return new Builder();
+    }
+
+    private static final AsciiString NO_STORE = AsciiString.cached("no-store");
+    private static final AsciiString PRIVATE = AsciiString.cached("private");
+    private static final AsciiString PUBLIC = AsciiString.cached("public");
+    private static final AsciiString S_MAXAGE = AsciiString.cached("s-maxage");
+    private static final AsciiString KEEP_ALIVE = AsciiString.cached("keep-alive");
+
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final List<AsciiString> varyHeaders;
+    private final Set<HttpMethod> methods;
+    private final Predicate<HttpResponseStatus> cacheableStatus;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // intrusive LRU list of the cached entries, the most recently used at the
+    // tail, guarded by evictionLock
+    private final Object evictionLock = new Object();
+    private Entry head;
+    private Entry tail;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> inflight = new ConcurrentHashMap<>();
+
+    private ResponseCache(Builder builder) {
+        this.ttlNanos = builder.ttl.toNanos();
+        this.maxBytes = builder.maxBytes;
+        this.varyHeaders = List.copyOf(builder.varyHeaders);
+        this.methods = Set.copyOf(builder.methods);
+        this.cacheableStatus = builder.cacheableStatus;
+    }
+
+    /**
+     * Returns the total bytes of the cached contents.
+     *
+     * @return the total bytes of the cached contents
+     */
+    public long cachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * Returns the number of the cached responses.
+     *
+     * @return the number of the cached responses
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public CompletionStage<HttpResult> apply(HttpRequestContext ctx, MiddlewareChain next) {
+        if (!methods.contains(ctx.method())) {
+            return next.doNext(ctx);
+        }
+        HttpHeaders requestHeaders = ctx.headers();
+        if (requestHeaders.contains(COOKIE)) {
+            return next.doNext(ctx);
+        }
+        boolean authorized = requestHeaders.contains(AUTHORIZATION);
+        String key = key(ctx);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (System.nanoTime() - entry.createdNanoTime < ttlNanos) {
+                CompletionStage<HttpResult> result = authorized && !entry.shared ? null : serve(ctx, entry);
+                if (result != null) {
+                    return result;
+                }
+            } else {
+                remove(key, entry);
+            }
+        }
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inflight.putIfAbsent(key, future);
+        if (existing != null) {
+            // wait for the response of the first request
+            return existing.handleAsync((e, cause) -> e, ctx.eventLoop()).thenCompose(e -> {
+                CompletionStage<HttpResult> result = e == null || authorized && !e.shared ? null : serve(ctx, e);
+                return result == null ? next.doNext(ctx) : result;
+            });
+        }
+        CachingContext cachingContext = new CachingContext(ctx, key, authorized, future);
+        try {
+            return MiddlewareChains.whenComplete(next.doNext(cachingContext), (r, e) -> cachingContext.complete(null));
+        } catch (RuntimeException e) {
+            cachingContext.complete(null);
+            throw e;
+        }
+    }
+
+    private String key(HttpRequestContext ctx) {
+        HttpHeaders headers = ctx.headers();
+        String host = headers.get(HOST, "");
+        List<AsciiString> varyHeaders = this.varyHeaders;
+        if (varyHeaders.isEmpty()) {
+            return ctx.method().name() + " " + host + " " + ctx.uri();
+        }
+        StringBuilder builder = new StringBuilder().append(ctx.method().name()).append(' ').append(host).append(' ')
+                .append(ctx.uri());
+        for (AsciiString name : varyHeaders) {
+            builder.append('\n');
+            String value = headers.get(name);
+            if (value != null) {
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    private CompletionStage<HttpResult> serve(HttpRequestContext ctx, Entry entry) {
+        ByteBuf content;
+        try {
+            content = entry.content.retainedDuplicate();
+        } catch (IllegalReferenceCountException e) {
+            // just evicted
+            return null;
+        }
+        synchronized (evictionLock) {
+            if (entry.linked && entry != tail) {
+                unlink(entry);
+                linkLast(entry);
+            }
+        }
+        HttpHeaders headers = entry.headers.copy();
+        long age = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - entry.createdNanoTime);
+        headers.setInt(AGE, (int) age);
+        FullHttpResponse response = new DefaultFullHttpResponse(ctx.version(), entry.status, content, headers,
+                EmptyHttpHeaders.INSTANCE);
+        HttpUtil.setKeepAlive(response, ctx.isKeepAlive());
+        return ctx.sendResponse(response, entry.contentLength);
+    }
+
+    private static final boolean isShared(FullHttpResponse response) {
+        String cacheControl = response.headers().get(CACHE_CONTROL);
+        return cacheControl != null && (AsciiString.containsIgnoreCase(cacheControl, PUBLIC)
+                || AsciiString.containsIgnoreCase(cacheControl, S_MAXAGE));
+    }
+
+    private boolean isCacheable(FullHttpResponse response) {
+        if (!cacheableStatus.test(response.status())) {
+            return false;
+        }
+        HttpHeaders headers = response.headers();
+        if (headers.contains(SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.get(CACHE_CONTROL);
+        if (cacheControl != null) {
+            return !AsciiString.containsIgnoreCase(cacheControl, NO_STORE)
+                    && !AsciiString.containsIgnoreCase(cacheControl, PRIVATE);
+        }
+        return true;
+    }
+
+    private Entry store(String key, FullHttpResponse response, int contentLength, boolean shared) {
+        ByteBuf source = response.content();
+        int size = source.readableBytes();
+        if (size > maxBytes) {
+            return null;
+        }
+        ByteBuf content = Unpooled.directBuffer(size, size).writeBytes(source, source.readerIndex(), size);
+        HttpHeaders headers = new DefaultHttpHeaders().add(response.headers());
+        headers.remove(CONNECTION).remove(KEEP_ALIVE);
+        Entry entry = new Entry(key, response.status(), headers, content.asReadOnly(), contentLength, size,
+                shared);
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            release(old);
+        }
+        cachedBytes.addAndGet(size);
+        synchronized (evictionLock) {
+            if (!entry.released.get()) {
+                linkLast(entry);
+            }
+        }
+        evict();
+        return entry;
+    }
+
+    private void evict() {
+        while (cachedBytes.get() > maxBytes) {
+            Entry entry;
+            synchronized (evictionLock) {
+                entry = head;
+            }
+            if (entry == null) {
+                return;
+            }
+            entries.remove(entry.key, entry);
+            // the entry may be replaced concurrently, release is idempotent
+            release(entry);
+        }
+    }
+
+    private void linkLast(Entry entry) {
+        Entry last = tail;
+        entry.prev = last;
+        if (last == null) {
+            head = entry;
+        } else {
+            last.next = entry;
+        }
+        tail = entry;
+        entry.linked = true;
+    }
+
+    private void unlink(Entry entry) {
+        if (!entry.linked) {
+            return;
+        }
+        Entry prev = entry.prev;
+        Entry next = entry.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.linked = false;
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        if (entry.released.compareAndSet(false, true)) {
+            cachedBytes.addAndGet(-entry.size);
+            synchronized (evictionLock) {
+                unlink(entry);
+            }
+            entry.content.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Entry> values = new ArrayList<>(entries.values());
+        entries.clear();
+        values.forEach(this::release);
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache(ttl=" + Duration.ofNanos(ttlNanos) + ", maxBytes=" + maxBytes + ", varyHeaders="
+                + varyHeaders + ")";
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final HttpResponseStatus status;
+        private final HttpHeaders headers;
+        private final ByteBuf content;
+        private final int contentLength;
+        private final int size;
+        // whether the response can be shared with the authorized requests
+        private final boolean shared;
+        private final long createdNanoTime = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        // guarded by evictionLock
+        private Entry prev;
+        private Entry next;
+        private boolean linked;
+
+        private Entry(String key, HttpResponseStatus status, HttpHeaders headers, ByteBuf content, int contentLength,
+                int size, boolean shared) {
+            this.key = key;
+            this.status = status;
+            this.headers = headers;
+            this.content = content;
+            this.contentLength = contentLength;
+            this.size = size;
+            this.shared = shared;
+        }
+
+    }
+
+    private final class CachingContext extends HttpRequestContextWrapper {
+
+        private final String key;
+        private final boolean authorized;
+        private final CompletableFuture<Entry> future;
+
+        private CachingContext(HttpRequestContext delegate, String key, boolean authorized,
+                CompletableFuture<Entry> future) {
+            super(delegate);
+            this.key = key;
+            this.authorized = authorized;
+            this.future = future;
+        }
+
+        private void complete(Entry entry) {
+            if (!future.isDone()) {
+                inflight.remove(key, future);
+                future.complete(entry);
+            }
+        }
+
+        @Override
+        public CompletableFuture<HttpResult> sendResponse(FullHttpResponse response, int contentLength) {
+            if (!future.isDone()) {
+                Entry entry = null;
+                if (isCacheable(response)) {
+                    boolean shared = isShared(response);
+                    // responses of the authorized requests are private unless explicitly shared
+                    if (shared || !authorized) {
+                        entry = store(key, response, contentLength, shared);
+                    }
+                }
+                complete(entry);
+            }
+            return delegate.sendResponse(response, contentLength);
+        }
+
+    }
+
+    /**
+     * The builder builds {@link ResponseCache}s.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Builder {
+
+        private Duration ttl = Duration.ofSeconds(1);
+        private long maxBytes = 64 * 1024 * 1024;
+        private final List<AsciiString> varyHeaders = new ArrayList<>();
+        private final List<HttpMethod> methods = new ArrayList<>(List.of(HttpMethod.GET, HttpMethod.HEAD));
+        private Predicate<HttpResponseStatus> cacheableStatus = HttpResponseStatus.OK::equals;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the time-to-live of the cached responses.
+         * <p>
+         * The default is {@code 1 second}.
+         *
+         * @param ttl the time-to-live
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            Objects.requireNonNull(ttl, "ttl must not be null");
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("ttl must be positive");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total bytes of the cached contents.
+         * <p>
+         * The default is {@code 64MB}.
+         *
+         * @param maxBytes the maximum total bytes
+         * @return this builder
+         */
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive");
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Adds the request headers which the responses vary by.
+         *
+         * @param names the names of the headers
+         * @return this builder
+         */
+        public Builder vary(CharSequence... names) {
+            for (CharSequence name : names) {
+                varyHeaders.add(AsciiString.of(name));
+            }
+            return this;
+        }
+
+        /**
+         * Sets the cacheable methods.
+         * <p>
+         * The default is {@code GET} and {@code HEAD}.
+         *
+         * @param methods the methods
+         * @return this builder
+         */
+        public Builder methods(HttpMethod... methods) {
+            this.methods.clear();
+            this.methods.addAll(List.of(methods));
+            return this;
+        }
+
+        /**
+         * Sets the predicate tests whether the response status is cacheable.
+         * <p>
+         * The default is {@code 200 OK} only.
+         *
+         * @param cacheableStatus the predicate
+         * @return this builder
+         */
+        public Builder cacheableStatus(Predicate<HttpResponseStatus> cacheableStatus) {
+            this.cacheableStatus = Objects.requireNonNull(cacheableStatus, "cacheableStatus must not be null");
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ResponseCache}.
+         *
+         * @return a new {@code ResponseCache}
+         */
+        public ResponseCache build() {
+            return new ResponseCache(this);
+        }
+
+    }
+
+}
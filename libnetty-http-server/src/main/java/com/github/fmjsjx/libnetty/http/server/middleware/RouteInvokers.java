@@ -0,0 +1,362 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.http.server.HttpServiceInvoker;
+import com.github.fmjsjx.libnetty.http.server.component.HttpServerComponent;
+import com.github.fmjsjx.libnetty.http.server.component.WorkerPool;
+
+/**
+ * Factory methods of {@link HttpServiceInvoker}s and the parameter mappers
+ * used by the {@link RouteRegistrar}s generated at compile time.
+ * <p>
+ * The parameter mappers have the same behaviors as the controllers registered
+ * by {@link RouterUtil} through reflection, but the controller methods are
+ * called directly.
+ *
+ * @author MJ Fang
+ * @see RouteRegistrar
+ * @since 4.3
+ */
+public final class RouteInvokers {
+
+    /**
+     * Invokes a controller method with the mapped arguments.
+     *
+     * @author MJ Fang
+     * @since 4.3
+     */
+    @FunctionalInterface
+    public interface MethodInvoker {
+
+        /**
+         * Invokes the controller method.
+         *
+         * @param args the arguments
+         * @return the value returned by the method, or {@code null} if the
+         *         method is {@code void}
+         * @throws Exception any exception thrown by the method
+         */
+        Object invoke(Object[] args) throws Exception;
+
+    }
+
+    /**
+     * Returns the mapper for parameters that can be resolved from the
+     * {@link HttpRequestContext} directly, such as the
+     * {@link HttpRequestContext} itself, the request, the headers, etc.
+     *
+     * @param type the type of the parameter
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> context(Class<?> type) {
+        var mapper = RouterUtil.toContextMapper(type);
+        if (mapper == null) {
+            throw new IllegalArgumentException("unsupported context type " + type);
+        }
+        return mapper;
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @PathVar}.
+     *
+     * @param type the type of the parameter
+     * @param name the name of the path variable
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> pathVar(Class<?> type, String name) {
+        return RouterUtil.toPathVarMapper(type, name);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @QueryVar}.
+     *
+     * @param rawType             the raw type of the parameter
+     * @param type                the generic type of the parameter
+     * @param name                the name of the query variable
+     * @param required            if the query variable is required
+     * @param compatibleWithArray if the query variable is compatible with the
+     *                            array style
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> queryVar(Class<?> rawType, Type type, String name,
+            boolean required, boolean compatibleWithArray) {
+        return RouterUtil.toQueryVarMapper(rawType, type, name, required, compatibleWithArray);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @JsonBody}.
+     *
+     * @param rawType the raw type of the parameter
+     * @param type    the generic type of the parameter
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> jsonBody(Class<?> rawType, Type type) {
+        return RouterUtil.toJsonBodyMapper(rawType, type);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @StringBody}.
+     *
+     * @param type the type of the parameter
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> stringBody(Type type) {
+        return RouterUtil.toStringBodyMapper(type, type);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @HeaderValue}.
+     *
+     * @param rawType  the raw type of the parameter
+     * @param type     the generic type of the parameter
+     * @param name     the name of the header
+     * @param required if the header is required
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> headerValue(Class<?> rawType, Type type, String name,
+            boolean required) {
+        return RouterUtil.toHeaderValueMapper(rawType, type, name, required);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @CookieValue}.
+     *
+     * @param rawType  the raw type of the parameter
+     * @param type     the generic type of the parameter
+     * @param name     the name of the cookie
+     * @param required if the cookie is required
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> cookieValue(Class<?> rawType, Type type, String name,
+            boolean required) {
+        return RouterUtil.toCookieValueMapper(rawType, type, name, required);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with {@code @RemoteAddr}.
+     *
+     * @param type the type of the parameter
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> remoteAddr(Class<?> type) {
+        return RouterUtil.toRemoteAddrMapper(type);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with
+     * {@code @ComponentValue}.
+     *
+     * @param rawType       the raw type of the parameter
+     * @param type          the generic type of the parameter
+     * @param componentType the value of the {@code @ComponentValue}
+     * @param required      if the component is required
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> componentValue(Class<?> rawType, Type type,
+            Class<? extends HttpServerComponent> componentType, boolean required) {
+        return RouterUtil.toComponentValueMapper(rawType, type, componentType, required);
+    }
+
+    /**
+     * Returns the mapper for the parameter annotated with
+     * {@code @PropertyValue}.
+     *
+     * @param rawType  the raw type of the parameter
+     * @param type     the generic type of the parameter
+     * @param key      the value of the {@code @PropertyValue}
+     * @param required if the property is required
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> propertyValue(Class<?> rawType, Type type, String key,
+            boolean required) {
+        return RouterUtil.toPropertyValueMapper(rawType, type, key, required);
+    }
+
+    /**
+     * Returns the mapper always returns the zero value of the specified type.
+     *
+     * @param type the type of the parameter
+     * @return the parameter mapper
+     */
+    public static Function<HttpRequestContext, Object> zeroValue(Class<?> type) {
+        return RouterUtil.toZeroValueMapper(type);
+    }
+
+    /**
+     * Returns the mapper maps all arguments of a controller method.
+     * <p>
+     * Any exception thrown by the parameter mappers will be wrapped into a
+     * {@code BadRequestException}.
+     *
+     * @param mappers the parameter mappers
+     * @return the arguments mapper
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static Function<HttpRequestContext, Object[]> parameters(Function<HttpRequestContext, Object>... mappers) {
+        return RouterUtil.toParametersMapper(mappers);
+    }
+
+    /**
+     * Returns a {@link ParameterizedType} with the specified raw type and type
+     * arguments.
+     *
+     * @param rawType       the raw type
+     * @param typeArguments the type arguments
+     * @return a {@code ParameterizedType}
+     */
+    public static ParameterizedType parameterizedType(Class<?> rawType, Type... typeArguments) {
+        return new ParameterizedTypeImpl(rawType, typeArguments.clone());
+    }
+
+    /**
+     * Returns the invoker of a controller method returns
+     * {@code CompletionStage<HttpResult>}.
+     *
+     * @param parameters the arguments mapper
+     * @param invoker    the method invoker
+     * @return an {@code HttpServiceInvoker}
+     */
+    @SuppressWarnings("unchecked")
+    public static HttpServiceInvoker httpResult(Function<HttpRequestContext, Object[]> parameters,
+            MethodInvoker invoker) {
+        return ctx -> {
+            try {
+                return (CompletionStage<HttpResult>) invoker.invoke(parameters.apply(ctx));
+            } catch (Exception e) {
+                return RouterUtil.handleError(ctx, e);
+            }
+        };
+    }
+
+    /**
+     * Returns the invoker of a controller method returns nothing, which
+     * responds {@code "204 No Content"}.
+     *
+     * @param blocking   {@code true} if the method is blocking and should be
+     *                   invoked on the {@link WorkerPool}
+     * @param parameters the arguments mapper
+     * @param invoker    the method invoker
+     * @return an {@code HttpServiceInvoker}
+     */
+    public static HttpServiceInvoker voidResponse(boolean blocking, Function<HttpRequestContext, Object[]> parameters,
+            MethodInvoker invoker) {
+        return toInvoker(blocking, parameters, invoker, RouterUtil::voidResponseHandler);
+    }
+
+    /**
+     * Returns the invoker of a controller method annotated with
+     * {@code @JsonBody}, which responds the returned value as JSON.
+     *
+     * @param blocking   {@code true} if the method is blocking and should be
+     *                   invoked on the {@link WorkerPool}
+     * @param parameters the arguments mapper
+     * @param invoker    the method invoker
+     * @return an {@code HttpServiceInvoker}
+     */
+    public static HttpServiceInvoker jsonResponse(boolean blocking, Function<HttpRequestContext, Object[]> parameters,
+            MethodInvoker invoker) {
+        return toInvoker(blocking, parameters, invoker, RouterUtil::jsonResponseHandler);
+    }
+
+    /**
+     * Returns the invoker of a controller method annotated with
+     * {@code @StringBody}, which responds the returned value as plain text.
+     *
+     * @param blocking   {@code true} if the method is blocking and should be
+     *                   invoked on the {@link WorkerPool}
+     * @param parameters the arguments mapper
+     * @param invoker    the method invoker
+     * @return an {@code HttpServiceInvoker}
+     */
+    public static HttpServiceInvoker stringResponse(boolean blocking,
+            Function<HttpRequestContext, Object[]> parameters, MethodInvoker invoker) {
+        return toInvoker(blocking, parameters, invoker, RouterUtil::stringResponseHandler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> HttpServiceInvoker toInvoker(boolean blocking,
+            Function<HttpRequestContext, Object[]> parameters, MethodInvoker invoker,
+            Function<HttpRequestContext, BiFunction<T, Throwable, CompletionStage<HttpResult>>> handler) {
+        if (blocking) {
+            return ctx -> {
+                try {
+                    WorkerPool workerPool = ctx.component(WorkerPool.class)
+                            .orElseThrow(RouterUtil.WorkerPoolConstants.MISSING_WORKER_POOL);
+                    return CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return (T) invoker.invoke(parameters.apply(ctx));
+                        } catch (Exception e) {
+                            throw RouterUtil.valueOf(e);
+                        }
+                    }, workerPool.executor()).handle(handler.apply(ctx)).thenCompose(Function.identity());
+                } catch (Exception e) {
+                    return RouterUtil.handleError(ctx, e);
+                }
+            };
+        }
+        return ctx -> {
+            try {
+                return ((CompletionStage<T>) invoker.invoke(parameters.apply(ctx))).handle(handler.apply(ctx))
+                        .thenCompose(Function.identity());
+            } catch (Exception e) {
+                return RouterUtil.handleError(ctx, e);
+            }
+        };
+    }
+
+    private record ParameterizedTypeImpl(Class<?> rawType, Type[] typeArguments) implements ParameterizedType {
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return typeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return rawType.getDeclaringClass();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            // compatible with the implementation of the JDK
+            if (obj instanceof ParameterizedType o) {
+                return rawType.equals(o.getRawType()) && Objects.equals(getOwnerType(), o.getOwnerType())
+                        && Arrays.equals(typeArguments, o.getActualTypeArguments());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(typeArguments) ^ Objects.hashCode(getOwnerType()) ^ rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.stream(typeArguments).map(Type::getTypeName)
+                    .collect(Collectors.joining(", ", rawType.getTypeName() + "<", ">"));
+        }
+
+    }
+
+    private RouteInvokers() {
+    }
+
+}
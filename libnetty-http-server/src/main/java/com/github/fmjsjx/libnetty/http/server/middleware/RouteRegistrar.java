@@ -0,0 +1,36 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+/**
+ * A registrar registers all routes declared by a controller class to a
+ * {@link Router} directly, without any reflection.
+ * <p>
+ * Implementations are generated at compile time by the annotation processor
+ * in the {@code libnetty-http-server-processor} module, and are declared as
+ * services in {@code META-INF/services}. The
+ * {@link RouterUtil#register(Router, Object)} will use the registrar of the
+ * controller class if present, and fall back to reflection otherwise.
+ *
+ * @param <T> the type of the controller
+ * @author MJ Fang
+ * @see RouteInvokers
+ * @since 4.3
+ */
+public interface RouteRegistrar<T> {
+
+    /**
+     * Returns the class of the controller.
+     *
+     * @return the class of the controller
+     */
+    Class<T> controllerType();
+
+    /**
+     * Register all routes of the given controller to the specified router.
+     *
+     * @param router     the router
+     * @param controller the controller object
+     * @return the count of the services just been registered
+     */
+    int register(Router router, T controller);
+
+}
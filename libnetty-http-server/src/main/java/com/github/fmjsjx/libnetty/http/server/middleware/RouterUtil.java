@@ -79,7 +79,14 @@ public class RouterUtil {
         return register0(router, controller, controllerClass);
     }
 
+    @SuppressWarnings("unchecked")
     private static int register0(Router router, Object controller, Class<?> clazz) {
+        var registrar = (RouteRegistrar<Object>) RouteRegistrars.registrars.get(clazz);
+        if (registrar != null) {
+            // Use the route registrar generated at compile time, no reflection is needed.
+            logger.debug("Register controller {} by {}", controller, registrar);
+            return registrar.register(router, controller);
+        }
         var pathPrefixes = getPathPrefixes(clazz);
         Method[] methods = clazz.getDeclaredMethods();
         int num = 0;
@@ -178,7 +185,7 @@ public class RouterUtil {
 
     }
 
-    private static final BiFunction<Void, Throwable, CompletionStage<HttpResult>> voidResponseHandler(
+    static final BiFunction<Void, Throwable, CompletionStage<HttpResult>> voidResponseHandler(
             HttpRequestContext ctx) {
         return (nil, cause) -> {
             if (cause != null) {
@@ -198,7 +205,7 @@ public class RouterUtil {
         };
     }
 
-    private static final BiFunction<Object, Throwable, CompletionStage<HttpResult>> jsonResponseHandler(
+    static final BiFunction<Object, Throwable, CompletionStage<HttpResult>> jsonResponseHandler(
             HttpRequestContext ctx) {
         return (result, cause) -> {
             if (cause != null) {
@@ -220,7 +227,7 @@ public class RouterUtil {
         };
     }
 
-    private static final BiFunction<Object, Throwable, CompletionStage<HttpResult>> stringResponseHandler(
+    static final BiFunction<Object, Throwable, CompletionStage<HttpResult>> stringResponseHandler(
             HttpRequestContext ctx) {
         return (result, cause) -> {
             if (cause != null) {
@@ -277,6 +284,28 @@ public class RouterUtil {
         };
     }
 
+    private static final class RouteRegistrars {
+
+        private static final Map<Class<?>, RouteRegistrar<?>> registrars = load();
+
+        private static final Map<Class<?>, RouteRegistrar<?>> load() {
+            Map<Class<?>, RouteRegistrar<?>> registrars = new HashMap<>();
+            for (var iterator = ServiceLoader.load(RouteRegistrar.class).iterator(); ; ) {
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    RouteRegistrar<?> registrar = iterator.next();
+                    registrars.put(registrar.controllerType(), registrar);
+                } catch (ServiceConfigurationError e) {
+                    logger.warn("Load route registrar failed, reflection will be used instead", e);
+                }
+            }
+            return registrars;
+        }
+
+    }
+
     private static final class ResponseConstants {
 
         private static final AsciiString APPLICATION_JSON_UTF8 = contentType(APPLICATION_JSON, UTF_8);
@@ -292,17 +321,17 @@ public class RouterUtil {
 
     }
 
-    private static final class WorkerPoolConstants {
+    static final class WorkerPoolConstants {
         private static final IllegalArgumentException MISSING_WORKER_POOL_EXCEPTION = new IllegalArgumentException();
 
-        private static final Supplier<IllegalArgumentException> MISSING_WORKER_POOL = () -> MISSING_WORKER_POOL_EXCEPTION;
+        static final Supplier<IllegalArgumentException> MISSING_WORKER_POOL = () -> MISSING_WORKER_POOL_EXCEPTION;
     }
 
     private static final CompletionException fromTarget(InvocationTargetException e) {
         return valueOf(e.getTargetException());
     }
 
-    private static final CompletionException valueOf(Throwable e) {
+    static final CompletionException valueOf(Throwable e) {
         if (e instanceof CompletionException) {
             return (CompletionException) e;
         } else {
@@ -318,7 +347,7 @@ public class RouterUtil {
         return type == void.class || type == Void.class;
     }
 
-    private static final CompletionStage<HttpResult> handleError(HttpRequestContext ctx, Throwable cause) {
+    static final CompletionStage<HttpResult> handleError(HttpRequestContext ctx, Throwable cause) {
         var handler = ctx.component(ExceptionHandler.class);
         if (handler.isPresent()) {
             var result = handler.get().handle(ctx, cause);
@@ -674,68 +703,84 @@ public class RouterUtil {
     private static final Function<HttpRequestContext, Object> eventLoopMapper = HttpRequestContext::eventLoop;
     private static final Function<HttpRequestContext, Object> remoteAddrMapper = HttpRequestContext::remoteAddress;
 
-    private static final Function<HttpRequestContext, Object> toParameterMapper(Parameter param) {
-        if (param.getType() == LazyLoadingHttpRequestContext.class) {
+    static final Function<HttpRequestContext, Object> toContextMapper(Class<?> type) {
+        if (type == LazyLoadingHttpRequestContext.class) {
             return lazyLoadingContextMapper;
-        } else if (param.getType() == HttpRequestContext.class || param.getType() == HttpResponder.class) {
+        } else if (type == HttpRequestContext.class || type == HttpResponder.class) {
             return contextMapper;
-        } else if (param.getType() == HttpResponseFactory.class) {
+        } else if (type == HttpResponseFactory.class) {
             return responseFactoryMapper;
-        } else if (param.getType() == HttpRequest.class || param.getType() == FullHttpRequest.class) {
+        } else if (type == HttpRequest.class || type == FullHttpRequest.class) {
             return fullRequestMapper;
-        } else if (param.getType() == HttpHeaders.class) {
+        } else if (type == HttpHeaders.class) {
             return headersMapper;
-        } else if (param.getType() == QueryStringDecoder.class) {
+        } else if (type == QueryStringDecoder.class) {
             return queryMapper;
-        } else if (param.getType().isAssignableFrom(EventLoop.class)) {
+        } else if (type.isAssignableFrom(EventLoop.class)) {
             return eventLoopMapper;
         }
+        return null;
+    }
+
+    private static final Function<HttpRequestContext, Object> toParameterMapper(Parameter param) {
+        var mapper = toContextMapper(param.getType());
+        if (mapper != null) {
+            return mapper;
+        }
         PathVar pathVar = param.getAnnotation(PathVar.class);
         if (pathVar != null) {
-            return toPathVarMapper(param, pathVar);
+            String name = StringUtil.isNullOrEmpty(pathVar.value()) ? param.getName() : pathVar.value();
+            return toPathVarMapper(param.getType(), name);
         }
         QueryVar queryVar = param.getAnnotation(QueryVar.class);
         if (queryVar != null) {
-            return toQueryVarMapper(param, queryVar);
+            String name = StringUtil.isNullOrEmpty(queryVar.value()) ? param.getName() : queryVar.value();
+            return toQueryVarMapper(param.getType(), param.getParameterizedType(), name, queryVar.required(),
+                    queryVar.compatibleWithArray());
         }
         JsonBody jsonBody = param.getAnnotation(JsonBody.class);
         if (jsonBody != null) {
-            return toJsonBodyMapper(param, jsonBody);
+            return toJsonBodyMapper(param.getType(), param.getParameterizedType());
         }
         StringBody stringBody = param.getAnnotation(StringBody.class);
         if (stringBody != null) {
-            return toStringBodyMapper(param, stringBody);
+            return toStringBodyMapper(param.getParameterizedType(), param);
         }
         HeaderValue headerValue = param.getAnnotation(HeaderValue.class);
         if (headerValue != null) {
-            return toHeaderValueMapper(param, headerValue);
+            return toHeaderValueMapper(param.getType(), param.getParameterizedType(), headerValue.value(),
+                    headerValue.required());
         }
         var cookieValue = param.getAnnotation(CookieValue.class);
         if (cookieValue != null) {
-            return toCookieValueMapper(param, cookieValue);
+            return toCookieValueMapper(param.getType(), param.getParameterizedType(), cookieValue.value(),
+                    cookieValue.required());
         }
         RemoteAddr remoteAddr = param.getAnnotation(RemoteAddr.class);
         if (remoteAddr != null) {
-            if (param.getType() != String.class) {
-                throw new IllegalArgumentException(
-                        "unsupported type " + param.getType() + " for @RemoteAddr, only support String");
-            }
-            return remoteAddrMapper;
+            return toRemoteAddrMapper(param.getType());
         }
         ComponentValue componentValue = param.getAnnotation(ComponentValue.class);
         if (componentValue != null) {
-            return toComponentValueMapper(param, componentValue);
+            return toComponentValueMapper(param.getType(), param.getParameterizedType(), componentValue.value(),
+                    componentValue.required());
         }
         PropertyValue propertyValue = param.getAnnotation(PropertyValue.class);
         if (propertyValue != null) {
-            return toPropertyValueMapper(param, propertyValue);
+            return toPropertyValueMapper(param.getType(), param.getParameterizedType(), propertyValue.value(),
+                    propertyValue.required());
         }
-        return toZeroValueMapper(param);
+        return toZeroValueMapper(param.getType());
     }
 
-    private static Function<HttpRequestContext, Object> toPathVarMapper(Parameter param, PathVar pathVar) {
-        Class<?> type = param.getType();
-        String name = StringUtil.isNullOrEmpty(pathVar.value()) ? param.getName() : pathVar.value();
+    static final Function<HttpRequestContext, Object> toRemoteAddrMapper(Class<?> type) {
+        if (type != String.class) {
+            throw new IllegalArgumentException("unsupported type " + type + " for @RemoteAddr, only support String");
+        }
+        return remoteAddrMapper;
+    }
+
+    static Function<HttpRequestContext, Object> toPathVarMapper(Class<?> type, String name) {
         Supplier<IllegalArgumentException> noSuchPathVariable = noSuchPathVariable(name);
         if (type == String.class) {
             return ctx -> ctx.pathVariables().getString(name).orElseThrow(noSuchPathVariable);
@@ -773,24 +818,23 @@ public class RouterUtil {
         return illegalArgumentSuppliers.computeIfAbsent(message, k -> () -> error);
     }
 
-    private static final Function<HttpRequestContext, Object> toQueryVarMapper(Parameter param, QueryVar queryVar) {
-        Type type = param.getParameterizedType();
-        String name = StringUtil.isNullOrEmpty(queryVar.value()) ? param.getName() : queryVar.value();
+    static final Function<HttpRequestContext, Object> toQueryVarMapper(Class<?> rawType, Type type, String name,
+            boolean required, boolean compatibleWithArray) {
         if (type instanceof Class<?>) {
             if (((Class<?>) type).isArray()) {
-                return toArrayMapper(queryVar, type, name);
+                return toArrayMapper(required, compatibleWithArray, type, name);
             } else {
-                return toSimpleMapper(queryVar, type, name);
+                return toQuerySimpleMapper(required, type, name);
             }
         }
-        if (List.class == param.getType()) {
-            return toListMapper(queryVar, (ParameterizedType) type, name);
+        if (List.class == rawType) {
+            return toListMapper(required, compatibleWithArray, (ParameterizedType) type, name);
         }
-        if (Set.class == param.getType()) {
-            return toSetMapper(queryVar, (ParameterizedType) type, name);
+        if (Set.class == rawType) {
+            return toSetMapper(required, compatibleWithArray, (ParameterizedType) type, name);
         }
-        if (Optional.class == param.getType()) {
-            return toOptionalMapper(queryVar, (ParameterizedType) type, name);
+        if (Optional.class == rawType) {
+            return toQueryOptionalMapper(compatibleWithArray, (ParameterizedType) type, name);
         }
         throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
     }
@@ -823,20 +867,21 @@ public class RouterUtil {
         queryValueMappers = map;
     }
 
-    private static final Function<HttpRequestContext, Object> toArrayMapper(QueryVar queryVar, Type type, String name) {
+    private static final Function<HttpRequestContext, Object> toArrayMapper(boolean required,
+            boolean compatibleWithArray, Type type, String name) {
         Function<List<String>, Object> mapper = queryValueMappers.get(type == Object[].class ? String[].class : type);
         if (mapper == null) {
             throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
         }
-        if (queryVar.required()) {
+        if (required) {
             Supplier<IllegalArgumentException> noSuchQueryVariable = noSuchQueryVariable(name);
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElseThrow(noSuchQueryVariable);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElseThrow(noSuchQueryVariable);
         } else {
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElse(null);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElse(null);
         }
     }
 
-    private static Function<HttpRequestContext, Object> toSimpleMapper(QueryVar queryVar, Type type, String name) {
+    private static Function<HttpRequestContext, Object> toQuerySimpleMapper(boolean required, Type type, String name) {
         Function<List<String>, Object> mapper;
         if (type == String.class || type == Object.class) {
             mapper = queryValueMappers.get(String.class);
@@ -870,7 +915,7 @@ public class RouterUtil {
         } else {
             throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
         }
-        if (queryVar.required()) {
+        if (required) {
             Supplier<IllegalArgumentException> noSuchQueryVariable = noSuchQueryVariable(name);
             return ctx -> ctx.queryParameter(name).map(mapper).orElseThrow(noSuchQueryVariable);
         } else {
@@ -903,18 +948,18 @@ public class RouterUtil {
         queryListValueMappers = map;
     }
 
-    private static final Function<HttpRequestContext, Object> toListMapper(QueryVar queryVar, ParameterizedType type,
-            String name) {
+    private static final Function<HttpRequestContext, Object> toListMapper(boolean required,
+            boolean compatibleWithArray, ParameterizedType type, String name) {
         Type atype = type.getActualTypeArguments()[0];
         Function<List<String>, Object> mapper = queryListValueMappers.get(atype == Object.class ? String.class : atype);
         if (mapper == null) {
             throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
         }
-        if (queryVar.required()) {
+        if (required) {
             Supplier<IllegalArgumentException> noSuchQueryVariable = noSuchQueryVariable(name);
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElseThrow(noSuchQueryVariable);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElseThrow(noSuchQueryVariable);
         } else {
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElse(null);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElse(null);
         }
     }
 
@@ -936,22 +981,22 @@ public class RouterUtil {
         querySetValueMappers = map;
     }
 
-    private static final Function<HttpRequestContext, Object> toSetMapper(QueryVar queryVar, ParameterizedType type,
-            String name) {
+    private static final Function<HttpRequestContext, Object> toSetMapper(boolean required,
+            boolean compatibleWithArray, ParameterizedType type, String name) {
         Type atype = type.getActualTypeArguments()[0];
         Function<List<String>, Object> mapper = querySetValueMappers.get(atype == Object.class ? String.class : atype);
         if (mapper == null) {
             throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
         }
-        if (queryVar.required()) {
+        if (required) {
             Supplier<IllegalArgumentException> noSuchQueryVariable = noSuchQueryVariable(name);
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElseThrow(noSuchQueryVariable);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElseThrow(noSuchQueryVariable);
         } else {
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper).orElse(null);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper).orElse(null);
         }
     }
 
-    private static final Function<HttpRequestContext, Object> toOptionalMapper(@SuppressWarnings("unused") QueryVar queryVar,
+    private static final Function<HttpRequestContext, Object> toQueryOptionalMapper(boolean compatibleWithArray,
             ParameterizedType type, String name) {
         Type atype = type.getActualTypeArguments()[0];
         Function<List<String>, Object> mapper = queryValueMappers.get(atype == Object.class ? String.class : atype);
@@ -959,7 +1004,7 @@ public class RouterUtil {
             throw new IllegalArgumentException("unsupported type " + type + " for @QueryVar");
         }
         if (atype instanceof Class<?> clazz && clazz.isArray()) {
-            return ctx -> ctx.queryParameter(name, queryVar.compatibleWithArray()).map(mapper);
+            return ctx -> ctx.queryParameter(name, compatibleWithArray).map(mapper);
         }
         return ctx -> ctx.queryParameter(name).map(mapper);
     }
@@ -974,14 +1019,13 @@ public class RouterUtil {
     private static final ByteBuf EMPTY_JSON_ARRAY = Unpooled.unreleasableBuffer(
             UnpooledByteBufAllocator.DEFAULT.buffer(2).writeBytes("[]".getBytes()).asReadOnly());
 
-    private static final Function<HttpRequestContext, Object> toJsonBodyMapper(Parameter param, @SuppressWarnings("unused") JsonBody jsonBody) {
-        Type type = param.getParameterizedType();
+    static final Function<HttpRequestContext, Object> toJsonBodyMapper(Class<?> rawType, Type type) {
         if (type == String.class) {
             return contentToStringMapper;
         } else if (type == byte[].class) {
             return contentToBytesMapper;
         } else {
-            if (isArrayType(param)) {
+            if (isArrayType(rawType, type)) {
                 return ctx -> {
                     var jsonLibrary = ctx.component(JsonLibrary.class).orElseThrow(JsonConstants.MISSING_JSON_LIBRARY);
                     var content = ctx.request().content();
@@ -1014,16 +1058,14 @@ public class RouterUtil {
         }
     }
 
-    private static boolean isArrayType(Parameter param) {
-        if (param.getParameterizedType() instanceof Class<?> clazz) {
+    private static boolean isArrayType(Class<?> rawType, Type type) {
+        if (type instanceof Class<?> clazz) {
             return clazz.isArray();
         }
-        return Collection.class.isAssignableFrom(param.getType());
+        return Collection.class.isAssignableFrom(rawType);
     }
 
-    private static final Function<HttpRequestContext, Object> toStringBodyMapper(Parameter param,
-            @SuppressWarnings("unused") StringBody strongBody) {
-        Type type = param.getParameterizedType();
+    static final Function<HttpRequestContext, Object> toStringBodyMapper(Type type, Object param) {
         if (type == String.class || type == CharSequence.class) {
             return contentToStringMapper;
         } else {
@@ -1040,15 +1082,13 @@ public class RouterUtil {
         return illegalArgumentSuppliers.computeIfAbsent(message, k -> () -> error);
     }
 
-    private static final Function<HttpRequestContext, Object> toHeaderValueMapper(Parameter param,
-            HeaderValue headerValue) {
-        Type type = param.getParameterizedType();
-        String name = headerValue.value();
+    static final Function<HttpRequestContext, Object> toHeaderValueMapper(Class<?> rawType, Type type, String name,
+            boolean required) {
         if (type instanceof Class<?>) {
-            return toSimpleMapper(headerValue, type, name);
+            return toHeaderSimpleMapper(required, type, name);
         }
-        if (Optional.class == param.getType()) {
-            return toOptionalMapper(headerValue, (ParameterizedType) type, name);
+        if (Optional.class == rawType) {
+            return toHeaderOptionalMapper((ParameterizedType) type, name);
         }
         throw new IllegalArgumentException("unsupported type " + type + " for @HeaderValue");
     }
@@ -1060,34 +1100,31 @@ public class RouterUtil {
         return illegalArgumentSuppliers.computeIfAbsent(message, k -> () -> error);
     }
 
-    private static final Function<HttpRequestContext, Object> toCookieValueMapper(Parameter param,
-            CookieValue cookieValue) {
-        Type type = param.getParameterizedType();
-        String name = cookieValue.value();
+    static final Function<HttpRequestContext, Object> toCookieValueMapper(Class<?> rawType, Type type, String name,
+            boolean required) {
         if (type instanceof Class<?>) {
-            return toSimpleMapper(cookieValue, type, name);
+            return toCookieSimpleMapper(required, type, name);
         }
-        if (Optional.class == param.getType()) {
-            return toOptionalMapper(cookieValue, (ParameterizedType) type, name);
+        if (Optional.class == rawType) {
+            return toCookieOptionalMapper((ParameterizedType) type, name);
         }
         throw new IllegalArgumentException("unsupported type " + type + " for @CookieValue");
     }
 
     @SuppressWarnings("unchecked")
-    private static final Function<HttpRequestContext, Object> toComponentValueMapper(Parameter param,
-            ComponentValue componentValue) {
-        Type type = param.getParameterizedType();
-        if (componentValue.value() == HttpServerComponent.class) {
+    static final Function<HttpRequestContext, Object> toComponentValueMapper(Class<?> rawType, Type type,
+            Class<? extends HttpServerComponent> componentType, boolean required) {
+        if (componentType == HttpServerComponent.class) {
             if (type instanceof Class<?>) {
-                Class<? extends HttpServerComponent> key = (Class<? extends HttpServerComponent>) param.getType();
-                if (componentValue.required()) {
+                Class<? extends HttpServerComponent> key = (Class<? extends HttpServerComponent>) rawType;
+                if (required) {
                     Supplier<IllegalArgumentException> noSuchComponentValue = noSuchComponentValue(key.toString());
                     return ctx -> ctx.component(key).orElseThrow(noSuchComponentValue);
                 } else {
                     return ctx -> ctx.component(key).orElse(null);
                 }
             }
-            if (Optional.class == param.getType()) {
+            if (Optional.class == rawType) {
                 Type atype = ((ParameterizedType) type).getActualTypeArguments()[0];
                 if (atype instanceof Class<?>) {
                     Class<? extends HttpServerComponent> key = (Class<? extends HttpServerComponent>) atype;
@@ -1096,16 +1133,16 @@ public class RouterUtil {
                 }
             }
         } else {
-            Class<? extends HttpServerComponent> key = componentValue.value();
+            Class<? extends HttpServerComponent> key = componentType;
             if (type instanceof Class<?>) {
-                if (componentValue.required()) {
+                if (required) {
                     Supplier<IllegalArgumentException> noSuchComponentValue = noSuchComponentValue(key.toString());
                     return ctx -> ctx.component(key).orElseThrow(noSuchComponentValue);
                 } else {
                     return ctx -> ctx.component(key).orElse(null);
                 }
             }
-            if (Optional.class == param.getType()) {
+            if (Optional.class == rawType) {
                 // skip required check
                 return ctx -> ctx.property(key);
             }
@@ -1113,20 +1150,19 @@ public class RouterUtil {
         throw new IllegalArgumentException("unsupported type " + type + " for @PropertyValue");
     }
 
-    private static final Function<HttpRequestContext, Object> toPropertyValueMapper(Parameter param,
-            PropertyValue propertyValue) {
-        Type type = param.getParameterizedType();
-        if (StringUtil.isNullOrEmpty(propertyValue.value())) {
+    static final Function<HttpRequestContext, Object> toPropertyValueMapper(Class<?> rawType, Type type,
+            String propertyKey, boolean required) {
+        if (StringUtil.isNullOrEmpty(propertyKey)) {
             if (type instanceof Class<?>) {
-                Class<?> key = param.getType();
-                if (propertyValue.required()) {
+                Class<?> key = rawType;
+                if (required) {
                     Supplier<IllegalArgumentException> noSuchPropertyValue = noSuchPropertyValue(key.toString());
                     return ctx -> ctx.property(key).orElseThrow(noSuchPropertyValue);
                 } else {
                     return ctx -> ctx.property(key).orElse(null);
                 }
             }
-            if (Optional.class == param.getType()) {
+            if (Optional.class == rawType) {
                 Type atype = ((ParameterizedType) type).getActualTypeArguments()[0];
                 if (atype instanceof Class<?> key) {
                     // skip required check
@@ -1134,17 +1170,17 @@ public class RouterUtil {
                 }
             }
         } else {
-            String key = propertyValue.value();
+            String key = propertyKey;
             if (type instanceof Class<?>) {
-                Class<?> valueType = param.getType();
-                if (propertyValue.required()) {
+                Class<?> valueType = rawType;
+                if (required) {
                     Supplier<IllegalArgumentException> noSuchPropertyValue = noSuchPropertyValue(key);
                     return ctx -> ctx.property(key, valueType).orElseThrow(noSuchPropertyValue);
                 } else {
                     return ctx -> ctx.property(key, valueType).orElse(null);
                 }
             }
-            if (Optional.class == param.getType()) {
+            if (Optional.class == rawType) {
                 // skip required check
                 return ctx -> ctx.property(key);
             }
@@ -1166,45 +1202,45 @@ public class RouterUtil {
         return illegalArgumentSuppliers.computeIfAbsent(message, k -> () -> error);
     }
 
-    private static Function<HttpRequestContext, Object> toSimpleMapper(HeaderValue headerValue, Type type,
+    private static Function<HttpRequestContext, Object> toHeaderSimpleMapper(boolean required, Type type,
             String name) {
         if (type == String.class || type == Object.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).orElseThrow(noSuchHeader);
             } else {
                 return ctx -> ctx.headers().get(name);
             }
         } else if (type == int.class || type == Integer.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getInt(name)).orElseThrow(noSuchHeader);
             } else {
                 return ctx -> ctx.headers().getInt(name);
             }
         } else if (type == short.class || type == Short.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getShort(name)).orElseThrow(noSuchHeader);
             } else {
                 return ctx -> ctx.headers().getShort(name);
             }
         } else if (type == long.class || type == Long.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Long::valueOf).orElseThrow(noSuchHeader);
             } else {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Long::valueOf).orElse(null);
             }
         } else if (type == byte.class || type == Byte.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Byte::valueOf).orElseThrow(noSuchHeader);
             } else {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Byte::valueOf).orElse(null);
             }
         } else if (type == float.class || type == Float.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Float::valueOf)
                         .orElseThrow(noSuchHeader);
@@ -1212,7 +1248,7 @@ public class RouterUtil {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Float::valueOf).orElse(null);
             }
         } else if (type == double.class || type == Double.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Double::valueOf)
                         .orElseThrow(noSuchHeader);
@@ -1220,7 +1256,7 @@ public class RouterUtil {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(Double::valueOf).orElse(null);
             }
         } else if (type == BigInteger.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(BigInteger::new)
                         .orElseThrow(noSuchHeader);
@@ -1228,7 +1264,7 @@ public class RouterUtil {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(BigInteger::new).orElse(null);
             }
         } else if (type == BigDecimal.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(BigDecimal::new)
                         .orElseThrow(noSuchHeader);
@@ -1236,7 +1272,7 @@ public class RouterUtil {
                 return ctx -> Optional.ofNullable(ctx.headers().get(name)).map(BigDecimal::new).orElse(null);
             }
         } else if (type == Date.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Date::new)
                         .orElseThrow(noSuchHeader);
@@ -1244,7 +1280,7 @@ public class RouterUtil {
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Date::new).orElse(null);
             }
         } else if (type == Instant.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Instant::ofEpochMilli)
                         .orElseThrow(noSuchHeader);
@@ -1253,7 +1289,7 @@ public class RouterUtil {
                         .orElse(null);
             }
         } else if (type == ZonedDateTime.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Instant::ofEpochMilli)
                         .map(i -> i.atZone(ZoneId.systemDefault())).orElseThrow(noSuchHeader);
@@ -1262,7 +1298,7 @@ public class RouterUtil {
                         .map(i -> i.atZone(ZoneId.systemDefault())).orElse(null);
             }
         } else if (type == OffsetDateTime.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Instant::ofEpochMilli)
                         .map(i -> i.atZone(ZoneId.systemDefault()).toOffsetDateTime()).orElseThrow(noSuchHeader);
@@ -1271,7 +1307,7 @@ public class RouterUtil {
                         .map(i -> i.atZone(ZoneId.systemDefault()).toOffsetDateTime()).orElse(null);
             }
         } else if (type == LocalDateTime.class) {
-            if (headerValue.required()) {
+            if (required) {
                 Supplier<IllegalArgumentException> noSuchHeader = noSuchHeader(name);
                 return ctx -> Optional.ofNullable(ctx.headers().getTimeMillis(name)).map(Instant::ofEpochMilli)
                         .map(i -> LocalDateTime.ofInstant(i, ZoneId.systemDefault())).orElseThrow(noSuchHeader);
@@ -1296,8 +1332,8 @@ public class RouterUtil {
         throw new IllegalArgumentException("unsupported type " + type + " for @HeaderValue");
     }
 
-    private static final Function<HttpRequestContext, Object> toOptionalMapper(
-            @SuppressWarnings("unused") HeaderValue headerValue, ParameterizedType type, String name) {
+    private static final Function<HttpRequestContext, Object> toHeaderOptionalMapper(ParameterizedType type,
+            String name) {
         Type atype = type.getActualTypeArguments()[0];
         if (atype == String.class || atype == Object.class) {
             return ctx -> Optional.ofNullable(ctx.headers().get(name));
@@ -1334,16 +1370,16 @@ public class RouterUtil {
         throw new IllegalArgumentException("unsupported type " + type + " for @HeaderValue");
     }
 
-    private static Function<HttpRequestContext, Object> toSimpleMapper(CookieValue cookieValue, Type type,
-                   String name) {
+    private static Function<HttpRequestContext, Object> toCookieSimpleMapper(boolean required, Type type,
+            String name) {
         if (type == Cookie.class) {
-            if (cookieValue.required()) {
+            if (required) {
                 return ctx -> ctx.cookie(name).orElseThrow(noSuchCookie(name));
             } else {
                 return ctx -> ctx.cookie(name).orElse(null);
             }
         } else if (type == String.class || type == CharSequence.class || type == Object.class) {
-            if (cookieValue.required()) {
+            if (required) {
                 return ctx -> ctx.cookie(name).orElseThrow(noSuchCookie(name)).value();
             } else {
                 return ctx -> ctx.cookie(name).map(Cookie::value).orElse(null);
@@ -1352,8 +1388,8 @@ public class RouterUtil {
         throw new IllegalArgumentException("unsupported type " + type + " for @CookieValue");
     }
 
-    private static final Function<HttpRequestContext, Object> toOptionalMapper(
-            @SuppressWarnings("unused") CookieValue cookieValue, ParameterizedType type, String name) {
+    private static final Function<HttpRequestContext, Object> toCookieOptionalMapper(ParameterizedType type,
+            String name) {
         Type atype = type.getActualTypeArguments()[0];
         if (atype == Cookie.class) {
             return ctx -> ctx.cookie(name);
@@ -1385,8 +1421,7 @@ public class RouterUtil {
         zeroValueMappers = map;
     }
 
-    private static final Function<HttpRequestContext, Object> toZeroValueMapper(Parameter param) {
-        Class<?> type = param.getType();
+    static final Function<HttpRequestContext, Object> toZeroValueMapper(Class<?> type) {
         if (type.isPrimitive()) {
             return zeroValueMappers.get(type);
         } else {
@@ -1394,7 +1429,7 @@ public class RouterUtil {
         }
     }
 
-    private static final Function<HttpRequestContext, Object[]> toParametersMapper(
+    static final Function<HttpRequestContext, Object[]> toParametersMapper(
             Function<HttpRequestContext, Object>[] parameterMappers) {
         return ctx -> {
             try {
@@ -3,9 +3,11 @@ package com.github.fmjsjx.libnetty.http.server.sse;
 import com.github.fmjsjx.libnetty.http.server.DefaultHttpResult;
 import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
 import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.AttributeKey;
@@ -16,7 +18,6 @@ import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -24,6 +25,8 @@ import java.util.function.Supplier;
 import static com.github.fmjsjx.libnetty.http.server.Constants.SSE_EVENT_ENCODER;
 import static com.github.fmjsjx.libnetty.http.server.Constants.TIMEOUT_HANDLER;
 import static com.github.fmjsjx.libnetty.http.server.HttpServerHandler.READ_NEXT;
+import static com.github.fmjsjx.libnetty.http.server.sse.SseConstants.EVENT_PING;
+import static com.github.fmjsjx.libnetty.http.server.sse.SseConstants.LAST_EVENT_ID;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
 import static io.netty.handler.codec.http.HttpHeaderValues.IDENTITY;
@@ -45,20 +48,34 @@ class DefaultSseEventStream implements SseEventStream {
     private final HttpRequestContext ctx;
     private final Channel channel;
     private final Duration autoPingInterval;
+    private final Duration idleTimeout;
     private Consumer<SseEventStream> onActiveAction;
     private BiConsumer<SseEventStream, Throwable> errorHandler;
+    private final SseBroadcaster topic;
 
     private final AtomicInteger state = new AtomicInteger(0);
 
-    private final AtomicReference<ReadTimeoutHandler> timeoutHandlerRef = new AtomicReference<>();
+    // only accessed in the event loop
+    private long readerIdleTimeMillis;
+    private StreamTimeout timeout;
 
-    DefaultSseEventStream(HttpRequestContext ctx, Duration autoPingInterval, Consumer<SseEventStream> onActiveAction,
-                          BiConsumer<SseEventStream, Throwable> errorHandler) {
+    private final ChannelFutureListener closeOnFailure = cf -> {
+        if (!cf.isSuccess()) {
+            closeWithError(cf.cause());
+            cf.channel().close();
+        }
+    };
+
+    DefaultSseEventStream(HttpRequestContext ctx, Duration autoPingInterval, Duration idleTimeout,
+                          Consumer<SseEventStream> onActiveAction, BiConsumer<SseEventStream, Throwable> errorHandler,
+                          SseBroadcaster topic) {
         this.ctx = ctx;
         this.channel = ctx.channel();
         this.autoPingInterval = autoPingInterval;
+        this.idleTimeout = idleTimeout;
         this.onActiveAction = onActiveAction;
         this.errorHandler = errorHandler;
+        this.topic = topic;
     }
 
     @Override
@@ -116,9 +133,13 @@ class DefaultSseEventStream implements SseEventStream {
             var channel = this.channel;
             var eventLoop = channel.eventLoop();
             if (eventLoop.inEventLoop()) {
+                touch();
                 channel.writeAndFlush(eventSupplier.get()).addListener(channelFutureListener);
             } else {
-                eventLoop.execute(() -> channel.writeAndFlush(eventSupplier.get()).addListener(channelFutureListener));
+                eventLoop.execute(() -> {
+                    touch();
+                    channel.writeAndFlush(eventSupplier.get()).addListener(channelFutureListener);
+                });
             }
             return future;
         } else {
@@ -127,6 +148,29 @@ class DefaultSseEventStream implements SseEventStream {
         }
     }
 
+    /**
+     * Returns the channel of this event stream.
+     *
+     * @return the channel
+     */
+    Channel channel() {
+        return channel;
+    }
+
+    /**
+     * Writes the serialized event shared by multiple streams to the channel
+     * without flushing.
+     * <p>
+     * This method must be called in the event loop of the channel, and the
+     * reference count of the specified buffer will not be changed.
+     *
+     * @param serializedEvent the serialized event
+     */
+    void writeShared(ByteBuf serializedEvent) {
+        touch();
+        channel.write(new DefaultHttpContent(serializedEvent.retainedDuplicate())).addListener(closeOnFailure);
+    }
+
     private void closeWithError(Throwable cause) {
         if (state.compareAndSet(1, 2)) {
             if (errorHandler != null) {
@@ -139,11 +183,23 @@ class DefaultSseEventStream implements SseEventStream {
         }
     }
 
+    private void touch() {
+        var timeout = this.timeout;
+        if (timeout != null) {
+            timeout.lastEventTick = timeout.wheel.tick();
+        }
+    }
+
     @Override
     public Duration autoPingInterval() {
         return autoPingInterval;
     }
 
+    @Override
+    public Duration idleTimeout() {
+        return idleTimeout;
+    }
+
     @Override
     public CompletableFuture<Void> close() {
         if (channel.eventLoop().inEventLoop()) {
@@ -169,12 +225,16 @@ class DefaultSseEventStream implements SseEventStream {
 
     private ChannelFuture closeInEventLoop() {
         if (state.compareAndSet(1, 2)) {
+            var timeout = this.timeout;
+            if (timeout != null) {
+                timeout.wheel.cancel(timeout);
+            }
             ChannelFutureListener resetOnSuccess = cf -> {
                 if (cf.isSuccess()) {
                     var channel = cf.channel();
-                    var timeoutHandler = timeoutHandlerRef.get();
-                    if (timeoutHandler != null) {
-                        channel.pipeline().addFirst(TIMEOUT_HANDLER, new ReadTimeoutHandler(timeoutHandler.getReaderIdleTimeInMillis(), TimeUnit.MILLISECONDS));
+                    var readerIdleTimeMillis = this.readerIdleTimeMillis;
+                    if (readerIdleTimeMillis > 0) {
+                        channel.pipeline().addFirst(TIMEOUT_HANDLER, new ReadTimeoutHandler(readerIdleTimeMillis, TimeUnit.MILLISECONDS));
                     }
                     var attr = channel.attr(KEY_SSE_EVENT_STREAM);
                     attr.set(null);
@@ -196,8 +256,12 @@ class DefaultSseEventStream implements SseEventStream {
             ChannelFutureListener completeOnSuccess = cf -> {
                 if (cf.isSuccess()) {
                     future.complete(new DefaultHttpResult(ctx, -1, OK));
-                    if (autoPingInterval != null) {
-                        new AutoPingTask().scheduleNext();
+                    if (topic != null) {
+                        topic.subscribe(this, ctx.headers().get(LAST_EVENT_ID));
+                    }
+                    if (autoPingInterval != null || idleTimeout != null) {
+                        timeout = new StreamTimeout(SseTimerWheel.get(channel.eventLoop()));
+                        timeout.scheduleNext();
                     }
                     if (onActiveAction != null) {
                         onActiveAction.accept(this);
@@ -240,7 +304,7 @@ class DefaultSseEventStream implements SseEventStream {
         var timeoutHandler = pipeline.get(TIMEOUT_HANDLER);
         if (timeoutHandler instanceof ReadTimeoutHandler readTimeoutHandler) {
             pipeline.remove(TIMEOUT_HANDLER);
-            timeoutHandlerRef.set(readTimeoutHandler);
+            readerIdleTimeMillis = readTimeoutHandler.getReaderIdleTimeInMillis();
         }
         if (pipeline.get(SSE_EVENT_ENCODER) == null) {
             pipeline.addLast(SSE_EVENT_ENCODER, SseEventEncoder.getInstance());
@@ -252,19 +316,58 @@ class DefaultSseEventStream implements SseEventStream {
         return channel.writeAndFlush(response);
     }
 
-    private final class AutoPingTask implements Runnable {
+    private final class StreamTimeout extends SseTimerWheel.Timeout {
+
+        private final SseTimerWheel wheel;
+        private final long pingTicks;
+        private final long idleTicks;
+        private long nextPingTick;
+        private long lastEventTick;
+
+        private StreamTimeout(SseTimerWheel wheel) {
+            this.wheel = wheel;
+            var tick = wheel.tick();
+            this.pingTicks = autoPingInterval == null ? 0 : SseTimerWheel.toTicks(autoPingInterval);
+            this.idleTicks = idleTimeout == null ? 0 : SseTimerWheel.toTicks(idleTimeout);
+            this.nextPingTick = tick + pingTicks;
+            this.lastEventTick = tick;
+        }
 
         @Override
-        public void run() {
-            if (isActive()) {
-                sendPing();
-                scheduleNext();
+        void expire(SseTimerWheel wheel) {
+            if (!isActive()) {
+                return;
+            }
+            var tick = wheel.tick();
+            if (idleTicks > 0 && tick - lastEventTick >= idleTicks) {
+                logger.debug("Close idle event stream {}", channel);
+                close();
+                return;
+            }
+            if (pingTicks > 0 && tick >= nextPingTick) {
+                // write the cached ping event directly, without encoding
+                channel.writeAndFlush(new DefaultHttpContent(EVENT_PING.duplicate())).addListener(closeOnFailure);
+                nextPingTick = tick + pingTicks;
             }
+            scheduleNext();
         }
 
         private void scheduleNext() {
-            channel.eventLoop().schedule(this, autoPingInterval.toNanos(), TimeUnit.NANOSECONDS);
+            var next = Long.MAX_VALUE;
+            if (pingTicks > 0) {
+                next = nextPingTick;
+            }
+            if (idleTicks > 0) {
+                next = Math.min(next, lastEventTick + idleTicks);
+            }
+            wheel.schedule(this, next - wheel.tick());
+        }
+
+        @Override
+        public String toString() {
+            return "StreamTimeout(channel=" + channel + ")";
         }
+
     }
 
 }
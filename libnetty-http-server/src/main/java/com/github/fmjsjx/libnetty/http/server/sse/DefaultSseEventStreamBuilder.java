@@ -3,6 +3,7 @@ package com.github.fmjsjx.libnetty.http.server.sse;
 import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
 
 import java.time.Duration;
+import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -19,8 +20,10 @@ class DefaultSseEventStreamBuilder implements SseEventStreamBuilder {
     private final HttpRequestContext ctx;
 
     private Duration autoPingInterval;
+    private Duration idleTimeout;
     private Consumer<SseEventStream> onActiveAction;
     private BiConsumer<SseEventStream, Throwable> errorHandler;
+    private SseBroadcaster topic;
 
     DefaultSseEventStreamBuilder(HttpRequestContext ctx) {
         this.ctx = ctx;
@@ -28,7 +31,7 @@ class DefaultSseEventStreamBuilder implements SseEventStreamBuilder {
 
     @Override
     public SseEventStream build() {
-        return new DefaultSseEventStream(ctx, autoPingInterval, onActiveAction, errorHandler);
+        return new DefaultSseEventStream(ctx, autoPingInterval, idleTimeout, onActiveAction, errorHandler, topic);
     }
 
     @Override
@@ -42,6 +45,12 @@ class DefaultSseEventStreamBuilder implements SseEventStreamBuilder {
         return this;
     }
 
+    @Override
+    public SseEventStreamBuilder idleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
     @Override
     public SseEventStreamBuilder onActive(Consumer<SseEventStream> action) {
         this.onActiveAction = action;
@@ -54,4 +63,10 @@ class DefaultSseEventStreamBuilder implements SseEventStreamBuilder {
         return this;
     }
 
+    @Override
+    public SseEventStreamBuilder subscribe(SseBroadcaster topic) {
+        this.topic = Objects.requireNonNull(topic, "topic must not be null");
+        return this;
+    }
+
 }
@@ -0,0 +1,527 @@
+package com.github.fmjsjx.libnetty.http.server.sse;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A topic broadcasts SSE events to all subscribed {@link SseEventStream}s.
+ * <p>
+ * Each published event will be serialized only once into a shared buffer,
+ * and then be written to all subscribers as retained duplicates. The
+ * subscribers are grouped by their event loops, events published
+ * concurrently will be batched by each event loop and each subscriber will
+ * be flushed only once per batch.
+ * <p>
+ * The subscribers whose channels are not writable are slow consumers, they
+ * will be handled by the {@link SlowConsumerPolicy}.
+ * <p>
+ * If the replay log is enabled, the serialized events will be retained in a
+ * bounded ring buffer, and the streams subscribed by
+ * {@link SseEventStreamBuilder#subscribe(SseBroadcaster)} will get the events
+ * after the {@code Last-Event-ID} of the request replayed before any live
+ * event.
+ * <p>
+ * Only the event streams built by the {@link SseEventStreamBuilder} can be
+ * subscribed. The closed streams will be removed automatically.
+ *
+ * @author MJ Fang
+ * @since 4.3
+ */
+public class SseBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseBroadcaster.class);
+
+    /**
+     * Policies to handle the subscribers whose channels are not writable.
+     *
+     * @author MJ Fang
+     * @since 4.3
+     */
+    public enum SlowConsumerPolicy {
+        /**
+         * Drop all events for the slow consumer until its channel gets
+         * writable again.
+         */
+        DROP,
+        /**
+         * Only deliver one of every {@code sampleInterval} events to the
+         * slow consumer, others will be dropped.
+         */
+        SAMPLE,
+        /**
+         * Close the event stream of the slow consumer.
+         */
+        CLOSE
+    }
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates and returns a new {@link SseBroadcaster} with the default
+     * settings.
+     *
+     * @return a new {@code SseBroadcaster}
+     */
+    public static SseBroadcaster create() {
+        return builder().build();
+    }
+
+    private final ByteBufAllocator allocator;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final int sampleInterval;
+    private final SseReplayLog replayLog;
+
+    private final ConcurrentHashMap<EventLoop, Group> groups = new ConcurrentHashMap<>();
+    private final LongAdder droppedCount = new LongAdder();
+
+    private SseBroadcaster(Builder builder) {
+        this.allocator = builder.allocator;
+        this.slowConsumerPolicy = builder.slowConsumerPolicy;
+        this.sampleInterval = builder.sampleInterval;
+        this.replayLog = builder.maxReplayEvents > 0 ? new SseReplayLog(builder.maxReplayEvents,
+                builder.maxReplayBytes) : null;
+    }
+
+    /**
+     * Subscribe the specified event stream to this topic.
+     * <p>
+     * The stream will receive events after it gets active. The subscription
+     * takes effect asynchronously when this method is not called in the event
+     * loop of the stream, such as in the {@link SseEventStream#onActive}
+     * action.
+     *
+     * @param stream the event stream
+     * @throws IllegalArgumentException if the stream is not built by the
+     *                                  {@link SseEventStreamBuilder}
+     */
+    public void subscribe(SseEventStream stream) {
+        subscribe(toDefault(stream), null);
+    }
+
+    void subscribe(DefaultSseEventStream stream, String lastEventId) {
+        var group = groups.computeIfAbsent(stream.channel().eventLoop(), Group::new);
+        group.execute(() -> group.add(stream, lastEventId));
+    }
+
+    private static DefaultSseEventStream toDefault(SseEventStream stream) {
+        if (stream instanceof DefaultSseEventStream s) {
+            return s;
+        }
+        throw new IllegalArgumentException("unsupported event stream " + stream);
+    }
+
+    /**
+     * Unsubscribe the specified event stream from this topic.
+     *
+     * @param stream the event stream
+     */
+    public void unsubscribe(SseEventStream stream) {
+        var s = toDefault(stream);
+        var group = groups.get(s.channel().eventLoop());
+        if (group != null) {
+            group.execute(() -> group.remove(s));
+        }
+    }
+
+    /**
+     * Returns the number of the subscribers.
+     *
+     * @return the number of the subscribers
+     */
+    public int subscriberCount() {
+        var count = 0;
+        for (var group : groups.values()) {
+            count += group.size.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total number of the events dropped for slow consumers.
+     *
+     * @return the number of the dropped events
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Returns the number of the events retained in the replay log.
+     *
+     * @return the number of the events retained in the replay log, or
+     *         {@code 0} if the replay log is not enabled
+     */
+    public int replayLogSize() {
+        var replayLog = this.replayLog;
+        return replayLog == null ? 0 : replayLog.size();
+    }
+
+    /**
+     * Releases all events retained in the replay log.
+     */
+    public void clearReplayLog() {
+        var replayLog = this.replayLog;
+        if (replayLog != null) {
+            replayLog.clear();
+        }
+    }
+
+    /**
+     * Publish the event built by the specified {@link SseEventBuilder} to
+     * all subscribers.
+     *
+     * @param eventBuilder the {@link SseEventBuilder} builds the event
+     */
+    public void publish(SseEventBuilder eventBuilder) {
+        publish(eventBuilder.build());
+    }
+
+    /**
+     * Publish the specified event to all subscribers.
+     * <p>
+     * The event will be serialized only once, and will not be serialized if
+     * there is no subscriber and the replay log is not enabled.
+     *
+     * @param event the SSE event
+     */
+    public void publish(SseEventSerializable event) {
+        Objects.requireNonNull(event, "event must not be null");
+        var replayLog = this.replayLog;
+        if (replayLog == null) {
+            if (subscriberCount() == 0) {
+                return;
+            }
+            var serializedEvent = event.serialize(allocator);
+            try {
+                offerAll(0, serializedEvent);
+            } finally {
+                serializedEvent.release();
+            }
+        } else {
+            var serializedEvent = event.serialize(allocator);
+            try {
+                // append and offer atomically, see Group.add
+                synchronized (replayLog) {
+                    offerAll(replayLog.append(event.id(), serializedEvent), serializedEvent);
+                }
+            } finally {
+                serializedEvent.release();
+            }
+        }
+    }
+
+    private void offerAll(long sequence, ByteBuf serializedEvent) {
+        for (var group : groups.values()) {
+            if (group.size.get() > 0) {
+                group.offer(new PendingEvent(sequence, serializedEvent.retainedDuplicate()));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SseBroadcaster(subscriberCount=" + subscriberCount() + ", slowConsumerPolicy=" + slowConsumerPolicy
+                + ", droppedCount=" + droppedCount() + ")";
+    }
+
+    private record PendingEvent(long sequence, ByteBuf serializedEvent) {
+    }
+
+    private final class Group implements Runnable {
+
+        private final EventLoop eventLoop;
+        private final AtomicInteger size = new AtomicInteger();
+        private final Queue<PendingEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // only accessed in the event loop
+        private final Map<DefaultSseEventStream, Subscriber> subscribers = new LinkedHashMap<>();
+        private final List<PendingEvent> batch = new ArrayList<>();
+        private boolean broadcasting;
+
+        private Group(EventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        private void execute(Runnable task) {
+            if (eventLoop.inEventLoop()) {
+                task.run();
+            } else {
+                eventLoop.execute(task);
+            }
+        }
+
+        private void add(DefaultSseEventStream stream, String lastEventId) {
+            if (stream.isClosed() || subscribers.containsKey(stream)) {
+                return;
+            }
+            var subscriber = new Subscriber(this, stream);
+            var replayLog = SseBroadcaster.this.replayLog;
+            if (replayLog == null) {
+                attach(subscriber);
+                return;
+            }
+            var replayed = new ArrayList<ByteBuf>();
+            synchronized (replayLog) {
+                // the events published after this point will have greater sequences
+                subscriber.lastSequence = replayLog.replay(lastEventId, replayed);
+                attach(subscriber);
+            }
+            if (!replayed.isEmpty()) {
+                try {
+                    for (var serializedEvent : replayed) {
+                        stream.writeShared(serializedEvent);
+                    }
+                    stream.channel().flush();
+                } finally {
+                    for (var serializedEvent : replayed) {
+                        serializedEvent.release();
+                    }
+                }
+            }
+        }
+
+        private void attach(Subscriber subscriber) {
+            var stream = subscriber.stream;
+            subscribers.put(stream, subscriber);
+            size.incrementAndGet();
+            stream.channel().closeFuture().addListener(subscriber);
+        }
+
+        private void remove(DefaultSseEventStream stream) {
+            if (broadcasting) {
+                // the channel may be closed synchronously during broadcasting
+                eventLoop.execute(() -> remove(stream));
+                return;
+            }
+            var subscriber = subscribers.remove(stream);
+            if (subscriber != null) {
+                subscriber.detach();
+            }
+        }
+
+        private void offer(PendingEvent event) {
+            pendingEvents.offer(event);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    eventLoop.execute(this);
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Event loop {} rejected SSE broadcast", eventLoop, e);
+                    for (PendingEvent pending; (pending = pendingEvents.poll()) != null; ) {
+                        pending.serializedEvent.release();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            var batch = this.batch;
+            for (PendingEvent event; (event = pendingEvents.poll()) != null; ) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            broadcasting = true;
+            try {
+                broadcast(batch);
+            } finally {
+                broadcasting = false;
+                for (var event : batch) {
+                    event.serializedEvent.release();
+                }
+                batch.clear();
+            }
+        }
+
+        private void broadcast(List<PendingEvent> batch) {
+            var policy = slowConsumerPolicy;
+            for (var it = subscribers.values().iterator(); it.hasNext(); ) {
+                var subscriber = it.next();
+                var stream = subscriber.stream;
+                if (stream.isClosed()) {
+                    it.remove();
+                    subscriber.detach();
+                    continue;
+                }
+                if (!stream.isActive()) {
+                    continue;
+                }
+                var channel = stream.channel();
+                var written = false;
+                for (var i = 0; i < batch.size(); i++) {
+                    var event = batch.get(i);
+                    if (event.sequence > 0 && event.sequence <= subscriber.lastSequence) {
+                        // already replayed
+                        continue;
+                    }
+                    if (channel.isWritable()) {
+                        stream.writeShared(event.serializedEvent);
+                        written = true;
+                    } else if (policy == SlowConsumerPolicy.CLOSE) {
+                        it.remove();
+                        subscriber.detach();
+                        stream.close();
+                        break;
+                    } else if (policy == SlowConsumerPolicy.SAMPLE && ++subscriber.slowCount % sampleInterval == 0) {
+                        stream.writeShared(event.serializedEvent);
+                        written = true;
+                    } else {
+                        droppedCount.increment();
+                    }
+                }
+                if (written) {
+                    channel.flush();
+                }
+            }
+        }
+
+    }
+
+    private static final class Subscriber implements ChannelFutureListener {
+
+        private final Group group;
+        private final DefaultSseEventStream stream;
+        private int slowCount;
+        private long lastSequence;
+
+        private Subscriber(Group group, DefaultSseEventStream stream) {
+            this.group = group;
+            this.stream = stream;
+        }
+
+        private void detach() {
+            group.size.decrementAndGet();
+            stream.channel().closeFuture().removeListener(this);
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            group.remove(stream);
+        }
+
+    }
+
+    /**
+     * Builder of {@link SseBroadcaster}.
+     *
+     * @author MJ Fang
+     * @since 4.3
+     */
+    public static final class Builder {
+
+        private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP;
+        private int sampleInterval = 10;
+        private int maxReplayEvents;
+        private int maxReplayBytes;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the allocator to allocate the shared buffers of the serialized
+         * events.
+         * <p>
+         * The default is {@link ByteBufAllocator#DEFAULT}.
+         *
+         * @param allocator the allocator
+         * @return this builder
+         */
+        public Builder allocator(ByteBufAllocator allocator) {
+            this.allocator = Objects.requireNonNull(allocator, "allocator must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the policy to handle the slow consumers.
+         * <p>
+         * The default is {@link SlowConsumerPolicy#DROP}.
+         *
+         * @param slowConsumerPolicy the policy
+         * @return this builder
+         */
+        public Builder slowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+            this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy, "slowConsumerPolicy must not be null");
+            return this;
+        }
+
+        /**
+         * Use the {@link SlowConsumerPolicy#SAMPLE} policy with the specified
+         * interval, only one of every {@code sampleInterval} events will be
+         * delivered to the slow consumers.
+         *
+         * @param sampleInterval the sample interval
+         * @return this builder
+         */
+        public Builder sample(int sampleInterval) {
+            if (sampleInterval <= 0) {
+                throw new IllegalArgumentException("sampleInterval must be positive");
+            }
+            this.slowConsumerPolicy = SlowConsumerPolicy.SAMPLE;
+            this.sampleInterval = sampleInterval;
+            return this;
+        }
+
+        /**
+         * Enables the replay log with the specified bounds.
+         * <p>
+         * The serialized events will be retained in the replay log until the
+         * number of the events exceeds {@code maxEvents} or the total bytes
+         * exceeds {@code maxBytes}. Note that the events are retained in
+         * direct memory when the allocator is the default one.
+         *
+         * @param maxEvents the maximum number of the retained events
+         * @param maxBytes  the maximum total bytes of the retained events
+         * @return this builder
+         */
+        public Builder replayLog(int maxEvents, int maxBytes) {
+            if (maxEvents <= 0) {
+                throw new IllegalArgumentException("maxEvents must be positive");
+            }
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive");
+            }
+            this.maxReplayEvents = maxEvents;
+            this.maxReplayBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link SseBroadcaster}.
+         *
+         * @return a new {@code SseBroadcaster}
+         */
+        public SseBroadcaster build() {
+            return new SseBroadcaster(this);
+        }
+
+    }
+
+}
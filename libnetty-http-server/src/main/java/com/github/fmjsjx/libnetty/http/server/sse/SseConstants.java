@@ -3,6 +3,7 @@ package com.github.fmjsjx.libnetty.http.server.sse;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.AsciiString;
 
 import java.time.Duration;
 
@@ -20,6 +21,8 @@ class SseConstants {
 
     static final ByteBuf EVENT_PING = Unpooled.unreleasableBuffer(UnpooledByteBufAllocator.DEFAULT.buffer(13, 13).writeBytes("event: ping\n\n".getBytes()).asReadOnly());
 
+    static final AsciiString LAST_EVENT_ID = AsciiString.cached("last-event-id");
+
     static final Duration DEFAULT_AUTO_PING_INTERVAL = Duration.ofSeconds(15);
 
     private SseConstants() {
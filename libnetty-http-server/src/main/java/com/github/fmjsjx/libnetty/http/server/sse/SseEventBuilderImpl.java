@@ -213,6 +213,11 @@ class SseEventBuilderImpl implements SseEventBuilder {
             writeLF(out);
         }
 
+        @Override
+        public Object id() {
+            return id;
+        }
+
         @Override
         public String toString() {
             return "{event: " + event + ", id: " + id + ", data: " + data + "}";
@@ -36,6 +36,18 @@ public interface SseEventSerializable extends Supplier<SseEventSerializable> {
         return byteBuf;
     }
 
+    /**
+     * Returns the id of this event.
+     * <p>
+     * The default implementation always returns {@code null}.
+     *
+     * @return the id of this event, may be {@code null}
+     * @since 4.3
+     */
+    default Object id() {
+        return null;
+    }
+
     @Override
     default SseEventSerializable get() {
         return this;
@@ -117,6 +117,21 @@ public interface SseEventStream {
         return null;
     }
 
+    /**
+     * Returns the idle timeout duration, the event stream will be closed
+     * automatically if no event except the ping events has been sent during
+     * this duration.
+     * <p>
+     * May be {@code null} if the event stream will never be closed
+     * automatically.
+     *
+     * @return the idle timeout duration
+     * @since 4.3
+     */
+    default Duration idleTimeout() {
+        return null;
+    }
+
     /**
      * Send the last HTTP content {@code CRLF} to the client and close
      * this stream.
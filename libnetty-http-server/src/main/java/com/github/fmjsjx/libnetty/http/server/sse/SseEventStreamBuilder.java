@@ -73,6 +73,30 @@ public interface SseEventStreamBuilder {
         return autoPing(null);
     }
 
+    /**
+     * Close the event stream automatically if no event except the ping
+     * events has been sent during the specified duration, or never close
+     * the event stream automatically when the specified duration is
+     * {@code null}.
+     * <p>
+     * The auto-ping and the idle timeout of all event streams in the same
+     * event loop are driven by a shared timer wheel, with the precision of
+     * {@code 100} milliseconds.
+     * <p>
+     * The default implementation does nothing when the specified duration
+     * is {@code null}, or throws an {@link UnsupportedOperationException}.
+     *
+     * @param idleTimeout the idle timeout duration
+     * @return this builder
+     * @since 4.3
+     */
+    default SseEventStreamBuilder idleTimeout(Duration idleTimeout) {
+        if (idleTimeout == null) {
+            return this;
+        }
+        throw new UnsupportedOperationException("idleTimeout");
+    }
+
     /**
      * Add the action that will be executed when the event stream is just
      * active.
@@ -96,4 +120,23 @@ public interface SseEventStreamBuilder {
      */
     SseEventStreamBuilder onError(BiConsumer<SseEventStream, Throwable> errorHandler);
 
+    /**
+     * Subscribe the event stream to the specified topic once it gets active.
+     * <p>
+     * If the replay log of the topic is enabled, and the request has the
+     * header {@code Last-Event-ID}, the events after that id will be replayed
+     * to the stream before any live event.
+     * <p>
+     * The default implementation always throws an
+     * {@link UnsupportedOperationException}.
+     *
+     * @param topic the topic
+     * @return this builder
+     * @see SseBroadcaster.Builder#replayLog(int, int)
+     * @since 4.3
+     */
+    default SseEventStreamBuilder subscribe(SseBroadcaster topic) {
+        throw new UnsupportedOperationException("subscribe");
+    }
+
 }
@@ -0,0 +1,159 @@
+package com.github.fmjsjx.libnetty.http.server.sse;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded replay log of the serialized SSE events of a topic.
+ * <p>
+ * The serialized events are retained in a ring buffer, which is bounded by
+ * both the number of the events and the total bytes, and are indexed by
+ * their ids. Each event has a sequence number, which is increased
+ * continuously, so the events after any id can be found in {@code O(1)}.
+ * <p>
+ * All methods are synchronized on this log, so the callers can synchronize
+ * on it to make compound actions atomic.
+ *
+ * @author MJ Fang
+ * @since 4.3
+ */
+final class SseReplayLog {
+
+    private record Entry(long sequence, String id, ByteBuf serializedEvent) {
+    }
+
+    private final Entry[] ring;
+    private final int maxBytes;
+    private final Map<String, Long> sequences = new HashMap<>();
+
+    private long firstSequence = 1;
+    private long lastSequence;
+    private long bytes;
+
+    SseReplayLog(int maxEvents, int maxBytes) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("maxEvents must be positive");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.ring = new Entry[maxEvents];
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the sequence number of the last event.
+     *
+     * @return the sequence number of the last event
+     */
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the number of the retained events.
+     *
+     * @return the number of the retained events
+     */
+    synchronized int size() {
+        return (int) (lastSequence - firstSequence + 1);
+    }
+
+    /**
+     * Returns the total bytes of the retained events.
+     *
+     * @return the total bytes of the retained events
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Appends the serialized event and returns its sequence number.
+     * <p>
+     * The serialized event will be retained by this log, and the oldest
+     * events will be evicted when the bounds are exceeded.
+     *
+     * @param id              the id of the event, may be {@code null}
+     * @param serializedEvent the serialized event
+     * @return the sequence number of the event
+     */
+    synchronized long append(Object id, ByteBuf serializedEvent) {
+        var sequence = ++lastSequence;
+        var length = serializedEvent.readableBytes();
+        if (length > maxBytes) {
+            // too large to be retained, discard all previous events to keep continuity
+            evictTo(sequence + 1);
+            return sequence;
+        }
+        var ring = this.ring;
+        while (sequence - firstSequence >= ring.length || bytes + length > maxBytes) {
+            evictFirst();
+        }
+        var key = id == null ? null : id.toString();
+        ring[index(sequence)] = new Entry(sequence, key, serializedEvent.retainedDuplicate());
+        bytes += length;
+        if (key != null) {
+            sequences.put(key, sequence);
+        }
+        return sequence;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    private void evictFirst() {
+        var index = index(firstSequence++);
+        var entry = ring[index];
+        ring[index] = null;
+        if (entry != null) {
+            bytes -= entry.serializedEvent.readableBytes();
+            entry.serializedEvent.release();
+            if (entry.id != null) {
+                sequences.remove(entry.id, entry.sequence);
+            }
+        }
+    }
+
+    /**
+     * Adds the retained duplicates of the serialized events after the
+     * specified id into the given list, and returns the sequence number of
+     * the last event.
+     * <p>
+     * Nothing will be added if the id is {@code null} or is not retained in
+     * this log anymore.
+     *
+     * @param lastEventId the last event id
+     * @param out         the list of the serialized events to be replayed
+     * @return the sequence number of the last event
+     */
+    synchronized long replay(String lastEventId, List<ByteBuf> out) {
+        if (lastEventId != null) {
+            var sequence = sequences.get(lastEventId);
+            if (sequence != null) {
+                for (var s = sequence + 1; s <= lastSequence; s++) {
+                    out.add(ring[index(s)].serializedEvent.retainedDuplicate());
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Releases all retained events.
+     */
+    synchronized void clear() {
+        evictTo(lastSequence + 1);
+    }
+
+    private void evictTo(long sequence) {
+        while (firstSequence < sequence) {
+            evictFirst();
+        }
+    }
+
+}
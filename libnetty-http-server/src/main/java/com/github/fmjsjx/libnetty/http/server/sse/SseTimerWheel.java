@@ -0,0 +1,211 @@
+package com.github.fmjsjx.libnetty.http.server.sse;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timer wheel shared by all SSE event streams of the same event
+ * loop.
+ * <p>
+ * Only one task will be scheduled on the event loop for each tick while
+ * there are pending timeouts, no matter how many streams there are. All
+ * methods must be called in the event loop.
+ *
+ * @author MJ Fang
+ * @since 4.3
+ */
+final class SseTimerWheel implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseTimerWheel.class);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final FastThreadLocal<SseTimerWheel> WHEELS = new FastThreadLocal<>();
+
+    /**
+     * Returns the timer wheel of the specified event loop.
+     * <p>
+     * This method must be called in the event loop.
+     *
+     * @param eventLoop the event loop
+     * @return the timer wheel
+     */
+    static SseTimerWheel get(EventLoop eventLoop) {
+        assert eventLoop.inEventLoop();
+        var wheel = WHEELS.get();
+        if (wheel == null || wheel.eventLoop != eventLoop) {
+            wheel = new SseTimerWheel(eventLoop);
+            WHEELS.set(wheel);
+        }
+        return wheel;
+    }
+
+    /**
+     * Converts the specified duration to the number of ticks, at least
+     * {@code 1}.
+     *
+     * @param duration the duration
+     * @return the number of ticks
+     */
+    static long toTicks(Duration duration) {
+        return Math.max(1, (duration.toNanos() + TICK_NANOS - 1) / TICK_NANOS);
+    }
+
+    /**
+     * A timeout that can be scheduled on the {@link SseTimerWheel}.
+     */
+    abstract static class Timeout {
+
+        private long deadline;
+        private int slot = -1;
+        private Timeout prev;
+        private Timeout next;
+
+        /**
+         * Returns {@code true} if this timeout is scheduled.
+         *
+         * @return {@code true} if this timeout is scheduled
+         */
+        final boolean isScheduled() {
+            return slot >= 0;
+        }
+
+        /**
+         * Invoked when this timeout expired.
+         *
+         * @param wheel the timer wheel
+         */
+        abstract void expire(SseTimerWheel wheel);
+
+    }
+
+    private final EventLoop eventLoop;
+    private final Timeout[] slots = new Timeout[WHEEL_SIZE];
+    private final ArrayList<Timeout> expired = new ArrayList<>();
+
+    private long tick;
+    private int size;
+    private boolean running;
+    private ScheduledFuture<?> tickFuture;
+
+    private SseTimerWheel(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Returns the current tick.
+     *
+     * @return the current tick
+     */
+    long tick() {
+        return tick;
+    }
+
+    /**
+     * Schedules the specified timeout after the specified number of ticks.
+     * <p>
+     * The timeout will be rescheduled if it is already scheduled.
+     *
+     * @param timeout the timeout
+     * @param ticks   the number of ticks
+     */
+    void schedule(Timeout timeout, long ticks) {
+        cancel(timeout);
+        var deadline = tick + Math.max(1, ticks);
+        var slot = (int) (deadline & MASK);
+        timeout.deadline = deadline;
+        timeout.slot = slot;
+        var head = slots[slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[slot] = timeout;
+        size++;
+        if (tickFuture == null) {
+            tickFuture = eventLoop.scheduleAtFixedRate(this, TICK_NANOS, TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Cancels the specified timeout.
+     *
+     * @param timeout the timeout
+     */
+    void cancel(Timeout timeout) {
+        var slot = timeout.slot;
+        if (slot < 0) {
+            return;
+        }
+        var prev = timeout.prev;
+        var next = timeout.next;
+        if (prev == null) {
+            slots[slot] = next;
+        } else {
+            prev.next = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        timeout.slot = -1;
+        timeout.prev = null;
+        timeout.next = null;
+        if (--size == 0 && !running) {
+            stop();
+        }
+    }
+
+    private void stop() {
+        var tickFuture = this.tickFuture;
+        if (tickFuture != null) {
+            this.tickFuture = null;
+            tickFuture.cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        var tick = ++this.tick;
+        var expired = this.expired;
+        for (var timeout = slots[(int) (tick & MASK)]; timeout != null; ) {
+            var next = timeout.next;
+            if (timeout.deadline <= tick) {
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        running = true;
+        // unlink all before expiring, so that they can be rescheduled safely
+        for (var timeout : expired) {
+            cancel(timeout);
+        }
+        try {
+            for (var timeout : expired) {
+                try {
+                    timeout.expire(this);
+                } catch (Exception e) {
+                    logger.error("Unexpected error occurs when expire SSE timeout {}", timeout, e);
+                }
+            }
+        } finally {
+            expired.clear();
+            running = false;
+            if (size == 0) {
+                stop();
+            }
+        }
+    }
+
+}
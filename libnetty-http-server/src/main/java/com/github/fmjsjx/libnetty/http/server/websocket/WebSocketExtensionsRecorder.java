@@ -0,0 +1,67 @@
+package com.github.fmjsjx.libnetty.http.server.websocket;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.AttributeKey;
+
+/**
+ * Records the websocket extensions negotiated in the handshake response
+ * into the channel, and then removes itself from the pipeline.
+ * <p>
+ * This handler is {@code sharable}.
+ *
+ * @author MJ Fang
+ * @see WebSocketGroup
+ * @since 4.3
+ */
+@Sharable
+public final class WebSocketExtensionsRecorder extends ChannelOutboundHandlerAdapter {
+
+    private static final AttributeKey<String> KEY_EXTENSIONS = AttributeKey.valueOf("WebSocketExtensions");
+
+    private static final class InstanceHolder {
+        private static final WebSocketExtensionsRecorder INSTANCE = new WebSocketExtensionsRecorder();
+    }
+
+    /**
+     * Returns the singleton instance of {@link WebSocketExtensionsRecorder}.
+     *
+     * @return the singleton instance of {@link WebSocketExtensionsRecorder}
+     */
+    public static WebSocketExtensionsRecorder getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the websocket extensions negotiated by the specified channel.
+     *
+     * @param channel the channel
+     * @return the value of the header {@code Sec-WebSocket-Extensions} of
+     *         the handshake response, may be {@code null}
+     */
+    public static String negotiatedExtensions(Channel channel) {
+        return channel.attr(KEY_EXTENSIONS).get();
+    }
+
+    private WebSocketExtensionsRecorder() {
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse response) {
+            // only the handshake response should be recorded
+            var extensions = response.headers().get(HttpHeaderNames.SEC_WEBSOCKET_EXTENSIONS);
+            if (extensions != null) {
+                ctx.channel().attr(KEY_EXTENSIONS).set(extensions);
+            }
+            ctx.pipeline().remove(this);
+        }
+        ctx.write(msg, promise);
+    }
+
+}
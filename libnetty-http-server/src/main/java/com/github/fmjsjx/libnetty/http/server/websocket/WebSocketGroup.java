@@ -0,0 +1,532 @@
+package com.github.fmjsjx.libnetty.http.server.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * A group (room) of websocket channels that broadcasts frames to all members.
+ * <p>
+ * Each broadcast frame will be encoded only once into a shared buffer, and
+ * then be written to all members as retained duplicates, bypassing the
+ * websocket frame encoders of the channels. The members are grouped by
+ * their event loops, frames broadcast concurrently will be batched by each
+ * event loop and each member will be flushed only once per batch. The frames
+ * will be dropped for the members whose channels are not writable.
+ * <p>
+ * The {@code permessage-deflate} extension keeps the compression context
+ * between messages by default, so the frames are sent uncompressed to the
+ * members negotiated the extension, which is always allowed. Only for the
+ * members negotiated {@code server_no_context_takeover}, the frames will be
+ * compressed once and shared.
+ * <p>
+ * The channels must be added after the handshake is completed, such as in
+ * the {@code handlerAdded} method of the websocket frame handler. The closed
+ * channels will be removed automatically.
+ *
+ * @author MJ Fang
+ * @see com.github.fmjsjx.libnetty.http.server.component.WebSocketSupport
+ * @since 4.3
+ */
+public class WebSocketGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketGroup.class);
+
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+
+    private static final FastThreadLocal<Deflater> DEFLATERS = new FastThreadLocal<>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater value) {
+            value.end();
+        }
+    };
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates and returns a new {@link WebSocketGroup} with the default
+     * settings.
+     *
+     * @return a new {@code WebSocketGroup}
+     */
+    public static WebSocketGroup create() {
+        return builder().build();
+    }
+
+    private final ByteBufAllocator allocator;
+    private final int compressionLevel;
+    private final int compressionThreshold;
+
+    private final ConcurrentHashMap<EventLoop, Shard> shards = new ConcurrentHashMap<>();
+    private final AtomicInteger compressedMemberCount = new AtomicInteger();
+    private final LongAdder droppedCount = new LongAdder();
+
+    private WebSocketGroup(Builder builder) {
+        this.allocator = builder.allocator;
+        this.compressionLevel = builder.compressionLevel;
+        this.compressionThreshold = builder.compressionThreshold;
+    }
+
+    /**
+     * Adds the specified websocket channel to this group.
+     * <p>
+     * The channel will be added asynchronously when this method is not
+     * called in the event loop of the channel.
+     *
+     * @param channel the websocket channel
+     */
+    public void add(Channel channel) {
+        Objects.requireNonNull(channel, "channel must not be null");
+        var shard = shards.computeIfAbsent(channel.eventLoop(), Shard::new);
+        shard.execute(() -> shard.add(channel));
+    }
+
+    /**
+     * Removes the specified websocket channel from this group.
+     *
+     * @param channel the websocket channel
+     */
+    public void remove(Channel channel) {
+        var shard = shards.get(channel.eventLoop());
+        if (shard != null) {
+            shard.execute(() -> shard.remove(channel));
+        }
+    }
+
+    /**
+     * Returns the number of the members.
+     *
+     * @return the number of the members
+     */
+    public int size() {
+        var size = 0;
+        for (var shard : shards.values()) {
+            size += shard.size.get();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total number of the frames dropped for the members whose
+     * channels are not writable.
+     *
+     * @return the number of the dropped frames
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Broadcast a text frame with the specified text to all members.
+     *
+     * @param text the text
+     */
+    public void broadcastText(CharSequence text) {
+        Objects.requireNonNull(text, "text must not be null");
+        if (size() == 0) {
+            return;
+        }
+        var length = ByteBufUtil.utf8Bytes(text);
+        var headerLength = headerLength(length);
+        var frame = allocator.buffer(headerLength + length);
+        writeHeader(frame, OPCODE_TEXT, false, length);
+        ByteBufUtil.reserveAndWriteUtf8(frame, text, length);
+        broadcast(OPCODE_TEXT, frame, headerLength);
+    }
+
+    /**
+     * Broadcast a binary frame with the specified data to all members.
+     * <p>
+     * The data will be released after broadcast.
+     *
+     * @param data the binary data
+     */
+    public void broadcastBinary(ByteBuf data) {
+        Objects.requireNonNull(data, "data must not be null");
+        try {
+            if (size() == 0) {
+                return;
+            }
+            var length = data.readableBytes();
+            var headerLength = headerLength(length);
+            var frame = allocator.buffer(headerLength + length);
+            writeHeader(frame, OPCODE_BINARY, false, length);
+            frame.writeBytes(data, data.readerIndex(), length);
+            broadcast(OPCODE_BINARY, frame, headerLength);
+        } finally {
+            data.release();
+        }
+    }
+
+    private void broadcast(int opcode, ByteBuf frame, int headerLength) {
+        ByteBuf compressedFrame = null;
+        try {
+            var payloadLength = frame.readableBytes() - headerLength;
+            if (compressedMemberCount.get() > 0 && payloadLength >= compressionThreshold) {
+                var payload = frame.slice(frame.readerIndex() + headerLength, payloadLength);
+                compressedFrame = compressFrame(allocator, opcode, payload, compressionLevel);
+            }
+            for (var shard : shards.values()) {
+                if (shard.size.get() > 0) {
+                    shard.offer(new SharedFrame(frame.retainedDuplicate(),
+                            compressedFrame == null ? null : compressedFrame.retainedDuplicate()));
+                }
+            }
+        } finally {
+            frame.release();
+            if (compressedFrame != null) {
+                compressedFrame.release();
+            }
+        }
+    }
+
+    private static int headerLength(int payloadLength) {
+        return payloadLength < 126 ? 2 : payloadLength <= 0xFFFF ? 4 : 10;
+    }
+
+    private static void writeHeader(ByteBuf out, int opcode, boolean compressed, int payloadLength) {
+        // FIN + RSV1 (compressed) + opcode, server frames are never masked
+        out.writeByte(0x80 | (compressed ? 0x40 : 0) | opcode);
+        if (payloadLength < 126) {
+            out.writeByte(payloadLength);
+        } else if (payloadLength <= 0xFFFF) {
+            out.writeByte(126);
+            out.writeShort(payloadLength);
+        } else {
+            out.writeByte(127);
+            out.writeLong(payloadLength);
+        }
+    }
+
+    /**
+     * Compresses the payload as a {@code permessage-deflate} message without
+     * context takeover and returns the encoded frame.
+     *
+     * @param allocator        the allocator
+     * @param opcode           the opcode of the frame
+     * @param payload          the uncompressed payload
+     * @param compressionLevel the compression level
+     * @return the encoded frame
+     */
+    static ByteBuf compressFrame(ByteBufAllocator allocator, int opcode, ByteBuf payload, int compressionLevel) {
+        var deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        deflater.setInput(payload.nioBuffer());
+        var compressed = allocator.heapBuffer(Math.max(64, payload.readableBytes() / 2));
+        try {
+            for (; ; ) {
+                compressed.ensureWritable(64);
+                var writable = compressed.writableBytes();
+                var written = deflater.deflate(compressed.internalNioBuffer(compressed.writerIndex(), writable),
+                        Deflater.SYNC_FLUSH);
+                compressed.writerIndex(compressed.writerIndex() + written);
+                if (written < writable && deflater.needsInput()) {
+                    // all input has been compressed and flushed
+                    break;
+                }
+            }
+            // remove the tail 0x00 0x00 0xff 0xff of the sync flush (RFC 7692)
+            var length = compressed.readableBytes() - 4;
+            var frame = allocator.buffer(headerLength(length) + length);
+            writeHeader(frame, opcode, true, length);
+            frame.writeBytes(compressed, compressed.readerIndex(), length);
+            return frame;
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the frames compressed without context takeover
+     * can be sent to the specified channel.
+     *
+     * @param channel the channel
+     * @return {@code true} if the shared compressed frames are supported
+     */
+    static boolean isSharedCompressionSupported(Channel channel) {
+        var extensions = WebSocketExtensionsRecorder.negotiatedExtensions(channel);
+        if (extensions == null) {
+            return false;
+        }
+        var extension = extensions.split(",", 2)[0];
+        var parameters = extension.split(";");
+        if (!"permessage-deflate".equalsIgnoreCase(parameters[0].trim())) {
+            return false;
+        }
+        var serverNoContext = false;
+        for (var i = 1; i < parameters.length; i++) {
+            var parameter = parameters[i].trim();
+            if ("server_no_context_takeover".equalsIgnoreCase(parameter)) {
+                serverNoContext = true;
+            } else if (parameter.regionMatches(true, 0, "server_max_window_bits", 0, 22)
+                    && !parameter.endsWith("15")) {
+                // the Deflater of the JDK always uses the max window size
+                return false;
+            }
+        }
+        return serverNoContext;
+    }
+
+    @Override
+    public String toString() {
+        return "WebSocketGroup(size=" + size() + ", droppedCount=" + droppedCount() + ")";
+    }
+
+    private record SharedFrame(ByteBuf frame, ByteBuf compressedFrame) {
+
+        private void release() {
+            frame.release();
+            if (compressedFrame != null) {
+                compressedFrame.release();
+            }
+        }
+
+    }
+
+    private final class Shard implements Runnable {
+
+        private final EventLoop eventLoop;
+        private final AtomicInteger size = new AtomicInteger();
+        private final Queue<SharedFrame> pendingFrames = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // only accessed in the event loop
+        private final Map<Channel, Member> members = new LinkedHashMap<>();
+        private final List<SharedFrame> batch = new ArrayList<>();
+        private boolean broadcasting;
+
+        private Shard(EventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        private void execute(Runnable task) {
+            if (eventLoop.inEventLoop()) {
+                task.run();
+            } else {
+                eventLoop.execute(task);
+            }
+        }
+
+        private void add(Channel channel) {
+            if (!channel.isActive() || members.containsKey(channel)) {
+                return;
+            }
+            var member = new Member(this, channel, isSharedCompressionSupported(channel));
+            members.put(channel, member);
+            size.incrementAndGet();
+            if (member.compressed) {
+                compressedMemberCount.incrementAndGet();
+            }
+            channel.closeFuture().addListener(member);
+        }
+
+        private void remove(Channel channel) {
+            if (broadcasting) {
+                // the channel may be closed synchronously during broadcasting
+                eventLoop.execute(() -> remove(channel));
+                return;
+            }
+            var member = members.remove(channel);
+            if (member != null) {
+                member.detach();
+            }
+        }
+
+        private void offer(SharedFrame frame) {
+            pendingFrames.offer(frame);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    eventLoop.execute(this);
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Event loop {} rejected websocket broadcast", eventLoop, e);
+                    for (SharedFrame pending; (pending = pendingFrames.poll()) != null; ) {
+                        pending.release();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            var batch = this.batch;
+            for (SharedFrame frame; (frame = pendingFrames.poll()) != null; ) {
+                batch.add(frame);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            broadcasting = true;
+            try {
+                broadcast(batch);
+            } finally {
+                broadcasting = false;
+                for (var frame : batch) {
+                    frame.release();
+                }
+                batch.clear();
+            }
+        }
+
+        private void broadcast(List<SharedFrame> batch) {
+            for (var it = members.values().iterator(); it.hasNext(); ) {
+                var member = it.next();
+                var channel = member.channel;
+                if (!channel.isActive()) {
+                    it.remove();
+                    member.detach();
+                    continue;
+                }
+                var written = false;
+                for (var i = 0; i < batch.size(); i++) {
+                    if (!channel.isWritable()) {
+                        droppedCount.add(batch.size() - i);
+                        break;
+                    }
+                    var frame = batch.get(i);
+                    var buf = member.compressed && frame.compressedFrame != null ? frame.compressedFrame : frame.frame;
+                    channel.write(buf.retainedDuplicate(), channel.voidPromise());
+                    written = true;
+                }
+                if (written) {
+                    channel.flush();
+                }
+            }
+        }
+
+    }
+
+    private final class Member implements ChannelFutureListener {
+
+        private final Shard shard;
+        private final Channel channel;
+        private final boolean compressed;
+
+        private Member(Shard shard, Channel channel, boolean compressed) {
+            this.shard = shard;
+            this.channel = channel;
+            this.compressed = compressed;
+        }
+
+        private void detach() {
+            shard.size.decrementAndGet();
+            if (compressed) {
+                compressedMemberCount.decrementAndGet();
+            }
+            channel.closeFuture().removeListener(this);
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            shard.remove(channel);
+        }
+
+    }
+
+    /**
+     * Builder of {@link WebSocketGroup}.
+     *
+     * @author MJ Fang
+     * @since 4.3
+     */
+    public static final class Builder {
+
+        private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        private int compressionLevel = 6;
+        private int compressionThreshold = 256;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the allocator to allocate the shared buffers of the encoded
+         * frames.
+         * <p>
+         * The default is {@link ByteBufAllocator#DEFAULT}.
+         *
+         * @param allocator the allocator
+         * @return this builder
+         */
+        public Builder allocator(ByteBufAllocator allocator) {
+            this.allocator = Objects.requireNonNull(allocator, "allocator must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the compression level of the shared compressed frames.
+         * <p>
+         * The default is {@code 6}.
+         *
+         * @param compressionLevel the compression level, {@code 0-9}
+         * @return this builder
+         */
+        public Builder compressionLevel(int compressionLevel) {
+            if (compressionLevel < 0 || compressionLevel > 9) {
+                throw new IllegalArgumentException("compressionLevel must be between 0 and 9");
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * Sets the minimum payload length of the frames to be compressed.
+         * <p>
+         * The default is {@code 256}.
+         *
+         * @param compressionThreshold the minimum payload length
+         * @return this builder
+         */
+        public Builder compressionThreshold(int compressionThreshold) {
+            if (compressionThreshold <= 0) {
+                throw new IllegalArgumentException("compressionThreshold must be positive");
+            }
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link WebSocketGroup}.
+         *
+         * @return a new {@code WebSocketGroup}
+         */
+        public WebSocketGroup build() {
+            return new WebSocketGroup(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.github.fmjsjx.libnetty.http.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+public class DefaultHttpRequestContextTest {
+
+    @Test
+    public void testProperties() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        DefaultHttpRequestContext ctx = new DefaultHttpRequestContext(channel,
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test?a=1"), Map.of(), null, false);
+        try {
+            assertFalse(ctx.hasProperty("a"));
+            assertEquals(0, ctx.propertyKeyNames().count());
+            for (int i = 0; i < 10; i++) {
+                ctx.property("key" + i, i);
+            }
+            ctx.property(String.class, "class");
+            assertEquals(Integer.valueOf(3), ctx.property("key3").orElse(null));
+            // keys are encoded by String.valueOf
+            assertEquals("class", ctx.property("class java.lang.String", String.class).orElse(null));
+            ctx.property("key3", 33);
+            assertEquals(Integer.valueOf(33), ctx.property("key3").orElse(null));
+            ctx.property("key3", (Object) null);
+            assertFalse(ctx.hasProperty("key3"));
+            assertTrue(ctx.hasProperty("key9"));
+            Set<String> names = ctx.propertyKeyNames().collect(Collectors.toSet());
+            assertEquals(10, names.size());
+            assertTrue(names.contains("class java.lang.String"));
+            assertFalse(names.contains("key3"));
+
+            ZonedDateTime now = ZonedDateTime.now();
+            assertTrue(Duration.between(ctx.receivedTime(), now).abs().toSeconds() < 5);
+            assertEquals(ctx.receivedTime().toLocalDateTime(), ctx.receivedLocalTime());
+            HttpResult result = new DefaultHttpResult(ctx, 0, HttpResponseStatus.OK);
+            assertFalse(result.respondedTime().isBefore(ctx.receivedTime()));
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.github.fmjsjx.libnetty.http.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.exception.HttpRuntimeException;
+import com.github.fmjsjx.libnetty.http.server.component.HttpServerComponent;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class DefaultHttpServerTest {
+
+    private static final byte[] REQUEST = "GET /slow HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final Pattern CONTENT_LENGTH = Pattern.compile("(?i)content-length: *(\\d+)");
+
+    @Test
+    public void testDrain() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        try {
+            DefaultHttpServer server = new DefaultHttpServer("drain-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class).drainTimeout(Duration.ofSeconds(5));
+            server.defaultHandlerProvider().addLast((ctx, next) -> {
+                CompletableFuture<HttpResult> future = new CompletableFuture<>();
+                ctx.eventLoop().schedule(() -> ctx.simpleRespond(HttpResponseStatus.OK)
+                        .whenComplete((r, e) -> future.complete(r)), 500, TimeUnit.MILLISECONDS);
+                return future;
+            });
+            server.startup();
+            int port = server.port();
+            try (Socket idle = new Socket("127.0.0.1", port); Socket busy = new Socket("127.0.0.1", port)) {
+                idle.setSoTimeout(5000);
+                busy.setSoTimeout(5000);
+                // keep-alive connection without request in flight
+                idle.getOutputStream().write(REQUEST);
+                assertTrue(readResponse(idle.getInputStream()).startsWith("HTTP/1.1 200"));
+                OutputStream out = busy.getOutputStream();
+                out.write(REQUEST);
+                out.flush();
+                Thread.sleep(100);
+                long start = System.nanoTime();
+                server.shutdown();
+                long elapsed = System.nanoTime() - start;
+                assertTrue(elapsed < TimeUnit.SECONDS.toNanos(4));
+                String response = readResponse(busy.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 200"), response);
+                assertTrue(response.toLowerCase().contains("connection: close"), response);
+                assertEquals(-1, busy.getInputStream().read());
+                assertEquals(-1, idle.getInputStream().read());
+                assertFalse(server.channel().isOpen());
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testAcceptors() {
+        try {
+            DefaultHttpServer server = new DefaultHttpServer("acceptors-test", 0).host("127.0.0.1")
+                    .transportLibrary(NioIoTransportLibrary.getInstance()).acceptors(2);
+            server.defaultHandlerProvider().addLast((ctx, next) -> ctx.simpleRespond(HttpResponseStatus.OK));
+            // NIO does not support SO_REUSEPORT
+            HttpRuntimeException e = assertThrows(HttpRuntimeException.class, server::startup);
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertFalse(server.isRunning());
+
+            server = new DefaultHttpServer("acceptors-test", 0).host("127.0.0.1")
+                    .transportLibrary(NioIoTransportLibrary.getInstance());
+            server.defaultHandlerProvider().addLast((ctx, next) -> ctx.simpleRespond(HttpResponseStatus.OK));
+            server.startup();
+            try {
+                assertEquals(1, server.channels().size());
+                assertSame(server.channel(), server.channels().getFirst());
+            } finally {
+                server.shutdown();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testShardedComponent() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        try {
+            DefaultHttpServer server = new DefaultHttpServer("sharded-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class).shardedComponent(Counter::new);
+            server.defaultHandlerProvider().addLast((ctx, next) -> {
+                Counter counter = ctx.component(Counter.class).orElseThrow();
+                // confined to the event loop of the request
+                assertTrue(ctx.eventLoop().inEventLoop());
+                if (counter.eventLoop == null) {
+                    counter.eventLoop = ctx.eventLoop();
+                }
+                assertSame(counter.eventLoop, ctx.eventLoop());
+                counter.count++;
+                return ctx.simpleRespond(HttpResponseStatus.OK);
+            });
+            server.startup();
+            try {
+                URI uri = URI.create("http://127.0.0.1:" + server.port() + "/");
+                for (int i = 0; i < 4; i++) {
+                    // new client, new connection
+                    HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                    for (int j = 0; j < 5; j++) {
+                        assertEquals(200, client.send(HttpRequest.newBuilder(uri).build(), BodyHandlers.discarding())
+                                .statusCode());
+                    }
+                }
+                List<Counter> shards = server.shards(Counter.class);
+                assertEquals(2, shards.size());
+                assertNotSame(shards.get(0), shards.get(1));
+                assertEquals(20, shards.stream().mapToLong(c -> c.count).sum());
+            } finally {
+                server.shutdown();
+            }
+            assertTrue(server.shards(Counter.class).isEmpty());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final class Counter implements HttpServerComponent {
+
+        private EventLoop eventLoop;
+        private long count;
+
+        @Override
+        public Class<Counter> componentType() {
+            return Counter.class;
+        }
+
+    }
+
+    private static final String readResponse(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int contentLength = -1;
+        int headerLength = -1;
+        for (int b; (b = in.read()) != -1;) {
+            out.write(b);
+            if (headerLength < 0) {
+                String s = out.toString(StandardCharsets.US_ASCII);
+                if (s.endsWith("\r\n\r\n")) {
+                    headerLength = s.length();
+                    Matcher matcher = CONTENT_LENGTH.matcher(s);
+                    contentLength = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+                }
+            }
+            if (headerLength >= 0 && out.size() == headerLength + contentLength) {
+                break;
+            }
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testLimit() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        DefaultHttpServer server = null;
+        try {
+            ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(2).maxLimit(2)
+                    .aimd(Duration.ofSeconds(10)).partitionBy(ctx -> ctx.path()).build();
+            server = new DefaultHttpServer("concurrency-limiter-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(limiter).addLast((ctx, next) -> {
+                CompletableFuture<HttpResult> future = new CompletableFuture<>();
+                ctx.eventLoop().schedule(() -> ctx.simpleRespond(HttpResponseStatus.OK)
+                        .whenComplete((r, e) -> future.complete(r)), 300, TimeUnit.MILLISECONDS);
+                return future;
+            });
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/slow");
+            List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString()));
+            }
+            int ok = 0;
+            int rejected = 0;
+            for (CompletableFuture<HttpResponse<String>> future : futures) {
+                HttpResponse<String> response = future.get(5, TimeUnit.SECONDS);
+                if (response.statusCode() == 200) {
+                    ok++;
+                } else {
+                    assertEquals(503, response.statusCode());
+                    assertEquals("503 Service Unavailable", response.body());
+                    rejected++;
+                }
+            }
+            assertEquals(2, ok);
+            assertEquals(4, rejected);
+            assertEquals(0, limiter.inflight());
+            // other partitions are not affected
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/other")).build(),
+                    BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(2, limiter.limits().size());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+}
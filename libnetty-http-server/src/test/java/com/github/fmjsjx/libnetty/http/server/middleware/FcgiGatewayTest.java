@@ -0,0 +1,131 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.fastcgi.FcgiMessageDecoder;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiMessageEncoder;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiRequest;
+import com.github.fmjsjx.libnetty.fastcgi.FcgiResponse;
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.CharsetUtil;
+
+public class FcgiGatewayTest {
+
+    @Test
+    public void testParseCgiHeaders() {
+        try {
+            HttpHeaders headers = new DefaultHttpHeaders();
+            String text = "Status: 404 Not Found\r\nContent-Type: text/html\nX-A:1\r\n\r\nbody";
+            ByteBuf content = Unpooled.copiedBuffer(text, CharsetUtil.UTF_8);
+            int index = FcgiGateway.parseCgiHeaders(content, headers);
+            assertEquals("body", content.toString(index, content.writerIndex() - index, CharsetUtil.UTF_8));
+            assertEquals("404 Not Found", headers.get("Status"));
+            assertEquals("text/html", headers.get("Content-Type"));
+            assertEquals("1", headers.get("X-A"));
+
+            assertEquals(-1, FcgiGateway.parseCgiHeaders(Unpooled.copiedBuffer("Status: 200", CharsetUtil.UTF_8),
+                    new DefaultHttpHeaders()));
+            assertEquals(-1, FcgiGateway.parseCgiHeaders(Unpooled.copiedBuffer("invalid\r\n\r\n", CharsetUtil.UTF_8),
+                    new DefaultHttpHeaders()));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testForward() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            AtomicInteger connections = new AtomicInteger();
+            Channel upstream = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            connections.incrementAndGet();
+                            ch.pipeline().addLast(FcgiMessageEncoder.getInstance()).addLast(new FcgiMessageDecoder())
+                                    .addLast(new StandInResponder());
+                        }
+                    }).bind("127.0.0.1", 0).sync().channel();
+            server = new DefaultHttpServer("fcgi-gateway-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(FcgiGateway.builder(upstream.localAddress()).group(group)
+                    .transportLibrary(NioIoTransportLibrary.getInstance()).documentRoot("/var/www").build());
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/test.php?a=1");
+            for (int i = 0; i < 3; i++) {
+                HttpResponse<String> response = client.send(
+                        HttpRequest.newBuilder(uri).header("Cookie", "a=1").header("Cookie", "b=2")
+                                .POST(BodyPublishers.ofString("hello" + i)).build(),
+                        BodyHandlers.ofString());
+                assertEquals(201, response.statusCode());
+                assertEquals("/var/www/test.php", response.headers().firstValue("X-Script").orElse(null));
+                assertEquals("text/plain", response.headers().firstValue("Content-Type").orElse(null));
+                // repeated cookies must be joined by "; "
+                assertEquals("a=1; b=2", response.headers().firstValue("X-Cookie").orElse(null));
+                assertEquals("POST a=1 hello" + i, response.body());
+            }
+            // upstream connection is reused
+            assertEquals(1, connections.get());
+            upstream.close().sync();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final class StandInResponder extends SimpleChannelInboundHandler<FcgiRequest> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FcgiRequest msg) {
+            String stdout = "Status: 201 Created\r\nContent-Type: text/plain\r\nX-Script: "
+                    + msg.params().getValue("SCRIPT_FILENAME").orElse("") + "\r\nX-Cookie: "
+                    + msg.params().getValue("HTTP_COOKIE").orElse("") + "\r\n\r\n"
+                    + msg.params().getValue("REQUEST_METHOD").orElse("") + " "
+                    + msg.params().getValue("QUERY_STRING").orElse("") + " "
+                    + msg.stdin().content().toString(CharsetUtil.UTF_8);
+            ByteBuf content = ByteBufUtil.writeUtf8(ctx.alloc(), stdout);
+            var future = ctx.writeAndFlush(new FcgiResponse(msg.protocolVersion(), msg.requestId(), 0, content));
+            if (!msg.beginRequest().isKeepConn()) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class HttpMetricsTest {
+
+    @Test
+    public void testMetrics() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            HttpMetrics metrics = HttpMetrics.builder().prefix("test").build();
+            server = new DefaultHttpServer("http-metrics-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(metrics).addLast(new Router()
+                    .get("/users/{id}", ctx -> ctx.simpleRespond(HttpResponseStatus.OK,
+                            ByteBufUtil.writeAscii(ctx.alloc(), "hello"), HttpHeaderValues.TEXT_PLAIN))
+                    .init());
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://127.0.0.1:" + server.port();
+            for (int i = 0; i < 3; i++) {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/users/" + i))
+                        .build(), BodyHandlers.ofString());
+                assertEquals(200, response.statusCode());
+            }
+            assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(base + "/none")).build(),
+                    BodyHandlers.ofString()).statusCode());
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(),
+                    BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            String text = response.body();
+            assertTrue(text.contains("# TYPE test_requests_in_flight gauge\ntest_requests_in_flight 0\n"));
+            String route = "route=\"/users/{id}\"";
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_requests_total{") && line.contains(route)
+                    && line.endsWith("status=\"2xx\"} 3")), text);
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_requests_total{")
+                    && line.contains("route=\"<unmatched>\"") && line.endsWith("status=\"4xx\"} 1")), text);
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_response_bytes_total{")
+                    && line.contains(route) && line.endsWith("} 15")), text);
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_request_duration_seconds_bucket{")
+                    && line.contains(route) && line.endsWith("le=\"+Inf\"} 3")), text);
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_request_duration_seconds_count{")
+                    && line.contains(route) && line.endsWith("} 3")), text);
+            assertTrue(text.lines().anyMatch(line -> line.startsWith("test_request_duration_seconds_bucket{")
+                    && line.contains("le=\"0.000128\"")), text);
+
+            String methods = text.lines().filter(line -> line.startsWith("test_response_bytes_total{")
+                    && line.contains(route)).findFirst().map(line -> line.substring(line.indexOf("method=\"") + 8,
+                            line.indexOf("\",route"))).orElseThrow();
+            HttpMetrics.Histogram histogram = metrics.histogram(methods, "/users/{id}").orElseThrow();
+            assertEquals(3, histogram.count());
+            assertTrue(histogram.percentileNanos(99) > 0);
+            assertTrue(histogram.percentileNanos(50) <= histogram.percentileNanos(100));
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testHistogramUpperBounds() {
+        try {
+            // the upper bounds are inclusive
+            HttpMetrics.Histogram histogram = new HttpMetrics.Histogram();
+            histogram.record(128_000);
+            assertEquals(128_000, histogram.percentileNanos(100));
+            histogram.record(128_001);
+            assertEquals(128_000, histogram.percentileNanos(50));
+            assertTrue(histogram.percentileNanos(100) > 128_000);
+            assertEquals(2, histogram.count());
+            assertEquals(256_001, histogram.sumNanos());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+
+public class MiddlewareChainsTest {
+
+    @Test
+    public void testWhenComplete() {
+        try {
+            HttpResult result = mock(HttpResult.class);
+            AtomicInteger count = new AtomicInteger();
+            AtomicReference<HttpResult> ref = new AtomicReference<>();
+
+            // completed: performed inline and returns the same stage
+            CompletableFuture<HttpResult> completed = CompletableFuture.completedFuture(result);
+            CompletionStage<HttpResult> stage = MiddlewareChains.whenComplete(completed, (r, e) -> {
+                count.incrementAndGet();
+                ref.set(r);
+            });
+            assertSame(completed, stage);
+            assertEquals(1, count.get());
+            assertSame(result, ref.get());
+
+            // action throws: completes exceptionally
+            RuntimeException error = new RuntimeException("test");
+            stage = MiddlewareChains.whenComplete(completed, (r, e) -> {
+                throw error;
+            });
+            assertTrue(stage.toCompletableFuture().isCompletedExceptionally());
+            try {
+                stage.toCompletableFuture().join();
+                fail("should throw exception");
+            } catch (CompletionException e) {
+                assertSame(error, e.getCause());
+            }
+
+            // not completed yet: falls back to whenComplete
+            CompletableFuture<HttpResult> pending = new CompletableFuture<>();
+            stage = MiddlewareChains.whenComplete(pending, (r, e) -> count.incrementAndGet());
+            assertNotSame(pending, stage);
+            assertEquals(1, count.get());
+            pending.complete(result);
+            assertEquals(2, count.get());
+            assertSame(result, stage.toCompletableFuture().join());
+
+            // completed exceptionally
+            CompletableFuture<HttpResult> failed = CompletableFuture.failedFuture(error);
+            AtomicReference<Throwable> cause = new AtomicReference<>();
+            stage = MiddlewareChains.whenComplete(failed, (r, e) -> cause.set(e));
+            assertSame(error, cause.get());
+            assertTrue(stage.toCompletableFuture().isCompletedExceptionally());
+
+            // minimal stages are supported as well
+            CompletableFuture<HttpResult> minimal = new CompletableFuture<>();
+            stage = MiddlewareChains.whenComplete(minimal.minimalCompletionStage(), (r, e) -> count.incrementAndGet());
+            assertFalse(stage.toCompletableFuture().isDone());
+            minimal.complete(result);
+            assertEquals(3, count.get());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
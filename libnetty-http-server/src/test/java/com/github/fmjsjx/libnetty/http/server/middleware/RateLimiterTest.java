@@ -0,0 +1,99 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testTokenBucket() {
+        try {
+            RateLimiter limiter = RateLimiter.builder().tokenBucket(1, Duration.ofMinutes(1), 3).build();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(0, limiter.tryAcquire("a"));
+            }
+            long waitNanos = limiter.tryAcquire("a");
+            assertTrue(waitNanos > Duration.ofSeconds(50).toNanos());
+            assertTrue(waitNanos <= Duration.ofMinutes(1).toNanos());
+            // other keys are not affected
+            assertEquals(0, limiter.tryAcquire("b"));
+            assertEquals(2, limiter.size());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        try {
+            RateLimiter limiter = RateLimiter.builder().slidingWindow(5, Duration.ofMinutes(1)).build();
+            for (int i = 0; i < 5; i++) {
+                assertEquals(0, limiter.tryAcquire("a"));
+            }
+            assertTrue(limiter.tryAcquire("a") > 0);
+            assertEquals(0, limiter.tryAcquire("b"));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testReject() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            RateLimiter limiter = RateLimiter.builder().tokenBucket(1, Duration.ofSeconds(10), 2)
+                    .keyByHeader("X-Api-Key").build();
+            server = new DefaultHttpServer("rate-limiter-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(limiter)
+                    .addLast((ctx, next) -> ctx.simpleRespond(HttpResponseStatus.OK));
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/");
+            HttpRequest request = HttpRequest.newBuilder(uri).header("X-Api-Key", "key").build();
+            for (int i = 0; i < 2; i++) {
+                assertEquals(200, client.send(request, BodyHandlers.ofString()).statusCode());
+            }
+            HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+            assertEquals(429, response.statusCode());
+            assertEquals("429 Too Many Requests", response.body());
+            int retryAfter = Integer.parseInt(response.headers().firstValue("Retry-After").orElse("0"));
+            assertTrue(retryAfter > 0 && retryAfter <= 10);
+            // requests without key are not limited
+            for (int i = 0; i < 3; i++) {
+                assertEquals(200, client.send(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString())
+                        .statusCode());
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void testCache() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        DefaultHttpServer server = null;
+        try {
+            AtomicInteger invocations = new AtomicInteger();
+            ResponseCache cache = ResponseCache.builder().ttl(Duration.ofMillis(500)).vary("X-Lang").build();
+            server = new DefaultHttpServer("response-cache-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(cache).addLast((ctx, next) -> {
+                int n = invocations.incrementAndGet();
+                CompletableFuture<HttpResult> future = new CompletableFuture<>();
+                // slow downstream
+                ctx.eventLoop().schedule(() -> respond(ctx, n).whenComplete((r, e) -> future.complete(r)), 200,
+                        TimeUnit.MILLISECONDS);
+                return future;
+            });
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/hot?a=1");
+            List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> future : futures) {
+                HttpResponse<String> response = future.get(5, TimeUnit.SECONDS);
+                assertEquals(200, response.statusCode());
+                assertEquals("hello-1", response.body());
+            }
+            // concurrent misses are coalesced
+            assertEquals(1, invocations.get());
+            assertEquals(1, cache.size());
+            assertEquals(7, cache.cachedBytes());
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).header("X-Lang", "en").build(),
+                    BodyHandlers.ofString());
+            assertEquals("hello-2", response.body());
+
+            Thread.sleep(600);
+            response = client.send(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString());
+            assertEquals("hello-3", response.body());
+            response = client.send(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString());
+            assertEquals("hello-3", response.body());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            AtomicInteger invocations = new AtomicInteger();
+            ResponseCache cache = ResponseCache.builder().ttl(Duration.ofSeconds(10)).maxBytes(14).build();
+            server = new DefaultHttpServer("response-cache-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(cache)
+                    .addLast((ctx, next) -> respond(ctx, invocations.incrementAndGet()));
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://127.0.0.1:" + server.port() + "/";
+            for (String path : List.of("a", "b", "a", "c")) {
+                client.send(HttpRequest.newBuilder(URI.create(base + path)).build(), BodyHandlers.ofString());
+            }
+            // the least recently used entry is evicted
+            assertEquals(3, invocations.get());
+            assertEquals(2, cache.size());
+            assertEquals(14, cache.cachedBytes());
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "a")).build(),
+                    BodyHandlers.ofString());
+            assertEquals("hello-1", response.body());
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "b")).build(), BodyHandlers.ofString());
+            assertEquals("hello-4", response.body());
+            assertEquals(2, cache.size());
+            assertEquals(14, cache.cachedBytes());
+            cache.close();
+            assertEquals(0, cache.cachedBytes());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testPrivateRequests() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            AtomicInteger invocations = new AtomicInteger();
+            ResponseCache cache = ResponseCache.builder().ttl(Duration.ofSeconds(10)).build();
+            server = new DefaultHttpServer("response-cache-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(cache).addLast((ctx, next) -> {
+                var content = ByteBufUtil.writeUtf8(ctx.alloc(), "hello-" + invocations.incrementAndGet());
+                var response = ctx.responseFactory().createFull(HttpResponseStatus.OK, content,
+                        HttpRequestContext.TEXT_PLAIN_UTF8);
+                if (ctx.path().equals("/public")) {
+                    response.headers().set(HttpHeaderNames.CACHE_CONTROL, "public, max-age=10");
+                }
+                return ctx.sendResponse(response);
+            });
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/private");
+            // requests with cookie bypass the cache
+            assertEquals("hello-1", send(client, HttpRequest.newBuilder(uri).header("Cookie", "sid=1")));
+            assertEquals(0, cache.size());
+            // responses of the authorized requests are not cached by default
+            assertEquals("hello-2", send(client, HttpRequest.newBuilder(uri).header("Authorization", "Bearer a")));
+            assertEquals(0, cache.size());
+            assertEquals("hello-3", send(client, HttpRequest.newBuilder(uri)));
+            assertEquals("hello-3", send(client, HttpRequest.newBuilder(uri)));
+            assertEquals("hello-4", send(client, HttpRequest.newBuilder(uri).header("Authorization", "Bearer a")));
+            assertEquals("hello-5", send(client, HttpRequest.newBuilder(uri).header("Cookie", "sid=1")));
+            // public responses are shared
+            uri = URI.create("http://127.0.0.1:" + server.port() + "/public");
+            assertEquals("hello-6", send(client, HttpRequest.newBuilder(uri).header("Authorization", "Bearer a")));
+            assertEquals("hello-6", send(client, HttpRequest.newBuilder(uri).header("Authorization", "Bearer b")));
+            assertEquals("hello-6", send(client, HttpRequest.newBuilder(uri)));
+            assertEquals(2, cache.size());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final String send(HttpClient client, HttpRequest.Builder builder) throws Exception {
+        return client.send(builder.build(), BodyHandlers.ofString()).body();
+    }
+
+    private static final CompletableFuture<HttpResult> respond(HttpRequestContext ctx, int n) {
+        var content = ByteBufUtil.writeUtf8(ctx.alloc(), "hello-" + n);
+        return ctx.simpleRespond(HttpResponseStatus.OK, content, HttpRequestContext.TEXT_PLAIN_UTF8);
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.github.fmjsjx.libnetty.http.server.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.http.server.HttpMethodWrapper;
+import com.github.fmjsjx.libnetty.http.server.HttpRequestContext;
+import com.github.fmjsjx.libnetty.http.server.HttpResult;
+import com.github.fmjsjx.libnetty.http.server.annotation.HeaderValue;
+import com.github.fmjsjx.libnetty.http.server.annotation.HttpGet;
+import com.github.fmjsjx.libnetty.http.server.annotation.HttpPath;
+import com.github.fmjsjx.libnetty.http.server.annotation.HttpPost;
+import com.github.fmjsjx.libnetty.http.server.annotation.HttpRoute;
+import com.github.fmjsjx.libnetty.http.server.annotation.PathVar;
+import com.github.fmjsjx.libnetty.http.server.annotation.QueryVar;
+import com.github.fmjsjx.libnetty.http.server.annotation.StringBody;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+public class RouteRegistrarTest {
+
+    @Test
+    public void testGeneratedRegistrar() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            // generated by the RouteProcessor at compile time
+            assertTrue(ServiceLoader.load(RouteRegistrar.class).stream()
+                    .anyMatch(p -> p.get().controllerType() == TestController.class));
+            TestController controller = new TestController();
+            Router router = new Router();
+            assertEquals(4, RouterUtil.register(router, controller));
+            server = new DefaultHttpServer("route-registrar-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class).virtualWorkerPool();
+            server.defaultHandlerProvider().addLast(router.init());
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://127.0.0.1:" + server.port() + "/api";
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/hello/libnetty"))
+                    .build(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals("hello libnetty", response.body());
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/hello/libnetty?times=2")).build(),
+                    BodyHandlers.ofString());
+            assertEquals("hello libnetty hello libnetty", response.body());
+
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/echo")).header("x-echo", "abc")
+                    .build(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals("abc", response.body());
+            // missing required header
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/echo")).build(),
+                    BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/count/3"))
+                    .POST(BodyPublishers.noBody()).build(), BodyHandlers.ofString());
+            assertEquals(204, response.statusCode());
+            assertEquals(3, controller.counter.get());
+
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/sum?v=1&v=2&v=3"))
+                    .POST(BodyPublishers.noBody()).build(), BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals("6", response.body());
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/sum?v=1")).DELETE().build(),
+                    BodyHandlers.ofString());
+            assertEquals(405, response.statusCode());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @HttpPath("/api")
+    public static class TestController {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @HttpGet("/hello/{name}")
+        @StringBody
+        public String hello(@PathVar String name, @QueryVar(value = "times", required = false) Integer times) {
+            return String.join(" ", Collections.nCopies(times == null ? 1 : times, "hello " + name));
+        }
+
+        @HttpGet("/echo")
+        CompletionStage<HttpResult> echo(HttpRequestContext ctx, @HeaderValue("x-echo") String value) {
+            return ctx.simpleRespond(HttpResponseStatus.OK, ByteBufUtil.writeUtf8(ctx.alloc(), value),
+                    HttpHeaderValues.TEXT_PLAIN);
+        }
+
+        @HttpPost("/count/{num}")
+        public CompletionStage<Void> count(@PathVar("num") int n) {
+            counter.addAndGet(n);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @HttpRoute(value = "/sum", method = { HttpMethodWrapper.GET, HttpMethodWrapper.POST })
+        @StringBody
+        public static CompletableFuture<String> sum(@QueryVar("v") List<Integer> values) {
+            return CompletableFuture.completedFuture(
+                    String.valueOf(values.stream().mapToInt(Integer::intValue).sum()));
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.github.fmjsjx.libnetty.http.server.sse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+public class DefaultSseEventStreamTest {
+
+    @Test
+    public void testAutoPingAndIdleTimeout() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            server = new DefaultHttpServer("sse-event-stream-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast((ctx, next) -> ctx.eventStreamBuilder()
+                    .autoPing(Duration.ofMillis(200)).idleTimeout(Duration.ofMillis(1000))
+                    .onActive(stream -> ctx.eventLoop().schedule(() -> stream.sendEvent(SseEventBuilder
+                            .message("hello")), 500, TimeUnit.MILLISECONDS)).build().start());
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/events");
+            // many streams share the same timer wheel
+            List<CompletableFuture<HttpResponse<Stream<String>>>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofLines()));
+            }
+            for (CompletableFuture<HttpResponse<Stream<String>>> future : futures) {
+                HttpResponse<Stream<String>> response = future.get(5, TimeUnit.SECONDS);
+                assertEquals(200, response.statusCode());
+                // the stream will be closed after idle timeout
+                List<String> lines = CompletableFuture.supplyAsync(() -> response.body().collect(Collectors.toList()))
+                        .get(5, TimeUnit.SECONDS);
+                int index = lines.indexOf("data: hello");
+                assertTrue(index > 0, "missing event");
+                long pingsBefore = lines.subList(0, index).stream().filter("event: ping"::equals).count();
+                long pingsAfter = lines.subList(index, lines.size()).stream().filter("event: ping"::equals).count();
+                assertTrue(pingsBefore >= 1 && pingsBefore <= 3, "pings before: " + pingsBefore);
+                assertTrue(pingsAfter >= 3 && pingsAfter <= 6, "pings after: " + pingsAfter);
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.github.fmjsjx.libnetty.http.server.sse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.CharsetUtil;
+
+public class SseBroadcasterTest {
+
+    @Test
+    public void testPublish() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        DefaultHttpServer server = null;
+        try {
+            SseBroadcaster broadcaster = SseBroadcaster.create();
+            List<SseEventStream> streams = new CopyOnWriteArrayList<>();
+            server = new DefaultHttpServer("sse-broadcaster-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(
+                    (ctx, next) -> ctx.eventStreamBuilder().onActive(stream -> {
+                        streams.add(stream);
+                        broadcaster.subscribe(stream);
+                    }).build().start());
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/events");
+            List<HttpResponse<Stream<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofLines())
+                        .get(5, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < 50 && broadcaster.subscriberCount() < 3; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(3, broadcaster.subscriberCount());
+
+            AtomicInteger serializeCount = new AtomicInteger();
+            SseEventSerializable event = new SseEventSerializable() {
+                @Override
+                public void serialize(ByteBuf out) {
+                    serializeCount.incrementAndGet();
+                    SseEventBuilder.message("hello").build().serialize(out);
+                }
+            };
+            broadcaster.publish(event);
+            broadcaster.publish(SseEventBuilder.create().event("update").id(2).data("world"));
+            // serialized only once for all subscribers
+            assertEquals(1, serializeCount.get());
+            for (HttpResponse<Stream<String>> response : responses) {
+                assertEquals(200, response.statusCode());
+                assertEquals("text/event-stream", response.headers().firstValue("content-type").orElse(null));
+                Iterator<String> lines = response.body().iterator();
+                assertEquals("data: hello", lines.next());
+                assertEquals("", lines.next());
+                assertEquals("event: update", lines.next());
+                assertEquals("id: 2", lines.next());
+                assertEquals("data: world", lines.next());
+                assertEquals("", lines.next());
+            }
+            assertEquals(0, broadcaster.droppedCount());
+
+            assertThrows(IllegalArgumentException.class, () -> broadcaster.subscribe(mock(SseEventStream.class)));
+
+            // closed streams are removed automatically
+            streams.get(0).close().get(5, TimeUnit.SECONDS);
+            broadcaster.publish(SseEventBuilder.message("bye"));
+            for (int i = 0; i < 50 && broadcaster.subscriberCount() > 2; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, broadcaster.subscriberCount());
+            broadcaster.unsubscribe(streams.get(1));
+            for (int i = 0; i < 50 && broadcaster.subscriberCount() > 1; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, broadcaster.subscriberCount());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testReplay() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        DefaultHttpServer server = null;
+        try {
+            SseBroadcaster broadcaster = SseBroadcaster.builder().replayLog(3, 1024).build();
+            server = new DefaultHttpServer("sse-broadcaster-test", 0).host("127.0.0.1")
+                    .transport(group, NioServerSocketChannel.class);
+            server.defaultHandlerProvider().addLast(
+                    (ctx, next) -> ctx.eventStreamBuilder().subscribe(broadcaster).build().start());
+            server.startup();
+            for (int i = 1; i <= 5; i++) {
+                broadcaster.publish(SseEventBuilder.create().id(i).data("e" + i));
+            }
+            // only the last 3 events are retained
+            assertEquals(3, broadcaster.replayLogSize());
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/events");
+            HttpResponse<Stream<String>> resumed = client.sendAsync(
+                    HttpRequest.newBuilder(uri).header("Last-Event-ID", "3").build(), BodyHandlers.ofLines())
+                    .get(5, TimeUnit.SECONDS);
+            // evicted id: nothing to be replayed
+            HttpResponse<Stream<String>> missed = client.sendAsync(
+                    HttpRequest.newBuilder(uri).header("Last-Event-ID", "1").build(), BodyHandlers.ofLines())
+                    .get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 50 && broadcaster.subscriberCount() < 2; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, broadcaster.subscriberCount());
+            broadcaster.publish(SseEventBuilder.create().id(6).data("e6"));
+
+            Iterator<String> lines = resumed.body().iterator();
+            for (int i = 4; i <= 6; i++) {
+                assertEquals("id: " + i, lines.next());
+                assertEquals("data: e" + i, lines.next());
+                assertEquals("", lines.next());
+            }
+            lines = missed.body().iterator();
+            assertEquals("id: 6", lines.next());
+            assertEquals("data: e6", lines.next());
+            assertEquals("", lines.next());
+
+            broadcaster.clearReplayLog();
+            assertEquals(0, broadcaster.replayLogSize());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testReplayLog() {
+        try {
+            SseReplayLog log = new SseReplayLog(4, 10);
+            ByteBuf buf = Unpooled.copiedBuffer("abcd", CharsetUtil.US_ASCII);
+            assertEquals(1, log.append("a", buf));
+            assertEquals(2, log.append(null, buf));
+            // exceeds max bytes
+            assertEquals(3, log.append("c", buf));
+            assertEquals(2, log.size());
+            assertEquals(8, log.bytes());
+            List<ByteBuf> out = new ArrayList<>();
+            assertEquals(3, log.replay("a", out));
+            assertEquals(0, out.size());
+            assertEquals(3, log.replay("c", out));
+            assertEquals(0, out.size());
+            assertEquals(4, log.append("d", Unpooled.copiedBuffer("ef", CharsetUtil.US_ASCII)));
+            log.replay("c", out);
+            assertEquals(1, out.size());
+            assertEquals("ef", out.get(0).toString(CharsetUtil.US_ASCII));
+            out.forEach(ByteBuf::release);
+            // too large to be retained
+            assertEquals(5, log.append("e", Unpooled.copiedBuffer("0123456789a", CharsetUtil.US_ASCII)));
+            assertEquals(0, log.size());
+            assertEquals(0, log.bytes());
+            assertEquals(1, buf.refCnt());
+            buf.release();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
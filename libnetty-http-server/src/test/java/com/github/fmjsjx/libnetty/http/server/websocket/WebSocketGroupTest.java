@@ -0,0 +1,276 @@
+package com.github.fmjsjx.libnetty.http.server.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.http.server.DefaultHttpServer;
+import com.github.fmjsjx.libnetty.http.server.component.WebSocketSupport;
+import com.github.fmjsjx.libnetty.transport.io.NioIoTransportLibrary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolConfig;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+public class WebSocketGroupTest {
+
+    private static DefaultHttpServer createServer(EventLoopGroup group, WebSocketGroup room) {
+        DefaultHttpServer server = new DefaultHttpServer("websocket-group-test", 0).host("127.0.0.1")
+                .transport(group, NioServerSocketChannel.class)
+                .component(WebSocketSupport.build(WebSocketServerProtocolConfig.newBuilder().websocketPath("/ws")
+                        .allowExtensions(true).build(), () -> new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void handlerAdded(ChannelHandlerContext ctx) {
+                                ctx.channel().config().setAutoRead(true);
+                                room.add(ctx.channel());
+                            }
+
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                ReferenceCountUtil.release(msg);
+                            }
+                        }, true));
+        server.defaultHandlerProvider();
+        return server;
+    }
+
+    @Test
+    public void testBroadcast() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(2);
+        DefaultHttpServer server = null;
+        List<WebSocket> webSockets = new ArrayList<>();
+        try {
+            WebSocketGroup room = WebSocketGroup.create();
+            server = createServer(group, room);
+            server.startup();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("ws://127.0.0.1:" + server.port() + "/ws");
+            List<BlockingQueue<Object>> received = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+                received.add(queue);
+                webSockets.add(client.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() {
+                    final StringBuilder text = new StringBuilder();
+                    final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        // large messages may be delivered partially
+                        text.append(data);
+                        if (last) {
+                            queue.add(text.toString());
+                            text.setLength(0);
+                        }
+                        return WebSocket.Listener.super.onText(webSocket, data, last);
+                    }
+
+                    @Override
+                    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+                        byte[] bytes = new byte[data.remaining()];
+                        data.get(bytes);
+                        binary.writeBytes(bytes);
+                        if (last) {
+                            queue.add(binary.toByteArray());
+                            binary.reset();
+                        }
+                        return WebSocket.Listener.super.onBinary(webSocket, data, last);
+                    }
+                }).get(5, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < 50 && room.size() < 3; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(3, room.size());
+
+            String large = "x".repeat(70000);
+            room.broadcastText("hello");
+            room.broadcastText(large);
+            for (BlockingQueue<Object> queue : received) {
+                assertEquals("hello", queue.poll(5, TimeUnit.SECONDS));
+                assertEquals(large, queue.poll(5, TimeUnit.SECONDS));
+            }
+            // channels may be unwritable before the large frame is flushed
+            room.broadcastBinary(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 }));
+            for (BlockingQueue<Object> queue : received) {
+                assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) queue.poll(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, room.droppedCount());
+
+            // closed channels are removed automatically
+            webSockets.get(0).sendClose(WebSocket.NORMAL_CLOSURE, "bye").get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 50 && room.size() > 2; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, room.size());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            webSockets.forEach(WebSocket::abort);
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testSharedCompression() {
+        EventLoopGroup group = NioIoTransportLibrary.getInstance().createGroup(1);
+        DefaultHttpServer server = null;
+        try {
+            WebSocketGroup room = WebSocketGroup.builder().compressionThreshold(16).build();
+            server = createServer(group, room);
+            server.startup();
+            try (Socket socket = new Socket("127.0.0.1", server.port())) {
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /ws HTTP/1.1\r\nHost: 127.0.0.1\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n"
+                        + "Sec-WebSocket-Extensions: permessage-deflate; server_no_context_takeover\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                String response = readHeaders(in);
+                assertTrue(response.startsWith("HTTP/1.1 101"), response);
+                assertTrue(response.contains("server_no_context_takeover"), response);
+                for (int i = 0; i < 50 && room.size() < 1; i++) {
+                    Thread.sleep(20);
+                }
+                assertEquals(1, room.size());
+
+                String text = "hello world, hello world, hello world!";
+                room.broadcastText(text);
+                room.broadcastText("short");
+                // compressed once without context takeover
+                assertEquals(0xC1, in.readUnsignedByte());
+                byte[] payload = new byte[in.readUnsignedByte()];
+                in.readFully(payload);
+                assertEquals(text, inflate(payload));
+                // too short to be compressed
+                assertEquals(0x81, in.readUnsignedByte());
+                assertEquals(5, in.readUnsignedByte());
+                byte[] bytes = new byte[5];
+                in.readFully(bytes);
+                assertEquals("short", new String(bytes, StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            if (server != null) {
+                try {
+                    server.shutdown();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testCompressFrame() {
+        try {
+            byte[] data = "libnetty ".repeat(100).getBytes(StandardCharsets.UTF_8);
+            ByteBuf frame = WebSocketGroup.compressFrame(ByteBufAllocator.DEFAULT, 0x2, Unpooled.wrappedBuffer(data), 6);
+            try {
+                assertEquals(0xC2, frame.readUnsignedByte());
+                int length = frame.readUnsignedByte();
+                assertTrue(length < 126);
+                assertEquals(length, frame.readableBytes());
+                byte[] payload = new byte[length];
+                frame.readBytes(payload);
+                assertEquals("libnetty ".repeat(100), inflate(payload));
+            } finally {
+                frame.release();
+            }
+
+            EmbeddedChannel channel = new EmbeddedChannel(WebSocketExtensionsRecorder.getInstance());
+            DefaultFullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.SWITCHING_PROTOCOLS);
+            response.headers().set(HttpHeaderNames.SEC_WEBSOCKET_EXTENSIONS,
+                    "permessage-deflate;server_no_context_takeover");
+            channel.writeOutbound(response);
+            ReferenceCountUtil.release(channel.readOutbound());
+            assertNull(channel.pipeline().get(WebSocketExtensionsRecorder.class));
+            assertTrue(WebSocketGroup.isSharedCompressionSupported(channel));
+            channel.attr(AttributeKey.<String>valueOf("WebSocketExtensions"))
+                    .set("permessage-deflate; client_max_window_bits=15");
+            assertFalse(WebSocketGroup.isSharedCompressionSupported(channel));
+            channel.finishAndReleaseAll();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private static String readHeaders(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+            String s = out.toString(StandardCharsets.US_ASCII);
+            if (s.endsWith("\r\n\r\n")) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("unexpected end of stream");
+    }
+
+    private static String inflate(byte[] payload) throws Exception {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] input = new byte[payload.length + 4];
+            System.arraycopy(payload, 0, input, 0, payload.length);
+            input[payload.length + 2] = (byte) 0xff;
+            input[payload.length + 3] = (byte) 0xff;
+            inflater.setInput(input);
+            byte[] buf = new byte[4096];
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int n;
+            while ((n = inflater.inflate(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
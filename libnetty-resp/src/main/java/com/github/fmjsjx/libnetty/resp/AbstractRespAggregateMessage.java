@@ -1,12 +1,7 @@
 package com.github.fmjsjx.libnetty.resp;
 
-import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_LENGTH;
-import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_SHORT;
-import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_LENGTH;
-
 import java.util.List;
 
-import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.AbstractReferenceCounted;
 
@@ -61,10 +56,7 @@ public abstract class AbstractRespAggregateMessage<E extends RespObject, Self ex
     }
 
     protected void encodeHeader(ByteBufAllocator alloc, List<Object> out) {
-        byte[] sizeBytes = RespCodecUtil.longToAsciiBytes(size());
-        ByteBuf header = alloc.buffer(TYPE_LENGTH + sizeBytes.length + EOL_LENGTH).writeByte(type().value())
-                .writeBytes(sizeBytes).writeShort(EOL_SHORT);
-        out.add(header);
+        out.add(CachedRespHeaders.header(alloc, type().value(), size()));
     }
 
     protected abstract void encodeValue(ByteBufAllocator alloc, E value, List<Object> out) throws Exception;
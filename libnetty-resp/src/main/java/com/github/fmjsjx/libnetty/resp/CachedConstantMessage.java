@@ -0,0 +1,212 @@
+package com.github.fmjsjx.libnetty.resp;
+
+import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_SHORT;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.NULL_SHORT;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * The cached implementation of {@link RespMessage} holds user-defined constant
+ * replies.
+ * <p>
+ * The reply, which may consist of multiple frames (e.g. an array with its
+ * elements), is encoded only once when it is built and the encoded bytes are
+ * shared by all channels.
+ * <p>
+ * Use {@link #builder()} to build instances:
+ *
+ * <pre>
+ * {@code
+ * CachedConstantMessage reply = CachedConstantMessage.builder().arrayHeader(2).bulkString("subscribe")
+ *         .integer(1).build();
+ * }
+ * </pre>
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class CachedConstantMessage extends CachedRespMessage {
+
+    /**
+     * Returns a new {@link Builder}.
+     *
+     * @return a new {@code Builder}
+     */
+    public static final Builder builder() {
+        return new Builder();
+    }
+
+    private final RespMessageType type;
+
+    private CachedConstantMessage(ByteBuf fullContent, RespMessageType type) {
+        super(fullContent);
+        this.type = type;
+    }
+
+    @Override
+    public RespMessageType type() {
+        return type;
+    }
+
+    /**
+     * Returns the number of the encoded bytes.
+     *
+     * @return the number of the encoded bytes
+     */
+    public int length() {
+        return fullContent.readableBytes();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + type + RespCodecUtil.toString(fullContent()) + "]";
+    }
+
+    /**
+     * Builder of {@link CachedConstantMessage}.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public static final class Builder {
+
+        private final ByteBuf buf = Unpooled.buffer();
+        private RespMessageType type;
+
+        private Builder() {
+        }
+
+        private Builder type(RespMessageType type) {
+            if (this.type == null) {
+                this.type = type;
+            }
+            return this;
+        }
+
+        /**
+         * Appends a simple string.
+         *
+         * @param value the value, encoded in {@code UTF-8}
+         * @return this builder
+         */
+        public Builder simpleString(CharSequence value) {
+            buf.writeByte(RespConstants.TYPE_SIMPLE_STRING).writeCharSequence(value, CharsetUtil.UTF_8);
+            buf.writeShort(EOL_SHORT);
+            return type(RespMessageType.SIMPLE_STRING);
+        }
+
+        /**
+         * Appends an error.
+         *
+         * @param text the full text of the error, such as
+         *             {@code "ERR unknown command"}
+         * @return this builder
+         */
+        public Builder error(CharSequence text) {
+            buf.writeByte(RespConstants.TYPE_ERROR).writeCharSequence(text, CharsetUtil.UTF_8);
+            buf.writeShort(EOL_SHORT);
+            return type(RespMessageType.ERROR);
+        }
+
+        /**
+         * Appends an integer.
+         *
+         * @param value the value
+         * @return this builder
+         */
+        public Builder integer(long value) {
+            buf.writeByte(RespConstants.TYPE_INTEGER).writeBytes(RespCodecUtil.longToAsciiBytes(value))
+                    .writeShort(EOL_SHORT);
+            return type(RespMessageType.INTEGER);
+        }
+
+        /**
+         * Appends a bulk string.
+         *
+         * @param value the value, encoded in {@code UTF-8}
+         * @return this builder
+         */
+        public Builder bulkString(CharSequence value) {
+            return bulkString(value.toString().getBytes(CharsetUtil.UTF_8));
+        }
+
+        /**
+         * Appends a bulk string.
+         *
+         * @param value the value
+         * @return this builder
+         */
+        public Builder bulkString(byte[] value) {
+            buf.writeByte(RespConstants.TYPE_BULK_STRING).writeBytes(RespCodecUtil.longToAsciiBytes(value.length))
+                    .writeShort(EOL_SHORT).writeBytes(value).writeShort(EOL_SHORT);
+            return type(RespMessageType.BULK_STRING);
+        }
+
+        /**
+         * Appends a {@code nil} bulk string ({@code $-1}).
+         *
+         * @return this builder
+         */
+        public Builder nil() {
+            buf.writeByte(RespConstants.TYPE_BULK_STRING).writeShort(NULL_SHORT).writeShort(EOL_SHORT);
+            return type(RespMessageType.BULK_STRING);
+        }
+
+        /**
+         * Appends the header of an array, the elements should be appended
+         * subsequently.
+         *
+         * @param size the size of the array
+         * @return this builder
+         */
+        public Builder arrayHeader(int size) {
+            buf.writeByte(RespConstants.TYPE_ARRAY).writeBytes(RespCodecUtil.longToAsciiBytes(size))
+                    .writeShort(EOL_SHORT);
+            return type(RespMessageType.ARRAY);
+        }
+
+        /**
+         * Appends the encoded bytes of the specified message.
+         * <p>
+         * The message will not be released by this method.
+         *
+         * @param message the message
+         * @return this builder
+         * @throws Exception if any error occurs when encoding the message
+         */
+        public Builder message(RespMessage message) throws Exception {
+            List<Object> out = new ArrayList<>();
+            try {
+                message.encode(UnpooledByteBufAllocator.DEFAULT, out);
+                for (Object o : out) {
+                    buf.writeBytes((ByteBuf) o);
+                }
+            } finally {
+                out.forEach(ReferenceCountUtil::release);
+            }
+            return type(message.type());
+        }
+
+        /**
+         * Builds a new {@link CachedConstantMessage}.
+         *
+         * @return a new {@code CachedConstantMessage}
+         */
+        public CachedConstantMessage build() {
+            Objects.requireNonNull(type, "nothing appended");
+            return new CachedConstantMessage(buf.copy(), type);
+        }
+
+    }
+
+}
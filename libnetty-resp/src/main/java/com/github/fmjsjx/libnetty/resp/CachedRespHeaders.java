@@ -0,0 +1,137 @@
+package com.github.fmjsjx.libnetty.resp;
+
+import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_LENGTH;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_SHORT;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_ARRAY;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_BULK_STRING;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_LENGTH;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Precomputed headers ({@code <type><length>\r\n}) of RESP messages.
+ * <p>
+ * The headers of bulk strings with small lengths and the headers of aggregate
+ * messages (arrays, and RESP3 maps, sets, attributes and pushes) with small
+ * sizes are encoded once and shared as read-only unreleasable
+ * {@link ByteBuf}s.
+ * <p>
+ * The cache ranges can be configured by the system properties
+ * {@code -Dio.netty.resp.maxCachedBulkStringHeader} (default {@code 1024})
+ * and {@code -Dio.netty.resp.maxCachedAggregateHeader} (default
+ * {@code 128}).
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public final class CachedRespHeaders {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CachedRespHeaders.class);
+
+    private static final int maxCachedHeaderLimit = 65535;
+
+    // RESP3 aggregate types, see Resp3Constants
+    private static final byte[] aggregateTypes = { TYPE_ARRAY, '%', '~', '|', '>' };
+
+    private static final ByteBuf[][] cachedHeaders = new ByteBuf[128][];
+
+    static {
+        int maxBulkString = SystemPropertyUtil.getInt("io.netty.resp.maxCachedBulkStringHeader", 1024);
+        maxBulkString = Math.min(maxCachedHeaderLimit, Math.max(0, maxBulkString));
+        logger.debug("-Dio.netty.resp.maxCachedBulkStringHeader: {}", maxBulkString);
+        int maxAggregate = SystemPropertyUtil.getInt("io.netty.resp.maxCachedAggregateHeader", 128);
+        maxAggregate = Math.min(maxCachedHeaderLimit, Math.max(0, maxAggregate));
+        logger.debug("-Dio.netty.resp.maxCachedAggregateHeader: {}", maxAggregate);
+        cachedHeaders[TYPE_BULK_STRING] = createHeaders(TYPE_BULK_STRING, maxBulkString);
+        for (byte type : aggregateTypes) {
+            cachedHeaders[type] = createHeaders(type, maxAggregate);
+        }
+    }
+
+    private static final ByteBuf[] createHeaders(byte type, int max) {
+        ByteBuf[] headers = new ByteBuf[max + 1];
+        for (int i = 0; i < headers.length; i++) {
+            ByteBuf header = encodeHeader(UnpooledByteBufAllocator.DEFAULT, type, i);
+            headers[i] = Unpooled.unreleasableBuffer(header.asReadOnly());
+        }
+        return headers;
+    }
+
+    private static final ByteBuf encodeHeader(ByteBufAllocator alloc, byte type, long value) {
+        byte[] bytes = RespCodecUtil.longToAsciiBytes(value);
+        return RespCodecUtil.buffer(alloc, TYPE_LENGTH + bytes.length + EOL_LENGTH).writeByte(type).writeBytes(bytes)
+                .writeShort(EOL_SHORT);
+    }
+
+    /**
+     * Returns the header with the specified type and value.
+     * <p>
+     * A shared read-only duplicate will be returned if the header is cached,
+     * otherwise a new {@link ByteBuf} will be allocated by the specified
+     * {@code alloc}.
+     *
+     * @param alloc the {@link ByteBufAllocator} to allocate {@link ByteBuf}s
+     * @param type  the type sign
+     * @param value the length or the size
+     * @return a {@code ByteBuf}
+     */
+    public static final ByteBuf header(ByteBufAllocator alloc, byte type, long value) {
+        ByteBuf cached = cachedHeader(type, value);
+        if (cached != null) {
+            return cached;
+        }
+        return encodeHeader(alloc, type, value);
+    }
+
+    /**
+     * Returns the header of the bulk string with the specified length.
+     *
+     * @param alloc  the {@link ByteBufAllocator} to allocate {@link ByteBuf}s
+     * @param length the length of the bulk string
+     * @return a {@code ByteBuf}
+     */
+    public static final ByteBuf bulkStringHeader(ByteBufAllocator alloc, int length) {
+        return header(alloc, TYPE_BULK_STRING, length);
+    }
+
+    /**
+     * Returns the header of the array with the specified size.
+     *
+     * @param alloc the {@link ByteBufAllocator} to allocate {@link ByteBuf}s
+     * @param size  the size of the array
+     * @return a {@code ByteBuf}
+     */
+    public static final ByteBuf arrayHeader(ByteBufAllocator alloc, int size) {
+        return header(alloc, TYPE_ARRAY, size);
+    }
+
+    /**
+     * Returns the shared read-only duplicate of the cached header with the
+     * specified type and value if exists.
+     *
+     * @param type  the type sign
+     * @param value the length or the size
+     * @return a {@code ByteBuf}, or {@code null} if the header is not cached
+     */
+    public static final ByteBuf cachedHeader(byte type, long value) {
+        if (type < 0 || value < 0) {
+            return null;
+        }
+        ByteBuf[] headers = cachedHeaders[type];
+        if (headers == null || value >= headers.length) {
+            return null;
+        }
+        return headers[(int) value].duplicate();
+    }
+
+    private CachedRespHeaders() {
+    }
+
+}
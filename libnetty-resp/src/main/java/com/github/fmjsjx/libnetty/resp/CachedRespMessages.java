@@ -70,6 +70,13 @@ public class CachedRespMessages {
      */
     public static final CachedSimpleStringMessage PONG = CachedSimpleStringMessage.createAscii("PONG");
 
+    /**
+     * Empty array.
+     * 
+     * @since 4.3
+     */
+    public static final CachedEmptyArrayMessage<RespMessage> EMPTY_ARRAY = CachedEmptyArrayMessage.getInstance();
+
     /**
      * {@code :0}
      */
@@ -141,6 +148,18 @@ public class CachedRespMessages {
         return CachedErrorMessage.createErrAscii("wrong number of arguments for '" + command + "' command");
     }
 
+    /**
+     * Returns a new {@link CachedConstantMessage.Builder} to build user-defined
+     * constant replies.
+     * 
+     * @return a {@code CachedConstantMessage.Builder}
+     * 
+     * @since 4.3
+     */
+    public static final CachedConstantMessage.Builder constantBuilder() {
+        return CachedConstantMessage.builder();
+    }
+
     private CachedRespMessages() {
     }
 
@@ -148,10 +148,7 @@ public class DefaultBulkStringMessage extends AbstractContentRespMessage<Default
     @Override
     public void encode(ByteBufAllocator alloc, List<Object> out) throws Exception {
         ByteBuf content = content();
-        byte[] length = RespCodecUtil.longToAsciiBytes(content.readableBytes());
-        ByteBuf header = alloc.buffer(TYPE_LENGTH + length.length + EOL_LENGTH).writeByte(type().value())
-                .writeBytes(length).writeShort(EOL_SHORT);
-        out.add(header); // header
+        out.add(CachedRespHeaders.bulkStringHeader(alloc, content.readableBytes())); // header
         out.add(content.retain()); // content
         out.add(EOL_BUF.duplicate());
     }
@@ -3,12 +3,12 @@ package com.github.fmjsjx.libnetty.resp;
 import static com.github.fmjsjx.libnetty.resp.RespConstants.*;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.BiConsumer;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * The default implementation of {@link RespMessageDecoder}.
@@ -19,40 +19,16 @@ import io.netty.util.CharsetUtil;
  */
 public class DefaultRespMessageDecoder extends RespMessageDecoder {
 
-    static final class ArrayBuilder {
+    private static final int INITIAL_NESTS_CAPACITY = 8;
 
-        private final int length;
-        private final ArrayList<RespMessage> values;
-
-        ArrayBuilder(int length) {
-            this.length = length;
-            this.values = new ArrayList<>(length);
-        }
-
-        boolean isReachedEnd() {
-            return values.size() == length;
-        }
-
-        boolean add(RespMessage msg) {
-            values.add(msg);
-            return isReachedEnd();
-        }
-
-        RespArrayMessage<RespMessage> build() {
-            return wrappedArray(values);
-        }
-
-    }
-
-    private LinkedList<ArrayBuilder> nests;
+    // nested arrays are tracked by a reusable stack of frames, the frame at
+    // index `depth - 1` is the innermost array being decoded
+    private int depth;
+    private int[] nestLengths = new int[INITIAL_NESTS_CAPACITY];
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ArrayList<RespMessage>[] nestValues = new ArrayList[INITIAL_NESTS_CAPACITY];
     private int currentBulkStringLength;
 
-    private final BiConsumer<ByteBuf, List<Object>> arrayHeaderDecoder = this::decodeArrayHeader;
-    private final BiConsumer<ByteBuf, List<Object>> bulkStringLengthDecoder = this::decodeBulkStringLength;
-    private final BiConsumer<ByteBuf, List<Object>> simpleStringDecoder = this::decodeSimpleString;
-    private final BiConsumer<ByteBuf, List<Object>> errorDecoder = this::decodeError;
-    private final BiConsumer<ByteBuf, List<Object>> integerDecoder = this::decodeInteger;
-
     /**
      * Constructs a new {@link DefaultRespMessageDecoder} using default
      * {@code maxInlineMessageLength} ({@code 65536}).
@@ -75,38 +51,57 @@ public class DefaultRespMessageDecoder extends RespMessageDecoder {
     @Override
     protected void resetDecoder() {
         super.resetDecoder();
-        nests = null;
+        int depth = this.depth;
+        if (depth > 0) {
+            // release all decoded values of the incomplete arrays
+            ArrayList<RespMessage>[] nestValues = this.nestValues;
+            for (int i = 0; i < depth; i++) {
+                for (RespMessage value : nestValues[i]) {
+                    ReferenceCountUtil.release(value);
+                }
+                nestValues[i] = null;
+            }
+            this.depth = 0;
+        }
     }
 
     @Override
     protected boolean decodeInline(ByteBuf in, List<Object> out) {
         byte typeValue = in.getByte(in.readerIndex());
-        BiConsumer<ByteBuf, List<Object>> decoder;
+        ByteBuf inlineBytes;
         switch (typeValue) {
+        case TYPE_BULK_STRING:
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeBulkStringLength(inlineBytes, out);
+            }
+            break;
         case TYPE_ARRAY:
-            decoder = arrayHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeArrayHeader(inlineBytes, out);
+            }
             break;
-        case TYPE_BULK_STRING:
-            decoder = bulkStringLengthDecoder;
+        case TYPE_INTEGER:
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeInteger(inlineBytes, out);
+            }
             break;
         case TYPE_SIMPLE_STRING:
-            decoder = simpleStringDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeSimpleString(inlineBytes, out);
+            }
             break;
         case TYPE_ERROR:
-            decoder = errorDecoder;
-            break;
-        case TYPE_INTEGER:
-            decoder = integerDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeError(inlineBytes, out);
+            }
             break;
         default: // INLINE COMMAND
             throw DECODING_OF_INLINE_COMMANDS_DISABLED;
         }
-        ByteBuf inlineBytes = readLine(in);
         if (inlineBytes == null) {
             checkInlineLength(in);
             return false;
         }
-        decoder.accept(inlineBytes, out);
         return true;
     }
 
@@ -116,26 +111,20 @@ public class DefaultRespMessageDecoder extends RespMessageDecoder {
     }
 
     private void appendMessage(RespMessage msg, List<Object> out) {
-        LinkedList<ArrayBuilder> nests = this.nests;
-        if (nests == null) {
-            out.add(msg);
-            resetDecoder();
-        } else {
-            for (;;) {
-                ArrayBuilder ab = nests.getLast();
-                if (ab.add(msg)) {
-                    msg = ab.build();
-                    nests.removeLast();
-                    if (nests.isEmpty()) {
-                        out.add(msg);
-                        resetDecoder();
-                        break;
-                    }
-                } else {
-                    break;
-                }
+        int depth = this.depth;
+        while (depth > 0) {
+            int index = depth - 1;
+            ArrayList<RespMessage> values = nestValues[index];
+            values.add(msg);
+            if (values.size() < nestLengths[index]) {
+                return;
             }
+            nestValues[index] = null;
+            this.depth = depth = index;
+            msg = wrappedArray(values);
         }
+        out.add(msg);
+        resetDecoder();
     }
 
     private void decodeError(ByteBuf inlineBytes, List<Object> out) {
@@ -177,16 +166,20 @@ public class DefaultRespMessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(RespMessages.emptyArray(), out);
         } else {
-            ensureNests().addLast(new ArrayBuilder(size));
+            pushNest(size);
         }
     }
 
-    private LinkedList<ArrayBuilder> ensureNests() {
-        LinkedList<ArrayBuilder> nests = this.nests;
-        if (nests == null) {
-            this.nests = nests = new LinkedList<>();
+    private void pushNest(int length) {
+        int depth = this.depth;
+        if (depth == nestLengths.length) {
+            int newCapacity = depth << 1;
+            nestLengths = Arrays.copyOf(nestLengths, newCapacity);
+            nestValues = Arrays.copyOf(nestValues, newCapacity);
         }
-        return nests;
+        nestLengths[depth] = length;
+        nestValues[depth] = new ArrayList<>(length);
+        this.depth = depth + 1;
     }
 
     @Override
@@ -0,0 +1,50 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import java.util.Objects;
+
+/**
+ * The address of a Redis Cluster node.
+ *
+ * @param host the host
+ * @param port the port
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public record ClusterNode(String host, int port) {
+
+    /**
+     * Parses a {@link ClusterNode} from the specified endpoint in
+     * {@code host:port} format.
+     *
+     * @param endpoint the endpoint, e.g. {@code 127.0.0.1:6379}
+     * @return a {@code ClusterNode}
+     */
+    public static final ClusterNode parse(String endpoint) {
+        int index = endpoint.lastIndexOf(':');
+        if (index <= 0 || index == endpoint.length() - 1) {
+            throw new IllegalArgumentException("invalid endpoint `" + endpoint + "`");
+        }
+        return new ClusterNode(endpoint.substring(0, index), Integer.parseInt(endpoint.substring(index + 1)));
+    }
+
+    /**
+     * Constructs a new {@link ClusterNode} instance.
+     *
+     * @param host the host
+     * @param port the port
+     */
+    public ClusterNode {
+        Objects.requireNonNull(host, "host must not be null");
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("port must be between 1 and 65535");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+
+}
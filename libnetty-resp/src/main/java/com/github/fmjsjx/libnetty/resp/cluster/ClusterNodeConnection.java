@@ -0,0 +1,140 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.fmjsjx.libnetty.resp.CachedBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultArrayMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultRespMessageDecoder;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessageEncoder;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * A pipelined connection to a Redis Cluster node.
+ * <p>
+ * Replies are matched with the commands in the order they are sent.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+final class ClusterNodeConnection {
+
+    private static final CachedBulkStringMessage ASKING = CachedBulkStringMessage.createAscii("ASKING");
+
+    // a completed future, replies matched with it will be discarded
+    private static final CompletableFuture<RespMessage> DISCARD = CompletableFuture.completedFuture(null);
+
+    static final ClusterNodeConnection connect(Bootstrap bootstrap, ClusterNode node) {
+        return new ClusterNodeConnection(bootstrap, node);
+    }
+
+    private final ClusterNode node;
+    private final ReplyHandler replyHandler = new ReplyHandler();
+    private final ChannelFuture connectFuture;
+
+    private ClusterNodeConnection(Bootstrap bootstrap, ClusterNode node) {
+        this.node = node;
+        this.connectFuture = bootstrap.clone().handler(new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.pipeline().addLast(RespMessageEncoder.getInstance()).addLast(new DefaultRespMessageDecoder())
+                        .addLast(replyHandler);
+            }
+        }).connect(node.host(), node.port());
+    }
+
+    ClusterNode node() {
+        return node;
+    }
+
+    ChannelFuture closeFuture() {
+        return connectFuture.channel().closeFuture();
+    }
+
+    boolean isClosed() {
+        return connectFuture.isDone() && !connectFuture.channel().isActive();
+    }
+
+    /**
+     * Sends the specified command, the command will be released after it has
+     * been written.
+     */
+    CompletableFuture<RespMessage> send(RespMessage command) {
+        return send(command, false);
+    }
+
+    /**
+     * Sends the specified command, with a preceding {@code ASKING} command if
+     * {@code asking} is {@code true}. The command will be released after it has
+     * been written.
+     */
+    CompletableFuture<RespMessage> send(RespMessage command, boolean asking) {
+        CompletableFuture<RespMessage> future = new CompletableFuture<>();
+        // listeners are always notified in the event loop of the channel
+        connectFuture.addListener((ChannelFuture cf) -> {
+            Channel channel = cf.channel();
+            if (!cf.isSuccess() || !channel.isActive()) {
+                ReferenceCountUtil.release(command);
+                future.completeExceptionally(cf.isSuccess() ? new ClosedChannelException() : cf.cause());
+                return;
+            }
+            if (asking) {
+                // the reply of ASKING is always OK and will be discarded
+                replyHandler.pendings.add(DISCARD);
+                channel.write(new DefaultArrayMessage<>(ASKING)).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            }
+            replyHandler.pendings.add(future);
+            channel.writeAndFlush(command).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        });
+        return future;
+    }
+
+    void close() {
+        connectFuture.channel().close();
+    }
+
+    private static final class ReplyHandler extends ChannelInboundHandlerAdapter {
+
+        private final ArrayDeque<CompletableFuture<RespMessage>> pendings = new ArrayDeque<>();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            CompletableFuture<RespMessage> future = pendings.poll();
+            if (future == null || !(msg instanceof RespMessage reply) || !future.complete(reply)) {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            failAll(new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            failAll(cause);
+            ctx.close();
+        }
+
+        private void failAll(Throwable cause) {
+            CompletableFuture<RespMessage> future;
+            while ((future = pendings.poll()) != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.fmjsjx.libnetty.resp.RespAggregateMessage;
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespIntegerMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp.RespSimpleStringMessage;
+import com.github.fmjsjx.libnetty.resp3.FieldValuePair;
+import com.github.fmjsjx.libnetty.resp3.Resp3MapMessage;
+
+/**
+ * The table maps hash slots to master nodes of a Redis Cluster.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public final class ClusterSlotTable {
+
+    /**
+     * Returns a new empty {@link ClusterSlotTable}.
+     *
+     * @return a {@code ClusterSlotTable}
+     */
+    public static final ClusterSlotTable empty() {
+        return new ClusterSlotTable();
+    }
+
+    /**
+     * Returns a new {@link ClusterSlotTable} parsed from the reply of the
+     * {@code CLUSTER SLOTS} command.
+     *
+     * @param reply       the reply of {@code CLUSTER SLOTS}
+     * @param defaultHost the host used when the node has no preferred endpoint,
+     *                    usually the host of the node the command was sent to
+     * @return a {@code ClusterSlotTable}
+     */
+    public static final ClusterSlotTable fromClusterSlots(RespMessage reply, String defaultHost) {
+        ClusterSlotTable table = new ClusterSlotTable();
+        for (RespMessage range : toAggregate(reply).values()) {
+            List<? extends RespMessage> values = toAggregate(range).values();
+            if (values.size() < 3) {
+                throw new IllegalArgumentException("invalid slot range " + range);
+            }
+            int start = toInt(values.get(0));
+            int end = toInt(values.get(1));
+            // the first node is the master
+            List<? extends RespMessage> master = toAggregate(values.get(2)).values();
+            String host = toText(master.get(0));
+            if (host.isEmpty() || "?".equals(host)) {
+                host = defaultHost;
+            }
+            table.assign(start, end, new ClusterNode(host, toInt(master.get(1))));
+        }
+        return table;
+    }
+
+    /**
+     * Returns a new {@link ClusterSlotTable} parsed from the reply of the
+     * {@code CLUSTER SHARDS} command.
+     *
+     * @param reply       the reply of {@code CLUSTER SHARDS}
+     * @param defaultHost the host used when the node has no endpoint, usually the
+     *                    host of the node the command was sent to
+     * @return a {@code ClusterSlotTable}
+     */
+    public static final ClusterSlotTable fromClusterShards(RespMessage reply, String defaultHost) {
+        ClusterSlotTable table = new ClusterSlotTable();
+        for (RespMessage shard : toAggregate(reply).values()) {
+            Map<String, RespMessage> shardMap = toMap(shard);
+            ClusterNode master = null;
+            for (RespMessage node : toAggregate(shardMap.get("nodes")).values()) {
+                Map<String, RespMessage> nodeMap = toMap(node);
+                if ("master".equals(toText(nodeMap.get("role")))) {
+                    master = toNode(nodeMap, defaultHost);
+                    break;
+                }
+            }
+            if (master == null) {
+                continue;
+            }
+            List<? extends RespMessage> slots = toAggregate(shardMap.get("slots")).values();
+            for (int i = 0; i + 1 < slots.size(); i += 2) {
+                table.assign(toInt(slots.get(i)), toInt(slots.get(i + 1)), master);
+            }
+        }
+        return table;
+    }
+
+    private static final ClusterNode toNode(Map<String, RespMessage> nodeMap, String defaultHost) {
+        String host = toText(nodeMap.get("endpoint"));
+        if (host.isEmpty() || "?".equals(host)) {
+            host = toText(nodeMap.get("ip"));
+        }
+        if (host.isEmpty() || "?".equals(host)) {
+            host = defaultHost;
+        }
+        RespMessage port = nodeMap.get("port");
+        if (port == null) {
+            port = nodeMap.get("tls-port");
+        }
+        return new ClusterNode(host, toInt(port));
+    }
+
+    private static final RespAggregateMessage<? extends RespMessage> toAggregate(RespMessage msg) {
+        if (msg instanceof RespArrayMessage<?> array) {
+            return array;
+        }
+        throw new IllegalArgumentException("expected an array but was " + msg);
+    }
+
+    private static final Map<String, RespMessage> toMap(RespMessage msg) {
+        Map<String, RespMessage> map = new HashMap<>();
+        if (msg instanceof Resp3MapMessage<?, ?> resp3Map) {
+            for (FieldValuePair<?, ?> pair : resp3Map.values()) {
+                map.put(toText(pair.field()), pair.value());
+            }
+        } else {
+            List<? extends RespMessage> values = toAggregate(msg).values();
+            for (int i = 0; i + 1 < values.size(); i += 2) {
+                map.put(toText(values.get(i)), values.get(i + 1));
+            }
+        }
+        return map;
+    }
+
+    private static final int toInt(RespMessage msg) {
+        if (msg instanceof RespIntegerMessage integer) {
+            return (int) integer.value();
+        } else if (msg instanceof RespBulkStringMessage bulkString) {
+            return bulkString.intValue();
+        }
+        throw new IllegalArgumentException("expected an integer but was " + msg);
+    }
+
+    private static final String toText(RespMessage msg) {
+        if (msg instanceof RespBulkStringMessage bulkString) {
+            return bulkString.isNull() ? "" : bulkString.textValue();
+        } else if (msg instanceof RespSimpleStringMessage simpleString) {
+            return simpleString.value();
+        }
+        return "";
+    }
+
+    private final AtomicReferenceArray<ClusterNode> nodes = new AtomicReferenceArray<>(ClusterSlots.SLOT_COUNT);
+
+    private ClusterSlotTable() {
+    }
+
+    /**
+     * Returns the master node serving the specified hash slot.
+     *
+     * @param slot the hash slot
+     * @return the master node, or {@code null} if the slot is not served
+     */
+    public ClusterNode node(int slot) {
+        return nodes.get(slot);
+    }
+
+    /**
+     * Updates the master node serving the specified hash slot.
+     *
+     * @param slot the hash slot
+     * @param node the master node
+     */
+    public void update(int slot, ClusterNode node) {
+        nodes.set(slot, node);
+    }
+
+    /**
+     * Assigns the hash slots in the specified range to the specified node.
+     *
+     * @param start the start slot (inclusive)
+     * @param end   the end slot (inclusive)
+     * @param node  the master node
+     */
+    public void assign(int start, int end, ClusterNode node) {
+        if (start < 0 || end >= ClusterSlots.SLOT_COUNT || start > end) {
+            throw new IllegalArgumentException("invalid slot range [" + start + ", " + end + "]");
+        }
+        for (int slot = start; slot <= end; slot++) {
+            nodes.set(slot, node);
+        }
+    }
+
+    /**
+     * Returns all master nodes in this table.
+     *
+     * @return a {@code Set<ClusterNode>}
+     */
+    public Set<ClusterNode> nodes() {
+        Set<ClusterNode> set = new LinkedHashSet<>();
+        for (int slot = 0; slot < ClusterSlots.SLOT_COUNT; slot++) {
+            ClusterNode node = nodes.get(slot);
+            if (node != null) {
+                set.add(node);
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterSlotTable" + nodes();
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Utility class for hash slots of Redis Cluster.
+ * <p>
+ * The hash slot of a key is computed by {@code CRC16(key) mod 16384}, the
+ * {@code CRC16} algorithm is {@code XMODEM}. If the key contains a
+ * {@code {...}} pattern (the hash tag) with at least one character between
+ * {@code '{'} and {@code '}'}, only the substring between them will be
+ * hashed.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public final class ClusterSlots {
+
+    /**
+     * The number of hash slots: {@code 16384}
+     */
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    /**
+     * Returns the {@code CRC16} value of the specified bytes.
+     *
+     * @param buf    the buffer
+     * @param index  the start index
+     * @param length the number of bytes
+     * @return the {@code CRC16} value
+     */
+    public static final int crc16(ByteBuf buf, int index, int length) {
+        int crc = 0;
+        for (int i = index, end = index + length; i < end; i++) {
+            crc = (crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ buf.getByte(i)) & 0xFF];
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * Returns the {@code CRC16} value of the specified bytes.
+     *
+     * @param bytes  the bytes
+     * @param offset the start offset
+     * @param length the number of bytes
+     * @return the {@code CRC16} value
+     */
+    public static final int crc16(byte[] bytes, int offset, int length) {
+        int crc = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF];
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * Returns the hash slot of the specified key.
+     * <p>
+     * The readable bytes of the key will be hashed, and the reader index will
+     * not be modified.
+     *
+     * @param key the key
+     * @return the hash slot
+     */
+    public static final int slot(ByteBuf key) {
+        int index = key.readerIndex();
+        int end = key.writerIndex();
+        int tagStart = key.indexOf(index, end, (byte) '{');
+        if (tagStart >= 0) {
+            int tagEnd = key.indexOf(tagStart + 1, end, (byte) '}');
+            if (tagEnd > tagStart + 1) {
+                return crc16(key, tagStart + 1, tagEnd - tagStart - 1) & SLOT_MASK;
+            }
+        }
+        return crc16(key, index, end - index) & SLOT_MASK;
+    }
+
+    /**
+     * Returns the hash slot of the key in the specified bulk string.
+     *
+     * @param key the bulk string holding the key
+     * @return the hash slot
+     */
+    public static final int slot(RespBulkStringMessage key) {
+        return slot(key.content());
+    }
+
+    /**
+     * Returns the hash slot of the specified key.
+     *
+     * @param key the key
+     * @return the hash slot
+     */
+    public static final int slot(byte[] key) {
+        int end = key.length;
+        int tagStart = indexOf(key, 0, end, (byte) '{');
+        if (tagStart >= 0) {
+            int tagEnd = indexOf(key, tagStart + 1, end, (byte) '}');
+            if (tagEnd > tagStart + 1) {
+                return crc16(key, tagStart + 1, tagEnd - tagStart - 1) & SLOT_MASK;
+            }
+        }
+        return crc16(key, 0, end) & SLOT_MASK;
+    }
+
+    /**
+     * Returns the hash slot of the specified key.
+     *
+     * @param key the key, will be encoded in {@code UTF-8}
+     * @return the hash slot
+     */
+    public static final int slot(String key) {
+        return slot(key.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static final int indexOf(byte[] bytes, int fromIndex, int toIndex, byte value) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ClusterSlots() {
+    }
+
+}
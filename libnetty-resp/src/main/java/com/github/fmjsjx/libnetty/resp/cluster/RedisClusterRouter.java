@@ -0,0 +1,439 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fmjsjx.libnetty.resp.CachedBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespErrorMessage;
+import com.github.fmjsjx.libnetty.resp.RespIntegerMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessages;
+import com.github.fmjsjx.libnetty.resp.util.IgnoredCaseAsciiKeyMap;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * A router sends commands to the right nodes of a Redis Cluster.
+ * <p>
+ * The router computes the hash slot of the key of each command, and sends the
+ * command to the master node serving the slot according to the
+ * {@link ClusterSlotTable}, which is refreshed by the {@code CLUSTER SLOTS} (or
+ * {@code CLUSTER SHARDS}) command. {@code MOVED} and {@code ASK} redirections
+ * are followed automatically.
+ * <p>
+ * The multi-key commands {@code MGET}, {@code MSET}, {@code DEL},
+ * {@code UNLINK}, {@code EXISTS} and {@code TOUCH} are split by hash slots and
+ * sent to the nodes in parallel, and their replies will be merged. Other
+ * commands are routed by the first key (the second argument), commands
+ * without any key are sent to an arbitrary node.
+ * <p>
+ * Note that a split command is not atomic: a cross-slot {@code MSET} may
+ * succeed on some nodes but fail on others, and other clients may observe
+ * the keys partially updated.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class RedisClusterRouter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisClusterRouter.class);
+
+    private static final int DEFAULT_MAX_REDIRECTIONS = 5;
+
+    private static final CachedBulkStringMessage CLUSTER = CachedBulkStringMessage.createAscii("CLUSTER");
+    private static final CachedBulkStringMessage SLOTS = CachedBulkStringMessage.createAscii("SLOTS");
+    private static final CachedBulkStringMessage SHARDS = CachedBulkStringMessage.createAscii("SHARDS");
+
+    private enum MultiKeyCommand {
+        /**
+         * Keys: {@code key [key ...]}, reply: array of values.
+         */
+        MGET(1),
+        /**
+         * Keys: {@code key value [key value ...]}, reply: {@code OK}.
+         */
+        MSET(2),
+        /**
+         * Keys: {@code key [key ...]}, reply: sum of integers.
+         */
+        SUM(1);
+
+        private final int step;
+
+        private MultiKeyCommand(int step) {
+            this.step = step;
+        }
+
+    }
+
+    private static final IgnoredCaseAsciiKeyMap<MultiKeyCommand> multiKeyCommands = new IgnoredCaseAsciiKeyMap<>();
+
+    static {
+        multiKeyCommands.put("MGET", MultiKeyCommand.MGET);
+        multiKeyCommands.put("MSET", MultiKeyCommand.MSET);
+        multiKeyCommands.put("DEL", MultiKeyCommand.SUM);
+        multiKeyCommands.put("UNLINK", MultiKeyCommand.SUM);
+        multiKeyCommands.put("EXISTS", MultiKeyCommand.SUM);
+        multiKeyCommands.put("TOUCH", MultiKeyCommand.SUM);
+    }
+
+    private final Bootstrap bootstrap;
+    private final List<ClusterNode> seeds;
+    private final int maxRedirections;
+    private final boolean useShards;
+
+    private volatile ClusterSlotTable slotTable = ClusterSlotTable.empty();
+    private final ConcurrentHashMap<ClusterNode, ClusterNodeConnection> connections = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@link RedisClusterRouter} with the specified seed
+     * nodes.
+     *
+     * @param group        the {@link EventLoopGroup}
+     * @param channelClass the class of the {@link Channel}s
+     * @param seeds        the seed nodes
+     */
+    public RedisClusterRouter(EventLoopGroup group, Class<? extends Channel> channelClass,
+            Collection<ClusterNode> seeds) {
+        this(group, channelClass, seeds, DEFAULT_MAX_REDIRECTIONS, false);
+    }
+
+    /**
+     * Constructs a new {@link RedisClusterRouter} with the specified
+     * parameters.
+     *
+     * @param group           the {@link EventLoopGroup}
+     * @param channelClass    the class of the {@link Channel}s
+     * @param seeds           the seed nodes
+     * @param maxRedirections the maximum number of redirections followed for
+     *                        each command
+     * @param useShards       {@code true} if use the {@code CLUSTER SHARDS}
+     *                        command instead of the {@code CLUSTER SLOTS}
+     *                        command to refresh the slot table
+     */
+    public RedisClusterRouter(EventLoopGroup group, Class<? extends Channel> channelClass,
+            Collection<ClusterNode> seeds, int maxRedirections, boolean useShards) {
+        Objects.requireNonNull(group, "group must not be null");
+        Objects.requireNonNull(channelClass, "channelClass must not be null");
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("seeds must not be empty");
+        }
+        this.bootstrap = new Bootstrap().group(group).channel(channelClass).option(ChannelOption.TCP_NODELAY, true);
+        this.seeds = List.copyOf(seeds);
+        this.maxRedirections = maxRedirections;
+        this.useShards = useShards;
+    }
+
+    /**
+     * Returns the current slot table.
+     *
+     * @return the current slot table
+     */
+    public ClusterSlotTable slotTable() {
+        return slotTable;
+    }
+
+    /**
+     * Refreshes the slot table from the cluster.
+     * <p>
+     * The known nodes will be tried one by one until one of them returns the
+     * slots information successfully.
+     *
+     * @return a {@code CompletableFuture<ClusterSlotTable>}
+     */
+    public CompletableFuture<ClusterSlotTable> refreshSlots() {
+        ensureOpen();
+        LinkedHashSet<ClusterNode> nodes = new LinkedHashSet<>(slotTable.nodes());
+        nodes.addAll(seeds);
+        CompletableFuture<ClusterSlotTable> future = new CompletableFuture<>();
+        refreshSlots(nodes.iterator(), future, null);
+        return future;
+    }
+
+    private void refreshSlots(Iterator<ClusterNode> nodes, CompletableFuture<ClusterSlotTable> future,
+            Throwable lastError) {
+        if (!nodes.hasNext()) {
+            future.completeExceptionally(
+                    lastError != null ? lastError : new IllegalStateException("no node available"));
+            return;
+        }
+        ClusterNode node = nodes.next();
+        RespMessage command = new DefaultArrayMessage<>(CLUSTER, useShards ? SHARDS : SLOTS);
+        connection(node).send(command).whenComplete((reply, e) -> {
+            if (e != null) {
+                logger.debug("Refresh slots from node {} failed", node, e);
+                refreshSlots(nodes, future, e);
+                return;
+            }
+            try {
+                if (reply instanceof RespErrorMessage error) {
+                    throw new IllegalStateException("refresh slots from node " + node + " failed: " + error.text());
+                }
+                ClusterSlotTable table = useShards ? ClusterSlotTable.fromClusterShards(reply, node.host())
+                        : ClusterSlotTable.fromClusterSlots(reply, node.host());
+                slotTable = table;
+                future.complete(table);
+            } catch (Exception ex) {
+                logger.debug("Refresh slots from node {} failed", node, ex);
+                refreshSlots(nodes, future, ex);
+            } finally {
+                ReferenceCountUtil.release(reply);
+            }
+        });
+    }
+
+    private void scheduleRefresh() {
+        if (!closed && refreshing.compareAndSet(false, true)) {
+            refreshSlots().whenComplete((t, e) -> {
+                refreshing.set(false);
+                if (e != null) {
+                    logger.warn("Refresh slots failed", e);
+                }
+            });
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("router already closed");
+        }
+    }
+
+    private ClusterNodeConnection connection(ClusterNode node) {
+        ClusterNodeConnection connection = connections.get(node);
+        if (connection != null && !connection.isClosed()) {
+            return connection;
+        }
+        return connections.compute(node, (k, v) -> {
+            if (v != null && !v.isClosed()) {
+                return v;
+            }
+            ClusterNodeConnection c = ClusterNodeConnection.connect(bootstrap, k);
+            c.closeFuture().addListener(f -> connections.remove(k, c));
+            return c;
+        });
+    }
+
+    /**
+     * Executes the specified command on the cluster.
+     * <p>
+     * The command will be released by this router, and the returned reply
+     * should be released by the caller.
+     * <p>
+     * Multi-key commands across hash slots are split and are not atomic.
+     *
+     * @param command the command
+     * @return a {@code CompletableFuture<RespMessage>}
+     */
+    public CompletableFuture<RespMessage> execute(RespArrayMessage<? extends RespBulkStringMessage> command) {
+        ensureOpen();
+        int size = command.size();
+        if (size == 0) {
+            ReferenceCountUtil.release(command);
+            throw new IllegalArgumentException("command must not be empty");
+        }
+        MultiKeyCommand multiKeyCommand = multiKeyCommands.get(command.value(0).content());
+        if (multiKeyCommand != null && size > 1 + multiKeyCommand.step) {
+            return executeMultiKey(command, multiKeyCommand);
+        }
+        int slot = size > 1 ? ClusterSlots.slot(command.value(1)) : -1;
+        return dispatch(slot, command);
+    }
+
+    private CompletableFuture<RespMessage> dispatch(int slot, RespArrayMessage<? extends RespBulkStringMessage> command) {
+        CompletableFuture<RespMessage> future = new CompletableFuture<>();
+        dispatch(command, nodeOf(slot), false, 0, future);
+        return future;
+    }
+
+    private ClusterNode nodeOf(int slot) {
+        if (slot >= 0) {
+            ClusterNode node = slotTable.node(slot);
+            if (node != null) {
+                return node;
+            }
+        }
+        return seeds.get(0);
+    }
+
+    private void dispatch(RespArrayMessage<? extends RespBulkStringMessage> command, ClusterNode node, boolean asking,
+            int redirections, CompletableFuture<RespMessage> future) {
+        // always send a duplicate because the content of the sent command will be consumed
+        connection(node).send(duplicate(command), asking).whenComplete((reply, e) -> {
+            if (e != null) {
+                ReferenceCountUtil.release(command);
+                future.completeExceptionally(e);
+                return;
+            }
+            if (reply instanceof RespErrorMessage error && redirections < maxRedirections) {
+                String code = error.code().toString();
+                boolean moved = "MOVED".equals(code);
+                if (moved || "ASK".equals(code)) {
+                    Redirection redirection = parseRedirection(error.message(), node);
+                    if (redirection != null) {
+                        if (moved) {
+                            // the slot in the reply is the right one even if the key is not the first argument
+                            slotTable.update(redirection.slot, redirection.node);
+                            scheduleRefresh();
+                        }
+                        ReferenceCountUtil.release(reply);
+                        dispatch(command, redirection.node, !moved, redirections + 1, future);
+                        return;
+                    }
+                }
+            }
+            ReferenceCountUtil.release(command);
+            future.complete(reply);
+        });
+    }
+
+    record Redirection(int slot, ClusterNode node) {
+    }
+
+    static Redirection parseRedirection(String message, ClusterNode current) {
+        // <slot> <host>:<port>
+        int index = message.indexOf(' ');
+        if (index < 0) {
+            return null;
+        }
+        String endpoint = message.substring(index + 1).trim();
+        try {
+            int slot = Integer.parseInt(message.substring(0, index).trim());
+            if (slot < 0 || slot >= ClusterSlots.SLOT_COUNT) {
+                return null;
+            }
+            if (endpoint.startsWith(":")) {
+                // unknown endpoint, use the host of the current node
+                return new Redirection(slot, new ClusterNode(current.host(), Integer.parseInt(endpoint.substring(1))));
+            }
+            return new Redirection(slot, ClusterNode.parse(endpoint));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final RespArrayMessage<RespBulkStringMessage> duplicate(
+            RespArrayMessage<? extends RespBulkStringMessage> command) {
+        List<RespBulkStringMessage> values = new ArrayList<>(command.size());
+        for (RespBulkStringMessage value : command.values()) {
+            values.add((RespBulkStringMessage) value.retainedDuplicate());
+        }
+        return new DefaultArrayMessage<>(values);
+    }
+
+    private CompletableFuture<RespMessage> executeMultiKey(RespArrayMessage<? extends RespBulkStringMessage> command,
+            MultiKeyCommand multiKeyCommand) {
+        int step = multiKeyCommand.step;
+        List<? extends RespBulkStringMessage> values = command.values();
+        // slot -> indexes of the keys
+        LinkedHashMap<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 1; i + step - 1 < values.size(); i += step) {
+            groups.computeIfAbsent(ClusterSlots.slot(values.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        if (groups.size() == 1) {
+            return dispatch(groups.keySet().iterator().next(), command);
+        }
+        List<List<Integer>> indexes = new ArrayList<>(groups.size());
+        List<CompletableFuture<RespMessage>> futures = new ArrayList<>(groups.size());
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            List<Integer> keyIndexes = group.getValue();
+            List<RespBulkStringMessage> subValues = new ArrayList<>(1 + keyIndexes.size() * step);
+            subValues.add((RespBulkStringMessage) values.get(0).retainedDuplicate());
+            for (int index : keyIndexes) {
+                for (int i = 0; i < step; i++) {
+                    subValues.add((RespBulkStringMessage) values.get(index + i).retainedDuplicate());
+                }
+            }
+            indexes.add(keyIndexes);
+            futures.add(dispatch(group.getKey(), new DefaultArrayMessage<>(subValues)));
+        }
+        ReferenceCountUtil.release(command);
+        int keyCount = (values.size() - 1) / step;
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).handle((v, e) -> {
+            List<RespMessage> replies = new ArrayList<>(futures.size());
+            for (CompletableFuture<RespMessage> future : futures) {
+                if (!future.isCompletedExceptionally()) {
+                    replies.add(future.join());
+                }
+            }
+            try {
+                if (e != null) {
+                    throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                }
+                for (RespMessage reply : replies) {
+                    if (reply instanceof RespErrorMessage) {
+                        return ReferenceCountUtil.retain(reply);
+                    }
+                }
+                return merge(multiKeyCommand, keyCount, step, indexes, replies);
+            } finally {
+                replies.forEach(ReferenceCountUtil::release);
+            }
+        });
+    }
+
+    private static final RespMessage merge(MultiKeyCommand multiKeyCommand, int keyCount, int step,
+            List<List<Integer>> indexes, List<RespMessage> replies) {
+        switch (multiKeyCommand) {
+        case MGET: {
+            RespMessage[] values = new RespMessage[keyCount];
+            for (int i = 0; i < replies.size(); i++) {
+                List<? extends RespMessage> subValues = ((RespArrayMessage<?>) replies.get(i)).values();
+                List<Integer> keyIndexes = indexes.get(i);
+                for (int j = 0; j < keyIndexes.size(); j++) {
+                    values[(keyIndexes.get(j) - 1) / step] = ReferenceCountUtil.retain(subValues.get(j));
+                }
+            }
+            return new DefaultArrayMessage<>(values);
+        }
+        case SUM: {
+            long sum = 0;
+            for (RespMessage reply : replies) {
+                sum += ((RespIntegerMessage) reply).value();
+            }
+            return RespMessages.integer(sum);
+        }
+        case MSET:
+        default:
+            return RespMessages.ok();
+        }
+    }
+
+    /**
+     * Closes this router and all connections.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ClusterNodeConnection connection : connections.values()) {
+            connection.close();
+        }
+        connections.clear();
+    }
+
+}
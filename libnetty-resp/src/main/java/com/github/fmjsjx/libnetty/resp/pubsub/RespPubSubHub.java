@@ -0,0 +1,338 @@
+package com.github.fmjsjx.libnetty.resp.pubsub;
+
+import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_LENGTH;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.EOL_SHORT;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_ARRAY;
+import static com.github.fmjsjx.libnetty.resp.RespConstants.TYPE_BULK_STRING;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.fmjsjx.libnetty.resp.RespCodecUtil;
+import com.github.fmjsjx.libnetty.resp3.Resp3Constants;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * A hub broadcasts published messages to the subscribers of topics.
+ * <p>
+ * Each published message is encoded only once into a shared {@link ByteBuf}
+ * as a {@code message} frame ({@code ["message", topic, payload]}, which is a
+ * RESP2 array or a RESP3 push), and all subscribers receive
+ * {@link ByteBuf#retainedDuplicate() retained duplicates} of it. Subscribers
+ * are grouped by their event loops, so a publish only submits one task to
+ * each event loop instead of one task to each channel.
+ * <p>
+ * Subscribers that are not {@link Channel#isWritable() writable} are slow
+ * subscribers, which will be handled according to the
+ * {@link SlowSubscriberPolicy}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class RespPubSubHub {
+
+    /**
+     * Policies of slow subscribers.
+     *
+     * @since 4.3
+     *
+     * @author MJ Fang
+     */
+    public enum SlowSubscriberPolicy {
+        /**
+         * Drop the messages to slow subscribers.
+         */
+        DROP,
+        /**
+         * Close the slow subscribers.
+         */
+        CLOSE
+    }
+
+    private static final byte[] MESSAGE = "message".getBytes(CharsetUtil.US_ASCII);
+
+    private final ByteBufAllocator alloc;
+    private final byte frameType;
+    private final SlowSubscriberPolicy slowSubscriberPolicy;
+
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Channel, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * Constructs a new {@link RespPubSubHub} which publishes RESP2 arrays and
+     * drops messages to slow subscribers.
+     */
+    public RespPubSubHub() {
+        this(ByteBufAllocator.DEFAULT, false, SlowSubscriberPolicy.DROP);
+    }
+
+    /**
+     * Constructs a new {@link RespPubSubHub} with the specified parameters.
+     *
+     * @param alloc                the {@link ByteBufAllocator} used to encode
+     *                             messages
+     * @param resp3                {@code true} if publish RESP3 pushes,
+     *                             {@code false} if publish RESP2 arrays
+     * @param slowSubscriberPolicy the policy of slow subscribers
+     */
+    public RespPubSubHub(ByteBufAllocator alloc, boolean resp3, SlowSubscriberPolicy slowSubscriberPolicy) {
+        this.alloc = Objects.requireNonNull(alloc, "alloc must not be null");
+        this.frameType = resp3 ? Resp3Constants.TYPE_PUSH : TYPE_ARRAY;
+        this.slowSubscriberPolicy = Objects.requireNonNull(slowSubscriberPolicy,
+                "slowSubscriberPolicy must not be null");
+    }
+
+    /**
+     * Subscribes the specified channel to the specified topic.
+     * <p>
+     * The channel will be unsubscribed from all topics automatically when it is
+     * closed.
+     *
+     * @param channel the subscriber channel
+     * @param topic   the topic
+     * @return the number of topics the channel is currently subscribed to
+     */
+    public int subscribe(Channel channel, String topic) {
+        Set<String> channelTopics = subscriptions.get(channel);
+        if (channelTopics == null) {
+            Set<String> newTopics = ConcurrentHashMap.newKeySet();
+            channelTopics = subscriptions.putIfAbsent(channel, newTopics);
+            if (channelTopics == null) {
+                channelTopics = newTopics;
+                channel.closeFuture().addListener(f -> unsubscribeAll(channel));
+            }
+        }
+        if (channelTopics.add(topic)) {
+            topics.compute(topic, (k, t) -> {
+                if (t == null) {
+                    t = new Topic(k);
+                }
+                t.add(channel);
+                return t;
+            });
+            if (!channel.isOpen()) {
+                // the channel has been closed concurrently
+                unsubscribeAll(channel);
+                return 0;
+            }
+        }
+        return channelTopics.size();
+    }
+
+    /**
+     * Unsubscribes the specified channel from the specified topic.
+     *
+     * @param channel the subscriber channel
+     * @param topic   the topic
+     * @return the number of topics the channel is currently subscribed to
+     */
+    public int unsubscribe(Channel channel, String topic) {
+        Set<String> channelTopics = subscriptions.get(channel);
+        if (channelTopics == null) {
+            return 0;
+        }
+        if (channelTopics.remove(topic)) {
+            removeFromTopic(channel, topic);
+        }
+        return channelTopics.size();
+    }
+
+    private void removeFromTopic(Channel channel, String topic) {
+        topics.computeIfPresent(topic, (k, t) -> t.remove(channel) ? null : t);
+    }
+
+    /**
+     * Unsubscribes the specified channel from all topics.
+     *
+     * @param channel the subscriber channel
+     * @return the number of topics the channel was unsubscribed from
+     */
+    public int unsubscribeAll(Channel channel) {
+        Set<String> channelTopics = subscriptions.remove(channel);
+        if (channelTopics == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String topic : channelTopics) {
+            removeFromTopic(channel, topic);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Publishes the specified message to the specified topic.
+     * <p>
+     * The readable bytes of the {@code message} will be copied, and the
+     * {@code message} will not be released by this method.
+     *
+     * @param topic   the topic
+     * @param message the message
+     * @return the number of subscribers the message was dispatched to
+     */
+    public int publish(String topic, ByteBuf message) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return 0;
+        }
+        ByteBuf frame = t.encode(message);
+        try {
+            return t.dispatch(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Publishes the specified message to the specified topic.
+     *
+     * @param topic   the topic
+     * @param message the message, will be encoded in {@code UTF-8}
+     * @return the number of subscribers the message was dispatched to
+     */
+    public int publish(String topic, String message) {
+        return publish(topic, Unpooled.wrappedBuffer(message.getBytes(CharsetUtil.UTF_8)));
+    }
+
+    /**
+     * Returns the number of subscribers of the specified topic.
+     *
+     * @param topic the topic
+     * @return the number of subscribers
+     */
+    public int subscriberCount(String topic) {
+        Topic t = topics.get(topic);
+        return t == null ? 0 : t.size();
+    }
+
+    /**
+     * Returns the number of topics which have at least one subscriber.
+     *
+     * @return the number of topics
+     */
+    public int topicCount() {
+        return topics.size();
+    }
+
+    /**
+     * Returns the number of messages dropped because of slow subscribers.
+     *
+     * @return the number of dropped messages
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    private final class Topic {
+
+        // the encoded frame before the length of the payload:
+        // *3\r\n$7\r\nmessage\r\n$<length>\r\n<topic>\r\n$
+        private final byte[] prefix;
+        private final ConcurrentHashMap<EventExecutor, Set<Channel>> groups = new ConcurrentHashMap<>();
+        private volatile int size;
+
+        private Topic(String name) {
+            byte[] nameBytes = name.getBytes(CharsetUtil.UTF_8);
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                buf.writeByte(frameType).writeByte('3').writeShort(EOL_SHORT);
+                writeBulkString(buf, MESSAGE);
+                writeBulkString(buf, nameBytes);
+                buf.writeByte(TYPE_BULK_STRING);
+                prefix = new byte[buf.readableBytes()];
+                buf.readBytes(prefix);
+            } finally {
+                buf.release();
+            }
+        }
+
+        // invoked in ConcurrentHashMap.compute
+        private void add(Channel channel) {
+            if (groups.computeIfAbsent(channel.eventLoop(), k -> ConcurrentHashMap.newKeySet()).add(channel)) {
+                size++;
+            }
+        }
+
+        // invoked in ConcurrentHashMap.computeIfPresent, returns true if this topic is empty
+        private boolean remove(Channel channel) {
+            EventExecutor executor = channel.eventLoop();
+            Set<Channel> group = groups.get(executor);
+            if (group != null && group.remove(channel)) {
+                size--;
+                if (group.isEmpty()) {
+                    groups.remove(executor);
+                }
+            }
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private ByteBuf encode(ByteBuf message) {
+            int length = message.readableBytes();
+            byte[] lengthBytes = RespCodecUtil.longToAsciiBytes(length);
+            ByteBuf frame = alloc.buffer(prefix.length + lengthBytes.length + EOL_LENGTH + length + EOL_LENGTH);
+            return frame.writeBytes(prefix).writeBytes(lengthBytes).writeShort(EOL_SHORT)
+                    .writeBytes(message, message.readerIndex(), length).writeShort(EOL_SHORT);
+        }
+
+        private int dispatch(ByteBuf frame) {
+            int count = 0;
+            for (var entry : groups.entrySet()) {
+                EventExecutor executor = entry.getKey();
+                Set<Channel> group = entry.getValue();
+                count += group.size();
+                if (executor.inEventLoop()) {
+                    deliver(group, frame);
+                } else {
+                    ByteBuf shared = frame.retain();
+                    executor.execute(() -> {
+                        try {
+                            deliver(group, shared);
+                        } finally {
+                            shared.release();
+                        }
+                    });
+                }
+            }
+            return count;
+        }
+
+    }
+
+    private static final void writeBulkString(ByteBuf buf, byte[] value) {
+        buf.writeByte(TYPE_BULK_STRING).writeBytes(RespCodecUtil.longToAsciiBytes(value.length))
+                .writeShort(EOL_SHORT).writeBytes(value).writeShort(EOL_SHORT);
+    }
+
+    private void deliver(Set<Channel> group, ByteBuf frame) {
+        for (Channel channel : group) {
+            if (!channel.isActive()) {
+                continue;
+            }
+            if (!channel.isWritable()) {
+                droppedCount.increment();
+                if (slowSubscriberPolicy == SlowSubscriberPolicy.CLOSE) {
+                    channel.close();
+                }
+                continue;
+            }
+            channel.writeAndFlush(frame.retainedDuplicate(), channel.voidPromise());
+        }
+    }
+
+}
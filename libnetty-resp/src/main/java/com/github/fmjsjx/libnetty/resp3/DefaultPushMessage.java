@@ -13,7 +13,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
 
 /**
- * The default implementation of {@link Resp3MessageType}.
+ * The default implementation of {@link Resp3PushMessage}.
  * 
  * @param <E> the type of values in the message
  * 
@@ -22,7 +22,7 @@ import io.netty.util.ReferenceCountUtil;
  * @author MJ Fang
  */
 public class DefaultPushMessage<E extends RespMessage> extends AbstractRespAggregateMessage<E, DefaultPushMessage<E>>
-        implements Resp3SetMessage<E> {
+        implements Resp3PushMessage<E> {
 
     private final List<E> values;
 
@@ -1,9 +1,8 @@
 package com.github.fmjsjx.libnetty.resp3;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.BiConsumer;
 
 import com.github.fmjsjx.libnetty.resp.DefaultBulkStringMessage;
 import com.github.fmjsjx.libnetty.resp.DefaultErrorMessage;
@@ -20,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * Decodes {@link ByteBuf}s to {@link RespMessage}s (include
@@ -41,93 +41,21 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
 
     private static final ByteProcessor FIND_NON_NUMBER = v -> v >= '0' && v <= '9';
 
-    static final class AggregateBuilder {
-
-        private final byte type;
-        private final int length;
-        private final ArrayList<RespMessage> values;
-
-        private AggregateBuilder(byte type, int length) {
-            this.type = type;
-            if (type == Resp3Constants.TYPE_MAP || type == Resp3Constants.TYPE_ATTRIBUTE) {
-                length = length << 1;
-            }
-            this.length = length;
-            this.values = new ArrayList<>(length);
-        }
-
-        boolean isReachedEnd() {
-            return values.size() == length;
-        }
-
-        boolean add(RespMessage msg) {
-            values.add(msg);
-            return isReachedEnd();
-        }
-
-        RespMessage build() {
-            ArrayList<RespMessage> values = this.values;
-            switch (type) {
-            default:
-            case RespConstants.TYPE_ARRAY:
-                return wrappedArray(values);
-            case Resp3Constants.TYPE_MAP:
-                if (length == 2) {
-                    return Resp3MapMessage.of(values.get(0), values.get(1));
-                }
-                return new DefaultMapMessage<>(toPairs());
-            case Resp3Constants.TYPE_SET:
-                if (length == 1) {
-                    return Resp3SetMessage.of(values.get(0));
-                }
-                return new DefaultSetMessage<>(values);
-            case Resp3Constants.TYPE_ATTRIBUTE:
-                if (length == 2) {
-                    return Resp3AttributeMessage.of(values.get(0), values.get(1));
-                }
-                return new DefaultAttributeMessage<>(toPairs());
-            case Resp3Constants.TYPE_PUSH:
-                return new DefaultPushMessage<>(values);
-            }
-        }
-
-        List<FieldValuePair<RespMessage, RespMessage>> toPairs() {
-            int len = length >>> 1;
-            ArrayList<RespMessage> values = this.values;
-            List<FieldValuePair<RespMessage, RespMessage>> pairs = new ArrayList<>(len);
-            for (int i = 0; i < len; i++) {
-                int index = i << 1;
-                RespMessage field = values.get(index);
-                RespMessage value = values.get(index + 1);
-                pairs.add(new FieldValuePair<>(field, value));
-            }
-            return pairs;
-        }
-
-    }
-
-    private LinkedList<AggregateBuilder> nests;
+    private static final int INITIAL_NESTS_CAPACITY = 8;
+
+    // nested aggregates are tracked by a reusable stack of frames, the frame at
+    // index `depth - 1` is the innermost aggregate being decoded
+    private int depth;
+    private byte[] nestTypes = new byte[INITIAL_NESTS_CAPACITY];
+    private int[] nestRemainings = new int[INITIAL_NESTS_CAPACITY];
+    // values of MAP/ATTRIBUTE frames are field-value pairs, the pending field
+    // is kept in nestFields until its value is decoded
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ArrayList<Object>[] nestValues = new ArrayList[INITIAL_NESTS_CAPACITY];
+    private RespMessage[] nestFields = new RespMessage[INITIAL_NESTS_CAPACITY];
     private byte currentContentType;
     private int currentContentLength;
 
-    private final BiConsumer<ByteBuf, List<Object>> arrayHeaderDecoder = this::decodeArrayHeader;
-    private final BiConsumer<ByteBuf, List<Object>> bulkStringLengthDecoder = this::decodeBulkStringLength;
-    private final BiConsumer<ByteBuf, List<Object>> simpleStringDecoder = this::decodeSimpleString;
-    private final BiConsumer<ByteBuf, List<Object>> errorDecoder = this::decodeError;
-    private final BiConsumer<ByteBuf, List<Object>> integerDecoder = this::decodeInteger;
-    private final BiConsumer<ByteBuf, List<Object>> nullDecoder = this::decodeNull;
-    private final BiConsumer<ByteBuf, List<Object>> doubleDecoder = this::decodeDouble;
-    private final BiConsumer<ByteBuf, List<Object>> booleanDecoder = this::decodeBoolean;
-    private final BiConsumer<ByteBuf, List<Object>> blobErrorLengthDecoder = this::decodeBlobErrorLength;
-    private final BiConsumer<ByteBuf, List<Object>> verbatimStringLengthDecoder = this::decodeVerbatimStringLength;
-    private final BiConsumer<ByteBuf, List<Object>> bigNumberDecoder = this::decodeBigNumber;
-    private final BiConsumer<ByteBuf, List<Object>> mapHeaderDecoder = this::decodeMapHeader;
-    private final BiConsumer<ByteBuf, List<Object>> setHeaderDecoder = this::decodeSetHeader;
-    private final BiConsumer<ByteBuf, List<Object>> attributeHeaderDecoder = this::decodeAttributeHeader;
-    private final BiConsumer<ByteBuf, List<Object>> pushHeaderDecoder = this::decodePushHeader;
-    private final BiConsumer<ByteBuf, List<Object>> streamedStringPartLengthDecoder = this::decodeStreamedStringPartLength;
-    private final BiConsumer<ByteBuf, List<Object>> endDecoder = this::decodeEnd;
-
     /**
      * Constructs a new {@link Resp3MessageDecoder} using default
      * {@code maxInlineMessageLength} ({@code 65536}).
@@ -150,81 +78,134 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
     @Override
     protected void resetDecoder() {
         super.resetDecoder();
-        nests = null;
+        int depth = this.depth;
+        if (depth > 0) {
+            // release all decoded values of the incomplete aggregates
+            ArrayList<Object>[] nestValues = this.nestValues;
+            RespMessage[] nestFields = this.nestFields;
+            for (int i = 0; i < depth; i++) {
+                for (Object value : nestValues[i]) {
+                    if (value instanceof FieldValuePair<?, ?> pair) {
+                        ReferenceCountUtil.release(pair.field());
+                        ReferenceCountUtil.release(pair.value());
+                    } else {
+                        ReferenceCountUtil.release(value);
+                    }
+                }
+                nestValues[i] = null;
+                if (nestFields[i] != null) {
+                    ReferenceCountUtil.release(nestFields[i]);
+                    nestFields[i] = null;
+                }
+            }
+            this.depth = 0;
+        }
     }
 
     @Override
     protected boolean decodeInline(ByteBuf in, List<Object> out) {
-        BiConsumer<ByteBuf, List<Object>> decoder;
         byte typeValue = in.getByte(in.readerIndex());
+        ByteBuf inlineBytes;
         switch (typeValue) {
+        case RespConstants.TYPE_BULK_STRING:
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeBulkStringLength(inlineBytes, out);
+            }
+            break;
         case RespConstants.TYPE_ARRAY:
-            decoder = arrayHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeArrayHeader(inlineBytes, out);
+            }
             break;
-        case RespConstants.TYPE_BULK_STRING:
-            decoder = bulkStringLengthDecoder;
+        case RespConstants.TYPE_INTEGER:
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeInteger(inlineBytes, out);
+            }
             break;
         case RespConstants.TYPE_SIMPLE_STRING:
-            decoder = simpleStringDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeSimpleString(inlineBytes, out);
+            }
             break;
         case RespConstants.TYPE_ERROR:
-            decoder = errorDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeError(inlineBytes, out);
+            }
             break;
-        case RespConstants.TYPE_INTEGER:
-            decoder = integerDecoder;
+        case Resp3Constants.TYPE_MAP:
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeMapHeader(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_NULL:
-            decoder = nullDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeNull(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_DOUBLE:
-            decoder = doubleDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeDouble(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_BOOLEAN:
-            decoder = booleanDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeBoolean(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_BLOB_ERROR:
-            decoder = blobErrorLengthDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeBlobErrorLength(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_VERBATIM_STRING:
-            decoder = verbatimStringLengthDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeVerbatimStringLength(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_BIG_NUMBER:
-            decoder = bigNumberDecoder;
-            break;
-        case Resp3Constants.TYPE_MAP:
-            decoder = mapHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeBigNumber(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_SET:
-            decoder = setHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeSetHeader(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_ATTRIBUTE:
-            decoder = attributeHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeAttributeHeader(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_PUSH:
-            decoder = pushHeaderDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodePushHeader(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_STREAMED_STRING_PART:
-            decoder = streamedStringPartLengthDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeStreamedStringPartLength(inlineBytes, out);
+            }
             break;
         case Resp3Constants.TYPE_END:
-            decoder = endDecoder;
+            if ((inlineBytes = readLine(in)) != null) {
+                decodeEnd(inlineBytes, out);
+            }
             break;
         default: // INLINE COMMAND
             throw DECODING_OF_INLINE_COMMANDS_DISABLED;
         }
-        ByteBuf inlineBytes = readLine(in);
         if (inlineBytes == null) {
             checkInlineLength(in);
             return false;
         }
-        decoder.accept(inlineBytes, out);
         return true;
     }
 
     private void decodeArrayHeader(ByteBuf inlineBytes, List<Object> out) {
         requireReadable(inlineBytes, NO_NUMBER_TO_PARSE);
         if (isUnbound(inlineBytes)) {
-            if (nests != null) {
+            if (depth > 0) {
                 throw UNBOUND_MUST_AT_TOP_LEVEL;
             }
             out.add(Resp3Messages.unboundArrayHeader());
@@ -234,16 +215,27 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(RespMessages.emptyArray(), out);
         } else {
-            ensureNests().addLast(new AggregateBuilder(RespConstants.TYPE_ARRAY, size));
+            pushNest(RespConstants.TYPE_ARRAY, size);
         }
     }
 
-    private LinkedList<AggregateBuilder> ensureNests() {
-        LinkedList<AggregateBuilder> nests = this.nests;
-        if (nests == null) {
-            this.nests = nests = new LinkedList<>();
+    private void pushNest(byte type, int size) {
+        int depth = this.depth;
+        if (depth == nestTypes.length) {
+            int newCapacity = depth << 1;
+            nestTypes = Arrays.copyOf(nestTypes, newCapacity);
+            nestRemainings = Arrays.copyOf(nestRemainings, newCapacity);
+            nestValues = Arrays.copyOf(nestValues, newCapacity);
+            nestFields = Arrays.copyOf(nestFields, newCapacity);
         }
-        return nests;
+        nestTypes[depth] = type;
+        nestRemainings[depth] = isPairs(type) ? size << 1 : size;
+        nestValues[depth] = new ArrayList<>(size);
+        this.depth = depth + 1;
+    }
+
+    private static boolean isPairs(byte type) {
+        return type == Resp3Constants.TYPE_MAP || type == Resp3Constants.TYPE_ATTRIBUTE;
     }
 
     boolean isUnbound(ByteBuf inlineBytes) {
@@ -251,32 +243,62 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
     }
 
     private void appendMessage(RespMessage msg, List<Object> out) {
-        LinkedList<AggregateBuilder> nests = this.nests;
-        if (nests == null) {
-            out.add(msg);
-            resetDecoder();
-        } else {
-            for (;;) {
-                AggregateBuilder ab = nests.getLast();
-                if (ab.add(msg)) {
-                    msg = ab.build();
-                    nests.removeLast();
-                    if (nests.isEmpty()) {
-                        out.add(msg);
-                        resetDecoder();
-                        break;
-                    }
-                } else {
-                    break;
-                }
+        int depth = this.depth;
+        while (depth > 0) {
+            int index = depth - 1;
+            byte type = nestTypes[index];
+            ArrayList<Object> values = nestValues[index];
+            if (!isPairs(type)) {
+                values.add(msg);
+            } else if (nestFields[index] == null) {
+                nestFields[index] = msg;
+            } else {
+                values.add(new FieldValuePair<>(nestFields[index], msg));
+                nestFields[index] = null;
+            }
+            if (--nestRemainings[index] > 0) {
+                return;
             }
+            nestValues[index] = null;
+            this.depth = depth = index;
+            msg = buildAggregate(type, values);
+        }
+        out.add(msg);
+        resetDecoder();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static RespMessage buildAggregate(byte type, ArrayList values) {
+        switch (type) {
+        default:
+        case RespConstants.TYPE_ARRAY:
+            return wrappedArray(values);
+        case Resp3Constants.TYPE_MAP:
+            if (values.size() == 1) {
+                FieldValuePair<RespMessage, RespMessage> pair = (FieldValuePair) values.get(0);
+                return Resp3MapMessage.of(pair.field(), pair.value());
+            }
+            return new DefaultMapMessage<>(values);
+        case Resp3Constants.TYPE_SET:
+            if (values.size() == 1) {
+                return Resp3SetMessage.of((RespMessage) values.get(0));
+            }
+            return new DefaultSetMessage<>(values);
+        case Resp3Constants.TYPE_ATTRIBUTE:
+            if (values.size() == 1) {
+                FieldValuePair<RespMessage, RespMessage> pair = (FieldValuePair) values.get(0);
+                return Resp3AttributeMessage.of(pair.field(), pair.value());
+            }
+            return new DefaultAttributeMessage<>(values);
+        case Resp3Constants.TYPE_PUSH:
+            return new DefaultPushMessage<>(values);
         }
     }
 
     private void decodeBulkStringLength(ByteBuf inlineBytes, List<Object> out) {
         requireReadable(inlineBytes, NO_NUMBER_TO_PARSE);
         if (isUnbound(inlineBytes)) {
-            if (nests != null) {
+            if (depth > 0) {
                 throw UNBOUND_MUST_AT_TOP_LEVEL;
             }
             out.add(Resp3Messages.streamedStringHeader());
@@ -389,7 +411,7 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
     private void decodeMapHeader(ByteBuf inlineBytes, List<Object> out) {
         requireReadable(inlineBytes, NO_NUMBER_TO_PARSE);
         if (isUnbound(inlineBytes)) {
-            if (nests != null) {
+            if (depth > 0) {
                 throw UNBOUND_MUST_AT_TOP_LEVEL;
             }
             out.add(Resp3Messages.unboundMapHeader());
@@ -399,15 +421,14 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(Resp3Messages.emptyMap(), out);
         } else {
-            LinkedList<AggregateBuilder> nests = ensureNests();
-            nests.addLast(new AggregateBuilder(Resp3Constants.TYPE_MAP, size));
+            pushNest(Resp3Constants.TYPE_MAP, size);
         }
     }
 
     private void decodeSetHeader(ByteBuf inlineBytes, List<Object> out) {
         requireReadable(inlineBytes, NO_NUMBER_TO_PARSE);
         if (isUnbound(inlineBytes)) {
-            if (nests != null) {
+            if (depth > 0) {
                 throw UNBOUND_MUST_AT_TOP_LEVEL;
             }
             out.add(Resp3Messages.unboundSetHeader());
@@ -417,7 +438,7 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(Resp3Messages.emptySet(), out);
         } else {
-            ensureNests().addLast(new AggregateBuilder(Resp3Constants.TYPE_SET, size));
+            pushNest(Resp3Constants.TYPE_SET, size);
         }
     }
 
@@ -427,14 +448,14 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(new DefaultAttributeMessage<>(), out);
         } else {
-            ensureNests().addLast(new AggregateBuilder(Resp3Constants.TYPE_ATTRIBUTE, size));
+            pushNest(Resp3Constants.TYPE_ATTRIBUTE, size);
         }
     }
 
     private void decodePushHeader(ByteBuf inlineBytes, List<Object> out) {
         requireReadable(inlineBytes, NO_NUMBER_TO_PARSE);
         if (isUnbound(inlineBytes)) {
-            if (nests != null) {
+            if (depth > 0) {
                 throw UNBOUND_MUST_AT_TOP_LEVEL;
             }
             out.add(Resp3Messages.unboundPushHeader());
@@ -444,7 +465,7 @@ public class Resp3MessageDecoder extends RespMessageDecoder {
         if (size == 0) {
             appendMessage(new DefaultPushMessage<>(), out);
         } else {
-            ensureNests().addLast(new AggregateBuilder(Resp3Constants.TYPE_PUSH, size));
+            pushNest(Resp3Constants.TYPE_PUSH, size);
         }
     }
 
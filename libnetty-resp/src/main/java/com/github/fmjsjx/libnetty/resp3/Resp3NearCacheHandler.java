@@ -0,0 +1,487 @@
+package com.github.fmjsjx.libnetty.resp3;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.fmjsjx.libnetty.resp.DefaultArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespContent;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp.util.IgnoredCaseAsciiKeyMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * A client side {@link ChannelDuplexHandler} which caches replies of
+ * {@code GET}-style commands on a RESP3 connection, and evicts them upon the
+ * {@code invalidate} push messages sent by the server (the
+ * <a href="https://redis.io/docs/latest/develop/reference/client-side-caching/">
+ * client side caching</a> feature of Redis).
+ * <p>
+ * This handler must be added after the {@link Resp3MessageDecoder} and the
+ * {@code RespMessageEncoder}, and all commands must be written as
+ * {@link RespArrayMessage}s, one reply is expected for each command. The
+ * tracking must be turned on by the command returned by
+ * {@link #clientTrackingOn(ByteBufAllocator)} after the connection has been
+ * switched to RESP3 (by {@code HELLO 3}).
+ * <p>
+ * Only commands with exactly one key argument (e.g. {@code GET key}) are
+ * cached, and only their bulk string and null replies are cached. Commands
+ * between {@code MULTI} and {@code EXEC}/{@code DISCARD} never use the cache.
+ * A command hits the cache will not be sent to the server, the cached reply
+ * will be fired in the order of the pending commands instead.
+ * <p>
+ * All cached replies will be discarded once the channel is inactive.
+ *
+ * @since 4.3
+ *
+ * @author MJ Fang
+ */
+public class Resp3NearCacheHandler extends ChannelDuplexHandler {
+
+    /**
+     * Enumeration of tracking modes.
+     */
+    public enum TrackingMode {
+        /**
+         * The default mode, the server remembers the keys read by the client.
+         */
+        DEFAULT,
+        /**
+         * The broadcasting mode, the server broadcasts invalidations for all
+         * keys matching the prefixes.
+         */
+        BCAST
+    }
+
+    private static final AsciiString INVALIDATE = AsciiString.cached("invalidate");
+    private static final AsciiString MULTI = AsciiString.cached("MULTI");
+    private static final AsciiString EXEC = AsciiString.cached("EXEC");
+    private static final AsciiString DISCARD = AsciiString.cached("DISCARD");
+    private static final IgnoredCaseAsciiKeyMap<AsciiString> TRANSACTION_COMMANDS = new IgnoredCaseAsciiKeyMap<>();
+
+    static {
+        TRANSACTION_COMMANDS.put(MULTI, MULTI);
+        TRANSACTION_COMMANDS.put(EXEC, EXEC);
+        TRANSACTION_COMMANDS.put(DISCARD, DISCARD);
+    }
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private record CacheKey(AsciiString command, AsciiString key) {
+    }
+
+    private static final class PendingReply {
+
+        private final CacheKey key;
+        private final RespMessage localReply;
+        private boolean invalidated;
+
+        private PendingReply(CacheKey key, RespMessage localReply) {
+            this.key = key;
+            this.localReply = localReply;
+        }
+
+    }
+
+    private final int maximumSize;
+    private final IgnoredCaseAsciiKeyMap<AsciiString> commands = new IgnoredCaseAsciiKeyMap<>();
+    private final List<AsciiString> commandNames;
+    private final TrackingMode mode;
+    private final List<String> prefixes;
+    private final byte[][] prefixBytes;
+
+    private final LinkedHashMap<CacheKey, RespMessage> cache;
+    private final ArrayDeque<PendingReply> pendings = new ArrayDeque<>();
+    private boolean drainScheduled;
+    private boolean inTransaction;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    /**
+     * Constructs a new {@link Resp3NearCacheHandler} which caches replies of
+     * {@code GET} commands with the default tracking mode and the default
+     * maximum size ({@code 10000}).
+     */
+    public Resp3NearCacheHandler() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link Resp3NearCacheHandler} which caches replies of
+     * {@code GET} commands with the default tracking mode and the specified
+     * maximum size.
+     *
+     * @param maximumSize the maximum number of cached replies
+     */
+    public Resp3NearCacheHandler(int maximumSize) {
+        this(maximumSize, List.of("GET"), TrackingMode.DEFAULT, List.of());
+    }
+
+    /**
+     * Constructs a new {@link Resp3NearCacheHandler} with the specified
+     * parameters.
+     *
+     * @param maximumSize the maximum number of cached replies
+     * @param commands    the names of the commands whose replies will be cached,
+     *                    each of them must take exactly one key argument
+     * @param mode        the tracking mode
+     * @param prefixes    the key prefixes for the {@link TrackingMode#BCAST} mode,
+     *                    only keys matching them will be cached, an empty
+     *                    collection means all keys
+     */
+    public Resp3NearCacheHandler(int maximumSize, Collection<String> commands, TrackingMode mode,
+            Collection<String> prefixes) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        List<AsciiString> commandNames = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            AsciiString name = AsciiString.cached(command.toUpperCase());
+            this.commands.put(name, name);
+            commandNames.add(name);
+        }
+        this.commandNames = List.copyOf(commandNames);
+        this.mode = mode;
+        this.prefixes = mode == TrackingMode.BCAST ? List.copyOf(prefixes) : List.of();
+        this.prefixBytes = this.prefixes.stream().map(prefix -> prefix.getBytes(CharsetUtil.UTF_8))
+                .toArray(byte[][]::new);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, RespMessage> eldest) {
+                if (size() > Resp3NearCacheHandler.this.maximumSize) {
+                    ReferenceCountUtil.release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the tracking mode.
+     *
+     * @return the tracking mode
+     */
+    public TrackingMode mode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of commands hit the cache.
+     *
+     * @return the number of commands hit the cache
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of cacheable commands missed the cache.
+     *
+     * @return the number of cacheable commands missed the cache
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of cached replies evicted by invalidation messages.
+     *
+     * @return the number of cached replies evicted by invalidation messages
+     */
+    public long invalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * Returns the number of cached replies.
+     * <p>
+     * This method should be called in the event loop of the channel.
+     *
+     * @return the number of cached replies
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns a new {@code CLIENT TRACKING ON} command which turns on the
+     * tracking with the mode of this handler.
+     *
+     * @param alloc the allocator to allocate {@link ByteBuf}s
+     * @return a {@code RespArrayMessage}
+     */
+    public RespArrayMessage<RespBulkStringMessage> clientTrackingOn(ByteBufAllocator alloc) {
+        List<CharSequence> args = new ArrayList<>(4 + prefixes.size() * 2);
+        args.add("CLIENT");
+        args.add("TRACKING");
+        args.add("ON");
+        if (mode == TrackingMode.BCAST) {
+            args.add("BCAST");
+            for (String prefix : prefixes) {
+                args.add("PREFIX");
+                args.add(prefix);
+            }
+        }
+        return DefaultArrayMessage.bulkStringArrayUtf8(alloc, args);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof RespArrayMessage<?> command) {
+            // replies are queued inside a transaction (e.g. +QUEUED), so the cache can't be used
+            CacheKey key = updateTransaction(command) ? null : toCacheKey(command);
+            if (key != null) {
+                RespMessage cached = cache.get(key);
+                if (cached != null) {
+                    hitCount.increment();
+                    ReferenceCountUtil.release(msg);
+                    promise.trySuccess();
+                    pendings.add(new PendingReply(null, retainedReply(cached)));
+                    scheduleDrain(ctx);
+                    return;
+                }
+                missCount.increment();
+            }
+            PendingReply pending = new PendingReply(key, null);
+            pendings.add(pending);
+            ChannelPromise writePromise = promise.unvoid();
+            // no reply will be received for a failed command
+            writePromise.addListener(f -> {
+                if (!f.isSuccess()) {
+                    pendings.removeFirstOccurrence(pending);
+                }
+            });
+            ctx.write(msg, writePromise);
+            return;
+        }
+        ctx.write(msg, promise);
+    }
+
+    /**
+     * Updates the transaction state by the command and returns {@code true}
+     * if the command is in a transaction.
+     */
+    private boolean updateTransaction(RespArrayMessage<?> command) {
+        if (command.size() == 1 && command.value(0) instanceof RespBulkStringMessage name) {
+            AsciiString transactionCommand = TRANSACTION_COMMANDS.get(name.content());
+            if (transactionCommand == MULTI) {
+                inTransaction = true;
+            } else if (transactionCommand != null) {
+                // EXEC or DISCARD
+                inTransaction = false;
+                return true;
+            }
+        }
+        return inTransaction;
+    }
+
+    private CacheKey toCacheKey(RespArrayMessage<?> command) {
+        if (command.size() != 2) {
+            return null;
+        }
+        if (command.value(0) instanceof RespBulkStringMessage name
+                && command.value(1) instanceof RespBulkStringMessage key) {
+            AsciiString commandName = commands.get(name.content());
+            if (commandName == null) {
+                return null;
+            }
+            ByteBuf keyContent = key.content();
+            if (!matchesPrefixes(keyContent)) {
+                return null;
+            }
+            return new CacheKey(commandName, new AsciiString(ByteBufUtil.getBytes(keyContent), false));
+        }
+        return null;
+    }
+
+    private boolean matchesPrefixes(ByteBuf key) {
+        byte[][] prefixBytes = this.prefixBytes;
+        if (prefixBytes.length == 0) {
+            return true;
+        }
+        for (byte[] prefix : prefixBytes) {
+            if (startsWith(key, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final boolean startsWith(ByteBuf key, byte[] prefix) {
+        if (key.readableBytes() < prefix.length) {
+            return false;
+        }
+        int readerIndex = key.readerIndex();
+        for (int i = 0; i < prefix.length; i++) {
+            if (key.getByte(readerIndex + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final RespMessage retainedReply(RespMessage reply) {
+        if (reply instanceof RespContent content) {
+            return (RespMessage) content.retainedDuplicate();
+        }
+        return ReferenceCountUtil.retain(reply);
+    }
+
+    /**
+     * Returns a compact copy of the reply to be cached.
+     * <p>
+     * The decoded contents are slices of the cumulation buffer of the decoder,
+     * so they must be copied, or each cached reply would pin the whole buffer.
+     */
+    private static final RespMessage compactReply(RespMessage reply) {
+        if (reply instanceof RespContent content) {
+            return (RespMessage) content.copy();
+        }
+        return ReferenceCountUtil.retain(reply);
+    }
+
+    private void scheduleDrain(ChannelHandlerContext ctx) {
+        if (!drainScheduled && pendings.peek().localReply != null) {
+            // fire the cached replies later to avoid re-entrance of the writer
+            drainScheduled = true;
+            ctx.executor().execute(() -> {
+                drainScheduled = false;
+                drainLocalReplies(ctx);
+            });
+        }
+    }
+
+    private void drainLocalReplies(ChannelHandlerContext ctx) {
+        ArrayDeque<PendingReply> pendings = this.pendings;
+        PendingReply pending;
+        while ((pending = pendings.peek()) != null && pending.localReply != null) {
+            pendings.poll();
+            ctx.fireChannelRead(pending.localReply);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Resp3PushMessage<?> push) {
+            if (isInvalidate(push)) {
+                try {
+                    invalidate(push.values().get(1));
+                } finally {
+                    push.release();
+                }
+                return;
+            }
+        } else if (msg instanceof RespMessage reply) {
+            // all cached replies queued before this reply must be fired first
+            drainLocalReplies(ctx);
+            PendingReply pending = pendings.poll();
+            if (pending != null && pending.key != null && !pending.invalidated && isCacheable(reply)) {
+                RespMessage previous = cache.put(pending.key, compactReply(reply));
+                if (previous != null) {
+                    ReferenceCountUtil.release(previous);
+                }
+            }
+            ctx.fireChannelRead(msg);
+            drainLocalReplies(ctx);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private static final boolean isInvalidate(Resp3PushMessage<?> push) {
+        return push.size() == 2 && push.values().get(0) instanceof RespBulkStringMessage kind
+                && INVALIDATE.contentEquals(kind.toAscii());
+    }
+
+    private static final boolean isCacheable(RespMessage reply) {
+        return reply instanceof RespBulkStringMessage || reply instanceof Resp3NullMessage;
+    }
+
+    private void invalidate(RespMessage keys) {
+        if (keys instanceof RespArrayMessage<?> array) {
+            for (RespMessage value : array.values()) {
+                if (value instanceof RespBulkStringMessage key) {
+                    invalidate(new AsciiString(ByteBufUtil.getBytes(key.content()), false));
+                }
+            }
+        } else {
+            // a null value means all keys should be invalidated (e.g. FLUSHALL)
+            invalidationCount.add(cache.size());
+            clearCache();
+            for (PendingReply pending : pendings) {
+                pending.invalidated = true;
+            }
+        }
+    }
+
+    private void invalidate(AsciiString key) {
+        for (AsciiString command : commandNames) {
+            RespMessage removed = cache.remove(new CacheKey(command, key));
+            if (removed != null) {
+                invalidationCount.increment();
+                ReferenceCountUtil.release(removed);
+            }
+        }
+        // the replies of commands in flight may be stale
+        for (PendingReply pending : pendings) {
+            if (pending.key != null && pending.key.key().equals(key)) {
+                pending.invalidated = true;
+            }
+        }
+    }
+
+    private void clearCache() {
+        for (Iterator<RespMessage> it = cache.values().iterator(); it.hasNext();) {
+            ReferenceCountUtil.release(it.next());
+            it.remove();
+        }
+    }
+
+    private void clearPendings() {
+        PendingReply pending;
+        while ((pending = pendings.poll()) != null) {
+            if (pending.localReply != null) {
+                ReferenceCountUtil.release(pending.localReply);
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // invalidation messages can't be received any more
+        clearCache();
+        clearPendings();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        clearCache();
+        clearPendings();
+    }
+
+}
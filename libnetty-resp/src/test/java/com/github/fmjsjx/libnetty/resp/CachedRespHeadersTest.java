@@ -0,0 +1,76 @@
+package com.github.fmjsjx.libnetty.resp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+public class CachedRespHeadersTest {
+
+    private static final String encode(RespMessage msg) {
+        EmbeddedChannel channel = new EmbeddedChannel(RespMessageEncoder.getInstance());
+        channel.writeOutbound(msg);
+        ByteBuf buf = Unpooled.buffer();
+        for (ByteBuf b; (b = channel.readOutbound()) != null;) {
+            buf.writeBytes(b);
+            b.release();
+        }
+        return buf.toString(CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testHeaders() {
+        try {
+            ByteBuf header = CachedRespHeaders.bulkStringHeader(ByteBufAllocator.DEFAULT, 5);
+            assertEquals("$5\r\n", header.toString(CharsetUtil.US_ASCII));
+            assertTrue(header.isReadOnly());
+            assertFalse(header.release());
+            assertNotNull(CachedRespHeaders.cachedHeader((byte) '%', 2));
+            assertNull(CachedRespHeaders.cachedHeader(RespConstants.TYPE_BULK_STRING, 1 << 20));
+
+            header = CachedRespHeaders.arrayHeader(ByteBufAllocator.DEFAULT, 1 << 20);
+            assertEquals("*1048576\r\n", header.toString(CharsetUtil.US_ASCII));
+            assertTrue(header.release());
+
+            assertEquals("*2\r\n$3\r\nGET\r\n$1\r\nk\r\n",
+                    encode(DefaultArrayMessage.bulkStringArrayAscii(ByteBufAllocator.DEFAULT, "GET", "k")));
+            assertEquals("*0\r\n", encode(new DefaultArrayMessage<>()));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testConstantMessage() {
+        try {
+            CachedConstantMessage reply = CachedRespMessages.constantBuilder().arrayHeader(3).bulkString("subscribe")
+                    .bulkString("news").integer(1).build();
+            assertEquals(RespMessageType.ARRAY, reply.type());
+            String expected = "*3\r\n$9\r\nsubscribe\r\n$4\r\nnews\r\n:1\r\n";
+            // shared by multiple channels
+            assertEquals(expected, encode(reply));
+            assertEquals(expected, encode(reply));
+            assertEquals(expected.length(), reply.length());
+
+            CachedConstantMessage nil = CachedConstantMessage.builder().nil().build();
+            assertEquals("$-1\r\n", encode(nil));
+            CachedConstantMessage composite = CachedConstantMessage.builder().simpleString("OK")
+                    .message(RespMessages.integer(1000)).error("ERR x").build();
+            assertEquals(RespMessageType.SIMPLE_STRING, composite.type());
+            assertEquals("+OK\r\n:1000\r\n-ERR x\r\n", encode(composite));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.github.fmjsjx.libnetty.resp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.resp.exception.RespDecoderException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+public class DefaultRespMessageDecoderTest {
+
+    @Test
+    public void testDecodeNested() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new DefaultRespMessageDecoder());
+            // [[1, "a"], [], [[$-1]], +OK] and split into several parts
+            String text = "*4\r\n*2\r\n:1\r\n$1\r\na\r\n*0\r\n*1\r\n*1\r\n$-1\r\n+OK\r\n:2\r\n";
+            int split = text.indexOf("$1\r\na") + 3;
+            assertFalse(channel.writeInbound(Unpooled.copiedBuffer(text.substring(0, split), CharsetUtil.UTF_8)));
+            assertTrue(channel.writeInbound(Unpooled.copiedBuffer(text.substring(split), CharsetUtil.UTF_8)));
+
+            RespArrayMessage<?> array = channel.readInbound();
+            assertEquals(4, array.size());
+            RespArrayMessage<?> first = (RespArrayMessage<?>) array.values().get(0);
+            assertEquals(2, first.size());
+            assertEquals(1, ((RespIntegerMessage) first.values().get(0)).value());
+            assertEquals("a", ((RespBulkStringMessage) first.values().get(1)).textValue());
+            assertEquals(0, ((RespArrayMessage<?>) array.values().get(1)).size());
+            RespArrayMessage<?> third = (RespArrayMessage<?>) array.values().get(2);
+            RespArrayMessage<?> inner = (RespArrayMessage<?>) third.values().get(0);
+            assertTrue(((RespBulkStringMessage) inner.values().get(0)).isNull());
+            assertEquals("OK", ((RespSimpleStringMessage) array.values().get(3)).value());
+            array.release();
+
+            RespIntegerMessage next = channel.readInbound();
+            assertEquals(2, next.value());
+            assertNull(channel.readInbound());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testRejectInlineCommand() {
+        try {
+            DefaultRespMessageDecoder decoder = new DefaultRespMessageDecoder();
+            List<Object> out = new ArrayList<>();
+            ByteBuf in = Unpooled.copiedBuffer("PING\r\n", CharsetUtil.UTF_8);
+            // the type is checked before the line is read
+            assertThrows(RespDecoderException.class, () -> decoder.decodeInline(in, out));
+            assertEquals(0, in.readerIndex());
+            in.writerIndex(3);
+            assertThrows(RespDecoderException.class, () -> decoder.decodeInline(in, out));
+            assertEquals(0, in.readerIndex());
+            assertTrue(out.isEmpty());
+            in.release();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testDecodeDeepAndWide() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new DefaultRespMessageDecoder());
+            int depth = 100;
+            int width = 1000;
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                builder.append("*1\r\n");
+            }
+            builder.append("*").append(width).append("\r\n");
+            for (int i = 0; i < width; i++) {
+                builder.append("$").append(String.valueOf(i).length()).append("\r\n").append(i).append("\r\n");
+            }
+            assertTrue(channel.writeInbound(Unpooled.copiedBuffer(builder, CharsetUtil.UTF_8)));
+
+            RespArrayMessage<?> array = channel.readInbound();
+            RespMessage msg = array;
+            for (int i = 0; i < depth; i++) {
+                RespArrayMessage<?> nest = assertInstanceOf(RespArrayMessage.class, msg);
+                assertEquals(1, nest.size());
+                msg = nest.values().get(0);
+            }
+            RespArrayMessage<?> wide = assertInstanceOf(RespArrayMessage.class, msg);
+            assertEquals(width, wide.size());
+            for (int i = 0; i < width; i++) {
+                assertEquals(i, ((RespBulkStringMessage) wide.values().get(i)).intValue());
+            }
+            array.release();
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
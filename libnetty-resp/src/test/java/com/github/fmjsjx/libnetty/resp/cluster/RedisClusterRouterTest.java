@@ -0,0 +1,293 @@
+package com.github.fmjsjx.libnetty.resp.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.resp.DefaultArrayMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultErrorMessage;
+import com.github.fmjsjx.libnetty.resp.RedisRequest;
+import com.github.fmjsjx.libnetty.resp.RedisRequestDecoder;
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespIntegerMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessageEncoder;
+import com.github.fmjsjx.libnetty.resp.RespMessages;
+import com.github.fmjsjx.libnetty.resp.RespSimpleStringMessage;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+public class RedisClusterRouterTest {
+
+    private static final AttributeKey<Boolean> ASKING_FLAG = AttributeKey.valueOf("asking");
+
+    @Test
+    public void testSlots() {
+        try {
+            byte[] bytes = "123456789".getBytes();
+            assertEquals(0x31C3, ClusterSlots.crc16(bytes, 0, bytes.length));
+            assertEquals(12182, ClusterSlots.slot("foo"));
+            assertEquals(5061, ClusterSlots.slot("bar"));
+            assertEquals(866, ClusterSlots.slot("hello"));
+            assertEquals(ClusterSlots.slot("user1000"), ClusterSlots.slot("{user1000}.following"));
+            assertEquals(ClusterSlots.slot("user1000"), ClusterSlots.slot("{user1000}.followers"));
+            // empty hash tag, the whole key will be hashed
+            assertEquals(ClusterSlots.crc16("foo{}bar".getBytes(), 0, 8) & 16383, ClusterSlots.slot("foo{}bar"));
+            assertEquals(ClusterSlots.slot("bar"), ClusterSlots.slot(RespMessages.bulkString("bar")));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testRouting() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, NioIoHandler.newFactory());
+        try {
+            StandInCluster cluster = new StandInCluster(group);
+            try (RedisClusterRouter router = new RedisClusterRouter(group, NioSocketChannel.class,
+                    List.of(cluster.nodeA.node))) {
+                ClusterSlotTable table = router.refreshSlots().get(5, TimeUnit.SECONDS);
+                assertEquals(cluster.nodeA.node, table.node(0));
+                assertEquals(cluster.nodeB.node, table.node(16383));
+
+                assertOk(router.execute(command("SET", "foo", "1")).get(5, TimeUnit.SECONDS));
+                assertOk(router.execute(command("SET", "bar", "2")).get(5, TimeUnit.SECONDS));
+                assertEquals("1", text(router.execute(command("GET", "foo")).get(5, TimeUnit.SECONDS)));
+                // no redirection with a fresh slot table
+                assertEquals(1, cluster.nodeA.commands.get());
+                assertEquals(2, cluster.nodeB.commands.get());
+
+                // multi-key commands are split by slots
+                assertOk(router.execute(command("MSET", "hello", "3", "{foo}.x", "4")).get(5, TimeUnit.SECONDS));
+                assertEquals("4", cluster.nodeB.store.get("{foo}.x"));
+                assertEquals("3", cluster.nodeA.store.get("hello"));
+                RespMessage reply = router.execute(command("MGET", "foo", "bar", "none", "hello", "{foo}.x"))
+                        .get(5, TimeUnit.SECONDS);
+                try {
+                    List<String> values = new ArrayList<>();
+                    for (Object value : assertInstanceOf(RespArrayMessage.class, reply).values()) {
+                        RespBulkStringMessage bulk = (RespBulkStringMessage) value;
+                        values.add(bulk.isNull() ? null : bulk.textValue());
+                    }
+                    assertEquals(Arrays.asList("1", "2", null, "3", "4"), values);
+                } finally {
+                    ReferenceCountUtil.release(reply);
+                }
+                reply = router.execute(command("DEL", "foo", "bar", "none")).get(5, TimeUnit.SECONDS);
+                assertEquals(2, assertInstanceOf(RespIntegerMessage.class, reply).value());
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testRedirections() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, NioIoHandler.newFactory());
+        try {
+            StandInCluster cluster = new StandInCluster(group);
+            try (RedisClusterRouter router = new RedisClusterRouter(group, NioSocketChannel.class,
+                    List.of(cluster.nodeA.node))) {
+                // without the slot table, commands will be sent to the seed and be MOVED
+                assertOk(router.execute(command("SET", "foo", "1")).get(5, TimeUnit.SECONDS));
+                assertEquals("1", cluster.nodeB.store.get("foo"));
+                assertEquals(cluster.nodeB.node, router.slotTable().node(ClusterSlots.slot("foo")));
+
+                // slot of "hello" is migrating from A to B
+                cluster.nodeB.store.put("hello", "world");
+                cluster.nodeA.migrating.add(ClusterSlots.slot("hello"));
+                assertEquals("world", text(router.execute(command("GET", "hello")).get(5, TimeUnit.SECONDS)));
+                assertEquals(1, cluster.nodeB.askings.get());
+                // ASK must not update the slot table
+                assertEquals(cluster.nodeA.node, router.slotTable().node(ClusterSlots.slot("hello")));
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testParseRedirection() {
+        ClusterNode current = new ClusterNode("10.0.0.1", 7000);
+        var redirection = RedisClusterRouter.parseRedirection("3999 127.0.0.1:7001", current);
+        assertEquals(3999, redirection.slot());
+        assertEquals(new ClusterNode("127.0.0.1", 7001), redirection.node());
+        redirection = RedisClusterRouter.parseRedirection("16383 :7002", current);
+        assertEquals(16383, redirection.slot());
+        assertEquals(new ClusterNode("10.0.0.1", 7002), redirection.node());
+        assertNull(RedisClusterRouter.parseRedirection("16384 127.0.0.1:7001", current));
+        assertNull(RedisClusterRouter.parseRedirection("foo 127.0.0.1:7001", current));
+        assertNull(RedisClusterRouter.parseRedirection("3999", current));
+    }
+
+    private static final RespArrayMessage<RespBulkStringMessage> command(String... args) {
+        return DefaultArrayMessage.bulkStringArrayUtf8(ByteBufAllocator.DEFAULT, args);
+    }
+
+    private static final void assertOk(RespMessage reply) {
+        assertEquals("OK", assertInstanceOf(RespSimpleStringMessage.class, reply).value());
+    }
+
+    private static final String text(RespMessage reply) {
+        try {
+            return assertInstanceOf(RespBulkStringMessage.class, reply).textValue();
+        } finally {
+            ReferenceCountUtil.release(reply);
+        }
+    }
+
+    private static final class StandInCluster {
+
+        private final StandInNode nodeA;
+        private final StandInNode nodeB;
+
+        private StandInCluster(EventLoopGroup group) throws Exception {
+            nodeA = new StandInNode(this, 0, 8191);
+            nodeB = new StandInNode(this, 8192, 16383);
+            nodeA.bind(group);
+            nodeB.bind(group);
+        }
+
+        private StandInNode owner(int slot) {
+            return slot <= nodeA.end ? nodeA : nodeB;
+        }
+
+        private RespMessage clusterSlots() {
+            List<RespMessage> ranges = new ArrayList<>();
+            for (StandInNode node : List.of(nodeA, nodeB)) {
+                ranges.add(RespMessages.array(RespMessages.integer(node.start), RespMessages.integer(node.end),
+                        RespMessages.array(RespMessages.bulkString(node.node.host()),
+                                RespMessages.integer(node.node.port()))));
+            }
+            return RespMessages.array(ranges);
+        }
+
+    }
+
+    private static final class StandInNode extends SimpleChannelInboundHandler<RedisRequest> {
+
+        private final StandInCluster cluster;
+        private final int start;
+        private final int end;
+        private final Map<String, String> store = new ConcurrentHashMap<>();
+        private final Set<Integer> migrating = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger commands = new AtomicInteger();
+        private final AtomicInteger askings = new AtomicInteger();
+        private ClusterNode node;
+
+        private StandInNode(StandInCluster cluster, int start, int end) {
+            this.cluster = cluster;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+
+        private void bind(EventLoopGroup group) throws Exception {
+            Channel channel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(RespMessageEncoder.getInstance()).addLast(new RedisRequestDecoder())
+                                    .addLast(StandInNode.this);
+                        }
+                    }).bind("127.0.0.1", 0).sync().channel();
+            node = new ClusterNode("127.0.0.1", ((InetSocketAddress) channel.localAddress()).getPort());
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RedisRequest msg) throws Exception {
+            String command = msg.command().textValue().toUpperCase();
+            if ("CLUSTER".equals(command)) {
+                ctx.writeAndFlush(cluster.clusterSlots());
+                return;
+            }
+            if ("ASKING".equals(command)) {
+                askings.incrementAndGet();
+                ctx.channel().attr(ASKING_FLAG).set(Boolean.TRUE);
+                ctx.writeAndFlush(RespMessages.ok());
+                return;
+            }
+            boolean asking = Boolean.TRUE.equals(ctx.channel().attr(ASKING_FLAG).getAndSet(null));
+            commands.incrementAndGet();
+            int step = "MSET".equals(command) ? 2 : 1;
+            int keyEnd = "GET".equals(command) || "SET".equals(command) ? 2 : msg.size();
+            List<String> keys = new ArrayList<>();
+            for (int i = 1; i < keyEnd; i += step) {
+                String key = msg.argument(i).textValue();
+                int slot = ClusterSlots.slot(key);
+                StandInNode owner = cluster.owner(slot);
+                if (migrating.contains(slot)) {
+                    StandInNode target = owner == cluster.nodeA ? cluster.nodeB : cluster.nodeA;
+                    ctx.writeAndFlush(DefaultErrorMessage.create("ASK", slot + " " + target.node));
+                    return;
+                }
+                if (owner != this && !asking) {
+                    ctx.writeAndFlush(DefaultErrorMessage.create("MOVED", slot + " " + owner.node));
+                    return;
+                }
+                keys.add(key);
+            }
+            switch (command) {
+            case "GET" -> ctx.writeAndFlush(bulkOrNil(store.get(keys.get(0))));
+            case "SET", "MSET" -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    store.put(keys.get(i), msg.argument(1 + i * step + 1).textValue());
+                }
+                ctx.writeAndFlush(RespMessages.ok());
+            }
+            case "MGET" -> {
+                List<RespMessage> values = new ArrayList<>();
+                for (String key : keys) {
+                    values.add(bulkOrNil(store.get(key)));
+                }
+                ctx.writeAndFlush(RespMessages.array(values));
+            }
+            case "DEL" -> {
+                long count = keys.stream().filter(key -> store.remove(key) != null).count();
+                ctx.writeAndFlush(RespMessages.integer(count));
+            }
+            default -> ctx.writeAndFlush(RespMessages.error("unknown command"));
+            }
+        }
+
+        private static final RespMessage bulkOrNil(String value) {
+            return value == null ? RespMessages.nil() : RespMessages.bulkString(value);
+        }
+
+    }
+
+}
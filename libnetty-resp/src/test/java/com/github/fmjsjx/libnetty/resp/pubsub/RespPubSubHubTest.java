@@ -0,0 +1,154 @@
+package com.github.fmjsjx.libnetty.resp.pubsub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.resp.pubsub.RespPubSubHub.SlowSubscriberPolicy;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalIoHandler;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.CharsetUtil;
+
+public class RespPubSubHubTest {
+
+    private static final String readText(EmbeddedChannel channel) {
+        ByteBuf buf = channel.readOutbound();
+        try {
+            return buf.toString(CharsetUtil.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testPublish() {
+        try {
+            RespPubSubHub hub = new RespPubSubHub();
+            EmbeddedChannel c1 = new EmbeddedChannel();
+            EmbeddedChannel c2 = new EmbeddedChannel();
+            assertEquals(1, hub.subscribe(c1, "news"));
+            assertEquals(2, hub.subscribe(c1, "sports"));
+            assertEquals(1, hub.subscribe(c2, "news"));
+            assertEquals(2, hub.subscriberCount("news"));
+            assertEquals(2, hub.topicCount());
+
+            assertEquals(2, hub.publish("news", "hello"));
+            String expected = "*3\r\n$7\r\nmessage\r\n$4\r\nnews\r\n$5\r\nhello\r\n";
+            assertEquals(expected, readText(c1));
+            assertEquals(expected, readText(c2));
+            assertEquals(0, hub.publish("none", "hello"));
+
+            assertEquals(1, hub.unsubscribe(c1, "news"));
+            assertEquals(1, hub.publish("news", "world"));
+            assertNull(c1.readOutbound());
+            assertEquals("*3\r\n$7\r\nmessage\r\n$4\r\nnews\r\n$5\r\nworld\r\n", readText(c2));
+
+            // closed channels are unsubscribed automatically
+            c2.close();
+            assertEquals(0, hub.subscriberCount("news"));
+            assertEquals(1, hub.topicCount());
+            assertEquals(1, hub.unsubscribeAll(c1));
+            assertEquals(0, hub.topicCount());
+            c1.finishAndReleaseAll();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testSlowSubscribers() {
+        try {
+            RespPubSubHub hub = new RespPubSubHub(ByteBufAllocator.DEFAULT, true, SlowSubscriberPolicy.CLOSE);
+            EmbeddedChannel fast = new EmbeddedChannel();
+            EmbeddedChannel slow = new EmbeddedChannel();
+            hub.subscribe(fast, "t");
+            hub.subscribe(slow, "t");
+            slow.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+            assertFalse(slow.isWritable());
+
+            assertEquals(2, hub.publish("t", "x"));
+            assertEquals(">3\r\n$7\r\nmessage\r\n$1\r\nt\r\n$1\r\nx\r\n", readText(fast));
+            assertNull(slow.readOutbound());
+            assertEquals(1, hub.droppedCount());
+            assertFalse(slow.isOpen());
+            assertEquals(1, hub.subscriberCount("t"));
+            fast.finishAndReleaseAll();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testEventLoopGroups() {
+        EventLoopGroup group = new MultiThreadIoEventLoopGroup(2, LocalIoHandler.newFactory());
+        try {
+            LocalAddress address = new LocalAddress("RespPubSubHubTest");
+            int subscribers = 4;
+            CountDownLatch accepted = new CountDownLatch(subscribers);
+            CountDownLatch latch = new CountDownLatch(subscribers);
+            Queue<Channel> children = new ConcurrentLinkedQueue<>();
+            String expected = "*3\r\n$7\r\nmessage\r\n$1\r\nt\r\n$3\r\nabc\r\n";
+            Channel server = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            children.add(ch);
+                            accepted.countDown();
+                        }
+                    }).bind(address).sync().channel();
+            RespPubSubHub hub = new RespPubSubHub();
+            Channel[] clients = new Channel[subscribers];
+            for (int i = 0; i < subscribers; i++) {
+                clients[i] = new Bootstrap().group(group).channel(LocalChannel.class).handler(
+                        new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                                ByteBuf buf = (ByteBuf) msg;
+                                if (expected.equals(buf.toString(CharsetUtil.UTF_8))) {
+                                    latch.countDown();
+                                }
+                                buf.release();
+                            }
+                        }).connect(address).sync().channel();
+            }
+            assertTrue(accepted.await(5, TimeUnit.SECONDS));
+            for (Channel child : children) {
+                hub.subscribe(child, "t");
+            }
+            assertEquals(subscribers, hub.publish("t", "abc"));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            for (Channel client : clients) {
+                client.close().sync();
+            }
+            server.close().sync();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.github.fmjsjx.libnetty.resp3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespIntegerMessage;
+import com.github.fmjsjx.libnetty.resp.exception.RespDecoderException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+public class Resp3MessageDecoderTest {
+
+    private static ByteBuf buffer(String text) {
+        return Unpooled.copiedBuffer(text, CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testDecodeMap() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new Resp3MessageDecoder());
+            // HGETALL style reply with a nested XRANGE style entry
+            assertTrue(channel.writeInbound(buffer(
+                    "%2\r\n$2\r\nf1\r\n:1\r\n$2\r\nf2\r\n*2\r\n$3\r\n1-0\r\n*2\r\n$1\r\nk\r\n$1\r\nv\r\n%1\r\n+a\r\n#t\r\n")));
+
+            Resp3MapMessage<?, ?> map = channel.readInbound();
+            assertEquals(2, map.size());
+            FieldValuePair<?, ?> first = map.values().get(0);
+            assertEquals("f1", ((RespBulkStringMessage) first.field()).textValue());
+            assertEquals(1, ((RespIntegerMessage) first.value()).value());
+            FieldValuePair<?, ?> second = map.values().get(1);
+            assertEquals("f2", ((RespBulkStringMessage) second.field()).textValue());
+            RespArrayMessage<?> entry = assertInstanceOf(RespArrayMessage.class, second.value());
+            assertEquals("1-0", ((RespBulkStringMessage) entry.values().get(0)).textValue());
+            RespArrayMessage<?> fields = assertInstanceOf(RespArrayMessage.class, entry.values().get(1));
+            assertEquals("k", ((RespBulkStringMessage) fields.values().get(0)).textValue());
+            assertEquals("v", ((RespBulkStringMessage) fields.values().get(1)).textValue());
+            map.release();
+
+            Resp3MapMessage<?, ?> single = channel.readInbound();
+            assertEquals(1, single.size());
+            assertEquals(CachedBooleanMessage.TRUE, single.values().get(0).value());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testDecodeSetAndPush() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new Resp3MessageDecoder());
+            assertTrue(channel.writeInbound(buffer("~3\r\n:1\r\n:2\r\n_\r\n>2\r\n$10\r\ninvalidate\r\n*1\r\n$3\r\nkey\r\n")));
+
+            Resp3SetMessage<?> set = channel.readInbound();
+            assertEquals(3, set.size());
+            assertEquals(2, ((RespIntegerMessage) set.values().get(1)).value());
+            assertEquals(Resp3Messages.nil(), set.values().get(2));
+
+            DefaultPushMessage<?> push = channel.readInbound();
+            assertEquals(Resp3MessageType.PUSH, push.type());
+            assertEquals(2, push.size());
+            assertEquals("invalidate", ((RespBulkStringMessage) push.values().get(0)).textValue());
+            push.release();
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testResetOnError() {
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new Resp3MessageDecoder());
+            ByteBuf content = buffer("*2\r\n$3\r\nabc\r\n#x\r\n");
+            assertThrows(RespDecoderException.class, () -> channel.writeInbound(content));
+            // decoder should be reset after the error
+            assertTrue(channel.writeInbound(buffer(":1\r\n")));
+            RespIntegerMessage msg = channel.readInbound();
+            assertEquals(1, msg.value());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.github.fmjsjx.libnetty.resp3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.fmjsjx.libnetty.resp.DefaultArrayMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.DefaultSimpleStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespArrayMessage;
+import com.github.fmjsjx.libnetty.resp.RespBulkStringMessage;
+import com.github.fmjsjx.libnetty.resp.RespMessage;
+import com.github.fmjsjx.libnetty.resp3.Resp3NearCacheHandler.TrackingMode;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+public class Resp3NearCacheHandlerTest {
+
+    private static final RespArrayMessage<RespBulkStringMessage> command(String... args) {
+        return DefaultArrayMessage.bulkStringArrayUtf8(ByteBufAllocator.DEFAULT, args);
+    }
+
+    private static final RespBulkStringMessage bulk(String value) {
+        return DefaultBulkStringMessage.createUtf8(ByteBufAllocator.DEFAULT, value);
+    }
+
+    private static final Resp3PushMessage<RespMessage> invalidate(String... keys) {
+        return new DefaultPushMessage<>(bulk("invalidate"), command(keys));
+    }
+
+    private static final String readText(EmbeddedChannel channel) {
+        RespBulkStringMessage msg = channel.readInbound();
+        assertNotNull(msg);
+        try {
+            return msg.textValue();
+        } finally {
+            msg.release();
+        }
+    }
+
+    @Test
+    public void testHitAndInvalidate() {
+        try {
+            Resp3NearCacheHandler handler = new Resp3NearCacheHandler();
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(bulk("v1"));
+            assertEquals("v1", readText(channel));
+            assertEquals(1, handler.size());
+
+            // hits the cache, nothing should be sent
+            channel.writeOutbound(command("get", "k"));
+            assertNull(channel.readOutbound());
+            channel.runPendingTasks();
+            assertEquals("v1", readText(channel));
+            assertEquals(1, handler.hitCount());
+            assertEquals(1, handler.missCount());
+
+            // cached replies must follow the pending replies
+            channel.writeOutbound(command("INCR", "n"));
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            assertNull(channel.readOutbound());
+            channel.runPendingTasks();
+            assertNull(channel.readInbound());
+            channel.writeInbound(bulk("1"));
+            assertEquals("1", readText(channel));
+            assertEquals("v1", readText(channel));
+
+            channel.writeInbound(invalidate("k"));
+            assertNull(channel.readInbound());
+            assertEquals(0, handler.size());
+            assertEquals(1, handler.invalidationCount());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testCachedReplyIsCompact() {
+        try {
+            Resp3NearCacheHandler handler = new Resp3NearCacheHandler();
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            // decoders create bulk strings by slicing the cumulation buffer
+            ByteBuf cumulation = Unpooled.copiedBuffer("$2\r\nv1\r\n", CharsetUtil.UTF_8);
+            channel.writeInbound(new DefaultBulkStringMessage(cumulation.retainedSlice(4, 2)));
+            cumulation.release();
+            assertEquals("v1", readText(channel));
+            // the cached reply must not pin the cumulation buffer
+            assertEquals(0, cumulation.refCnt());
+            assertEquals(1, handler.size());
+
+            channel.writeOutbound(command("GET", "k"));
+            channel.runPendingTasks();
+            assertEquals("v1", readText(channel));
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testInvalidateInFlight() {
+        try {
+            Resp3NearCacheHandler handler = new Resp3NearCacheHandler();
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(invalidate("k"));
+            channel.writeInbound(bulk("stale"));
+            assertEquals("stale", readText(channel));
+            // the stale reply must not be cached
+            assertEquals(0, handler.size());
+
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(bulk("v"));
+            assertEquals("v", readText(channel));
+            assertEquals(1, handler.size());
+            // FLUSHALL
+            channel.writeInbound(new DefaultPushMessage<>(bulk("invalidate"), Resp3Messages.nil()));
+            assertEquals(0, handler.size());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testTransactionAndFailedWrite() {
+        try {
+            Resp3NearCacheHandler handler = new Resp3NearCacheHandler();
+            AtomicBoolean failWrites = new AtomicBoolean();
+            EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+                @Override
+                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                    if (failWrites.get()) {
+                        ReferenceCountUtil.release(msg);
+                        promise.setFailure(new IOException("write failed"));
+                    } else {
+                        ctx.write(msg, promise);
+                    }
+                }
+            }, handler);
+
+            // +QUEUED must not be cached as the value of the key
+            channel.writeOutbound(command("MULTI"), command("GET", "k"), command("EXEC"));
+            for (int i = 0; i < 3; i++) {
+                ReferenceCountUtil.release(channel.readOutbound());
+            }
+            channel.writeInbound(new DefaultSimpleStringMessage("OK"), new DefaultSimpleStringMessage("QUEUED"),
+                    new DefaultArrayMessage<>(bulk("v")));
+            for (int i = 0; i < 3; i++) {
+                ReferenceCountUtil.release(channel.readInbound());
+            }
+            assertEquals(0, handler.size());
+
+            // non-bulk replies are never cached
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(new DefaultSimpleStringMessage("OK"));
+            ReferenceCountUtil.release(channel.readInbound());
+            assertEquals(0, handler.size());
+
+            // the failed command expects no reply
+            failWrites.set(true);
+            channel.write(command("GET", "failed"));
+            channel.flush();
+            failWrites.set(false);
+            channel.writeOutbound(command("GET", "k"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(bulk("v"));
+            assertEquals("v", readText(channel));
+            channel.writeOutbound(command("GET", "k"));
+            channel.runPendingTasks();
+            assertNull(channel.readOutbound());
+            assertEquals("v", readText(channel));
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testBroadcastingPrefixes() {
+        try {
+            Resp3NearCacheHandler handler = new Resp3NearCacheHandler(100, List.of("GET"), TrackingMode.BCAST,
+                    List.of("user:"));
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+            RespArrayMessage<RespBulkStringMessage> tracking = handler.clientTrackingOn(channel.alloc());
+            assertEquals(6, tracking.size());
+            assertEquals("BCAST", tracking.value(3).textValue());
+            assertEquals("user:", tracking.value(5).textValue());
+            tracking.release();
+
+            channel.writeOutbound(command("GET", "user:1"), command("GET", "order:1"));
+            ReferenceCountUtil.release(channel.readOutbound());
+            ReferenceCountUtil.release(channel.readOutbound());
+            channel.writeInbound(bulk("u"), bulk("o"));
+            assertEquals("u", readText(channel));
+            assertEquals("o", readText(channel));
+            // only keys matching the prefixes can be cached
+            assertEquals(1, handler.size());
+            assertEquals(1, handler.missCount());
+            assertFalse(channel.finish());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
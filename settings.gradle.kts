@@ -15,4 +15,5 @@ include(":libnetty-example")
 include(":libnetty-fastcgi")
 include(":libnetty-http-client")
 include(":libnetty-http-server")
+include(":libnetty-http-server-processor")
 include(":libnetty-resp")